@@ -0,0 +1,82 @@
+import bench.PoolDriver;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link PoolDriver} for the benchmarks, running operations against a {@link TicketPool}.
+ * Benchmark screens are numbered from 0 and mapped to pool screens numbered from 1, as in {@code Main}.
+ */
+public class TicketPoolDriver implements PoolDriver {
+    private final Configuration config;
+    private final TicketPool ticketPool;
+
+    /**
+     * Constructs a TicketPoolDriver.
+     *
+     * @param backend     The pool backend: LOCKING, COMPACT, or RING_ followed by a wait strategy, e.g. RING_PARK.
+     * @param screens     The number of screens.
+     * @param maxCapacity The maximum number of tickets queued per screen.
+     */
+    public TicketPoolDriver(String backend, int screens, int maxCapacity) {
+        this.config = new Configuration(0, 1, 1, maxCapacity, screens);
+        if (backend.startsWith("RING_")) {
+            config.setWaitStrategy(WaitStrategy.valueOf(backend.substring("RING_".length())));
+        } else if (backend.equals("COMPACT")) {
+            config.setCompactTickets(true);
+        } else if (!backend.equals("LOCKING")) {
+            throw new IllegalArgumentException("Unknown backend: " + backend);
+        }
+        config.setLogLevel(LogLevel.OFF);
+        EventLog.configure(config);
+        this.ticketPool = TicketPool.create(config);
+    }
+
+    @Override
+    public void add(int screen) {
+        ticketPool.addTicket(screen + 1, new Ticket(screen + 1, 1, ShowTimes.DEFAULT, TicketStatus.NOT_BOOKED));
+    }
+
+    @Override
+    public boolean remove(int screen) {
+        return ticketPool.removeTicket(screen + 1) != null;
+    }
+
+    /**
+     * Runs the {@code Main} scenario on a fresh pool with this driver's backend, screens and capacity.
+     * As in {@code Main}, customers buy as the vendors release, the total is set up front and the
+     * remainder goes to the first screens.
+     *
+     * @throws IllegalStateException If the sale did not finish or sold fewer tickets than it released.
+     */
+    @Override
+    public long sellOut(int tickets, int customersPerScreen, double rate) throws InterruptedException {
+        int screens = config.getScreens();
+        TicketPool pool = TicketPool.create(config);
+        pool.setTotalTickets(tickets); // Vendors stop once the pool is sold out, which an unset total already is
+        ExecutorService executor = ExecutionMode.PLATFORM.newExecutor();
+        try {
+            for (int screen = 1; screen <= screens; screen++) {
+                int share = tickets / screens + (screen <= tickets % screens ? 1 : 0);
+                executor.execute(new Vendor(pool, screen, share, rate));
+                for (int i = 0; i < customersPerScreen; i++) {
+                    executor.execute(new Customer(pool, screen, rate));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        if (!executor.awaitTermination(5, TimeUnit.MINUTES)) {
+            executor.shutdownNow();
+            throw new IllegalStateException("Sale did not finish");
+        }
+
+        long sold = 0;
+        for (int screen = 1; screen <= screens; screen++) {
+            sold += pool.getTicketsBooked(screen);
+        }
+        if (sold != tickets) {
+            throw new IllegalStateException("Sold " + sold + " of " + tickets + " tickets");
+        }
+        return sold;
+    }
+}
@@ -0,0 +1,55 @@
+package bench;
+
+/**
+ * Drives a ticket pool from the benchmarks. The ticketing classes live in the default package,
+ * which named packages cannot import, so the benchmarks reach them through this interface and
+ * the default-package {@code TicketPoolDriver} that implements it. Calls through the interface
+ * have a single implementation and are inlined by the JIT, so they add no measurable cost.
+ */
+public interface PoolDriver {
+
+    /**
+     * Creates a driver for a fresh pool with logging turned off.
+     *
+     * @param backend     The pool backend: LOCKING, COMPACT, or RING_ followed by a wait strategy, e.g. RING_PARK.
+     * @param screens     The number of screens.
+     * @param maxCapacity The maximum number of tickets queued per screen.
+     * @return The driver.
+     */
+    static PoolDriver create(String backend, int screens, int maxCapacity) {
+        try {
+            return (PoolDriver) Class.forName("TicketPoolDriver")
+                    .getConstructor(String.class, int.class, int.class)
+                    .newInstance(backend, screens, maxCapacity);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create the ticket pool driver", e);
+        }
+    }
+
+    /**
+     * Adds a new ticket to a screen, waiting while the screen is full.
+     *
+     * @param screen The screen, from 0 to screens - 1.
+     */
+    void add(int screen);
+
+    /**
+     * Books a ticket from a screen, waiting while the screen is empty and tickets remain elsewhere.
+     *
+     * @param screen The screen, from 0 to screens - 1.
+     * @return True if a ticket was booked; false if the pool was sold out.
+     */
+    boolean remove(int screen);
+
+    /**
+     * Runs the {@code Main} scenario on a fresh pool: one vendor and a number of customers per
+     * screen, with customers starting once every vendor has released its tickets.
+     *
+     * @param tickets            The total number of tickets to sell.
+     * @param customersPerScreen The number of customers buying from each screen.
+     * @param rate               The release and retrieval rate of each vendor and customer, in tickets per second.
+     * @return The number of tickets sold.
+     * @throws InterruptedException If interrupted while waiting for the sale to finish.
+     */
+    long sellOut(int tickets, int customersPerScreen, double rate) throws InterruptedException;
+}
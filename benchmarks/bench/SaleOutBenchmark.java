@@ -0,0 +1,59 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end time for the {@code Main} scenario to sell out: one vendor per screen releasing its
+ * share of the tickets, then customers buying until none remain. Rates are high enough that the
+ * pool, not the rate limiters, sets the pace; lower {@code rate} to measure a paced sale.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SaleOutBenchmark {
+
+    @Param({"LOCKING", "COMPACT", "RING_PARK"})
+    public String backend;
+
+    @Param({"3", "12"})
+    public int screens;
+
+    @Param({"1", "8"})
+    public int customersPerScreen;
+
+    @Param({"120000"})
+    public int tickets;
+
+    @Param({"1e8"})
+    public double rate;
+
+    private PoolDriver pool;
+
+    /**
+     * Sizes each screen to hold a vendor's whole share, since customers start after the vendors finish.
+     */
+    @Setup(Level.Trial)
+    public void createDriver() {
+        pool = PoolDriver.create(backend, screens, (tickets + screens - 1) / screens); // The first screens take the remainder
+    }
+
+    @Benchmark
+    public long sellOut() throws InterruptedException {
+        return pool.sellOut(tickets, customersPerScreen, rate);
+    }
+}
@@ -0,0 +1,190 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.Control;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Throughput of {@code TicketPool.addTicket} and {@code removeTicket}.
+ *
+ * <p>The {@code roundTrip} group adds and then books a ticket on each thread's own screen;
+ * run it with {@code -tg 8} to raise contention. The other groups pair vendor threads that only
+ * add with customer threads that only book, at 1:1, 4:1 and 1:4; {@code -tg} scales or changes
+ * the ratio, e.g. {@code -tg 8,2}. Threads of each role are spread round-robin across as many screens as both roles can
+ * cover, so every screen in use has a vendor and a customer.
+ *
+ * <p>A sentinel ticket on an extra screen keeps the pool from selling out while an iteration runs,
+ * so customers that outpace vendors wait as they would in a real sale instead of returning at once.
+ * When the iteration ends it is booked, and customers drain the pool so no vendor is left waiting.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class TicketPoolBenchmark {
+
+    @Param({"LOCKING", "COMPACT", "RING_PARK"})
+    public String backend;
+
+    @Param({"1", "4", "16"})
+    public int screens;
+
+    @Param({"16", "1024"})
+    public int maxCapacity;
+
+    private PoolDriver pool;
+    private AtomicBoolean sentinelBooked;
+
+    /**
+     * Starts every iteration with a pool holding only the sentinel ticket.
+     */
+    @Setup(Level.Iteration)
+    public void createPool() {
+        pool = PoolDriver.create(backend, screens, maxCapacity);
+        pool.add(screens);
+        sentinelBooked = new AtomicBoolean();
+    }
+
+    /**
+     * A thread that adds tickets to one screen.
+     */
+    @State(Scope.Thread)
+    public static class VendorThread {
+        int screen;
+
+        @Setup(Level.Trial)
+        public void assignScreen(ThreadParams threads, BenchmarkParams params) {
+            screen = screenFor(threads, params);
+        }
+    }
+
+    /**
+     * A thread that books tickets from one screen.
+     */
+    @State(Scope.Thread)
+    public static class CustomerThread {
+        int screen;
+
+        @Setup(Level.Trial)
+        public void assignScreen(ThreadParams threads, BenchmarkParams params) {
+            screen = screenFor(threads, params);
+        }
+    }
+
+    /**
+     * A thread that adds and then books tickets on its own screen.
+     */
+    @State(Scope.Thread)
+    public static class RoundTripThread {
+        int screen;
+
+        @Setup(Level.Trial)
+        public void assignScreen(ThreadParams threads, BenchmarkParams params) {
+            screen = threads.getSubgroupThreadIndex() % Integer.parseInt(params.getParam("screens"));
+        }
+    }
+
+    @Benchmark
+    @Group("roundTrip")
+    @GroupThreads(1)
+    public boolean roundTrip(RoundTripThread thread) {
+        pool.add(thread.screen);
+        return pool.remove(thread.screen);
+    }
+
+    @Benchmark
+    @Group("balanced")
+    @GroupThreads(1)
+    public void balancedAdd(VendorThread vendor, Control control) {
+        add(vendor, control);
+    }
+
+    @Benchmark
+    @Group("balanced")
+    @GroupThreads(1)
+    public void balancedRemove(CustomerThread customer, Control control) {
+        remove(customer, control);
+    }
+
+    @Benchmark
+    @Group("vendorHeavy")
+    @GroupThreads(4)
+    public void vendorHeavyAdd(VendorThread vendor, Control control) {
+        add(vendor, control);
+    }
+
+    @Benchmark
+    @Group("vendorHeavy")
+    @GroupThreads(1)
+    public void vendorHeavyRemove(CustomerThread customer, Control control) {
+        remove(customer, control);
+    }
+
+    @Benchmark
+    @Group("customerHeavy")
+    @GroupThreads(1)
+    public void customerHeavyAdd(VendorThread vendor, Control control) {
+        add(vendor, control);
+    }
+
+    @Benchmark
+    @Group("customerHeavy")
+    @GroupThreads(4)
+    public void customerHeavyRemove(CustomerThread customer, Control control) {
+        remove(customer, control);
+    }
+
+    private void add(VendorThread vendor, Control control) {
+        if (control.stopMeasurement) {
+            bookSentinel(); // Customers may all be waiting on empty screens
+        } else {
+            pool.add(vendor.screen);
+        }
+    }
+
+    private void remove(CustomerThread customer, Control control) {
+        if (control.stopMeasurement) {
+            // Keep booking until the pool is sold out, releasing any vendor still waiting for space
+            bookSentinel();
+            while (pool.remove(customer.screen)) {
+                // Each call books a ticket or returns once none remain
+            }
+        } else {
+            pool.remove(customer.screen);
+        }
+    }
+
+    private void bookSentinel() {
+        if (!sentinelBooked.get() && sentinelBooked.compareAndSet(false, true)) {
+            pool.remove(screens);
+        }
+    }
+
+    /**
+     * Spreads the threads of one role over the screens that both roles can cover.
+     */
+    private static int screenFor(ThreadParams threads, BenchmarkParams params) {
+        int ownThreads = threads.getSubgroupThreadCount();
+        int otherThreads = threads.getGroupThreadCount() - ownThreads;
+        int screensInUse = Math.min(Integer.parseInt(params.getParam("screens")), Math.min(ownThreads, otherThreads));
+        return threads.getSubgroupThreadIndex() % Math.max(1, screensInUse);
+    }
+}
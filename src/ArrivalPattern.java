@@ -0,0 +1,113 @@
+import java.util.Random;
+
+/**
+ * How purchase requests arrive during a load test, each shaped around a base rate.
+ * Random patterns are Poisson processes; time-varying ones are sampled by thinning, so arrivals
+ * stay independent while following the rate curve.
+ */
+public enum ArrivalPattern {
+    /**
+     * Requests evenly spaced at the base rate.
+     */
+    CONSTANT {
+        @Override
+        public double rateAt(double baseRate, double elapsed) {
+            return baseRate;
+        }
+
+        @Override
+        double peakRate(double baseRate) {
+            return baseRate;
+        }
+
+        @Override
+        long nextArrival(long previousNanos, double baseRate, long durationNanos, Random random) {
+            return previousNanos + (long) (1_000_000_000.0 / baseRate);
+        }
+    },
+
+    /**
+     * Independent requests at the base rate on average, with exponentially distributed gaps.
+     */
+    POISSON {
+        @Override
+        public double rateAt(double baseRate, double elapsed) {
+            return baseRate;
+        }
+
+        @Override
+        double peakRate(double baseRate) {
+            return baseRate;
+        }
+    },
+
+    /**
+     * A rush when the sale opens: {@value #BURST_PEAK} times the base rate at first, decaying
+     * exponentially to the base rate over the first tenth of the run.
+     */
+    BURST {
+        @Override
+        public double rateAt(double baseRate, double elapsed) {
+            return baseRate * (1 + (BURST_PEAK - 1) * Math.exp(-elapsed * 10));
+        }
+
+        @Override
+        double peakRate(double baseRate) {
+            return baseRate * BURST_PEAK;
+        }
+    },
+
+    /**
+     * A day compressed into the run: quiet at the start and end, peaking at twice the base rate
+     * in the middle, and averaging the base rate overall.
+     */
+    DIURNAL {
+        @Override
+        public double rateAt(double baseRate, double elapsed) {
+            return baseRate * (1 - Math.cos(2 * Math.PI * elapsed));
+        }
+
+        @Override
+        double peakRate(double baseRate) {
+            return baseRate * 2;
+        }
+    };
+
+    private static final double BURST_PEAK = 10;
+
+    /**
+     * Retrieves the arrival rate at a point in the run.
+     *
+     * @param baseRate The base rate in requests per second.
+     * @param elapsed  The fraction of the run elapsed, from 0 to 1.
+     * @return The rate in requests per second.
+     */
+    public abstract double rateAt(double baseRate, double elapsed);
+
+    /**
+     * Retrieves the highest rate the pattern reaches.
+     */
+    abstract double peakRate(double baseRate);
+
+    /**
+     * Draws the time of the next arrival.
+     *
+     * @param previousNanos The time of the previous arrival, relative to the start of the run.
+     * @param baseRate      The base rate in requests per second.
+     * @param durationNanos The length of the run.
+     * @param random        The source of randomness.
+     * @return The time of the next arrival, relative to the start; past the duration when the run is over.
+     */
+    long nextArrival(long previousNanos, double baseRate, long durationNanos, Random random) {
+        double peak = peakRate(baseRate);
+        long time = previousNanos;
+        while (time <= durationNanos) {
+            // Draw candidates at the peak rate and keep each with probability rate / peak
+            time += (long) (-Math.log(1 - random.nextDouble()) / peak * 1_000_000_000.0);
+            if (random.nextDouble() * peak < rateAt(baseRate, (double) time / durationNanos)) {
+                return time;
+            }
+        }
+        return time;
+    }
+}
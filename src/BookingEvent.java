@@ -0,0 +1,69 @@
+/**
+ * A ticket added to or booked from a {@link TicketPool}, as streamed by a {@link BookingEventPublisher}.
+ * The event refers to the pool's own ticket object, so fields read later reflect the ticket's
+ * current state; the event type records what happened when the event was published.
+ */
+public final class BookingEvent {
+    private final Type type;
+    private final Ticket ticket;
+    private final long nanoTime;
+
+    /**
+     * What happened to the ticket.
+     */
+    public enum Type {
+        /**
+         * The ticket went on sale.
+         */
+        ADDED,
+
+        /**
+         * The ticket was booked by a customer.
+         */
+        BOOKED
+    }
+
+    /**
+     * Constructs a BookingEvent stamped with the current time.
+     *
+     * @param type   What happened to the ticket.
+     * @param ticket The ticket the event concerns.
+     */
+    public BookingEvent(Type type, Ticket ticket) {
+        this.type = type;
+        this.ticket = ticket;
+        this.nanoTime = System.nanoTime();
+    }
+
+    /**
+     * Retrieves what happened to the ticket.
+     *
+     * @return The event type.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Retrieves the ticket the event concerns.
+     *
+     * @return The ticket.
+     */
+    public Ticket getTicket() {
+        return ticket;
+    }
+
+    /**
+     * Retrieves when the event was published, as a {@link System#nanoTime()} reading.
+     *
+     * @return The time of the event in nanoseconds.
+     */
+    public long getNanoTime() {
+        return nanoTime;
+    }
+
+    @Override
+    public String toString() {
+        return "BookingEvent{" + type + ", " + ticket + '}';
+    }
+}
@@ -0,0 +1,353 @@
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Streams the tickets a {@link TicketPool} adds and books to any number of subscribers, with
+ * backpressure. The pool's threads only push events into a bounded lock-free buffer and return;
+ * a dispatcher thread copies each event into every subscriber's own bounded buffer, and each
+ * subscriber receives its events on an executor, one at a time and no faster than it requests them.
+ *
+ * <p>When a subscriber's buffer is full, its {@link OverflowPolicy} decides whether the event is
+ * dropped for that subscriber or the dispatcher waits for room. Waiting holds up the other
+ * subscribers but never the pool: if the dispatcher falls so far behind that the shared buffer
+ * fills, further events are dropped at the source and counted, as the {@link EventLog} does.
+ */
+public class BookingEventPublisher implements Flow.Publisher<BookingEvent>, AutoCloseable {
+    private static final int DEFAULT_SOURCE_CAPACITY = 1 << 16;
+    private static final int DEFAULT_BUFFER_CAPACITY = 1024;
+    private static final long BLOCK_PARK_NANOS = 100_000L;
+
+    private final RingBuffer<BookingEvent> source;
+    private final Executor executor;
+    private final LongAdder dropped = new LongAdder();
+    private final Thread dispatcher;
+    private volatile EventSubscription[] subscriptions = new EventSubscription[0];
+    private volatile boolean closed;
+
+    /**
+     * What happens to an event when a subscriber's buffer has no room for it.
+     */
+    public enum OverflowPolicy {
+        /**
+         * The subscriber misses the event, and the event is counted as dropped.
+         */
+        DROP,
+
+        /**
+         * The dispatcher waits until the subscriber makes room, holding up the other subscribers.
+         */
+        BLOCK
+    }
+
+    /**
+     * Constructs a BookingEventPublisher that delivers on the common fork/join pool.
+     */
+    public BookingEventPublisher() {
+        this(DEFAULT_SOURCE_CAPACITY, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a BookingEventPublisher and starts its dispatcher thread.
+     *
+     * @param sourceCapacity The number of events the pool can publish ahead of the dispatcher.
+     * @param executor       The executor that runs subscribers' callbacks.
+     */
+    public BookingEventPublisher(int sourceCapacity, Executor executor) {
+        this.source = new RingBuffer<>(sourceCapacity);
+        this.executor = Objects.requireNonNull(executor);
+        this.dispatcher = new Thread(this::dispatchLoop, "Booking-Events");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Subscribes with a buffer of the default size that drops events the subscriber has no room for.
+     *
+     * @param subscriber The subscriber.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super BookingEvent> subscriber) {
+        subscribe(subscriber, OverflowPolicy.DROP, DEFAULT_BUFFER_CAPACITY);
+    }
+
+    /**
+     * Subscribes to the events published from now on. The subscriber's {@code onSubscribe} is
+     * called on the executor before any other callback. Subscribing to a closed publisher
+     * completes the subscription straight away.
+     *
+     * @param subscriber     The subscriber.
+     * @param policy         What to do with an event when the subscriber's buffer is full.
+     * @param bufferCapacity The number of events buffered for the subscriber before it requests them.
+     */
+    public void subscribe(Flow.Subscriber<? super BookingEvent> subscriber, OverflowPolicy policy, int bufferCapacity) {
+        EventSubscription subscription = new EventSubscription(Objects.requireNonNull(subscriber),
+                Objects.requireNonNull(policy), bufferCapacity);
+        synchronized (this) {
+            if (closed) {
+                subscription.completed = true;
+            } else {
+                EventSubscription[] current = subscriptions;
+                EventSubscription[] updated = Arrays.copyOf(current, current.length + 1);
+                updated[current.length] = subscription;
+                subscriptions = updated;
+            }
+        }
+        subscription.schedule();
+    }
+
+    /**
+     * Checks whether anyone is subscribed, so publishers can skip creating events nobody receives.
+     *
+     * @return True if there is at least one subscriber; false otherwise.
+     */
+    public boolean hasSubscribers() {
+        return subscriptions.length > 0;
+    }
+
+    /**
+     * Retrieves the number of current subscribers.
+     *
+     * @return The subscriber count.
+     */
+    public int getSubscriberCount() {
+        return subscriptions.length;
+    }
+
+    /**
+     * Retrieves the number of events lost so far: those dropped at the source because the
+     * dispatcher fell behind, plus those dropped for each subscriber whose buffer was full.
+     *
+     * @return The number of dropped events.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Publishes an event about a ticket without waiting. Does nothing when nobody is subscribed.
+     *
+     * @param type   What happened to the ticket.
+     * @param ticket The ticket the event concerns.
+     */
+    public void publish(BookingEvent.Type type, Ticket ticket) {
+        if (subscriptions.length == 0 || closed) {
+            return;
+        }
+        if (!source.offer(new BookingEvent(type, ticket))) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Stops accepting events and completes every subscription once its buffered events are
+     * delivered. Events published after closing are discarded.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        LockSupport.unpark(dispatcher);
+    }
+
+    /**
+     * Copies events from the source buffer to each subscriber's buffer until closed, then
+     * completes the subscriptions.
+     */
+    private void dispatchLoop() {
+        int idle = 0;
+        while (true) {
+            BookingEvent event = source.poll();
+            if (event != null) {
+                for (EventSubscription subscription : subscriptions) {
+                    subscription.offer(event);
+                }
+                idle = 0;
+                continue;
+            }
+            if (closed) {
+                break;
+            }
+            try {
+                WaitStrategy.PARK.idle(idle++);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        for (EventSubscription subscription : subscriptions) {
+            subscription.complete();
+        }
+    }
+
+    private synchronized void remove(EventSubscription subscription) {
+        EventSubscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == subscription) {
+                EventSubscription[] updated = new EventSubscription[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                subscriptions = updated;
+                return;
+            }
+        }
+    }
+
+    /**
+     * One subscriber's buffer and demand. The dispatcher fills the buffer; a drain task on the
+     * executor empties it into the subscriber. Only one drain task runs at a time, so the
+     * subscriber's callbacks never overlap.
+     */
+    private final class EventSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super BookingEvent> subscriber;
+        private final OverflowPolicy policy;
+        private final RingBuffer<BookingEvent> buffer;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pendingDrains = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile boolean completed; // No more events will be buffered
+        private volatile boolean waitingForRoom; // The dispatcher is blocked on this buffer
+        private volatile Throwable failure;
+        private boolean subscribed; // Owned by the drain task
+
+        private EventSubscription(Flow.Subscriber<? super BookingEvent> subscriber, OverflowPolicy policy, int bufferCapacity) {
+            this.subscriber = subscriber;
+            this.policy = policy;
+            this.buffer = new RingBuffer<>(bufferCapacity);
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                failure = new IllegalArgumentException("Requested " + n + " events; requests must be positive");
+            } else {
+                demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            remove(this);
+            if (waitingForRoom) {
+                LockSupport.unpark(dispatcher);
+            }
+        }
+
+        /**
+         * Buffers an event for the subscriber, applying the overflow policy. Called by the dispatcher.
+         */
+        private void offer(BookingEvent event) {
+            if (cancelled) {
+                return;
+            }
+            if (!buffer.offer(event)) {
+                if (policy == OverflowPolicy.DROP) {
+                    dropped.increment();
+                    return;
+                }
+                waitingForRoom = true;
+                try {
+                    while (!buffer.offer(event)) {
+                        if (cancelled) {
+                            return;
+                        }
+                        LockSupport.parkNanos(this, BLOCK_PARK_NANOS); // The drain task unparks the dispatcher after making room
+                    }
+                } finally {
+                    waitingForRoom = false;
+                }
+            }
+            schedule();
+        }
+
+        private void complete() {
+            completed = true;
+            schedule();
+        }
+
+        /**
+         * Starts a drain task unless one is running, in which case that task drains again before it ends.
+         */
+        private void schedule() {
+            if (pendingDrains.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    cancel(); // Nothing will ever deliver to this subscriber
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                if (!subscribed) {
+                    subscribed = true;
+                    try {
+                        subscriber.onSubscribe(this);
+                    } catch (RuntimeException e) {
+                        failed(e);
+                    }
+                }
+                drain();
+                missed = pendingDrains.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            if (cancelled) {
+                return;
+            }
+            Throwable failure = this.failure;
+            if (failure != null) {
+                cancel();
+                subscriber.onError(failure);
+                return;
+            }
+            long requested = demand.get();
+            while (requested > 0 && !cancelled) {
+                long emitted = 0;
+                BookingEvent event;
+                while (emitted != requested && !cancelled && (event = buffer.poll()) != null) {
+                    try {
+                        subscriber.onNext(event);
+                    } catch (RuntimeException e) {
+                        failed(e);
+                        return;
+                    }
+                    emitted++;
+                }
+                if (emitted == 0) {
+                    break;
+                }
+                if (waitingForRoom) {
+                    LockSupport.unpark(dispatcher);
+                }
+                // Pick up whatever the subscriber requested from within onNext
+                requested = requested == Long.MAX_VALUE ? requested : demand.addAndGet(-emitted);
+            }
+            if (completed && !cancelled && buffer.isEmpty()) {
+                cancelled = true;
+                subscriber.onComplete();
+            }
+        }
+
+        /**
+         * Gives up on a subscriber that threw from a callback, which subscribers must not do.
+         */
+        private void failed(RuntimeException e) {
+            cancel();
+            System.err.println("Booking event subscriber failed: " + e);
+        }
+    }
+}
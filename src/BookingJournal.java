@@ -0,0 +1,476 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * A durable, append-only journal of tickets added to and booked from a {@link TicketPool}.
+ * Callers append records into an in-memory batch and a single writer thread writes whole batches
+ * with one {@code write} and, depending on the {@link FsyncPolicy}, one {@code force()}, so many
+ * bookings share the cost of each disk flush (group commit).
+ *
+ * <p>Each record is {@code [type:1][screen:4][seat:4][showTime:4][textLength:2][text][crc32c:4]},
+ * little endian. Show-time ids are defined by a SHOW_TIME record before their first use, and the
+ * text carries seat labels that do not follow the "Seat-N" pattern. On open, the journal is
+ * replayed one mapped window at a time, so it may grow past what a single mapping can hold, and
+ * any torn record at its end, left by a crash mid-write, is truncated.
+ *
+ * <p>A ticket's ADD is appended before the ticket goes on sale, so it always precedes the
+ * ticket's BOOK; a ticket that was announced but never went on sale gets a WITHDRAW instead.
+ */
+public class BookingJournal implements AutoCloseable {
+    private static final int HEADER_SIZE = 15;
+    private static final int CRC_SIZE = 4;
+    private static final int MAX_RECORD_SIZE = HEADER_SIZE + 0xFFFF + CRC_SIZE;
+    private static final int INITIAL_BATCH_CAPACITY = 64 * 1024;
+    private static final int REPLAY_WINDOW = 256 * 1024 * 1024;
+
+    /**
+     * When the journal forces written batches to the storage device.
+     */
+    public enum FsyncPolicy {
+        /**
+         * Forces every batch; callers wait until their records are on disk.
+         */
+        ALWAYS,
+
+        /**
+         * Forces at most once per sync interval; callers do not wait.
+         */
+        PERIODIC,
+
+        /**
+         * Never forces; durability is left to the operating system.
+         */
+        NEVER
+    }
+
+    /**
+     * The kinds of records in the journal.
+     */
+    public enum Type {
+        ADD,
+        BOOK,
+        SHOW_TIME,
+        WITHDRAW;
+
+        private static final Type[] VALUES = values();
+    }
+
+    private final FileChannel channel;
+    private final FsyncPolicy policy;
+    private final long syncIntervalNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition committed = lock.newCondition();
+    private final CRC32C checksum = new CRC32C();
+    private final BitSet definedShowTimes = new BitSet(); // Defined in this process's numbering
+    private final Map<Integer, List<Ticket>> recoveredByScreen = new LinkedHashMap<>();
+    private final Map<Integer, Integer> addedByScreen = new HashMap<>();
+    private final Thread writer;
+    private ByteBuffer pending = newBatch(INITIAL_BATCH_CAPACITY);
+    private ByteBuffer spare = newBatch(INITIAL_BATCH_CAPACITY);
+    private long appendedSequence;
+    private long durableSequence;
+    private IOException failure;
+    private boolean closed;
+    private int recoveredBookings;
+
+    private BookingJournal(FileChannel channel, FsyncPolicy policy, long syncIntervalMillis, int replayWindow) throws IOException {
+        this.channel = channel;
+        this.policy = policy;
+        this.syncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, syncIntervalMillis));
+        replay(Math.max(replayWindow, MAX_RECORD_SIZE));
+        this.writer = new Thread(this::writeLoop, "BookingJournal-Writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Opens a journal, creating it if needed, and replays the records it already holds.
+     *
+     * @param file               The journal file.
+     * @param policy             When written batches are forced to disk.
+     * @param syncIntervalMillis The maximum time between forces under {@link FsyncPolicy#PERIODIC}.
+     * @return The open journal.
+     * @throws IOException If the file cannot be opened or read.
+     */
+    public static BookingJournal open(Path file, FsyncPolicy policy, long syncIntervalMillis) throws IOException {
+        return open(file, policy, syncIntervalMillis, REPLAY_WINDOW);
+    }
+
+    /**
+     * Opens a journal as {@link #open(Path, FsyncPolicy, long)} does, replaying it through mapped
+     * windows of a given size, which is raised to the largest record if smaller.
+     */
+    static BookingJournal open(Path file, FsyncPolicy policy, long syncIntervalMillis, int replayWindow) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new BookingJournal(channel, policy, syncIntervalMillis, replayWindow);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Adds every ticket that the journal shows as added but not booked back into a pool.
+     * Call this before attaching the journal to the pool, so recovered tickets are not journaled
+     * twice, and before customers start. Tickets are loaded in bulk, so a screen's recovered
+     * tickets may exceed its capacity, e.g. after the capacity was lowered or when tickets were
+     * on hold at the crash.
+     *
+     * @param ticketPool The pool to restore into.
+     * @return The number of tickets restored.
+     */
+    public int restore(TicketPool ticketPool) {
+        int restored = 0;
+        for (Map.Entry<Integer, List<Ticket>> entry : recoveredByScreen.entrySet()) {
+            Ticket[] tickets = entry.getValue().toArray(new Ticket[0]);
+            Arrays.sort(tickets, Comparator.comparingInt(Ticket::getShowTimeId)); // One run per show
+            for (int from = 0; from < tickets.length; ) {
+                int showTimeId = tickets[from].getShowTimeId();
+                int to = from + 1;
+                while (to < tickets.length && tickets[to].getShowTimeId() == showTimeId) {
+                    to++;
+                }
+                restored += ticketPool.loadTickets(entry.getKey(), showTimeId, tickets, from, to - from);
+                from = to;
+            }
+        }
+        recoveredByScreen.clear();
+        return restored;
+    }
+
+    /**
+     * Retrieves the number of tickets the journal recorded as added to a screen before it was opened.
+     *
+     * @param screenNumber The screen number.
+     * @return The number of tickets added to the screen.
+     */
+    public int getAddedCount(int screenNumber) {
+        return addedByScreen.getOrDefault(screenNumber, 0);
+    }
+
+    /**
+     * Retrieves the number of bookings the journal recorded before it was opened.
+     *
+     * @return The number of bookings.
+     */
+    public int getRecoveredBookings() {
+        return recoveredBookings;
+    }
+
+    /**
+     * Appends a record for a ticket to the current batch without waiting for it to be written.
+     *
+     * @param type   The record type, ADD, BOOK or WITHDRAW.
+     * @param ticket The ticket the record concerns.
+     * @return The sequence number of the record, for use with {@link #commit(long)}.
+     */
+    public long append(Type type, Ticket ticket) {
+        String label = ticket.getSeatLabel();
+        byte[] text = label == null ? null : label.getBytes(StandardCharsets.UTF_8);
+        int showTimeId = ticket.getShowTimeId();
+        lock.lock();
+        try {
+            if (!definedShowTimes.get(showTimeId)) {
+                write(Type.SHOW_TIME, showTimeId, 0, 0, ShowTimes.name(showTimeId).getBytes(StandardCharsets.UTF_8));
+                definedShowTimes.set(showTimeId);
+            }
+            write(type, ticket.getScreenNumber(), ticket.getSeat(), showTimeId, text);
+            notEmpty.signal(); // Cheap when the writer is already busy with the previous batch
+            return ++appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until a record is durable. Under {@link FsyncPolicy#ALWAYS} this means forced to disk;
+     * under the other policies the method returns immediately.
+     *
+     * @param sequence The sequence number returned by {@link #append(Type, Ticket)}.
+     * @throws UncheckedIOException If the journal could not be written.
+     */
+    public void commit(long sequence) {
+        if (policy != FsyncPolicy.ALWAYS) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (durableSequence < sequence && failure == null) {
+                committed.awaitUninterruptibly();
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("Booking journal write failed", failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every record appended so far is durable, as for {@link #commit(long)}.
+     */
+    public void sync() {
+        long sequence;
+        lock.lock();
+        try {
+            sequence = appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+        commit(sequence);
+    }
+
+    /**
+     * Writes and forces every pending record, then closes the journal file.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.force(false);
+        channel.close();
+    }
+
+    /**
+     * Writes batches until the journal is closed, forcing them according to the policy.
+     */
+    private void writeLoop() {
+        long lastForce = System.nanoTime();
+        boolean dirty = false;
+        while (true) {
+            ByteBuffer batch;
+            long batchSequence;
+            boolean exit;
+            lock.lock();
+            try {
+                while (pending.position() == 0 && !closed) {
+                    if (dirty && policy == FsyncPolicy.PERIODIC) {
+                        long remaining = lastForce + syncIntervalNanos - System.nanoTime();
+                        if (remaining <= 0 || notEmpty.awaitNanos(remaining) <= 0) {
+                            break;
+                        }
+                    } else {
+                        notEmpty.awaitUninterruptibly();
+                    }
+                }
+                batch = pending;
+                pending = spare;
+                spare = batch;
+                batchSequence = appendedSequence;
+                exit = closed;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                batch.clear();
+                dirty |= batchSequence > durableSequence;
+                long now = System.nanoTime();
+                if (dirty && (policy == FsyncPolicy.ALWAYS
+                        || (policy == FsyncPolicy.PERIODIC && now - lastForce >= syncIntervalNanos))) {
+                    channel.force(false);
+                    lastForce = now;
+                    dirty = false;
+                }
+            } catch (IOException e) {
+                lock.lock();
+                try {
+                    failure = e;
+                    committed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+
+            lock.lock();
+            try {
+                durableSequence = batchSequence;
+                committed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (exit) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Encodes one record into the pending batch, growing it if needed. Called with the lock held.
+     */
+    private void write(Type type, int screen, int seat, int showTime, byte[] text) {
+        int textLength = text == null ? 0 : text.length;
+        int size = HEADER_SIZE + textLength + CRC_SIZE;
+        if (pending.remaining() < size) {
+            ByteBuffer grown = newBatch(Math.max(pending.capacity() * 2, pending.position() + size));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+        int start = pending.position();
+        pending.put((byte) type.ordinal()).putInt(screen).putInt(seat).putInt(showTime).putShort((short) textLength);
+        if (text != null) {
+            pending.put(text);
+        }
+        checksum.reset();
+        checksum.update(pending.array(), start, pending.position() - start);
+        pending.putInt((int) checksum.getValue());
+    }
+
+    /**
+     * Replays the existing journal, keeping the tickets still available, then truncates any torn tail.
+     * The file is mapped a window at a time; a window is moved on once the record at its position
+     * might not fit in what is left of it.
+     */
+    private void replay(int window) throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return;
+        }
+        Map<Integer, Integer> showTimeIds = new HashMap<>(); // Journal id to ShowTimes id
+        Map<SeatKey, Integer> countsBySeat = new LinkedHashMap<>();
+
+        MappedByteBuffer records = null;
+        long windowStart = 0;
+        long position = 0;
+        while (position + HEADER_SIZE + CRC_SIZE <= size) {
+            long windowEnd = records == null ? 0 : windowStart + records.capacity();
+            if (records == null || (position + MAX_RECORD_SIZE > windowEnd && windowEnd < size)) {
+                windowStart = position;
+                records = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(size - windowStart, window));
+                records.order(ByteOrder.LITTLE_ENDIAN);
+            }
+            int at = (int) (position - windowStart);
+            int textLength = Short.toUnsignedInt(records.getShort(at + 13));
+            int length = HEADER_SIZE + textLength + CRC_SIZE;
+            int typeOrdinal = records.get(at);
+            if (position + length > size || typeOrdinal < 0 || typeOrdinal >= Type.VALUES.length) {
+                break;
+            }
+            checksum.reset();
+            checksum.update(records.slice(at, length - CRC_SIZE));
+            if ((int) checksum.getValue() != records.getInt(at + length - CRC_SIZE)) {
+                break; // Torn or corrupt record; everything after it is discarded
+            }
+
+            int screen = records.getInt(at + 1);
+            int seat = records.getInt(at + 5);
+            int showTime = records.getInt(at + 9);
+            String text = null;
+            if (textLength > 0) {
+                byte[] bytes = new byte[textLength];
+                records.get(at + HEADER_SIZE, bytes);
+                text = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            Type type = Type.VALUES[typeOrdinal];
+            if (type == Type.SHOW_TIME) {
+                showTimeIds.put(screen, ShowTimes.id(text));
+            } else {
+                SeatKey key = new SeatKey(screen, seat, showTimeIds.getOrDefault(showTime, showTime), text);
+                // A seat's BOOK or WITHDRAW cancels its ADD
+                countsBySeat.merge(key, type == Type.ADD ? 1 : -1, Integer::sum);
+                if (type == Type.ADD) {
+                    addedByScreen.merge(screen, 1, Integer::sum);
+                } else if (type == Type.WITHDRAW) {
+                    addedByScreen.merge(screen, -1, Integer::sum);
+                } else {
+                    recoveredBookings++;
+                }
+            }
+            position += length;
+        }
+        if (position < size) {
+            channel.truncate(position);
+        }
+        channel.position(position);
+
+        for (Map.Entry<SeatKey, Integer> entry : countsBySeat.entrySet()) {
+            SeatKey key = entry.getKey();
+            for (int i = 0; i < entry.getValue(); i++) {
+                Ticket ticket = new Ticket(key.screen, key.seat, key.showTimeId, TicketStatus.NOT_BOOKED);
+                if (key.label != null) {
+                    ticket.setSeatNumber(key.label);
+                }
+                recoveredByScreen.computeIfAbsent(key.screen, s -> new ArrayList<>()).add(ticket);
+            }
+        }
+    }
+
+    private static ByteBuffer newBatch(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Identifies a seat while the journal is replayed.
+     */
+    private static final class SeatKey {
+        private final int screen;
+        private final int seat;
+        private final int showTimeId;
+        private final String label;
+
+        private SeatKey(int screen, int seat, int showTimeId, String label) {
+            this.screen = screen;
+            this.seat = seat;
+            this.showTimeId = showTimeId;
+            this.label = label;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof SeatKey)) {
+                return false;
+            }
+            SeatKey key = (SeatKey) other;
+            return screen == key.screen && seat == key.seat && showTimeId == key.showTimeId
+                    && Objects.equals(label, key.label);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(screen, seat, showTimeId, label);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adapts each screen's show capacity and its vendor's release rate to how fast the screen's
+ * customers buy, so tickets neither pile up on slow screens nor leave the vendors of busy screens
+ * blocked at a fixed cap.
+ *
+ * <p>Each time it runs, the controller measures every screen's drain rate (tickets booked per
+ * second, smoothed) and depth (tickets on sale), and estimates how long a ticket added now waits
+ * to be bought as depth over drain rate, by Little's law. It then adjusts additively upwards and
+ * multiplicatively downwards, as TCP adjusts its window:
+ * <ul>
+ *     <li>A screen whose fullest show is at capacity while its tickets still sell within the
+ *     target wait gets a step more capacity.</li>
+ *     <li>A screen whose tickets wait longer than the target loses half its capacity, and a
+ *     screen whose shows stay nearly empty slowly gives capacity back; neither drops below
+ *     what its customers buy within the target wait.</li>
+ *     <li>A vendor is slowed by half while its screen's tickets wait too long or it is stuck at a
+ *     capacity that cannot grow, though not below the rate its customers buy at, and otherwise
+ *     speeds back up in steps to the configured rate.</li>
+ * </ul>
+ * Capacities share a fixed budget, so capacity freed by cold screens goes to hot ones, busiest first.
+ *
+ * <p>Run the controller periodically on one thread, e.g. every {@link #getPeriodMillis()} on the
+ * {@link RateScheduler}'s executor.
+ */
+public class CapacityController implements Runnable {
+    private static final double SMOOTHING = 0.5; // Weight of the latest drain rate against the history
+    private static final double DECREASE = 0.5;
+    private static final double COLD_DECREASE = 0.9;
+    private static final double FULL = 0.9; // Fill of the fullest show at which a screen counts as full
+    private static final double COLD = 0.25; // Fill below which a screen gives capacity back
+    private static final int STEPS = 10; // Additive steps from nothing to a screen's even share
+    private static final double MIN_RATE = 0.01; // Slowest pacing when nothing sells, as a share of the configured rate
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final TicketPool ticketPool;
+    private final long targetWaitNanos;
+    private final Map<Integer, ScreenState> screens = new ConcurrentSkipListMap<>();
+    private volatile int capacityBudget;
+    private volatile double releaseRate;
+
+    /**
+     * Constructs a CapacityController.
+     *
+     * @param ticketPool     The pool whose show capacities are adjusted.
+     * @param capacityBudget The total capacity shared by the screens' shows.
+     * @param releaseRate    The release rate each vendor is configured with, which pacing never exceeds.
+     * @param targetWait     How long a ticket should wait on sale before it is bought.
+     * @param unit           The unit of the target wait.
+     */
+    public CapacityController(TicketPool ticketPool, int capacityBudget, double releaseRate, long targetWait, TimeUnit unit) {
+        if (capacityBudget <= 0 || !(releaseRate > 0) || targetWait <= 0) {
+            throw new IllegalArgumentException("Capacity budget, release rate and target wait must be positive");
+        }
+        this.ticketPool = ticketPool;
+        this.capacityBudget = capacityBudget;
+        this.releaseRate = releaseRate;
+        this.targetWaitNanos = unit.toNanos(targetWait);
+    }
+
+    /**
+     * Puts a screen under the controller's control, starting from its current capacity.
+     *
+     * @param screenNumber  The screen.
+     * @param vendorLimiter The rate limiter pacing the screen's vendor, or null if it has none.
+     */
+    public void addScreen(int screenNumber, RateLimiter vendorLimiter) {
+        screens.put(screenNumber, new ScreenState(screenNumber, vendorLimiter,
+                ticketPool.getScreenCapacity(screenNumber), ticketPool.getTicketsBooked(screenNumber)));
+    }
+
+    /**
+     * Changes the rate vendors are paced up to, e.g. when the configuration is reloaded.
+     * Vendors running faster are slowed straight away.
+     *
+     * @param releaseRate The configured release rate per vendor.
+     */
+    public void setReleaseRate(double releaseRate) {
+        if (!(releaseRate > 0)) {
+            throw new IllegalArgumentException("Rate must be positive: " + releaseRate);
+        }
+        this.releaseRate = releaseRate;
+        for (ScreenState screen : screens.values()) {
+            if (screen.vendorLimiter != null && screen.vendorLimiter.getConfiguredRate() > releaseRate) {
+                screen.vendorLimiter.setRate(releaseRate);
+            }
+        }
+    }
+
+    /**
+     * Changes the total capacity the screens share. A smaller budget is reached as screens give
+     * capacity back; until then no screen grows.
+     *
+     * @param capacityBudget The total capacity.
+     */
+    public void setCapacityBudget(int capacityBudget) {
+        if (capacityBudget <= 0) {
+            throw new IllegalArgumentException("Capacity budget must be positive: " + capacityBudget);
+        }
+        this.capacityBudget = capacityBudget;
+    }
+
+    /**
+     * Retrieves how often the controller should run: five times per target wait, but no more
+     * often than every 50 ms.
+     *
+     * @return The period in milliseconds.
+     */
+    public long getPeriodMillis() {
+        return Math.max(50, TimeUnit.NANOSECONDS.toMillis(targetWaitNanos) / 5);
+    }
+
+    /**
+     * Retrieves the capacity the controller last gave a screen.
+     *
+     * @param screenNumber The screen.
+     * @return The capacity of each of the screen's shows, or 0 if the screen is not controlled.
+     */
+    public int getCapacity(int screenNumber) {
+        ScreenState screen = screens.get(screenNumber);
+        return screen == null ? 0 : screen.capacity;
+    }
+
+    /**
+     * Measures every screen and adjusts its capacity and vendor pacing once.
+     */
+    @Override
+    public void run() {
+        long now = System.nanoTime();
+        double targetSeconds = targetWaitNanos / 1e9;
+        int step = Math.max(1, capacityBudget / Math.max(1, screens.size()) / STEPS);
+        List<ScreenState> growing = new ArrayList<>();
+        long committed = 0;
+        for (ScreenState screen : screens.values()) {
+            screen.measure(now);
+            int floor = Math.max(step, (int) Math.ceil(screen.drainRate * targetSeconds));
+            if (screen.waitNanos > targetWaitNanos) {
+                screen.wanted = Math.min(screen.capacity, Math.max(floor, (int) (screen.capacity * DECREASE))); // Customers cannot keep up
+            } else if (screen.fullest >= screen.capacity * FULL) {
+                screen.wanted = screen.capacity + step; // Selling fast enough to hold more
+                growing.add(screen);
+            } else if (screen.fullest < screen.capacity * COLD) {
+                screen.wanted = Math.min(screen.capacity, Math.max(floor, (int) (screen.capacity * COLD_DECREASE)));
+            } else {
+                screen.wanted = screen.capacity;
+            }
+            committed += Math.min(screen.wanted, screen.capacity);
+        }
+
+        // Grow the busiest screens first, out of whatever the shrinking ones left free
+        long free = capacityBudget - committed;
+        growing.sort(Comparator.comparingDouble((ScreenState screen) -> screen.drainRate).reversed());
+        for (ScreenState screen : growing) {
+            int granted = (int) Math.max(0, Math.min(screen.wanted - screen.capacity, free));
+            free -= granted;
+            screen.wanted = screen.capacity + granted;
+        }
+
+        double configuredRate = releaseRate;
+        for (ScreenState screen : screens.values()) {
+            boolean full = screen.fullest >= screen.capacity * FULL;
+            boolean grew = false;
+            // Shows stored in rings or seat maps keep their size, so only count what the pool took
+            if (screen.wanted != screen.capacity && ticketPool.setScreenCapacity(screen.screenNumber, screen.wanted)) {
+                grew = screen.wanted > screen.capacity;
+                screen.capacity = screen.wanted;
+            }
+            boolean stuck = full && !grew;
+            if (screen.vendorLimiter != null) {
+                double rate = screen.vendorLimiter.getConfiguredRate();
+                double paced = screen.waitNanos > targetWaitNanos || stuck
+                        ? Math.max(Math.max(configuredRate * MIN_RATE, Math.min(configuredRate, screen.drainRate)), rate * DECREASE)
+                        : Math.min(configuredRate, rate + configuredRate / STEPS);
+                if (paced != rate) {
+                    screen.vendorLimiter.setRate(paced);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds a report of each screen's capacity, pacing and measurements.
+     *
+     * @return The report, one line per screen.
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        for (ScreenState screen : screens.values()) {
+            report.append(String.format("Screen %d: capacity %d, vendor %.2f/s, selling %.2f/s, %d on sale%n",
+                    screen.screenNumber, screen.capacity,
+                    screen.vendorLimiter != null ? screen.vendorLimiter.getConfiguredRate() : 0.0,
+                    screen.drainRate, screen.depth));
+        }
+        return report.toString();
+    }
+
+    /**
+     * What the controller knows about one screen. Measurements are written by the controller's thread only.
+     */
+    private final class ScreenState {
+        private final int screenNumber;
+        private final RateLimiter vendorLimiter;
+        private volatile int capacity;
+        private volatile double drainRate; // Tickets booked per second, smoothed
+        private volatile int depth; // Tickets on sale over all the screen's shows
+        private int fullest; // Tickets on sale in the screen's fullest show
+        private long waitNanos; // Estimated time a ticket added now waits to be bought
+        private int wanted; // Capacity asked for in the current run
+        private long lastBooked;
+        private long lastNanos;
+
+        private ScreenState(int screenNumber, RateLimiter vendorLimiter, int capacity, long booked) {
+            this.screenNumber = screenNumber;
+            this.vendorLimiter = vendorLimiter;
+            this.capacity = capacity;
+            this.lastBooked = booked;
+            this.lastNanos = System.nanoTime();
+            this.drainRate = -1;
+        }
+
+        private void measure(long now) {
+            long booked = ticketPool.getTicketsBooked(screenNumber);
+            double rate = (booked - lastBooked) * 1e9 / Math.max(1, now - lastNanos);
+            drainRate = drainRate < 0 ? rate : SMOOTHING * rate + (1 - SMOOTHING) * drainRate;
+            lastBooked = booked;
+            lastNanos = now;
+
+            int fullest = 0;
+            for (int showTimeId : ticketPool.getShowTimes(screenNumber, 0, MINUTES_PER_DAY)) {
+                fullest = Math.max(fullest, ticketPool.getRemainingTickets(screenNumber, showTimeId));
+            }
+            this.fullest = fullest;
+            depth = ticketPool.getRemainingTickets(screenNumber);
+            if (depth == 0) {
+                waitNanos = 0;
+            } else {
+                waitNanos = drainRate > 0 ? (long) Math.min(Long.MAX_VALUE, depth / drainRate * 1e9) : Long.MAX_VALUE;
+            }
+        }
+    }
+}
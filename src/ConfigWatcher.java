@@ -0,0 +1,198 @@
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a configuration file and hands edits to a running sale, so rates and capacities can
+ * change without a restart that would lose the tickets in memory. Each change is loaded and
+ * validated in full before anything is applied: a file that is malformed, half-written or out of
+ * range is reported and ignored, and the sale carries on with the settings it has.
+ *
+ * <p>Only {@link #LIVE_SETTINGS} reach the listener as changes worth applying; edits to any other
+ * setting are reported as waiting for a restart.
+ */
+public class ConfigWatcher implements AutoCloseable {
+    /**
+     * The settings a running sale can take without restarting, by their name in the JSON file.
+     */
+    public static final Set<String> LIVE_SETTINGS = Set.of("ticketReleaseRate", "customerRetrievalRate",
+            "maxCapacity", "screenCapacities", "logLevel", "logSampleInterval");
+
+    private static final long SETTLE_MILLIS = 100; // Editors often save a file in several writes
+    private static final Gson GSON = new Gson();
+
+    private final Path file;
+    private final Listener listener;
+    private final WatchService watchService;
+    private final Thread thread;
+    private volatile Configuration current;
+    private volatile long reloads;
+    private volatile long rejected;
+
+    /**
+     * Receives each valid change to the configuration file.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * Applies a changed configuration. Called on the watcher's thread; exceptions are reported
+         * and do not stop the watcher.
+         *
+         * @param previous The configuration in effect until now.
+         * @param current  The validated configuration just loaded.
+         */
+        void configurationChanged(Configuration previous, Configuration current);
+    }
+
+    /**
+     * Starts watching a configuration file.
+     *
+     * @param file     The configuration file.
+     * @param initial  The configuration in effect, which changes are compared against.
+     * @param listener Receives each valid change.
+     * @throws IOException If the file's directory cannot be watched.
+     */
+    public ConfigWatcher(Path file, Configuration initial, Listener listener) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.current = Objects.requireNonNull(initial);
+        this.listener = Objects.requireNonNull(listener);
+        this.watchService = this.file.getFileSystem().newWatchService();
+        // Watch the directory, as editors that save by renaming replace the file itself
+        this.file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this::watch, "Config-Watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Retrieves the configuration in effect: the initial one or the last valid change.
+     *
+     * @return The current configuration.
+     */
+    public Configuration getCurrent() {
+        return current;
+    }
+
+    /**
+     * Retrieves the number of changes applied so far.
+     *
+     * @return The number of reloads that reached the listener.
+     */
+    public long getReloadCount() {
+        return reloads;
+    }
+
+    /**
+     * Retrieves the number of edits ignored because the file was malformed or invalid.
+     *
+     * @return The number of rejected reloads.
+     */
+    public long getRejectedCount() {
+        return rejected;
+    }
+
+    /**
+     * Loads the file now and applies it if it is valid and differs from the current configuration.
+     * The watcher calls this after each edit settles.
+     *
+     * @return True if a change was applied; false if the file was invalid or unchanged.
+     */
+    public synchronized boolean reload() {
+        Configuration loaded;
+        try {
+            loaded = Configuration.loadConfig(file);
+        } catch (IOException e) {
+            rejected++;
+            System.err.println("Configuration change ignored: " + e.getMessage());
+            return false;
+        }
+        Configuration previous = current;
+        Set<String> changed = changedSettings(previous, loaded);
+        if (changed.isEmpty()) {
+            return false;
+        }
+        Set<String> restart = new TreeSet<>(changed);
+        restart.removeAll(LIVE_SETTINGS);
+        if (!restart.isEmpty()) {
+            System.out.println("Configuration changes that take effect after a restart: " + String.join(", ", restart));
+        }
+        current = loaded;
+        if (restart.size() < changed.size()) {
+            try {
+                listener.configurationChanged(previous, loaded);
+            } catch (RuntimeException e) {
+                System.err.println("Error applying configuration change: " + e);
+            }
+            reloads++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Lists the settings that differ between two configurations.
+     *
+     * @param previous One configuration.
+     * @param current  The other configuration.
+     * @return The names of the differing settings, as in the JSON file.
+     */
+    public static Set<String> changedSettings(Configuration previous, Configuration current) {
+        JsonObject before = GSON.toJsonTree(previous).getAsJsonObject();
+        JsonObject after = GSON.toJsonTree(current).getAsJsonObject();
+        Set<String> names = new TreeSet<>(before.keySet());
+        names.addAll(after.keySet());
+        names.removeIf(name -> Objects.equals(before.get(name), after.get(name)));
+        return names;
+    }
+
+    /**
+     * Stops watching the file.
+     *
+     * @throws IOException If the watch service could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close(); // Wakes the watcher thread, which then ends
+    }
+
+    private void watch() {
+        Path name = file.getFileName();
+        try {
+            while (true) {
+                if (!concerned(watchService.take(), name)) {
+                    continue;
+                }
+                // Let a multi-part save finish before reading the file
+                WatchKey more;
+                while ((more = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    concerned(more, name);
+                }
+                reload();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+
+    /**
+     * Consumes a key's events and re-arms it, reporting whether any event may concern the file.
+     */
+    private static boolean concerned(WatchKey key, Path name) {
+        boolean concerned = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            concerned |= event.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(event.context());
+        }
+        key.reset();
+        return concerned;
+    }
+}
@@ -1,30 +1,70 @@
 
 import com.google.gson.Gson;
-import java.io.FileReader;
+import com.google.gson.JsonParseException;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.TreeMap;
 /**
  * Represents the configuration settings for the ticketing system.
  * Provides methods to set, retrieve, save, and load configuration details.
  */
 public class Configuration {
+    private static final Gson GSON = new Gson(); // Thread-safe; reused so reloads skip building type adapters
+
     private int totalTickets;
-    private int ticketReleaseRate;
-    private int customerRetrievalRate;
+    private double ticketReleaseRate;
+    private double customerRetrievalRate;
     private int maxCapacity;
+    private Map<Integer, Integer> screenCapacities; // Screens whose shows hold a different number of tickets than maxCapacity
     private int screens;
+    private boolean adaptiveCapacity; // Let a CapacityController move capacity between screens and pace vendors
+    private int targetWaitMillis; // How long tickets should wait on sale under adaptive capacity; 0 means 1000 ms
+    private WaitStrategy waitStrategy; // Null keeps the lock-based ticket pool
+    private boolean compactTickets; // Store queued tickets as primitive arrays instead of objects
+    private int seatsPerRow; // 0 keeps tickets in queues; otherwise each screen is a seat map this wide
+    private String inventoryFile; // Null keeps the inventory on the heap, released by vendors
+    private String seatFile; // CSV or binary seats preloaded into the pool instead of released by vendors
+    private String journalFile; // Null disables the booking journal
+    private BookingJournal.FsyncPolicy journalFsyncPolicy; // Null forces every batch
+    private long journalSyncIntervalMillis; // Used by the PERIODIC policy; 0 means 10 ms
+    private String snapshotFile; // Null disables pool snapshots
+    private int snapshotIntervalSeconds; // 0 only writes a snapshot at shutdown
+    private int metricsIntervalSeconds; // 0 disables pool metrics
+    private String metricsFile; // Null prints metrics without writing them as JSON
+    private ArrivalPattern arrivalPattern; // Used by LoadGenerator; null means Poisson arrivals
+    private double arrivalRate; // Load-test requests per second; 0 derives it from the retrieval rate
+    private int loadDurationSeconds; // 0 means 60 seconds
+    private int ticketsPerRequest; // Largest purchase per load-test request; 0 means 1
+    private LogLevel logLevel; // Null logs at INFO
+    private int logSampleInterval; // 0 or 1 logs every ticket-level event
+    private ExecutionMode executionMode; // Null runs on platform threads
+    private int customersPerScreen; // 0 is treated as one customer per screen
+    private String[] showTimes; // Null or empty sells only the default 10:00 AM show
+    private boolean crossScreenPurchases; // Customers buy from any screen with tickets, not only their own
+    private int shardNodes; // 0 or 1 keeps every screen in one pool
+    private ShardCluster.Transport shardTransport; // Null connects shard nodes in-process
+    private long simulationSeed; // Seeds the random choices of SaleSimulation
+    private int simulationHours; // Virtual hours SaleSimulation runs for; 0 runs until sold out
 
     /**
      * Initializes the configuration with the specified parameters.
      *
      * @param totalTickets        The total number of tickets available.
-     * @param ticketReleaseRate   The rate at which tickets are released.
-     * @param customerRetrievalRate The rate at which customers retrieve tickets.
+     * @param ticketReleaseRate   The rate at which tickets are released, in tickets per second.
+     * @param customerRetrievalRate The rate at which customers retrieve tickets, in tickets per second.
      * @param maxCapacity         The maximum capacity of the ticket pool.
      * @param screens             The number of screens in the venue.
      */
-    public Configuration(int totalTickets, int ticketReleaseRate, int customerRetrievalRate, int maxCapacity, int screens) {
+    public Configuration(int totalTickets, double ticketReleaseRate, double customerRetrievalRate, int maxCapacity, int screens) {
         this.totalTickets = totalTickets;
         this.ticketReleaseRate = ticketReleaseRate;
         this.customerRetrievalRate = customerRetrievalRate;
@@ -55,7 +95,7 @@ public class Configuration {
      *
      * @return The ticket release rate.
      */
-    public int getTicketReleaseRate() {
+    public double getTicketReleaseRate() {
         return ticketReleaseRate;
     }
 
@@ -64,7 +104,7 @@ public class Configuration {
      *
      * @param ticketReleaseRate The ticket release rate to set.
      */
-    public void setTicketReleaseRate(int ticketReleaseRate) {
+    public void setTicketReleaseRate(double ticketReleaseRate) {
         this.ticketReleaseRate = ticketReleaseRate;
     }
 
@@ -73,7 +113,7 @@ public class Configuration {
      *
      * @return The customer retrieval rate.
      */
-    public int getCustomerRetrievalRate() {
+    public double getCustomerRetrievalRate() {
         return customerRetrievalRate;
     }
 
@@ -82,7 +122,7 @@ public class Configuration {
      *
      * @param customerRetrievalRate The customer retrieval rate to set.
      */
-    public void setCustomerRetrievalRate(int customerRetrievalRate) {
+    public void setCustomerRetrievalRate(double customerRetrievalRate) {
         this.customerRetrievalRate = customerRetrievalRate;
     }
 
@@ -104,6 +144,81 @@ public class Configuration {
         this.maxCapacity = maxCapacity;
     }
 
+    /**
+     * Retrieves the capacity of each show on a screen, taking any override for the screen into account.
+     *
+     * @param screenNumber The screen.
+     * @return The screen's own capacity, or the maximum capacity if it has none.
+     */
+    public int getMaxCapacity(int screenNumber) {
+        Integer capacity = screenCapacities == null ? null : screenCapacities.get(screenNumber);
+        return capacity != null ? capacity : maxCapacity;
+    }
+
+    /**
+     * Retrieves the screens whose shows have their own capacity.
+     *
+     * @return The capacity of each overridden screen, by screen number; empty if none are overridden.
+     */
+    public Map<Integer, Integer> getScreenCapacities() {
+        return screenCapacities == null ? Collections.emptyMap() : Collections.unmodifiableMap(new TreeMap<>(screenCapacities));
+    }
+
+    /**
+     * Gives the shows on one screen their own capacity instead of the maximum capacity,
+     * e.g. for a smaller screen.
+     *
+     * @param screenNumber The screen.
+     * @param capacity     The capacity of each of the screen's shows, or 0 to remove the override.
+     */
+    public void setScreenCapacity(int screenNumber, int capacity) {
+        if (screenCapacities == null) {
+            screenCapacities = new TreeMap<>();
+        }
+        if (capacity == 0) {
+            screenCapacities.remove(screenNumber);
+        } else {
+            screenCapacities.put(screenNumber, capacity);
+        }
+    }
+
+    /**
+     * Checks whether show capacities and vendor pacing adapt to how fast each screen sells.
+     *
+     * @return True if a {@link CapacityController} runs; false if capacities stay as configured.
+     */
+    public boolean isAdaptiveCapacity() {
+        return adaptiveCapacity;
+    }
+
+    /**
+     * Sets whether show capacities and vendor pacing adapt to how fast each screen sells,
+     * within a budget of the configured capacities.
+     *
+     * @param adaptiveCapacity True to run a {@link CapacityController}.
+     */
+    public void setAdaptiveCapacity(boolean adaptiveCapacity) {
+        this.adaptiveCapacity = adaptiveCapacity;
+    }
+
+    /**
+     * Retrieves how long tickets should wait on sale before being bought under adaptive capacity.
+     *
+     * @return The target wait in milliseconds; 1000 if not set.
+     */
+    public int getTargetWaitMillis() {
+        return targetWaitMillis > 0 ? targetWaitMillis : 1000;
+    }
+
+    /**
+     * Sets how long tickets should wait on sale before being bought under adaptive capacity.
+     *
+     * @param targetWaitMillis The target wait in milliseconds, or 0 for the default.
+     */
+    public void setTargetWaitMillis(int targetWaitMillis) {
+        this.targetWaitMillis = targetWaitMillis;
+    }
+
     /**
      * Retrieves the number of screens.
      *
@@ -122,6 +237,477 @@ public class Configuration {
         this.screens = screens;
     }
 
+    /**
+     * Retrieves the wait strategy used by a lock-free ticket pool.
+     *
+     * @return The wait strategy, or null if the pool uses per-screen locks.
+     */
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    /**
+     * Sets the wait strategy used by a lock-free ticket pool.
+     *
+     * @param waitStrategy The wait strategy to set, or null to use per-screen locks.
+     */
+    public void setWaitStrategy(WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Retrieves the show times sold on every screen.
+     *
+     * @return The show times, e.g. "7:30 PM"; just the default show if none are configured.
+     */
+    public String[] getShowTimes() {
+        return showTimes == null || showTimes.length == 0 ? new String[] {ShowTimes.name(ShowTimes.DEFAULT)} : showTimes.clone();
+    }
+
+    /**
+     * Sets the show times sold on every screen. Each vendor spreads its tickets evenly over them.
+     *
+     * @param showTimes The show times to set, or null to sell only the default show.
+     */
+    public void setShowTimes(String[] showTimes) {
+        this.showTimes = showTimes == null ? null : showTimes.clone();
+    }
+
+    /**
+     * Retrieves the width of each screen's seat map.
+     *
+     * @return The seats per row, or 0 if screens hold their tickets in queues.
+     */
+    public int getSeatsPerRow() {
+        return seatsPerRow;
+    }
+
+    /**
+     * Sets the width of each screen's seat map. Screens get enough rows for their share of the tickets.
+     *
+     * @param seatsPerRow The seats per row to set, or 0 to hold tickets in queues.
+     */
+    public void setSeatsPerRow(int seatsPerRow) {
+        this.seatsPerRow = seatsPerRow;
+    }
+
+    /**
+     * Checks whether customers buy from any screen that has tickets instead of only their own.
+     *
+     * @return True if customers buy across screens; false otherwise.
+     */
+    public boolean isCrossScreenPurchases() {
+        return crossScreenPurchases;
+    }
+
+    /**
+     * Sets whether customers buy from any screen that has tickets instead of only their own.
+     *
+     * @param crossScreenPurchases True to let customers buy across screens.
+     */
+    public void setCrossScreenPurchases(boolean crossScreenPurchases) {
+        this.crossScreenPurchases = crossScreenPurchases;
+    }
+
+    /**
+     * Retrieves the number of pool nodes the screens are sharded over.
+     *
+     * @return The node count, or 0 or 1 if every screen is in one pool.
+     */
+    public int getShardNodes() {
+        return shardNodes;
+    }
+
+    /**
+     * Sets the number of pool nodes the screens are sharded over.
+     *
+     * @param shardNodes The node count to set, or 0 to keep every screen in one pool.
+     */
+    public void setShardNodes(int shardNodes) {
+        this.shardNodes = shardNodes;
+    }
+
+    /**
+     * Retrieves how the router reaches the shard nodes.
+     *
+     * @return The transport, LOOPBACK if none was set.
+     */
+    public ShardCluster.Transport getShardTransport() {
+        return shardTransport == null ? ShardCluster.Transport.LOOPBACK : shardTransport;
+    }
+
+    /**
+     * Sets how the router reaches the shard nodes.
+     *
+     * @param shardTransport The transport to set.
+     */
+    public void setShardTransport(ShardCluster.Transport shardTransport) {
+        this.shardTransport = shardTransport;
+    }
+
+    /**
+     * Checks whether the lock-based ticket pool stores queued tickets in compact primitive arrays.
+     *
+     * @return True if tickets are stored compactly; false otherwise.
+     */
+    public boolean isCompactTickets() {
+        return compactTickets;
+    }
+
+    /**
+     * Sets whether the lock-based ticket pool stores queued tickets in compact primitive arrays.
+     *
+     * @param compactTickets True to store tickets compactly.
+     */
+    public void setCompactTickets(boolean compactTickets) {
+        this.compactTickets = compactTickets;
+    }
+
+    /**
+     * Retrieves the path of the memory-mapped seat inventory file.
+     *
+     * @return The inventory file path, or null if vendors release tickets onto the heap.
+     */
+    public String getInventoryFile() {
+        return inventoryFile;
+    }
+
+    /**
+     * Sets the path of the memory-mapped seat inventory file.
+     * The file is created with every seat available if it does not exist. It sells only the
+     * default show, so it cannot be combined with show times.
+     *
+     * @param inventoryFile The inventory file path to set, or null to disable it.
+     */
+    public void setInventoryFile(String inventoryFile) {
+        this.inventoryFile = inventoryFile;
+    }
+
+    /**
+     * Retrieves the path of the seat file preloaded into the pool.
+     *
+     * @return The CSV or binary seat file, or null if vendors release the tickets.
+     */
+    public String getSeatFile() {
+        return seatFile;
+    }
+
+    /**
+     * Sets the path of the seat file preloaded into the pool.
+     *
+     * @param seatFile The CSV or binary seat file, or null to have vendors release the tickets.
+     */
+    public void setSeatFile(String seatFile) {
+        this.seatFile = seatFile;
+    }
+
+    /**
+     * Retrieves the path of the booking journal file.
+     *
+     * @return The journal file path, or null if bookings are not journaled.
+     */
+    public String getJournalFile() {
+        return journalFile;
+    }
+
+    /**
+     * Sets the path of the booking journal file.
+     *
+     * @param journalFile The journal file path to set, or null to disable journaling.
+     */
+    public void setJournalFile(String journalFile) {
+        this.journalFile = journalFile;
+    }
+
+    /**
+     * Retrieves when the booking journal forces written records to disk.
+     *
+     * @return The fsync policy, never null.
+     */
+    public BookingJournal.FsyncPolicy getJournalFsyncPolicy() {
+        return journalFsyncPolicy == null ? BookingJournal.FsyncPolicy.ALWAYS : journalFsyncPolicy;
+    }
+
+    /**
+     * Sets when the booking journal forces written records to disk.
+     *
+     * @param journalFsyncPolicy The fsync policy to set.
+     */
+    public void setJournalFsyncPolicy(BookingJournal.FsyncPolicy journalFsyncPolicy) {
+        this.journalFsyncPolicy = journalFsyncPolicy;
+    }
+
+    /**
+     * Retrieves the maximum time between forces under the PERIODIC fsync policy.
+     *
+     * @return The interval in milliseconds.
+     */
+    public long getJournalSyncIntervalMillis() {
+        return journalSyncIntervalMillis > 0 ? journalSyncIntervalMillis : 10;
+    }
+
+    /**
+     * Sets the maximum time between forces under the PERIODIC fsync policy.
+     *
+     * @param journalSyncIntervalMillis The interval in milliseconds to set.
+     */
+    public void setJournalSyncIntervalMillis(long journalSyncIntervalMillis) {
+        this.journalSyncIntervalMillis = journalSyncIntervalMillis;
+    }
+
+    /**
+     * Retrieves the path of the ticket pool snapshot file.
+     *
+     * @return The snapshot file path, or null if the pool is not snapshotted.
+     */
+    public String getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    /**
+     * Sets the path of the ticket pool snapshot file.
+     *
+     * @param snapshotFile The snapshot file path to set, or null to disable snapshots.
+     */
+    public void setSnapshotFile(String snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    /**
+     * Retrieves the time between snapshots taken while tickets are being sold.
+     *
+     * @return The interval in seconds, or 0 if a snapshot is only written at shutdown.
+     */
+    public int getSnapshotIntervalSeconds() {
+        return Math.max(0, snapshotIntervalSeconds);
+    }
+
+    /**
+     * Sets the time between snapshots taken while tickets are being sold.
+     *
+     * @param snapshotIntervalSeconds The interval in seconds to set, or 0 to only snapshot at shutdown.
+     */
+    public void setSnapshotIntervalSeconds(int snapshotIntervalSeconds) {
+        this.snapshotIntervalSeconds = snapshotIntervalSeconds;
+    }
+
+    /**
+     * Retrieves the time between metrics reports. Metrics and their MBeans are enabled when this is positive.
+     *
+     * @return The interval in seconds, or 0 if metrics are disabled.
+     */
+    public int getMetricsIntervalSeconds() {
+        return Math.max(0, metricsIntervalSeconds);
+    }
+
+    /**
+     * Sets the time between metrics reports.
+     *
+     * @param metricsIntervalSeconds The interval in seconds to set, or 0 to disable metrics.
+     */
+    public void setMetricsIntervalSeconds(int metricsIntervalSeconds) {
+        this.metricsIntervalSeconds = metricsIntervalSeconds;
+    }
+
+    /**
+     * Retrieves the path that metrics are written to as JSON on every report.
+     *
+     * @return The metrics file path, or null if metrics are only printed.
+     */
+    public String getMetricsFile() {
+        return metricsFile;
+    }
+
+    /**
+     * Sets the path that metrics are written to as JSON on every report.
+     *
+     * @param metricsFile The metrics file path to set, or null to only print metrics.
+     */
+    public void setMetricsFile(String metricsFile) {
+        this.metricsFile = metricsFile;
+    }
+
+    /**
+     * Retrieves how load-test requests arrive over time.
+     *
+     * @return The arrival pattern, never null.
+     */
+    public ArrivalPattern getArrivalPattern() {
+        return arrivalPattern == null ? ArrivalPattern.POISSON : arrivalPattern;
+    }
+
+    /**
+     * Sets how load-test requests arrive over time.
+     *
+     * @param arrivalPattern The arrival pattern to set.
+     */
+    public void setArrivalPattern(ArrivalPattern arrivalPattern) {
+        this.arrivalPattern = arrivalPattern;
+    }
+
+    /**
+     * Retrieves the base rate of load-test requests. Unless set, every customer on every screen
+     * is assumed to send requests at the customer retrieval rate.
+     *
+     * @return The rate in requests per second.
+     */
+    public double getArrivalRate() {
+        return arrivalRate > 0 ? arrivalRate : getCustomerRetrievalRate() * getScreens() * getCustomersPerScreen();
+    }
+
+    /**
+     * Sets the base rate of load-test requests.
+     *
+     * @param arrivalRate The rate in requests per second to set, or 0 to derive it from the retrieval rate.
+     */
+    public void setArrivalRate(double arrivalRate) {
+        this.arrivalRate = arrivalRate;
+    }
+
+    /**
+     * Retrieves how long a load test sends requests.
+     *
+     * @return The duration in seconds.
+     */
+    public int getLoadDurationSeconds() {
+        return loadDurationSeconds > 0 ? loadDurationSeconds : 60;
+    }
+
+    /**
+     * Sets how long a load test sends requests.
+     *
+     * @param loadDurationSeconds The duration in seconds to set.
+     */
+    public void setLoadDurationSeconds(int loadDurationSeconds) {
+        this.loadDurationSeconds = loadDurationSeconds;
+    }
+
+    /**
+     * Retrieves the largest number of tickets a single load-test request asks for.
+     *
+     * @return The maximum tickets per request, at least one.
+     */
+    public int getTicketsPerRequest() {
+        return Math.max(1, ticketsPerRequest);
+    }
+
+    /**
+     * Sets the largest number of tickets a single load-test request asks for.
+     *
+     * @param ticketsPerRequest The maximum tickets per request to set.
+     */
+    public void setTicketsPerRequest(int ticketsPerRequest) {
+        this.ticketsPerRequest = ticketsPerRequest;
+    }
+
+    /**
+     * Retrieves the event log level.
+     *
+     * @return The log level, or null for the default level.
+     */
+    public LogLevel getLogLevel() {
+        return logLevel;
+    }
+
+    /**
+     * Sets the event log level.
+     *
+     * @param logLevel The log level to set; OFF disables logging entirely.
+     */
+    public void setLogLevel(LogLevel logLevel) {
+        this.logLevel = logLevel;
+    }
+
+    /**
+     * Retrieves the sampling interval for ticket-level log events.
+     *
+     * @return The interval; one in every this many events is logged.
+     */
+    public int getLogSampleInterval() {
+        return logSampleInterval;
+    }
+
+    /**
+     * Sets the sampling interval for ticket-level log events.
+     *
+     * @param logSampleInterval The interval to set; 0 or 1 logs every event.
+     */
+    public void setLogSampleInterval(int logSampleInterval) {
+        this.logSampleInterval = logSampleInterval;
+    }
+
+    /**
+     * Retrieves the kind of threads that run vendors and customers.
+     *
+     * @return The execution mode, never null.
+     */
+    public ExecutionMode getExecutionMode() {
+        return executionMode == null ? ExecutionMode.PLATFORM : executionMode;
+    }
+
+    /**
+     * Sets the kind of threads that run vendors and customers.
+     *
+     * @param executionMode The execution mode to set.
+     */
+    public void setExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+    }
+
+    /**
+     * Retrieves the number of concurrent customers buying tickets for each screen.
+     *
+     * @return The number of customers per screen, at least one.
+     */
+    public int getCustomersPerScreen() {
+        return Math.max(1, customersPerScreen);
+    }
+
+    /**
+     * Sets the number of concurrent customers buying tickets for each screen.
+     *
+     * @param customersPerScreen The number of customers per screen to set.
+     */
+    public void setCustomersPerScreen(int customersPerScreen) {
+        this.customersPerScreen = customersPerScreen;
+    }
+
+    /**
+     * Retrieves the seed of the random choices made by a simulated sale.
+     *
+     * @return The seed.
+     */
+    public long getSimulationSeed() {
+        return simulationSeed;
+    }
+
+    /**
+     * Sets the seed of the random choices made by a simulated sale.
+     *
+     * @param simulationSeed The seed to set.
+     */
+    public void setSimulationSeed(long simulationSeed) {
+        this.simulationSeed = simulationSeed;
+    }
+
+    /**
+     * Retrieves how many hours of virtual time a simulated sale may last.
+     *
+     * @return The limit in hours, or 0 to run until every ticket is sold.
+     */
+    public int getSimulationHours() {
+        return simulationHours;
+    }
+
+    /**
+     * Sets how many hours of virtual time a simulated sale may last.
+     *
+     * @param simulationHours The limit in hours to set, or 0 to run until every ticket is sold.
+     */
+    public void setSimulationHours(int simulationHours) {
+        this.simulationHours = simulationHours;
+    }
+
     /**
      * Displays the current configuration details.
      */
@@ -132,6 +718,107 @@ public class Configuration {
         System.out.println("Customer Retrieval Rate: " + getCustomerRetrievalRate());
         System.out.println("Maximum Ticket Capacity: " + getMaxCapacity());
         System.out.println("Number of Screens: " + getScreens());
+        getScreenCapacities().forEach((screen, capacity) ->
+                System.out.println("Screen " + screen + " Capacity: " + capacity));
+        if (isAdaptiveCapacity()) {
+            System.out.println("Adaptive Capacity: target wait " + getTargetWaitMillis() + " ms");
+        }
+        System.out.println("Execution Mode: " + getExecutionMode());
+        System.out.println("Customers per Screen: " + getCustomersPerScreen());
+        if (getShowTimes().length > 1) {
+            System.out.println("Show Times: " + String.join(", ", getShowTimes()));
+        }
+        if (getWaitStrategy() != null) {
+            System.out.println("Lock-Free Wait Strategy: " + getWaitStrategy());
+        }
+        if (isCompactTickets()) {
+            System.out.println("Compact Ticket Storage: enabled");
+        }
+        if (getSeatsPerRow() > 0) {
+            System.out.println("Seat Map: " + getSeatsPerRow() + " seats per row");
+        }
+        if (isCrossScreenPurchases()) {
+            System.out.println("Cross-Screen Purchases: enabled");
+        }
+        if (getShardNodes() > 1) {
+            System.out.println("Shards: " + getShardNodes() + " nodes over " + getShardTransport());
+        }
+        if (getInventoryFile() != null) {
+            System.out.println("Seat Inventory File: " + getInventoryFile());
+        }
+        if (getSeatFile() != null) {
+            System.out.println("Seat File: " + getSeatFile());
+        }
+        if (getJournalFile() != null) {
+            System.out.println("Booking Journal: " + getJournalFile() + " (fsync " + getJournalFsyncPolicy() + ")");
+        }
+        if (getSnapshotFile() != null) {
+            System.out.println("Snapshot File: " + getSnapshotFile() + " (every " + getSnapshotIntervalSeconds() + " s)");
+        }
+        if (getMetricsIntervalSeconds() > 0) {
+            System.out.println("Metrics: every " + getMetricsIntervalSeconds() + " s"
+                    + (getMetricsFile() != null ? " to " + getMetricsFile() : ""));
+        }
+        if (getSimulationHours() > 0) {
+            System.out.println("Simulation Limit: " + getSimulationHours() + " h");
+        }
+        if (getLogLevel() != null) {
+            System.out.println("Log Level: " + getLogLevel());
+        }
+    }
+
+    /**
+     * Checks that the settings can run a sale, reporting every problem at once.
+     *
+     * @throws IllegalArgumentException If any setting is out of range.
+     */
+    public void validate() {
+        List<String> problems = new ArrayList<>();
+        if (totalTickets < 0) {
+            problems.add("totalTickets must not be negative");
+        }
+        if (!(ticketReleaseRate > 0) || Double.isInfinite(ticketReleaseRate)) {
+            problems.add("ticketReleaseRate must be a positive number");
+        }
+        if (!(customerRetrievalRate > 0) || Double.isInfinite(customerRetrievalRate)) {
+            problems.add("customerRetrievalRate must be a positive number");
+        }
+        if (maxCapacity <= 0) {
+            problems.add("maxCapacity must be positive");
+        }
+        if (screens <= 0) {
+            problems.add("screens must be positive");
+        }
+        getScreenCapacities().forEach((screen, capacity) -> {
+            if (screen < 1 || screen > screens) {
+                problems.add("screenCapacities names screen " + screen + ", which is not between 1 and " + screens);
+            } else if (capacity == null || capacity <= 0) {
+                problems.add("screenCapacities for screen " + screen + " must be positive");
+            }
+        });
+        if (seatsPerRow > 0 && !getScreenCapacities().isEmpty()) {
+            // Each show's seat map is sized to its screen's share, so a smaller map would leave seats with no place
+            problems.add("screenCapacities cannot be combined with seatsPerRow, which sizes each seat map to its screen's tickets");
+        }
+        for (String showTime : getShowTimes()) {
+            if (ShowTimes.minuteOfDay(ShowTimes.id(showTime)) < 0) {
+                problems.add("show time is not a time of day: " + showTime);
+            }
+        }
+        String[] sold = getShowTimes();
+        boolean defaultShowOnly = sold.length == 1 && ShowTimes.id(sold[0]) == ShowTimes.DEFAULT;
+        if (inventoryFile != null && !defaultShowOnly) {
+            // The inventory holds one run of seats per screen, which every show on the screen would share
+            problems.add("showTimes cannot be combined with inventoryFile, which sells only the default show");
+        }
+        if (customersPerScreen < 0 || seatsPerRow < 0 || targetWaitMillis < 0 || shardNodes < 0 || logSampleInterval < 0
+                || snapshotIntervalSeconds < 0 || metricsIntervalSeconds < 0 || journalSyncIntervalMillis < 0
+                || loadDurationSeconds < 0 || ticketsPerRequest < 0 || simulationHours < 0 || arrivalRate < 0) {
+            problems.add("counts, intervals and durations must not be negative");
+        }
+        if (!problems.isEmpty()) {
+            throw new IllegalArgumentException(String.join("; ", problems));
+        }
     }
 
     /**
@@ -141,8 +828,7 @@ public class Configuration {
      * @throws IOException If an I/O error occurs.
      */
     public void saveConfig(String filename) throws IOException {
-        Gson gson = new Gson();
-        String json = gson.toJson(this);
+        String json = toJson();
         try (FileWriter file = new FileWriter(filename)) {
             file.write(json);
             System.out.println("Configuration saved to " + filename);
@@ -162,10 +848,10 @@ public class Configuration {
         int totalTickets = scanner.nextInt();
 
         System.out.print("Enter Ticket Release Rate (tickets per second): ");
-        int ticketReleaseRate = scanner.nextInt();
+        double ticketReleaseRate = scanner.nextDouble();
 
         System.out.print("Enter Customer Retrieval Rate (tickets per second): ");
-        int customerRetrievalRate = scanner.nextInt();
+        double customerRetrievalRate = scanner.nextDouble();
 
         System.out.print("Enter Maximum Ticket Capacity per Screen: ");
         int maxCapacity = scanner.nextInt();
@@ -181,12 +867,43 @@ public class Configuration {
      *
      * @param fileName The name of the file containing the configuration.
      * @return The loaded Configuration instance.
-     * @throws IOException If an I/O error occurs.
+     * @throws IOException If an I/O error occurs, or the file does not hold a valid configuration.
      */
     public static Configuration loadConfig(String fileName) throws IOException {
-        Gson gson = new Gson();
-        try (FileReader reader = new FileReader(fileName)) {
-            return gson.fromJson(reader, Configuration.class);
+        return loadConfig(Paths.get(fileName));
+    }
+
+    /**
+     * Loads and validates configuration settings from a JSON file.
+     *
+     * @param file The file containing the configuration.
+     * @return The loaded Configuration instance.
+     * @throws IOException If an I/O error occurs, or the file does not hold a valid configuration.
+     */
+    public static Configuration loadConfig(Path file) throws IOException {
+        Configuration config;
+        try (Reader reader = Files.newBufferedReader(file)) {
+            config = GSON.fromJson(reader, Configuration.class);
+        } catch (JsonParseException e) {
+            throw new IOException("Malformed configuration in " + file + ": " + e.getMessage(), e);
+        }
+        if (config == null) {
+            throw new IOException("Configuration file is empty: " + file);
+        }
+        try {
+            config.validate();
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid configuration in " + file + ": " + e.getMessage(), e);
         }
+        return config;
+    }
+
+    /**
+     * Converts the configuration to JSON, as it is saved.
+     *
+     * @return The JSON text.
+     */
+    public String toJson() {
+        return GSON.toJson(this);
     }
 }
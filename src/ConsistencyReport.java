@@ -0,0 +1,102 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of {@link TicketPool#checkConsistency()}: each screen's counters and the pool's
+ * total, checked against each other. Every ticket a screen received must have been booked or
+ * still be on sale or on hold, and the pool's total must equal the tickets it holds plus those
+ * vendors have yet to add.
+ */
+public final class ConsistencyReport {
+    private final StringBuilder screens = new StringBuilder();
+    private final List<String> problems = new ArrayList<>();
+    private long ticketsAdded;
+    private long ticketsBooked;
+    private int totalRemaining;
+    private int unreleased;
+
+    ConsistencyReport() {
+    }
+
+    void addScreen(int screenNumber, long added, long booked, int onSale, int held) {
+        ticketsAdded += added;
+        ticketsBooked += booked;
+        screens.append(String.format("Screen %d: %d added, %d booked, %d on sale, %d on hold%n",
+                screenNumber, added, booked, onSale, held));
+        if (added - booked != onSale + held) {
+            problems.add("Screen " + screenNumber + " received " + added + " tickets but accounts for "
+                    + (booked + onSale + held));
+        }
+    }
+
+    void setTotals(int totalRemaining, int unreleased, long inPool) {
+        this.totalRemaining = totalRemaining;
+        this.unreleased = unreleased;
+        if (totalRemaining < 0) {
+            problems.add("The pool's total is negative: " + totalRemaining);
+        } else if (totalRemaining != unreleased + inPool) {
+            problems.add("The pool's total is " + totalRemaining + " but it holds " + inPool
+                    + " tickets with " + unreleased + " still to be added");
+        }
+    }
+
+    /**
+     * Checks whether every counter agreed.
+     *
+     * @return True if no inconsistency was found; false otherwise.
+     */
+    public boolean isConsistent() {
+        return problems.isEmpty();
+    }
+
+    /**
+     * Retrieves the inconsistencies found.
+     *
+     * @return One description per inconsistency; empty if the pool is consistent.
+     */
+    public List<String> getProblems() {
+        return Collections.unmodifiableList(problems);
+    }
+
+    /**
+     * Retrieves the number of tickets added to every screen.
+     *
+     * @return The tickets added.
+     */
+    public long getTicketsAdded() {
+        return ticketsAdded;
+    }
+
+    /**
+     * Retrieves the number of tickets booked from every screen.
+     *
+     * @return The tickets booked.
+     */
+    public long getTicketsBooked() {
+        return ticketsBooked;
+    }
+
+    /**
+     * Retrieves the pool's total of tickets left to sell.
+     *
+     * @return The remaining tickets, including those vendors have yet to add.
+     */
+    public int getTotalRemaining() {
+        return totalRemaining;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder(screens);
+        report.append(String.format("Total: %d added, %d booked, %d remaining (%d still to be added)%n",
+                ticketsAdded, ticketsBooked, totalRemaining, unreleased));
+        if (problems.isEmpty()) {
+            report.append(String.format("Counters are consistent.%n"));
+        }
+        for (String problem : problems) {
+            report.append("Inconsistent: ").append(problem).append(System.lineSeparator());
+        }
+        return report.toString();
+    }
+}
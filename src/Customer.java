@@ -1,59 +1,94 @@
-import java.util.concurrent.CountDownLatch;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * Represents a customer attempting to purchase tickets from a specific screen.
+ * Represents a customer attempting to purchase tickets from a specific screen, or from any of
+ * several screens when given acceptable screens.
  * Operates as a runnable to allow concurrent execution.
  */
 public class Customer implements Runnable {
-    private final TicketPool ticketPool;
+    private final TicketService ticketPool;
     private final int screenNumber;
-    private final int retrievalRate;
-    private final CountDownLatch latch; // Wait until all vendors finish adding tickets
+    private final RateLimiter retrievalLimiter; // Paces purchases evenly at the retrieval rate
+    private volatile int[] acceptableScreens; // Null buys only from the customer's own screen
+    private volatile int showsFrom = -1; // Earliest show start to buy for, in minutes after midnight; -1 buys the default show
     private volatile boolean running = true;
 
     /**
      * Constructs a Customer instance.
      *
-     * @param ticketPool   The ticket pool from which tickets will be retrieved.
+     * @param ticketPool   The ticket pool from which tickets will be retrieved, local or sharded.
      * @param screenNumber The screen for which the customer is purchasing tickets.
-     * @param retrievalRate The number of tickets the customer attempts to retrieve per second.
-     * @param latch        A latch to synchronize the start of ticket retrieval.
+     * @param retrievalRate The number of tickets the customer attempts to retrieve per second; may be fractional.
      */
-    public Customer(TicketPool ticketPool, int screenNumber, int retrievalRate, CountDownLatch latch) {
+    public Customer(TicketService ticketPool, int screenNumber, double retrievalRate) {
+        this(ticketPool, screenNumber, new RateLimiter(retrievalRate));
+    }
+
+    /**
+     * Constructs a Customer instance whose purchases are paced by an existing rate limiter.
+     * The customer starts buying straight away, taking tickets as vendors add them and stopping
+     * once its screens sell out.
+     *
+     * @param ticketPool       The ticket pool from which tickets will be retrieved, local or sharded.
+     * @param screenNumber     The screen for which the customer is purchasing tickets.
+     * @param retrievalLimiter The rate limiter that paces ticket purchases.
+     */
+    public Customer(TicketService ticketPool, int screenNumber, RateLimiter retrievalLimiter) {
         this.ticketPool = ticketPool;
         this.screenNumber = screenNumber;
-        this.retrievalRate = retrievalRate;
-        this.latch = latch;
+        this.retrievalLimiter = retrievalLimiter;
     }
 
     @Override
     public void run() {
         try {
-            // Wait until all vendors are done adding tickets
-            latch.await();
-
+            List<Ticket> purchased = new ArrayList<>(retrievalLimiter.batchSize());
             while (running && !ticketPool.areAllTicketsSold()) {
-                for (int i = 0; i < retrievalRate; i++) {
-                    if (!running || ticketPool.areAllTicketsSold()) {
-                        break;
-                    }
-
-                    Ticket ticket = ticketPool.removeTicket(screenNumber);
-                    if (ticket != null) {
-                        System.out.println(Thread.currentThread().getName() + " purchased " + ticket);
-                    } else {
-                        break; // Stop if no tickets are available
-                    }
+                // Retrieve a small batch, then pay for it so purchases are spread evenly at the retrieval rate
+                purchased.clear();
+                int[] screens = acceptableScreens;
+                int fromMinute = showsFrom;
+                int count;
+                if (screens != null) {
+                    count = ticketPool.drainAnyTickets(screens, retrievalLimiter.batchSize(), purchased);
+                } else if (fromMinute >= 0) {
+                    count = ticketPool.drainNextShowTickets(screenNumber, fromMinute, retrievalLimiter.batchSize(), purchased);
+                } else {
+                    count = ticketPool.drainTickets(screenNumber, retrievalLimiter.batchSize(), purchased);
                 }
-
-                // Simulate delay between ticket retrieval attempts
-                Thread.sleep(1000);
+                if (count == 0) {
+                    break; // Only happens once the customer's screens have sold out
+                }
+                retrievalLimiter.acquire(count);
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
     }
 
+    /**
+     * Lets the customer buy from any of several screens, taking whichever has tickets first
+     * instead of waiting on its own screen while others have stock.
+     *
+     * @param screenNumbers The acceptable screens; none means any screen, and null restores
+     *                      buying only from the customer's own screen.
+     */
+    public void setAcceptableScreens(int... screenNumbers) {
+        this.acceptableScreens = screenNumbers == null ? null : screenNumbers.clone();
+    }
+
+    /**
+     * Lets the customer buy for the earliest show on its screen that has tickets, starting at or
+     * after a time of day, instead of only the default show.
+     *
+     * @param fromMinute The earliest start to accept in minutes after midnight, or -1 to buy only
+     *                   for the default show.
+     */
+    public void setShowsFrom(int fromMinute) {
+        this.showsFrom = fromMinute;
+    }
+
     /**
      * Stops the customer's ticket purchasing activity.
      */
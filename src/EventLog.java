@@ -0,0 +1,225 @@
+import java.io.PrintStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An asynchronous event log for the ticketing hot paths.
+ * Callers push compact event records into a lock-free buffer and return immediately;
+ * a background thread formats the records and writes them to the console in batches.
+ * Events that do not fit in the buffer are dropped and counted rather than blocking the caller.
+ */
+public final class EventLog {
+    private static final int BUFFER_CAPACITY = 1 << 16;
+    private static final int WRITE_BATCH = 512;
+    private static final long START_NANOS = System.nanoTime();
+
+    private static final RingBuffer<Event> buffer = new RingBuffer<>(BUFFER_CAPACITY);
+    private static final LongAdder dropped = new LongAdder();
+    private static final PrintStream out = System.out;
+    private static volatile LogLevel level = LogLevel.INFO;
+    private static volatile int sampleInterval = 1;
+    private static volatile boolean writing;
+
+    static {
+        Thread writer = new Thread(EventLog::writeLoop, "EventLog-Writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private EventLog() {
+    }
+
+    /**
+     * The kinds of events recorded by the log, each with the level it is recorded at.
+     */
+    public enum Type {
+        TICKET_ADDED(LogLevel.DEBUG, true),
+        TICKETS_ADDED(LogLevel.INFO, false),
+        TICKET_BOOKED(LogLevel.DEBUG, true),
+        TICKETS_BOOKED(LogLevel.INFO, false),
+        VENDOR_WAITING(LogLevel.INFO, false),
+        CUSTOMER_WAITING(LogLevel.INFO, false),
+        HOLD_EXPIRED(LogLevel.DEBUG, true),
+        SCREEN_SOLD_OUT(LogLevel.INFO, false),
+        SOLD_OUT(LogLevel.INFO, false);
+
+        private final LogLevel level;
+        private final boolean sampled;
+
+        Type(LogLevel level, boolean sampled) {
+            this.level = level;
+            this.sampled = sampled;
+        }
+    }
+
+    /**
+     * Applies the log level and sampling settings from a configuration.
+     *
+     * @param config The configuration to apply.
+     */
+    public static void configure(Configuration config) {
+        level = config.getLogLevel() == null ? LogLevel.INFO : config.getLogLevel();
+        sampleInterval = Math.max(1, config.getLogSampleInterval());
+    }
+
+    /**
+     * Checks whether events of a type are currently recorded.
+     *
+     * @param type The event type.
+     * @return True if the event would be recorded before sampling; false otherwise.
+     */
+    public static boolean isEnabled(Type type) {
+        return type.level.compareTo(level) <= 0;
+    }
+
+    /**
+     * Records an event about a screen, such as a wait or a batch of tickets.
+     *
+     * @param type         The event type.
+     * @param screenNumber The screen the event concerns.
+     * @param count        The number of tickets involved, or 0 if not applicable.
+     */
+    public static void log(Type type, int screenNumber, int count) {
+        if (isEnabled(type) && sampled(type)) {
+            publish(new Event(type, screenNumber, count, null));
+        }
+    }
+
+    /**
+     * Records an event about a single ticket.
+     *
+     * @param type   The event type.
+     * @param ticket The ticket the event concerns.
+     */
+    public static void log(Type type, Ticket ticket) {
+        if (isEnabled(type) && sampled(type)) {
+            publish(new Event(type, ticket.getScreenNumber(), 1, ticket));
+        }
+    }
+
+    /**
+     * Waits until every event recorded so far has been written, then reports any dropped events.
+     */
+    public static void flush() {
+        while (!buffer.isEmpty() || writing) {
+            LockSupport.parkNanos(100_000L);
+        }
+        long lost = dropped.sumThenReset();
+        if (lost > 0) {
+            out.println(lost + " log events were dropped because the log buffer was full.");
+        }
+        out.flush();
+    }
+
+    private static boolean sampled(Type type) {
+        int interval = sampleInterval;
+        return !type.sampled || interval == 1 || ThreadLocalRandom.current().nextInt(interval) == 0;
+    }
+
+    private static void publish(Event event) {
+        if (!buffer.offer(event)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Drains the buffer in batches, formatting each batch into a single write.
+     */
+    private static void writeLoop() {
+        StringBuilder text = new StringBuilder(WRITE_BATCH * 64);
+        int idle = 0;
+        while (true) {
+            writing = true;
+            int count = 0;
+            Event event;
+            while (count < WRITE_BATCH && (event = buffer.poll()) != null) {
+                event.format(text);
+                count++;
+            }
+            if (count > 0) {
+                out.print(text);
+                text.setLength(0);
+                idle = 0;
+                continue;
+            }
+            writing = false;
+            try {
+                WaitStrategy.PARK.idle(idle++);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * A single recorded event. Formatting is deferred to the writer thread.
+     */
+    private static final class Event {
+        private final Type type;
+        private final int screenNumber;
+        private final int count;
+        private final Ticket ticket; // Seat numbers are built only when the event is written
+        private final Thread thread;
+        private final long nanoTime;
+
+        private Event(Type type, int screenNumber, int count, Ticket ticket) {
+            this.type = type;
+            this.screenNumber = screenNumber;
+            this.count = count;
+            this.ticket = ticket;
+            this.thread = Thread.currentThread();
+            this.nanoTime = System.nanoTime();
+        }
+
+        private void format(StringBuilder text) {
+            long micros = (nanoTime - START_NANOS) / 1_000L;
+            text.append('[').append(micros / 1_000L).append('.');
+            long fraction = micros % 1_000L;
+            if (fraction < 100) {
+                text.append('0');
+            }
+            if (fraction < 10) {
+                text.append('0');
+            }
+            text.append(fraction).append(" ms] ");
+
+            switch (type) {
+                case TICKET_ADDED:
+                    text.append("Added ").append(ticket.getSeatNumber()).append(" to Screen ").append(screenNumber);
+                    break;
+                case TICKETS_ADDED:
+                    text.append(thread.getName()).append(" added ").append(count)
+                            .append(" tickets to Screen ").append(screenNumber);
+                    break;
+                case TICKET_BOOKED:
+                    text.append(thread.getName()).append(" purchased ").append(ticket.getSeatNumber())
+                            .append(" for Screen ").append(screenNumber);
+                    break;
+                case TICKETS_BOOKED:
+                    text.append(thread.getName()).append(" purchased ").append(count)
+                            .append(" tickets for Screen ").append(screenNumber);
+                    break;
+                case VENDOR_WAITING:
+                    text.append("Screen ").append(screenNumber).append(" has reached max capacity. ")
+                            .append(thread.getName()).append(" waiting...");
+                    break;
+                case CUSTOMER_WAITING:
+                    text.append("Screen ").append(screenNumber).append(" has no tickets. ")
+                            .append(thread.getName()).append(" waiting...");
+                    break;
+                case HOLD_EXPIRED:
+                    text.append("Hold on ").append(ticket.getSeatNumber()).append(" for Screen ")
+                            .append(screenNumber).append(" expired");
+                    break;
+                case SCREEN_SOLD_OUT:
+                    text.append("Screen ").append(screenNumber).append(" is sold out.");
+                    break;
+                case SOLD_OUT:
+                    text.append("All tickets are sold out!");
+                    break;
+            }
+            text.append(System.lineSeparator());
+        }
+    }
+}
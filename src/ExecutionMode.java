@@ -0,0 +1,57 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Selects the kind of threads that run vendors and customers.
+ */
+public enum ExecutionMode {
+    /**
+     * Runs every vendor and customer on its own platform (operating system) thread.
+     */
+    PLATFORM {
+        @Override
+        public ExecutorService newExecutor() {
+            return Executors.newCachedThreadPool();
+        }
+    },
+
+    /**
+     * Runs every vendor and customer on its own virtual thread, so hundreds of thousands of
+     * customers can wait on the pool at once. Requires Java 21 or later; older runtimes fall
+     * back to platform threads. Pair it with the lock-based pool or the PARK wait strategy,
+     * since spinning virtual threads keep their carrier threads busy.
+     */
+    VIRTUAL {
+        @Override
+        public ExecutorService newExecutor() {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("Virtual threads are not available on Java "
+                        + Runtime.version().feature() + ". Falling back to platform threads.");
+                return PLATFORM.newExecutor();
+            }
+        }
+    };
+
+    /**
+     * Creates an executor that starts a new thread of this kind for every submitted task.
+     *
+     * @return The new executor.
+     */
+    public abstract ExecutorService newExecutor();
+
+    /**
+     * Wraps a task so that the thread running it carries the given name while it runs.
+     *
+     * @param name The thread name, used by the event log.
+     * @param task The task to wrap.
+     * @return The wrapped task.
+     */
+    public static Runnable named(String name, Runnable task) {
+        return () -> {
+            Thread.currentThread().setName(name);
+            task.run();
+        };
+    }
+}
@@ -0,0 +1,637 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Preloads a venue's seat inventory into a {@link TicketPool} from a seat file, instead of having
+ * vendors release tickets one batch at a time. The file is memory-mapped and cut into regions that
+ * fork/join tasks parse in parallel; the tickets are then loaded show by show, again in parallel,
+ * through {@link TicketPool#loadTickets}, which gives each new show room for its whole inventory.
+ *
+ * <p>Two formats are read, told apart by the binary format's magic number:
+ * <ul>
+ *   <li>CSV, one seat per line: {@code screen,seat,showTime[,status]}, e.g.
+ *       {@code 3,Seat-12,7:30 PM,Not Booked}. A seat is a "Seat-N" number, a bare number or any
+ *       other label; the status defaults to Not Booked. Fields may be quoted but may not contain
+ *       commas, and a first line that does not start with a digit is taken as a header.</li>
+ *   <li>Binary, little endian: a header of {@code [magic:4][version:4][records:8][showTimes:4]}
+ *       followed by the show-time names as {@code [length:2][UTF-8]}, padded to a multiple of
+ *       {@value #RECORD_SIZE} bytes, then fixed-size records of
+ *       {@code [screen:4][seat:4][showTime:2][status:1][unused:1]}. {@link #writeBinary} writes it.</li>
+ * </ul>
+ *
+ * <p>Seats already booked in the file are counted but not put on sale.
+ */
+public final class InventoryLoader {
+    private static final int MAGIC = 0x53544B54; // "TKTS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int RECORD_SIZE = 12;
+    private static final int REGION_SIZE = 4 << 20; // Regions this small are parsed by a single task
+    private static final int MAX_LINE_LENGTH = 4096;
+    private static final int SHOWS_PER_TASK = 4;
+    private static final int STATUS_COUNT = TicketStatus.values().length;
+    private static final byte[] SEAT_PREFIX = "Seat-".getBytes(StandardCharsets.US_ASCII);
+
+    private InventoryLoader() {
+    }
+
+    /**
+     * The outcome of loading a seat file.
+     */
+    public static final class Result {
+        private final long loaded;
+        private final long booked;
+        private final long rejected;
+        private final long bytes;
+        private final long nanos;
+
+        private Result(long loaded, long booked, long rejected, long bytes, long nanos) {
+            this.loaded = loaded;
+            this.booked = booked;
+            this.rejected = rejected;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        /**
+         * Retrieves the number of tickets put on sale.
+         *
+         * @return The loaded ticket count.
+         */
+        public long getLoaded() {
+            return loaded;
+        }
+
+        /**
+         * Retrieves the number of seats the file lists as already booked.
+         *
+         * @return The booked seat count.
+         */
+        public long getBooked() {
+            return booked;
+        }
+
+        /**
+         * Retrieves the number of tickets left out because their show already existed without room for them.
+         *
+         * @return The rejected ticket count.
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Loaded %d tickets (%d already booked, %d without room) from %.1f MB in %.3f s",
+                    loaded, booked, rejected, bytes / 1e6, nanos / 1e9);
+        }
+    }
+
+    /**
+     * Loads a seat file into a pool on the common fork/join pool.
+     *
+     * @param file       The CSV or binary seat file.
+     * @param ticketPool The pool to load into.
+     * @return The outcome of the load.
+     * @throws IOException If the file could not be read or is malformed.
+     */
+    public static Result load(Path file, TicketPool ticketPool) throws IOException {
+        return load(file, ticketPool, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Loads a seat file into a pool. Tickets are counted as they are loaded, or taken out of a
+     * total preset with {@link TicketPool#setTotalTickets(int)}. Load before attaching a journal,
+     * as with snapshots.
+     *
+     * @param file       The CSV or binary seat file.
+     * @param ticketPool The pool to load into.
+     * @param workers    The fork/join pool that parses and loads in parallel.
+     * @return The outcome of the load.
+     * @throws IOException If the file could not be read or is malformed.
+     */
+    public static Result load(Path file, TicketPool ticketPool, ForkJoinPool workers) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            Parsed parsed;
+            if (isBinary(channel)) {
+                BinaryHeader header = readBinaryHeader(channel);
+                parsed = parse(workers, new BinaryRegion(channel, header, 0, header.records));
+            } else {
+                parsed = parse(workers, new CsvRegion(channel, 0, size));
+            }
+
+            List<ShowBatch> shows = new ArrayList<>(parsed.shows.values());
+            workers.invoke(new LoadShows(ticketPool, shows, 0, shows.size()));
+            long loaded = 0;
+            long rejected = 0;
+            for (ShowBatch show : shows) {
+                loaded += show.loaded;
+                rejected += show.size - show.loaded;
+            }
+            return new Result(loaded, parsed.booked, rejected, size, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Writes tickets to a seat file in the binary format, e.g. to convert a CSV file once so
+     * later loads skip parsing text. Seats must be numbered; labelled seats cannot be stored.
+     *
+     * @param file    The file to write.
+     * @param tickets The tickets to write.
+     * @throws IOException If the file could not be written.
+     * @throws IllegalArgumentException If a ticket has a seat label instead of a seat number.
+     */
+    public static void writeBinary(Path file, List<Ticket> tickets) throws IOException {
+        Map<Integer, Integer> showTimeIndexes = new LinkedHashMap<>();
+        for (Ticket ticket : tickets) {
+            if (ticket.getSeatLabel() != null) {
+                throw new IllegalArgumentException("Seat " + ticket.getSeatLabel() + " has no seat number");
+            }
+            showTimeIndexes.putIfAbsent(ticket.getShowTimeId(), showTimeIndexes.size());
+        }
+        if (showTimeIndexes.size() > 0xFFFF) {
+            throw new IllegalArgumentException("Too many show times for the binary format");
+        }
+        try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+             DataOutputStream out = new DataOutputStream(stream)) {
+            out.writeInt(Integer.reverseBytes(MAGIC));
+            out.writeInt(Integer.reverseBytes(FORMAT_VERSION));
+            out.writeLong(Long.reverseBytes(tickets.size()));
+            out.writeInt(Integer.reverseBytes(showTimeIndexes.size()));
+            int headerSize = 20;
+            for (int showTimeId : showTimeIndexes.keySet()) {
+                byte[] name = ShowTimes.name(showTimeId).getBytes(StandardCharsets.UTF_8);
+                out.writeShort(Short.reverseBytes((short) name.length));
+                out.write(name);
+                headerSize += 2 + name.length;
+            }
+            out.write(new byte[(RECORD_SIZE - headerSize % RECORD_SIZE) % RECORD_SIZE]);
+            for (Ticket ticket : tickets) {
+                out.writeInt(Integer.reverseBytes(ticket.getScreenNumber()));
+                out.writeInt(Integer.reverseBytes(ticket.getSeat()));
+                out.writeShort(Short.reverseBytes((short) (int) showTimeIndexes.get(ticket.getShowTimeId())));
+                out.writeByte(ticket.getTicketStatus().ordinal());
+                out.writeByte(0);
+            }
+        }
+    }
+
+    private static Parsed parse(ForkJoinPool workers, RecursiveTask<Parsed> file) throws IOException {
+        try {
+            return workers.invoke(file);
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // Tasks cannot throw checked exceptions
+        }
+    }
+
+    private static boolean isBinary(FileChannel channel) throws IOException {
+        if (channel.size() < 4) {
+            return false;
+        }
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, 4);
+        return header.order(ByteOrder.LITTLE_ENDIAN).getInt(0) == MAGIC;
+    }
+
+    /**
+     * Reads the header of a binary seat file.
+     */
+    private static BinaryHeader readBinaryHeader(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < 20) {
+            throw new IOException("Seat file header is truncated");
+        }
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, 20 + 0xFFFFL * (2 + 0xFFFF)));
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported seat file version " + header.getInt(4));
+        }
+        long records = header.getLong(8);
+        int showTimeCount = header.getInt(16);
+        int[] showTimeIds = new int[showTimeCount];
+        int position = 20;
+        for (int i = 0; i < showTimeCount; i++) {
+            byte[] name = new byte[Short.toUnsignedInt(header.getShort(position))];
+            header.get(position + 2, name);
+            showTimeIds[i] = ShowTimes.id(new String(name, StandardCharsets.UTF_8));
+            position += 2 + name.length;
+        }
+        long dataOffset = position + (RECORD_SIZE - position % RECORD_SIZE) % RECORD_SIZE;
+        if (records < 0 || dataOffset + records * RECORD_SIZE != size) {
+            throw new IOException("Seat file is truncated or corrupt");
+        }
+        return new BinaryHeader(showTimeIds, dataOffset, records);
+    }
+
+    /**
+     * Where the records of a binary seat file start and how their show times map to ids.
+     */
+    private static final class BinaryHeader {
+        private final int[] showTimeIds;
+        private final long dataOffset;
+        private final long records;
+
+        private BinaryHeader(int[] showTimeIds, long dataOffset, long records) {
+            this.showTimeIds = showTimeIds;
+            this.dataOffset = dataOffset;
+            this.records = records;
+        }
+    }
+
+    /**
+     * The tickets parsed from part of a file, grouped by show in file order.
+     */
+    private static final class Parsed {
+        private final Map<Long, ShowBatch> shows = new LinkedHashMap<>();
+        private long booked;
+        private long lastKey = -1;
+        private ShowBatch last; // Consecutive seats are usually for the same show
+
+        private void add(Ticket ticket) {
+            long key = (long) ticket.getScreenNumber() << 32 | ticket.getShowTimeId();
+            if (key != lastKey) {
+                last = shows.computeIfAbsent(key, k -> new ShowBatch(ticket.getScreenNumber(), ticket.getShowTimeId()));
+                lastKey = key;
+            }
+            last.add(ticket);
+        }
+
+        /**
+         * Appends the tickets parsed from the following part of the file.
+         */
+        private Parsed merge(Parsed next) {
+            for (Map.Entry<Long, ShowBatch> entry : next.shows.entrySet()) {
+                ShowBatch show = shows.get(entry.getKey());
+                if (show == null) {
+                    shows.put(entry.getKey(), entry.getValue());
+                } else {
+                    show.addAll(entry.getValue());
+                }
+            }
+            booked += next.booked;
+            lastKey = -1;
+            return this;
+        }
+    }
+
+    /**
+     * The tickets of one show, in file order.
+     */
+    private static final class ShowBatch {
+        private final int screenNumber;
+        private final int showTimeId;
+        private Ticket[] tickets = new Ticket[16];
+        private int size;
+        private int loaded;
+
+        private ShowBatch(int screenNumber, int showTimeId) {
+            this.screenNumber = screenNumber;
+            this.showTimeId = showTimeId;
+        }
+
+        private void add(Ticket ticket) {
+            if (size == tickets.length) {
+                tickets = Arrays.copyOf(tickets, size * 2);
+            }
+            tickets[size++] = ticket;
+        }
+
+        private void addAll(ShowBatch other) {
+            if (size + other.size > tickets.length) {
+                tickets = Arrays.copyOf(tickets, Math.max(size + other.size, size * 2));
+            }
+            System.arraycopy(other.tickets, 0, tickets, size, other.size);
+            size += other.size;
+        }
+    }
+
+    /**
+     * Parses the CSV lines that start within a region of the file, halving the region until it
+     * is small enough for one task. A line belongs to the region its first byte is in, so a task
+     * skips the partial line it starts in and finishes the line it ends in.
+     */
+    @SuppressWarnings("serial") // Fork/join tasks are never serialized
+    private static final class CsvRegion extends RecursiveTask<Parsed> {
+        private final FileChannel channel;
+        private final long from;
+        private final long to;
+
+        private CsvRegion(FileChannel channel, long from, long to) {
+            this.channel = channel;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Parsed compute() {
+            if (to - from > REGION_SIZE) {
+                long middle = from + (to - from) / 2;
+                CsvRegion second = new CsvRegion(channel, middle, to);
+                second.fork();
+                Parsed first = new CsvRegion(channel, from, middle).compute();
+                return first.merge(second.join());
+            }
+            try {
+                return parse();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private Parsed parse() throws IOException {
+            Parsed parsed = new Parsed();
+            long size = channel.size();
+            long mapFrom = Math.max(0, from - 1); // One byte back shows whether the region starts a line
+            long mapTo = Math.min(size, to + MAX_LINE_LENGTH);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapFrom, mapTo - mapFrom);
+            int position = (int) (from - mapFrom);
+            int end = (int) (to - mapFrom);
+            int limit = buffer.limit();
+            if (from > 0 && buffer.get(position - 1) != '\n') {
+                position = nextLine(buffer, position, limit); // The line started in the previous region
+            }
+            if (from == 0 && position < limit && !isDigit(skipSpaceAndQuote(buffer, position, limit), buffer, limit)) {
+                position = nextLine(buffer, position, limit); // Header
+            }
+            ShowTimeCache showTimes = new ShowTimeCache();
+            int[] bounds = new int[2];
+            while (position < end && position < limit) {
+                int lineEnd = position;
+                while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                    lineEnd++;
+                }
+                if (lineEnd == limit && mapTo < size) {
+                    throw new IOException("Seat file line at byte " + (mapFrom + position) + " is longer than " + MAX_LINE_LENGTH + " bytes");
+                }
+                parseLine(buffer, position, lineEnd, showTimes, bounds, parsed);
+                position = lineEnd + 1;
+            }
+            return parsed;
+        }
+
+        private void parseLine(MappedByteBuffer buffer, int start, int end, ShowTimeCache showTimes, int[] field,
+                               Parsed parsed) throws IOException {
+            if (end > start && buffer.get(end - 1) == '\r') {
+                end--;
+            }
+            if (end == start) {
+                return; // Blank line
+            }
+            int next = field(buffer, start, end, field);
+            int screenNumber = parseNumber(buffer, field[0], field[1]);
+            if (screenNumber < 0 || next < 0) {
+                throw malformed(buffer, start, end);
+            }
+            next = field(buffer, next, end, field);
+            int seatStart = field[0];
+            int seatEnd = field[1];
+            if (next < 0) {
+                throw malformed(buffer, start, end);
+            }
+            next = field(buffer, next, end, field);
+            int showTimeId = showTimes.id(buffer, field[0], field[1]);
+            TicketStatus status = TicketStatus.NOT_BOOKED;
+            if (next >= 0) {
+                field(buffer, next, end, field);
+                try {
+                    status = TicketStatus.fromLabel(text(buffer, field[0], field[1]));
+                } catch (IllegalArgumentException e) {
+                    throw malformed(buffer, start, end);
+                }
+            }
+            if (status == TicketStatus.BOOKED) {
+                parsed.booked++;
+                return;
+            }
+
+            int seat = parseSeat(buffer, seatStart, seatEnd);
+            Ticket ticket = new Ticket(screenNumber, Math.max(seat, 0), showTimeId, status);
+            if (seat < 0) {
+                ticket.setSeatNumber(text(buffer, seatStart, seatEnd));
+            }
+            parsed.add(ticket);
+        }
+
+        private IOException malformed(MappedByteBuffer buffer, int start, int end) {
+            return new IOException("Malformed seat file line: " + text(buffer, start, end));
+        }
+    }
+
+    /**
+     * Parses the records of a binary seat file, halving the range of records until it is small
+     * enough for one task.
+     */
+    @SuppressWarnings("serial") // Fork/join tasks are never serialized
+    private static final class BinaryRegion extends RecursiveTask<Parsed> {
+        private final FileChannel channel;
+        private final BinaryHeader header;
+        private final long first;
+        private final long count;
+
+        private BinaryRegion(FileChannel channel, BinaryHeader header, long first, long count) {
+            this.channel = channel;
+            this.header = header;
+            this.first = first;
+            this.count = count;
+        }
+
+        @Override
+        protected Parsed compute() {
+            if (count * RECORD_SIZE > REGION_SIZE) {
+                long half = count / 2;
+                BinaryRegion second = new BinaryRegion(channel, header, first + half, count - half);
+                second.fork();
+                Parsed parsed = new BinaryRegion(channel, header, first, half).compute();
+                return parsed.merge(second.join());
+            }
+            Parsed parsed = new Parsed();
+            if (count == 0) {
+                return parsed;
+            }
+            try {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                        header.dataOffset + first * RECORD_SIZE, count * RECORD_SIZE);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                for (int record = 0; record < count; record++) {
+                    int offset = record * RECORD_SIZE;
+                    int showTime = Short.toUnsignedInt(buffer.getShort(offset + 8));
+                    int status = buffer.get(offset + 10);
+                    if (showTime >= header.showTimeIds.length || status < 0 || status >= STATUS_COUNT) {
+                        throw new IOException("Seat file record " + (first + record) + " is corrupt");
+                    }
+                    if (status == TicketStatus.BOOKED.ordinal()) {
+                        parsed.booked++;
+                        continue;
+                    }
+                    parsed.add(new Ticket(buffer.getInt(offset), buffer.getInt(offset + 4),
+                            header.showTimeIds[showTime], TicketStatus.fromOrdinal(status)));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return parsed;
+        }
+    }
+
+    /**
+     * Loads shows into the pool, halving the list of shows until each task has a few.
+     */
+    @SuppressWarnings("serial") // Fork/join tasks are never serialized
+    private static final class LoadShows extends RecursiveAction {
+        private final TicketPool ticketPool;
+        private final List<ShowBatch> shows;
+        private final int from;
+        private final int to;
+
+        private LoadShows(TicketPool ticketPool, List<ShowBatch> shows, int from, int to) {
+            this.ticketPool = ticketPool;
+            this.shows = shows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SHOWS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new LoadShows(ticketPool, shows, from, middle), new LoadShows(ticketPool, shows, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                ShowBatch show = shows.get(i);
+                show.loaded = ticketPool.loadTickets(show.screenNumber, show.showTimeId, show.tickets, 0, show.size);
+            }
+        }
+    }
+
+    /**
+     * Resolves show-time fields to ids, comparing bytes so a name is only decoded the first time
+     * a task sees it.
+     */
+    private static final class ShowTimeCache {
+        private final List<byte[]> names = new ArrayList<>();
+        private final List<Integer> ids = new ArrayList<>();
+
+        private int id(MappedByteBuffer buffer, int start, int end) {
+            search:
+            for (int i = 0; i < names.size(); i++) {
+                byte[] name = names.get(i);
+                if (name.length != end - start) {
+                    continue;
+                }
+                for (int j = 0; j < name.length; j++) {
+                    if (name[j] != buffer.get(start + j)) {
+                        continue search;
+                    }
+                }
+                return ids.get(i);
+            }
+            String name = text(buffer, start, end);
+            int id = ShowTimes.id(name);
+            names.add(name.getBytes(StandardCharsets.UTF_8));
+            ids.add(id);
+            return id;
+        }
+    }
+
+    /**
+     * Finds the next field of a line, trimming spaces and surrounding quotes.
+     *
+     * @param bounds Receives the start and end of the field.
+     * @return Where the following field starts, or -1 if this was the last field.
+     */
+    private static int field(MappedByteBuffer buffer, int start, int end, int[] bounds) {
+        int comma = start;
+        while (comma < end && buffer.get(comma) != ',') {
+            comma++;
+        }
+        int fieldStart = skipSpaceAndQuote(buffer, start, comma);
+        int fieldEnd = comma;
+        while (fieldEnd > fieldStart && (buffer.get(fieldEnd - 1) == ' ' || buffer.get(fieldEnd - 1) == '"')) {
+            fieldEnd--;
+        }
+        bounds[0] = fieldStart;
+        bounds[1] = fieldEnd;
+        return comma < end ? comma + 1 : -1;
+    }
+
+    private static int skipSpaceAndQuote(MappedByteBuffer buffer, int position, int end) {
+        while (position < end && (buffer.get(position) == ' ' || buffer.get(position) == '"')) {
+            position++;
+        }
+        return position;
+    }
+
+    private static boolean isDigit(int position, MappedByteBuffer buffer, int limit) {
+        return position < limit && buffer.get(position) >= '0' && buffer.get(position) <= '9';
+    }
+
+    private static int nextLine(MappedByteBuffer buffer, int position, int limit) {
+        while (position < limit && buffer.get(position) != '\n') {
+            position++;
+        }
+        return position + 1;
+    }
+
+    /**
+     * Parses a non-negative decimal number.
+     *
+     * @return The number, or -1 if the field is empty, not a number or too large.
+     */
+    private static int parseNumber(MappedByteBuffer buffer, int start, int end) {
+        if (start == end || end - start > 9) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Parses a seat given as "Seat-N" or as a bare number.
+     *
+     * @return The seat number, or -1 if the seat is a label.
+     */
+    private static int parseSeat(MappedByteBuffer buffer, int start, int end) {
+        if (end - start > SEAT_PREFIX.length) {
+            boolean prefixed = true;
+            for (int i = 0; i < SEAT_PREFIX.length && prefixed; i++) {
+                prefixed = buffer.get(start + i) == SEAT_PREFIX[i];
+            }
+            if (prefixed) {
+                return parseNumber(buffer, start + SEAT_PREFIX.length, end);
+            }
+        }
+        return parseNumber(buffer, start, end);
+    }
+
+    private static String text(MappedByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
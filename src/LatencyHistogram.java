@@ -0,0 +1,196 @@
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent histogram of durations in nanoseconds with log-linear buckets, in the style of
+ * HdrHistogram. Each power of two is split into 16 buckets, so any recorded value is reported
+ * within about 6% of its true value, from nanoseconds up to centuries, in under 8 KB.
+ * Recording is one array increment plus striped totals, so it is safe on hot paths.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS; // Values below this get exact buckets
+    private static final int HALF_COUNT = SUB_BUCKET_COUNT / 2; // Buckets per power of two above that
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * HALF_COUNT + SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one duration.
+     *
+     * @param nanos The duration in nanoseconds; negative values are recorded as zero.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(index(value));
+        total.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Takes a summary of the durations recorded so far.
+     *
+     * @return The snapshot.
+     */
+    public Snapshot snapshot() {
+        return combine(List.of(this));
+    }
+
+    /**
+     * Takes a summary of the durations recorded by several histograms together.
+     *
+     * @param histograms The histograms to combine.
+     * @return The combined snapshot.
+     */
+    public static Snapshot combine(Collection<LatencyHistogram> histograms) {
+        long[] combined = new long[BUCKET_COUNT];
+        long sum = 0;
+        long largest = 0;
+        for (LatencyHistogram histogram : histograms) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                combined[i] += histogram.counts.get(i);
+            }
+            sum += histogram.total.sum();
+            largest = Math.max(largest, histogram.max.get());
+        }
+        return new Snapshot(combined, sum, largest);
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return shift * HALF_COUNT + (int) (value >>> shift); // The top bits pick the bucket within the power of two
+    }
+
+    private static long highestValueIn(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / HALF_COUNT - 1;
+        long mantissa = index % HALF_COUNT + HALF_COUNT;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    /**
+     * A point-in-time summary of a histogram, in microseconds.
+     */
+    public static final class Snapshot {
+        private final long count;
+        private final double meanMicros;
+        private final double p50Micros;
+        private final double p90Micros;
+        private final double p99Micros;
+        private final double p999Micros;
+        private final double maxMicros;
+
+        private Snapshot(long[] counts, long sum, long max) {
+            long recorded = 0;
+            for (long bucket : counts) {
+                recorded += bucket;
+            }
+            this.count = recorded;
+            this.meanMicros = recorded == 0 ? 0 : sum / 1000.0 / recorded;
+            this.p50Micros = percentile(counts, recorded, max, 50);
+            this.p90Micros = percentile(counts, recorded, max, 90);
+            this.p99Micros = percentile(counts, recorded, max, 99);
+            this.p999Micros = percentile(counts, recorded, max, 99.9);
+            this.maxMicros = max / 1000.0;
+        }
+
+        /**
+         * Finds the value at or below which the given percentage of durations fall.
+         */
+        private static double percentile(long[] counts, long recorded, long max, double percent) {
+            if (recorded == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percent / 100 * recorded));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueIn(i), max) / 1000.0;
+                }
+            }
+            return max / 1000.0;
+        }
+
+        /**
+         * Retrieves the number of durations recorded.
+         *
+         * @return The count.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Retrieves the mean duration.
+         *
+         * @return The mean in microseconds.
+         */
+        public double getMeanMicros() {
+            return meanMicros;
+        }
+
+        /**
+         * Retrieves the median duration.
+         *
+         * @return The median in microseconds.
+         */
+        public double getP50Micros() {
+            return p50Micros;
+        }
+
+        /**
+         * Retrieves the duration that 90% of recordings do not exceed.
+         *
+         * @return The 90th percentile in microseconds.
+         */
+        public double getP90Micros() {
+            return p90Micros;
+        }
+
+        /**
+         * Retrieves the duration that 99% of recordings do not exceed.
+         *
+         * @return The 99th percentile in microseconds.
+         */
+        public double getP99Micros() {
+            return p99Micros;
+        }
+
+        /**
+         * Retrieves the duration that 99.9% of recordings do not exceed.
+         *
+         * @return The 99.9th percentile in microseconds.
+         */
+        public double getP999Micros() {
+            return p999Micros;
+        }
+
+        /**
+         * Retrieves the longest duration.
+         *
+         * @return The maximum in microseconds.
+         */
+        public double getMaxMicros() {
+            return maxMicros;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("n=%d mean=%.1f p50=%.1f p99=%.1f p99.9=%.1f max=%.1f us",
+                    count, meanMicros, p50Micros, p99Micros, p999Micros, maxMicros);
+        }
+    }
+}
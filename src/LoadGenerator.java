@@ -0,0 +1,197 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A non-interactive load test of the ticket pool, for capacity planning a big sale.
+ * Every ticket goes on sale when the test starts, and purchase requests then arrive following the
+ * configured {@link ArrivalPattern}. Each request is an independent simulated customer who asks
+ * for one or more tickets on a random screen and gets whatever is available right now; with seat
+ * maps, a party only gets seats if they can all sit together.
+ *
+ * <p>Arrivals are open-loop: requests are sent on schedule however slowly earlier ones complete,
+ * and latency is measured from when a request was due rather than when it was sent, so a backlog
+ * shows up in the latencies instead of silently lowering the load.
+ *
+ * <p>Usage: {@code java LoadGenerator [config.json]}
+ */
+public class LoadGenerator {
+    private static final int TIMELINE_SLICES = 10;
+
+    private final Configuration config;
+    private final TicketPool ticketPool;
+    private final LatencyHistogram bookedLatency = new LatencyHistogram();
+    private final LatencyHistogram rejectedLatency = new LatencyHistogram();
+    private final LongAdder ticketsBooked = new LongAdder();
+    private final long[] requestsBySlice = new long[TIMELINE_SLICES]; // Written by the dispatching thread only
+    private final AtomicLongArray bookedBySlice = new AtomicLongArray(TIMELINE_SLICES);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicLong soldOutNanos = new AtomicLong(-1);
+    private final long durationNanos;
+    private long requestsSent;
+    private long startNanos;
+    private long endNanos;
+
+    /**
+     * Constructs a LoadGenerator and puts every configured ticket on sale. Screens are given
+     * enough capacity to hold their share of the tickets.
+     *
+     * @param config The configuration of the pool and the load.
+     */
+    public LoadGenerator(Configuration config) {
+        this.config = config;
+        this.durationNanos = TimeUnit.SECONDS.toNanos(config.getLoadDurationSeconds());
+
+        int screens = config.getScreens();
+        int totalTickets = config.getTotalTickets();
+        config.setMaxCapacity(Math.max(config.getMaxCapacity(), (totalTickets + screens - 1) / screens));
+        this.ticketPool = TicketPool.create(config);
+        for (int screen = 1; screen <= screens; screen++) {
+            int seats = totalTickets / screens + (screen <= totalTickets % screens ? 1 : 0);
+            List<Ticket> tickets = new ArrayList<>(seats);
+            for (int seat = 1; seat <= seats; seat++) {
+                tickets.add(new Ticket(screen, seat, ShowTimes.DEFAULT, TicketStatus.NOT_BOOKED));
+            }
+            ticketPool.addTickets(screen, tickets);
+        }
+    }
+
+    /**
+     * Runs a load test from a configuration file and prints the report.
+     *
+     * @param args The configuration file, config.json if omitted.
+     */
+    public static void main(String[] args) {
+        String configFile = args.length > 0 ? args[0] : "config.json";
+        try {
+            Configuration config = Configuration.loadConfig(configFile);
+            if (config.getLogLevel() == null) {
+                config.setLogLevel(LogLevel.OFF); // Logging every booking would dominate the test
+            }
+            config.displayConfig();
+            EventLog.configure(config);
+
+            LoadGenerator generator = new LoadGenerator(config);
+            PoolMetrics metrics = config.getMetricsIntervalSeconds() > 0 ? generator.ticketPool.enableMetrics() : null;
+            generator.run();
+            EventLog.flush();
+            System.out.print(generator.report());
+            if (metrics != null) {
+                System.out.print(metrics.report());
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading configuration: " + e.getMessage());
+        } catch (InterruptedException e) {
+            System.err.println("Load test interrupted. Exiting...");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sends requests until the configured duration has passed or every ticket is sold,
+     * then waits for the requests still in flight.
+     *
+     * @throws InterruptedException If interrupted while sending or waiting.
+     */
+    public void run() throws InterruptedException {
+        ArrivalPattern pattern = config.getArrivalPattern();
+        double rate = config.getArrivalRate();
+        Random random = new Random();
+        ExecutorService executor = config.getExecutionMode().newExecutor();
+        startNanos = System.nanoTime();
+        try {
+            long arrival = pattern.nextArrival(0, rate, durationNanos, random);
+            while (arrival <= durationNanos && !ticketPool.areAllTicketsSold()) {
+                long due = startNanos + arrival;
+                long delay;
+                while ((delay = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(delay);
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+                executor.execute(() -> request(due));
+                requestsSent++;
+                requestsBySlice[slice(arrival)]++;
+                arrival = pattern.nextArrival(arrival, rate, durationNanos, random);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        endNanos = System.nanoTime();
+    }
+
+    /**
+     * Builds the latency and throughput report of the finished run.
+     *
+     * @return The report.
+     */
+    public String report() {
+        double elapsed = (endNanos - startNanos) / 1e9;
+        double sliceSeconds = durationNanos / 1e9 / TIMELINE_SLICES;
+        long soldOut = soldOutNanos.get();
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Load test: %s arrivals at a base %.1f requests/s for %d s across %d screens%n",
+                config.getArrivalPattern(), config.getArrivalRate(), config.getLoadDurationSeconds(), config.getScreens()));
+        report.append(String.format("Requests: %d sent in %.3f s (%.1f/s), %d completed, at most %d in flight%n",
+                requestsSent, elapsed, requestsSent / elapsed, bookedLatency.snapshot().getCount()
+                        + rejectedLatency.snapshot().getCount(), maxInFlight.get()));
+        report.append(String.format("Tickets: %d booked (%.1f/s), %d remaining, %s%n",
+                ticketsBooked.sum(), ticketsBooked.sum() / elapsed, ticketPool.getTotalTicketsRemaining(),
+                soldOut < 0 ? "not sold out" : String.format("sold out after %.3f s", soldOut / 1e9)));
+        report.append("Latency of requests that booked tickets: ").append(bookedLatency.snapshot()).append(System.lineSeparator());
+        report.append("Latency of requests that found none:     ").append(rejectedLatency.snapshot()).append(System.lineSeparator());
+        report.append("Throughput over the run (requests sent/s, tickets booked/s):").append(System.lineSeparator());
+        for (int slice = 0; slice < TIMELINE_SLICES && slice * sliceSeconds < elapsed; slice++) {
+            double from = slice * sliceSeconds;
+            double to = Math.min((slice + 1) * sliceSeconds, elapsed); // The run may end mid-slice
+            report.append(String.format("  %7.1f s - %7.1f s: %10.1f %10.1f%n", from, to,
+                    requestsBySlice[slice] / (to - from), bookedBySlice.get(slice) / (to - from)));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Serves one simulated customer's purchase request.
+     */
+    private void request(long dueNanos) {
+        int concurrent = inFlight.incrementAndGet();
+        if (concurrent > maxInFlight.get()) {
+            maxInFlight.accumulateAndGet(concurrent, Math::max);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int screen = 1 + random.nextInt(config.getScreens());
+        int wanted = 1 + random.nextInt(config.getTicketsPerRequest());
+        List<Ticket> purchased = new ArrayList<>(wanted);
+        int booked = config.getSeatsPerRow() > 0
+                ? ticketPool.bookAdjacentTickets(screen, Math.min(wanted, config.getSeatsPerRow()), purchased)
+                : ticketPool.pollTickets(screen, wanted, purchased);
+
+        long now = System.nanoTime();
+        (booked > 0 ? bookedLatency : rejectedLatency).record(now - dueNanos);
+        if (booked > 0) {
+            ticketsBooked.add(booked);
+            bookedBySlice.addAndGet(slice(now - startNanos), booked);
+        }
+        if (ticketPool.areAllTicketsSold()) {
+            soldOutNanos.compareAndSet(-1, now - startNanos);
+        }
+        inFlight.decrementAndGet();
+    }
+
+    private int slice(long elapsedNanos) {
+        return (int) Math.min(TIMELINE_SLICES - 1, Math.max(0, elapsedNanos * TIMELINE_SLICES / durationNanos));
+    }
+}
@@ -0,0 +1,250 @@
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * A screen queue guarded by its own lock, with separate conditions for vendors waiting
+ * for space and customers waiting for tickets.
+ */
+public class LockingScreenQueue implements ScreenQueue {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition notEmpty = lock.newCondition();
+    private final Queue<Ticket> tickets;
+    private int capacity; // Guarded by lock; may change while the queue is in use
+    private volatile int count; // Written under lock, read without it
+    private volatile LatencyHistogram holdTimes; // Null when lock hold times are not recorded
+    private long lockedAt; // When the lock was last acquired while recording; guarded by lock
+
+    /**
+     * Constructs an empty LockingScreenQueue that holds its tickets as objects.
+     *
+     * @param capacity The maximum number of tickets the screen can hold.
+     */
+    public LockingScreenQueue(int capacity) {
+        this(capacity, new ArrayDeque<>());
+    }
+
+    /**
+     * Constructs an empty LockingScreenQueue over the given ticket storage.
+     *
+     * @param capacity The maximum number of tickets the screen can hold.
+     * @param tickets  The empty queue that stores the tickets, e.g. a {@link TicketStore}.
+     */
+    public LockingScreenQueue(int capacity, Queue<Ticket> tickets) {
+        this.capacity = capacity;
+        this.tickets = tickets;
+    }
+
+    @Override
+    public boolean offer(Ticket ticket) {
+        lock();
+        try {
+            if (tickets.size() >= capacity) {
+                return false;
+            }
+            enqueue(ticket);
+            return true;
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Puts back a held ticket, going over capacity if vendors have filled the screen since.
+     */
+    @Override
+    public boolean offerBack(Ticket ticket) {
+        lock();
+        try {
+            if (tickets instanceof TicketStore) {
+                ((TicketStore) tickets).ensureCapacity(tickets.size() + 1); // Compact storage is sized up front
+            }
+            enqueue(ticket);
+            return true;
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public Ticket poll() {
+        lock();
+        try {
+            return tickets.isEmpty() ? null : dequeue();
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public int offerAll(Ticket[] batch, int offset, int length) {
+        lock();
+        try {
+            int added = Math.max(0, Math.min(length, capacity - tickets.size()));
+            for (int i = 0; i < added; i++) {
+                tickets.add(batch[offset + i]);
+            }
+            count = tickets.size();
+            signal(notEmpty, added);
+            return added;
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Consumer<? super Ticket> sink, int maxCount) {
+        lock();
+        try {
+            int drained = Math.min(maxCount, tickets.size());
+            for (int i = 0; i < drained; i++) {
+                sink.accept(tickets.poll());
+            }
+            count = tickets.size();
+            signal(notFull, drained);
+            return drained;
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public boolean awaitRoom(Runnable onWait) throws InterruptedException {
+        lock();
+        try {
+            while (tickets.size() >= capacity) {
+                onWait.run();
+                await(notFull); // Wait until a customer on this screen frees a slot
+            }
+            return true;
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public boolean awaitTicket(BooleanSupplier giveUp, Runnable onWait) throws InterruptedException {
+        lock();
+        try {
+            while (tickets.isEmpty()) {
+                if (giveUp.getAsBoolean()) {
+                    return false;
+                }
+                onWait.run();
+                await(notEmpty); // Wait until a vendor on this screen adds a ticket
+            }
+            return true;
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<? super Ticket> action) {
+        lock();
+        try {
+            tickets.forEach(action);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void setLockHoldTimes(LatencyHistogram holdTimes) {
+        this.holdTimes = holdTimes;
+    }
+
+    @Override
+    public boolean setCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        lock();
+        try {
+            if (tickets instanceof TicketStore) {
+                ((TicketStore) tickets).ensureCapacity(capacity); // Compact storage is sized up front
+            }
+            int raisedBy = capacity - this.capacity;
+            this.capacity = capacity;
+            signal(notFull, raisedBy);
+            return true;
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public void wakeConsumers() {
+        lock();
+        try {
+            notEmpty.signalAll();
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    private void lock() {
+        lock.lock();
+        if (holdTimes != null) {
+            lockedAt = System.nanoTime();
+        }
+    }
+
+    private void unlock() {
+        LatencyHistogram holdTimes = this.holdTimes;
+        long held = holdTimes != null && lockedAt != 0 ? System.nanoTime() - lockedAt : -1;
+        lockedAt = 0;
+        lock.unlock();
+        if (held >= 0) {
+            holdTimes.record(held);
+        }
+    }
+
+    /**
+     * Waits on a condition, not counting the wait as time the lock was held.
+     */
+    private void await(Condition condition) throws InterruptedException {
+        LatencyHistogram holdTimes = this.holdTimes;
+        if (holdTimes != null && lockedAt != 0) {
+            holdTimes.record(System.nanoTime() - lockedAt);
+        }
+        lockedAt = 0;
+        condition.await();
+        if (holdTimes != null) {
+            lockedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * Wakes as many waiters as there are new tickets or free slots, using one signal call.
+     */
+    private static void signal(Condition condition, int changed) {
+        if (changed == 1) {
+            condition.signal();
+        } else if (changed > 1) {
+            condition.signalAll();
+        }
+    }
+
+    private void enqueue(Ticket ticket) {
+        tickets.add(ticket);
+        count = tickets.size();
+        notEmpty.signal();
+    }
+
+    private Ticket dequeue() {
+        Ticket ticket = tickets.poll();
+        count = tickets.size();
+        notFull.signal();
+        return ticket;
+    }
+}
@@ -0,0 +1,20 @@
+/**
+ * Controls how much the {@link EventLog} records.
+ * Each level includes everything recorded by the levels before it.
+ */
+public enum LogLevel {
+    /**
+     * Records nothing; logging calls return immediately.
+     */
+    OFF,
+
+    /**
+     * Records batches, waits and the sold-out event.
+     */
+    INFO,
+
+    /**
+     * Additionally records every individual ticket added or booked.
+     */
+    DEBUG
+}
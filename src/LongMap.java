@@ -0,0 +1,132 @@
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * A map from primitive {@code long} keys to objects for read-mostly data, such as the shows of a
+ * {@link TicketPool}. Lookups never box the key or allocate, and never lock: they read an
+ * immutable open-addressing table, which writers copy, update and publish under the map's lock.
+ *
+ * @param <V> The type of the values; null values are not allowed.
+ */
+public class LongMap<V> {
+    private volatile Table table = new Table(8);
+
+    /**
+     * Retrieves the value for a key.
+     *
+     * @param key The key.
+     * @return The value, or null if the key is not in the map.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        Table table = this.table;
+        int mask = table.keys.length - 1;
+        for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+            Object value = table.values[slot];
+            if (value == null || table.keys[slot] == key) {
+                return (V) value; // An empty slot ends the probe sequence
+            }
+        }
+    }
+
+    /**
+     * Associates a value with a key, replacing any previous value. Each write copies the table,
+     * so the map suits keys that are added rarely and looked up often.
+     *
+     * @param key   The key.
+     * @param value The value.
+     * @return The previous value, or null if the key was not in the map.
+     * @throws NullPointerException If the value is null.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("LongMap does not allow null values");
+        }
+        Table current = table;
+        Table copy = current.size + 1 > current.keys.length / 2 ? current.resize(current.keys.length * 2) : current.copy();
+        Object previous = copy.insert(key, value);
+        table = copy; // Publish the filled table in one volatile write
+        return (V) previous;
+    }
+
+    /**
+     * Retrieves the number of keys in the map.
+     *
+     * @return The size.
+     */
+    public int size() {
+        return table.size;
+    }
+
+    /**
+     * Visits every value, in no particular order, as of one published table.
+     *
+     * @param action Receives each value.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super V> action) {
+        for (Object value : table.values) {
+            if (value != null) {
+                action.accept((V) value);
+            }
+        }
+    }
+
+    /**
+     * Finds the home slot of a key, mixing its bits so sequential keys spread over the table.
+     */
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * An open-addressing table with linear probing, never modified once published.
+     */
+    private static final class Table {
+        private final long[] keys;
+        private final Object[] values; // Null marks an empty slot
+        private int size;
+
+        private Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+        }
+
+        private Table(long[] keys, Object[] values, int size) {
+            this.keys = keys;
+            this.values = values;
+            this.size = size;
+        }
+
+        private Table copy() {
+            return new Table(Arrays.copyOf(keys, keys.length), Arrays.copyOf(values, values.length), size);
+        }
+
+        private Table resize(int capacity) {
+            Table resized = new Table(capacity);
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (values[slot] != null) {
+                    resized.insert(keys[slot], values[slot]);
+                }
+            }
+            return resized;
+        }
+
+        private Object insert(long key, Object value) {
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            while (values[slot] != null && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            Object previous = values[slot];
+            if (previous == null) {
+                size++;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            return previous;
+        }
+    }
+}
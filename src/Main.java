@@ -1,7 +1,15 @@
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
     public static void main(String[] args) {
@@ -17,57 +25,246 @@ public class Main {
             }
 
             config.displayConfig();
+            EventLog.configure(config);
 
             // Parameters from configuration
             int totalTickets = config.getTotalTickets();
-            int ticketReleaseRate = config.getTicketReleaseRate();
-            int customerRetrievalRate = config.getCustomerRetrievalRate();
-            int maxCapacity = config.getMaxCapacity();
+            double ticketReleaseRate = config.getTicketReleaseRate();
+            double customerRetrievalRate = config.getCustomerRetrievalRate();
             int totalScreens = config.getScreens();
 
-            TicketPool ticketPool = new TicketPool(maxCapacity);
-            ticketPool.setTotalTickets(totalTickets);
-            CountDownLatch latch = new CountDownLatch(totalScreens);
+            // Sell every configured show on every screen; customers look shows up by start time
+            String[] showTimes = config.getShowTimes();
+            int[] showTimeIds = new int[showTimes.length];
+            for (int i = 0; i < showTimes.length; i++) {
+                showTimeIds[i] = ShowTimes.id(showTimes[i]);
+                if (ShowTimes.minuteOfDay(showTimeIds[i]) < 0) {
+                    throw new IOException("Show time is not a time of day: " + showTimes[i]);
+                }
+            }
+            boolean scheduledShows = showTimeIds.length > 1 || showTimeIds[0] != ShowTimes.DEFAULT;
+
+            boolean sharded = config.getShardNodes() > 1;
+            if (sharded && (config.getInventoryFile() != null || config.getSeatFile() != null
+                    || config.getJournalFile() != null || config.getSnapshotFile() != null)) {
+                throw new IOException("Sharded pools cannot use an inventory file, a seat file, a journal or snapshots");
+            }
+
+            TicketPool ticketPool = null; // Stays null when the screens are sharded over pool nodes
+            MappedSeatInventory inventory = null;
+            int vendorScreens = totalScreens;
+            if (config.getInventoryFile() != null) {
+                // Seats are mapped from the inventory file instead of being released by vendors
+                Path inventoryFile = Paths.get(config.getInventoryFile());
+                inventory = Files.exists(inventoryFile)
+                        ? MappedSeatInventory.open(inventoryFile)
+                        : MappedSeatInventory.create(inventoryFile, totalScreens, totalTickets, "10:00 AM");
+                ticketPool = new TicketPool(inventory::queue);
+                for (int screen = 1; screen <= totalScreens; screen++) {
+                    // The seats are on sale from the start, so create each screen's show now instead of on first use
+                    ticketPool.scheduleShow(screen, ShowTimes.DEFAULT, inventory.queue(screen).size());
+                }
+                ticketPool.setTotalTickets(inventory.getAvailableCount());
+                vendorScreens = 0;
+            } else if (config.getSeatFile() != null) {
+                // Or the venue's seats are preloaded from a seat file, counted as they are loaded
+                ticketPool = TicketPool.create(config);
+                System.out.println(InventoryLoader.load(Paths.get(config.getSeatFile()), ticketPool));
+                vendorScreens = 0;
+            } else if (!sharded) {
+                ticketPool = TicketPool.create(config);
+                ticketPool.setTotalTickets(totalTickets);
+            }
+
+            // Or shard the screens over several pool nodes, each counting its screens' share of the tickets
+            ShardCluster cluster = null;
+            TicketService tickets = ticketPool;
+            if (sharded) {
+                int nodeCount = config.getShardNodes();
+                cluster = ShardCluster.start(nodeCount, config.getShardTransport(), config.getExecutionMode(), node -> {
+                    TicketPool nodePool = TicketPool.create(config);
+                    int nodeTickets = 0;
+                    for (int screen = node + 1; screen <= totalScreens; screen += nodeCount) {
+                        nodeTickets += vendorShare(totalTickets, totalScreens, screen);
+                    }
+                    nodePool.setTotalTickets(nodeTickets);
+                    return nodePool;
+                });
+                tickets = cluster.getRouter();
+            }
+
+            // Replay the booking journal so sales continue where the last run stopped;
+            // a seat file is loaded in full on every run, so it replaces both the journal and snapshots
+            boolean seatFile = config.getSeatFile() != null;
+            BookingJournal journal = null;
+            if (config.getJournalFile() != null && inventory == null && !seatFile) {
+                journal = BookingJournal.open(Paths.get(config.getJournalFile()),
+                        config.getJournalFsyncPolicy(), config.getJournalSyncIntervalMillis());
+                int restored = journal.restore(ticketPool);
+                ticketPool.setTotalTickets(totalTickets - journal.getRecoveredBookings()); // Vendors still owe the rest
+                System.out.println("Recovered " + restored + " available tickets and "
+                        + journal.getRecoveredBookings() + " bookings from the journal.");
+                ticketPool.setJournal(journal);
+            }
+
+            // Otherwise restore the last snapshot, which also restores how far each vendor had got
+            Path snapshotFile = config.getSnapshotFile() != null ? Paths.get(config.getSnapshotFile()) : null;
+            if (snapshotFile != null && journal == null && inventory == null && !seatFile && Files.exists(snapshotFile)) {
+                int restored = PoolSnapshot.load(snapshotFile, ticketPool);
+                System.out.println("Restored " + restored + " available tickets from the snapshot.");
+            }
+            // Instrument the pool before selling starts, so the histograms cover the whole run
+            PoolMetrics metrics = null;
+            Path metricsFile = config.getMetricsFile() != null ? Paths.get(config.getMetricsFile()) : null;
+            if (config.getMetricsIntervalSeconds() > 0 && cluster != null) {
+                System.out.println("Metrics are not collected for sharded pools.");
+            } else if (config.getMetricsIntervalSeconds() > 0) {
+                metrics = ticketPool.enableMetrics();
+                metrics.registerMBeans();
+            }
+
+            // Adapt capacities and vendor pacing to each screen's sales, where the pool's shows can be resized
+            boolean liveCapacity = cluster == null && inventory == null && config.getSeatsPerRow() == 0;
+            CapacityController controller = null;
+            if (config.isAdaptiveCapacity() && (!liveCapacity || vendorScreens == 0)) {
+                System.out.println("Adaptive capacity needs vendors releasing into a local pool; capacities stay fixed.");
+            } else if (config.isAdaptiveCapacity()) {
+                controller = new CapacityController(ticketPool, capacityBudget(config), ticketReleaseRate,
+                        config.getTargetWaitMillis(), TimeUnit.MILLISECONDS);
+            }
+
+            int customersPerScreen = config.getCustomersPerScreen();
             List<Vendor> vendors = new ArrayList<>();
             List<Customer> customers = new ArrayList<>();
-            List<Thread> threads = new ArrayList<>();
+            ExecutorService executor = config.getExecutionMode().newExecutor();
+            RateScheduler scheduler = new RateScheduler();
+            scheduler.startReporting(5, TimeUnit.SECONDS);
+            if (metrics != null) {
+                PoolMetrics poolMetrics = metrics;
+                int interval = config.getMetricsIntervalSeconds();
+                scheduler.getExecutor().scheduleAtFixedRate(() -> reportMetrics(poolMetrics, metricsFile),
+                        interval, interval, TimeUnit.SECONDS);
+            }
+            if (snapshotFile != null && config.getSnapshotIntervalSeconds() > 0) {
+                TicketPool pool = ticketPool;
+                int interval = config.getSnapshotIntervalSeconds();
+                scheduler.getExecutor().scheduleWithFixedDelay(() -> writeSnapshot(pool, snapshotFile),
+                        interval, interval, TimeUnit.SECONDS);
+            }
 
-            // Create vendor threads
-            for (int screen = 1; screen <= totalScreens; screen++) {
-                int ticketsPerVendor = totalTickets / totalScreens;
-                Vendor vendor = new Vendor(ticketPool, screen, ticketsPerVendor, ticketReleaseRate, latch);
+            // Create vendor tasks
+            for (int screen = 1; screen <= vendorScreens; screen++) {
+                int ticketsPerVendor = vendorShare(totalTickets, totalScreens, screen);
+                RateLimiter releaseLimiter = scheduler.register("Vendors", ticketReleaseRate);
+                Vendor vendor = new Vendor(tickets, screen, ticketsPerVendor, releaseLimiter);
+                if (journal != null) {
+                    vendor.setTicketsAlreadyAdded(journal.getAddedCount(screen));
+                } else if (ticketPool != null) {
+                    vendor.setTicketsAlreadyAdded((int) ticketPool.getTicketsAdded(screen));
+                }
+                vendor.setShowTimes(showTimeIds);
+                if (controller != null) {
+                    controller.addScreen(screen, releaseLimiter);
+                }
                 vendors.add(vendor);
-                Thread vendorThread = new Thread(vendor, "Vendor-" + screen);
-                threads.add(vendorThread);
-                vendorThread.start();
+                executor.execute(ExecutionMode.named("Vendor-" + screen, vendor));
             }
 
-            // Create customer threads
+            // Screens without vendors have all their tickets already
+            for (int screen = vendorScreens + 1; screen <= totalScreens; screen++) {
+                ticketPool.finishReleasing(screen);
+            }
+            if (controller != null) {
+                long period = controller.getPeriodMillis();
+                scheduler.getExecutor().scheduleAtFixedRate(controller, period, period, TimeUnit.MILLISECONDS);
+            }
+
+            // Create customer tasks; cross-screen customers stop once every configured screen has sold out
+            int[] allScreens = new int[totalScreens];
+            Arrays.setAll(allScreens, i -> i + 1);
             for (int screen = 1; screen <= totalScreens; screen++) {
-                Customer customer = new Customer(ticketPool, screen, customerRetrievalRate, latch);
-                customers.add(customer);
-                Thread customerThread = new Thread(customer, "Customer-Screen-" + screen);
-                threads.add(customerThread);
-                customerThread.start();
+                for (int i = 1; i <= customersPerScreen; i++) {
+                    RateLimiter retrievalLimiter = scheduler.register("Customers", customerRetrievalRate);
+                    Customer customer = new Customer(tickets, screen, retrievalLimiter); // Buys as tickets are released
+                    if (config.isCrossScreenPurchases()) {
+                        customer.setAcceptableScreens(allScreens); // Any screen with tickets
+                    } else if (scheduledShows) {
+                        customer.setShowsFrom(0); // The earliest show with tickets
+                    }
+                    customers.add(customer);
+                    String name = customersPerScreen == 1 ? "Customer-Screen-" + screen : "Customer-Screen-" + screen + "-" + i;
+                    executor.execute(ExecutionMode.named(name, customer));
+                }
             }
 
-            latch.await(); // Wait until vendors finish adding tickets
+            // Apply edits to config.json while selling, so rates and capacities change without a restart
+            TicketPool pool = ticketPool;
+            CapacityController adaptive = controller;
+            ConfigWatcher watcher = null;
+            try {
+                watcher = new ConfigWatcher(Paths.get("config.json"), config, (previous, current) ->
+                        applyLiveSettings(previous, current, scheduler, pool, liveCapacity, adaptive));
+            } catch (IOException e) {
+                System.err.println("Configuration changes will not be applied while running: " + e.getMessage());
+            }
 
-            // Wait for all tickets to be sold
-            synchronized (ticketPool) {
-                while (!ticketPool.areAllTicketsSold()) {
-                    ticketPool.wait(500); // Wait periodically for updates
+            // Wait for all tickets to be sold; the pool completes the future as the last one is booked
+            if (cluster != null) {
+                CompletableFuture<?>[] nodesSoldOut = new CompletableFuture<?>[cluster.getNodeCount()];
+                for (int node = 0; node < nodesSoldOut.length; node++) {
+                    nodesSoldOut[node] = cluster.getNode(node).getPool().whenSoldOut();
                 }
+                CompletableFuture.allOf(nodesSoldOut).join();
+            } else {
+                ticketPool.whenSoldOut().join();
             }
 
-            // Stop all vendor and customer threads
+            // Stop all vendor and customer tasks. Selling out has already woken every waiting
+            // customer, so they finish their batches and exit; interrupt only what is still running
+            if (watcher != null) {
+                watcher.close();
+            }
             vendors.forEach(Vendor::stop);
             customers.forEach(Customer::stop);
-            threads.forEach(Thread::interrupt);
+            executor.shutdown();
+            if (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            }
+            scheduler.close();
+            if (snapshotFile != null) {
+                writeSnapshot(ticketPool, snapshotFile);
+            }
+            if (inventory != null) {
+                inventory.close();
+            }
+            if (journal != null) {
+                journal.close();
+            }
 
+            EventLog.flush();
+            System.out.print(scheduler.report());
+            if (controller != null) {
+                System.out.print(controller.report());
+            }
+            if (metrics != null) {
+                reportMetrics(metrics, metricsFile);
+                metrics.close();
+            }
             System.out.println("System shutdown. Final ticket status:");
             for (int i = 1; i <= totalScreens; i++) {
-                System.out.println("Screen " + i + ": " + ticketPool.getRemainingTickets(i) + " tickets remaining.");
+                System.out.println("Screen " + i + ": " + tickets.getRemainingTickets(i) + " tickets remaining.");
+            }
+            // Mapped seats are never added through the pool, so only its own counters can be checked
+            if (cluster != null) {
+                for (int node = 0; node < cluster.getNodeCount(); node++) {
+                    System.out.print("Node " + node + ": " + cluster.getNode(node).getPool().checkConsistency());
+                }
+            } else if (inventory == null) {
+                System.out.print(ticketPool.checkConsistency());
+            }
+            if (cluster != null) {
+                cluster.close();
             }
         } catch (IOException e) {
             System.err.println("Error loading or saving configuration: " + e.getMessage());
@@ -76,4 +273,72 @@ public class Main {
             Thread.currentThread().interrupt();
         }
     }
+
+    // Splits the tickets evenly over the screens' vendors, giving the remainder to the first screens
+    private static int vendorShare(int totalTickets, int totalScreens, int screen) {
+        return totalTickets / totalScreens + (screen <= totalTickets % totalScreens ? 1 : 0);
+    }
+
+    private static int capacityBudget(Configuration config) {
+        int budget = 0;
+        for (int screen = 1; screen <= config.getScreens(); screen++) {
+            budget += config.getMaxCapacity(screen);
+        }
+        return budget;
+    }
+
+    private static void applyLiveSettings(Configuration previous, Configuration current, RateScheduler scheduler,
+                                          TicketPool ticketPool, boolean liveCapacity, CapacityController controller) {
+        if (previous.getTicketReleaseRate() != current.getTicketReleaseRate()) {
+            if (controller != null) {
+                controller.setReleaseRate(current.getTicketReleaseRate()); // Vendors are paced up to it
+                System.out.println("Ticket release rate is now at most " + current.getTicketReleaseRate() + " per vendor.");
+            } else {
+                int vendors = scheduler.setRate("Vendors", current.getTicketReleaseRate());
+                System.out.println("Ticket release rate is now " + current.getTicketReleaseRate() + " for " + vendors + " vendors.");
+            }
+        }
+        if (previous.getCustomerRetrievalRate() != current.getCustomerRetrievalRate()) {
+            int customers = scheduler.setRate("Customers", current.getCustomerRetrievalRate());
+            System.out.println("Customer retrieval rate is now " + current.getCustomerRetrievalRate() + " for " + customers + " customers.");
+        }
+        if (previous.getMaxCapacity() != current.getMaxCapacity()
+                || !previous.getScreenCapacities().equals(current.getScreenCapacities())) {
+            if (!liveCapacity) {
+                System.out.println("Capacity changes take effect after a restart for this pool.");
+            } else if (controller != null) {
+                controller.setCapacityBudget(capacityBudget(current));
+                System.out.println("Adaptive capacity budget is now " + capacityBudget(current) + " tickets.");
+            } else {
+                boolean applied = ticketPool.setDefaultCapacity(current.getMaxCapacity());
+                Set<Integer> screens = new TreeSet<>(previous.getScreenCapacities().keySet());
+                screens.addAll(current.getScreenCapacities().keySet());
+                for (int screen : screens) {
+                    applied &= ticketPool.setScreenCapacity(screen, current.getScreenCapacities().getOrDefault(screen, 0));
+                }
+                System.out.println(applied ? "Show capacities updated."
+                        : "Show capacities updated; shows with fixed-size storage keep theirs until a restart.");
+            }
+        }
+        EventLog.configure(current);
+    }
+
+    private static void reportMetrics(PoolMetrics metrics, Path metricsFile) {
+        System.out.print(metrics.report());
+        if (metricsFile != null) {
+            try {
+                metrics.writeJson(metricsFile);
+            } catch (IOException e) {
+                System.err.println("Error writing metrics: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void writeSnapshot(TicketPool ticketPool, Path snapshotFile) {
+        try {
+            PoolSnapshot.write(ticketPool, snapshotFile);
+        } catch (IOException e) {
+            System.err.println("Error writing snapshot: " + e.getMessage());
+        }
+    }
 }
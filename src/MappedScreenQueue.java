@@ -0,0 +1,196 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * The available seats of one screen in a {@link MappedSeatInventory}.
+ * Polling books the next available seat in the file with a compare-and-set, and offering a
+ * ticket for a booked seat makes that seat available again. Seats taken for a hold are marked
+ * held until the hold is confirmed or ends. The screen's capacity is its seat count, so tickets
+ * for seats outside the inventory are rejected rather than waited for.
+ */
+public class MappedScreenQueue implements ScreenQueue {
+    private final MappedSeatInventory inventory;
+    private final int from;
+    private final int to;
+    private final AtomicInteger available;
+    private final AtomicInteger cursor; // No seat before this index was available when it was last moved forward
+    private final ReentrantLock lock = new ReentrantLock(); // Only taken by customers that have to wait
+    private final Condition notEmpty = lock.newCondition();
+
+    MappedScreenQueue(MappedSeatInventory inventory, int from, int to, int available) {
+        this.inventory = inventory;
+        this.from = from;
+        this.to = to;
+        this.available = new AtomicInteger(available);
+        this.cursor = new AtomicInteger(from);
+    }
+
+    @Override
+    public boolean offer(Ticket ticket) {
+        int index = inventory.find(from, to, ticket.getSeat());
+        if (index < 0 || !inventory.transition(index, TicketStatus.BOOKED, TicketStatus.NOT_BOOKED)) {
+            return false;
+        }
+        released(index);
+        return true;
+    }
+
+    /**
+     * Puts a held seat back on sale, or a booked one as {@link #offer} does.
+     */
+    @Override
+    public boolean offerBack(Ticket ticket) {
+        int index = inventory.find(from, to, ticket.getSeat());
+        if (index < 0 || !inventory.unhold(index)) {
+            return offer(ticket);
+        }
+        released(index);
+        return true;
+    }
+
+    @Override
+    public Ticket poll() {
+        return take(false);
+    }
+
+    /**
+     * Marks the next available seat held rather than booked, so the file does not record a
+     * booking that the hold may never become.
+     */
+    @Override
+    public Ticket pollForHold() {
+        return take(true);
+    }
+
+    @Override
+    public void confirmHold(Ticket ticket) {
+        int index = inventory.find(from, to, ticket.getSeat());
+        if (index >= 0) {
+            inventory.confirm(index);
+        }
+    }
+
+    @Override
+    public int offerAll(Ticket[] tickets, int offset, int length) {
+        int added = 0;
+        while (added < length && offer(tickets[offset + added])) {
+            added++;
+        }
+        return added;
+    }
+
+    @Override
+    public int drainTo(Consumer<? super Ticket> sink, int maxCount) {
+        int drained = 0;
+        Ticket ticket;
+        while (drained < maxCount && (ticket = poll()) != null) {
+            sink.accept(ticket);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * Never waits, since each seat has its own record: a seat turned away is not in the
+     * inventory or not booked, and stays so.
+     *
+     * @return Always false.
+     */
+    @Override
+    public boolean awaitRoom(Runnable onWait) {
+        return false;
+    }
+
+    @Override
+    public boolean awaitTicket(BooleanSupplier giveUp, Runnable onWait) throws InterruptedException {
+        lock.lock();
+        try {
+            while (available.get() == 0) {
+                if (giveUp.getAsBoolean()) {
+                    return false;
+                }
+                onWait.run();
+                notEmpty.await(); // Wait until a booked seat on this screen is released
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<? super Ticket> action) {
+        for (int index = from; index < to; index++) {
+            if (inventory.isAvailable(index)) {
+                action.accept(inventory.ticket(index));
+            }
+        }
+    }
+
+    @Override
+    public void wakeConsumers() {
+        lock.lock();
+        try {
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return available.get();
+    }
+
+    /**
+     * Takes the next available seat, booking it or putting it on hold.
+     */
+    private Ticket take(boolean hold) {
+        if (available.get() == 0) {
+            return null;
+        }
+        int start = cursor.get();
+        int index = take(start, hold);
+        if (index < 0 && start > from) {
+            index = take(from, hold); // A seat released behind the cursor may have been missed
+        }
+        if (index < 0) {
+            return null;
+        }
+        cursor.compareAndSet(start, index + 1);
+        return inventory.ticket(index);
+    }
+
+    /**
+     * Books or holds the first available seat at or after an index.
+     *
+     * @return The taken record index, or -1 if none was available.
+     */
+    private int take(int start, boolean hold) {
+        for (int index = start; index < to; index++) {
+            if (inventory.isAvailable(index) && (hold ? inventory.hold(index)
+                    : inventory.transition(index, TicketStatus.NOT_BOOKED, TicketStatus.BOOKED))) {
+                available.decrementAndGet();
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Counts a seat that went back on sale and wakes a customer waiting for one.
+     */
+    private void released(int index) {
+        available.incrementAndGet();
+        cursor.accumulateAndGet(index, Math::min);
+        lock.lock();
+        try {
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,316 @@
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A seat inventory stored outside the Java heap in a memory-mapped file.
+ * Every seat is a fixed-size record (screen, seat, show time, status and version), sorted by
+ * screen and then seat. Bookings flip the status in place with a compare-and-set, so the file
+ * always reflects the current inventory and can be mapped again after a restart. A seat on hold
+ * is marked held rather than booked; holds do not outlive the pool, so mapping the file again
+ * puts every held seat back on sale.
+ *
+ * <p>File layout (little endian): a {@value #HEADER_SIZE}-byte header holding the magic number,
+ * layout version, record count and the show-time names, followed by {@value #RECORD_SIZE}-byte records.
+ * Version 1 files predate held seats and are still read.
+ */
+public class MappedSeatInventory implements AutoCloseable {
+    private static final int MAGIC = 0x54494B54; // "TKIT"
+    private static final int LAYOUT_VERSION = 2;
+    private static final int HEADER_SIZE = 4096;
+    private static final int RECORD_SIZE = 24;
+    private static final int SCREEN = 0;
+    private static final int SEAT = 4;
+    private static final int SHOW_TIME = 8;
+    private static final int STATE = 16; // Version in the high 56 bits, status ordinal in the low 8
+    private static final long STATUS_MASK = 0xFF;
+    private static final int HELD = TicketStatus.values().length; // Status byte of a seat on hold, after every TicketStatus
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int recordCount;
+    private final int[] showTimeIds; // File-local show-time index to ShowTimes id
+    private final Map<Integer, MappedScreenQueue> queuesByScreen = new HashMap<>();
+
+    private MappedSeatInventory(FileChannel channel, MappedByteBuffer buffer) throws IOException {
+        this.channel = channel;
+        this.buffer = buffer;
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC
+                || buffer.getInt(4) < 1 || buffer.getInt(4) > LAYOUT_VERSION) {
+            throw new IOException("Not a seat inventory file");
+        }
+        this.recordCount = buffer.getInt(8);
+        if ((long) HEADER_SIZE + (long) recordCount * RECORD_SIZE != buffer.capacity()) {
+            throw new IOException("Seat inventory file is truncated or corrupt");
+        }
+
+        int showTimeCount = buffer.getInt(12);
+        this.showTimeIds = new int[showTimeCount];
+        int position = 16;
+        for (int i = 0; i < showTimeCount; i++) {
+            byte[] name = new byte[buffer.getShort(position)];
+            buffer.get(position + 2, name);
+            showTimeIds[i] = ShowTimes.id(new String(name, StandardCharsets.UTF_8));
+            position += 2 + name.length;
+        }
+
+        // Records are sorted by screen, so each screen owns one contiguous range
+        int from = 0;
+        while (from < recordCount) {
+            int screenNumber = getScreen(from);
+            int to = from;
+            int available = 0;
+            while (to < recordCount && getScreen(to) == screenNumber) {
+                if (isAvailable(to) || unhold(to)) { // A hold left by the last run ended with it
+                    available++;
+                }
+                to++;
+            }
+            queuesByScreen.put(screenNumber, new MappedScreenQueue(this, from, to, available));
+            from = to;
+        }
+    }
+
+    /**
+     * Creates an inventory file with every seat available, spreading seats evenly across screens.
+     * Screens are numbered from 1 and seats within a screen from 1.
+     *
+     * @param file       The file to create or overwrite.
+     * @param screens    The number of screens.
+     * @param totalSeats The total number of seats across all screens.
+     * @param showTime   The show time of every seat.
+     * @return The mapped inventory.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static MappedSeatInventory create(Path file, int screens, int totalSeats, String showTime) throws IOException {
+        long size = (long) HEADER_SIZE + (long) totalSeats * RECORD_SIZE;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Too many seats for a single mapped file: " + totalSeats);
+        }
+        byte[] name = showTime.getBytes(StandardCharsets.UTF_8);
+        if (16 + 2 + name.length > HEADER_SIZE) {
+            throw new IOException("Show time name is too long: " + showTime);
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, LAYOUT_VERSION);
+            buffer.putInt(8, totalSeats);
+            buffer.putInt(12, 1);
+            buffer.putShort(16, (short) name.length);
+            buffer.put(18, name);
+
+            int index = 0;
+            for (int screen = 1; screen <= screens; screen++) {
+                int seats = totalSeats / screens + (screen <= totalSeats % screens ? 1 : 0);
+                for (int seat = 1; seat <= seats; seat++, index++) {
+                    int offset = offset(index);
+                    buffer.putInt(offset + SCREEN, screen);
+                    buffer.putInt(offset + SEAT, seat);
+                    buffer.putInt(offset + SHOW_TIME, 0);
+                    buffer.putLong(offset + STATE, TicketStatus.NOT_BOOKED.ordinal());
+                }
+            }
+            buffer.force();
+        }
+        return open(file);
+    }
+
+    /**
+     * Maps an existing inventory file, keeping every booking made before it was closed.
+     *
+     * @param file The inventory file.
+     * @return The mapped inventory.
+     * @throws IOException If the file cannot be read or is not an inventory file.
+     */
+    public static MappedSeatInventory open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            return new MappedSeatInventory(channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Retrieves the queue of available seats for a screen, for use as a {@link TicketPool} backend.
+     *
+     * @param screenNumber The screen number.
+     * @return The screen's queue; empty if the inventory has no seats for the screen.
+     */
+    public ScreenQueue queue(int screenNumber) {
+        MappedScreenQueue queue = queuesByScreen.get(screenNumber);
+        return queue != null ? queue : new MappedScreenQueue(this, 0, 0, 0);
+    }
+
+    /**
+     * Retrieves the number of seats that are currently not booked.
+     *
+     * @return The number of available seats across all screens.
+     */
+    public int getAvailableCount() {
+        int available = 0;
+        for (MappedScreenQueue queue : queuesByScreen.values()) {
+            available += queue.size();
+        }
+        return available;
+    }
+
+    /**
+     * Retrieves the number of seat records in the inventory.
+     *
+     * @return The number of seats.
+     */
+    public int getSeatCount() {
+        return recordCount;
+    }
+
+    /**
+     * Writes every change made through the mapping to the storage device.
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    /**
+     * Flushes the inventory and closes the file.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    int getScreen(int index) {
+        return buffer.getInt(offset(index) + SCREEN);
+    }
+
+    int getSeat(int index) {
+        return buffer.getInt(offset(index) + SEAT);
+    }
+
+    /**
+     * Reads a seat's status; a held seat is not booked yet.
+     */
+    TicketStatus getStatus(int index) {
+        int status = (int) (state(index) & STATUS_MASK);
+        return status == HELD ? TicketStatus.NOT_BOOKED : TicketStatus.fromOrdinal(status);
+    }
+
+    /**
+     * Checks whether a seat is on sale: neither booked nor held.
+     */
+    boolean isAvailable(int index) {
+        return (state(index) & STATUS_MASK) == TicketStatus.NOT_BOOKED.ordinal();
+    }
+
+    long getVersion(int index) {
+        return state(index) >>> 8;
+    }
+
+    /**
+     * Builds a ticket view of a seat record.
+     */
+    Ticket ticket(int index) {
+        int offset = offset(index);
+        return new Ticket(buffer.getInt(offset + SCREEN), buffer.getInt(offset + SEAT),
+                showTimeIds[buffer.getInt(offset + SHOW_TIME)], getStatus(index));
+    }
+
+    /**
+     * Atomically moves a seat from one status to another, bumping its version.
+     *
+     * @return True if the seat had the expected status and was moved; false otherwise.
+     */
+    boolean transition(int index, TicketStatus from, TicketStatus to) {
+        return transition(index, from.ordinal(), to.ordinal());
+    }
+
+    /**
+     * Atomically puts an available seat on hold.
+     *
+     * @return True if the seat was available and is now held.
+     */
+    boolean hold(int index) {
+        return transition(index, TicketStatus.NOT_BOOKED.ordinal(), HELD);
+    }
+
+    /**
+     * Atomically books a held seat.
+     *
+     * @return True if the seat was held and is now booked.
+     */
+    boolean confirm(int index) {
+        return transition(index, HELD, TicketStatus.BOOKED.ordinal());
+    }
+
+    /**
+     * Atomically puts a held seat back on sale.
+     *
+     * @return True if the seat was held and is now available.
+     */
+    boolean unhold(int index) {
+        return transition(index, HELD, TicketStatus.NOT_BOOKED.ordinal());
+    }
+
+    private boolean transition(int index, int from, int to) {
+        int offset = offset(index) + STATE;
+        long state = (long) LONGS.getVolatile(buffer, offset);
+        while ((state & STATUS_MASK) == from) {
+            long next = (((state >>> 8) + 1) << 8) | to;
+            long witness = (long) LONGS.compareAndExchange(buffer, offset, state, next);
+            if (witness == state) {
+                return true;
+            }
+            state = witness;
+        }
+        return false;
+    }
+
+    /**
+     * Finds the record of a seat within a screen's range by binary search.
+     *
+     * @return The record index, or -1 if the seat is not in the range.
+     */
+    int find(int from, int to, int seat) {
+        int low = from;
+        int high = to - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int candidate = getSeat(middle);
+            if (candidate < seat) {
+                low = middle + 1;
+            } else if (candidate > seat) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private long state(int index) {
+        return (long) LONGS.getVolatile(buffer, offset(index) + STATE);
+    }
+
+    private static int offset(int index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+}
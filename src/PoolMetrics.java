@@ -0,0 +1,268 @@
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Live instrumentation of a {@link TicketPool}, created by {@link TicketPool#enableMetrics()}.
+ * Per-screen counters come straight from the pool's striped counters, and blocked and lock-hold
+ * times are recorded into {@link LatencyHistogram}s only on the paths that actually wait.
+ * The metrics can be watched through JMX under the {@value #DOMAIN} domain, printed as text or
+ * written as JSON.
+ */
+public class PoolMetrics implements PoolMetricsMXBean, AutoCloseable {
+    private static final String DOMAIN = "TicketingSystem";
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private final TicketPool ticketPool;
+    private final Map<Integer, ScreenMetrics> screens = new ConcurrentSkipListMap<>();
+    final LatencyHistogram crossScreenBlocked = new LatencyHistogram(); // Customers waiting on several screens at once
+    private final long startNanos = System.nanoTime();
+    private final Set<ObjectName> registeredNames = ConcurrentHashMap.newKeySet();
+    private volatile boolean registered;
+    private long lastReportNanos = startNanos; // Guarded by this
+    private long lastReportBooked; // Guarded by this
+
+    PoolMetrics(TicketPool ticketPool) {
+        this.ticketPool = ticketPool;
+    }
+
+    /**
+     * Retrieves the metrics of a screen.
+     *
+     * @param screenNumber The screen number.
+     * @return The screen's metrics, or null if the pool has not seen the screen.
+     */
+    public ScreenMetrics getScreen(int screenNumber) {
+        return screens.get(screenNumber);
+    }
+
+    /**
+     * Registers the pool's MBean and one MBean per screen with the platform MBean server.
+     * Screens created later are registered as they appear.
+     */
+    public void registerMBeans() {
+        registered = true;
+        register(this, DOMAIN + ":type=TicketPool");
+        for (ScreenMetrics screen : screens.values()) {
+            register(screen, screenName(screen.getScreenNumber()));
+        }
+    }
+
+    @Override
+    public int getTotalTicketsRemaining() {
+        return ticketPool.getTotalTicketsRemaining();
+    }
+
+    @Override
+    public long getTicketsAdded() {
+        long added = 0;
+        for (ScreenMetrics screen : screens.values()) {
+            added += screen.getTicketsAdded();
+        }
+        return added;
+    }
+
+    @Override
+    public long getTicketsBooked() {
+        long booked = 0;
+        for (ScreenMetrics screen : screens.values()) {
+            booked += screen.getTicketsBooked();
+        }
+        return booked;
+    }
+
+    @Override
+    public int getDepth() {
+        int depth = 0;
+        for (ScreenMetrics screen : screens.values()) {
+            depth += screen.getDepth();
+        }
+        return depth;
+    }
+
+    @Override
+    public int getScreenCount() {
+        return screens.size();
+    }
+
+    @Override
+    public double getBookingRate() {
+        return rate(getTicketsBooked(), System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getVendorBlockedTime() {
+        return combine(screen -> screen.vendorBlocked);
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getCustomerBlockedTime() {
+        List<LatencyHistogram> histograms = histograms(screen -> screen.customerBlocked);
+        histograms.add(crossScreenBlocked);
+        return LatencyHistogram.combine(histograms);
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getCrossScreenBlockedTime() {
+        return crossScreenBlocked.snapshot();
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getLockHoldTime() {
+        return combine(screen -> screen.lockHold);
+    }
+
+    /**
+     * Builds a text report of the pool and every screen. The booking rate covers the time
+     * since the previous report.
+     *
+     * @return The report: the pool summary followed by each screen.
+     */
+    public synchronized String report() {
+        long now = System.nanoTime();
+        long booked = getTicketsBooked();
+        double rate = rate(booked - lastReportBooked, now - lastReportNanos);
+        lastReportNanos = now;
+        lastReportBooked = booked;
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Pool: %d remaining, %d added, %d booked, %d queued, %.1f booked/s%n",
+                getTotalTicketsRemaining(), getTicketsAdded(), booked, getDepth(), rate));
+        report.append("  Vendors blocked:   ").append(getVendorBlockedTime()).append(System.lineSeparator());
+        report.append("  Customers blocked: ").append(getCustomerBlockedTime()).append(System.lineSeparator());
+        report.append("    on any screen:   ").append(getCrossScreenBlockedTime()).append(System.lineSeparator());
+        report.append("  Lock held:         ").append(getLockHoldTime()).append(System.lineSeparator());
+        for (ScreenMetrics screen : screens.values()) {
+            report.append(String.format("Screen %d: %d added, %d booked, %d queued%n",
+                    screen.getScreenNumber(), screen.getTicketsAdded(), screen.getTicketsBooked(), screen.getDepth()));
+            report.append("  Vendors blocked:   ").append(screen.getVendorBlockedTime()).append(System.lineSeparator());
+            report.append("  Customers blocked: ").append(screen.getCustomerBlockedTime()).append(System.lineSeparator());
+            report.append("  Lock held:         ").append(screen.getLockHoldTime()).append(System.lineSeparator());
+        }
+        return report.toString();
+    }
+
+    /**
+     * Builds a JSON document of the pool and every screen.
+     *
+     * @return The JSON text.
+     */
+    public String toJson() {
+        Map<String, Object> pool = new LinkedHashMap<>();
+        pool.put("timestamp", Instant.now().toString());
+        pool.put("totalTicketsRemaining", getTotalTicketsRemaining());
+        pool.put("ticketsAdded", getTicketsAdded());
+        pool.put("ticketsBooked", getTicketsBooked());
+        pool.put("depth", getDepth());
+        pool.put("bookingRate", getBookingRate());
+        pool.put("vendorBlockedTime", getVendorBlockedTime());
+        pool.put("customerBlockedTime", getCustomerBlockedTime());
+        pool.put("crossScreenBlockedTime", getCrossScreenBlockedTime());
+        pool.put("lockHoldTime", getLockHoldTime());
+        List<Map<String, Object>> screenList = new ArrayList<>();
+        for (ScreenMetrics screen : screens.values()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("screenNumber", screen.getScreenNumber());
+            entry.put("ticketsAdded", screen.getTicketsAdded());
+            entry.put("ticketsBooked", screen.getTicketsBooked());
+            entry.put("depth", screen.getDepth());
+            entry.put("vendorBlockedTime", screen.getVendorBlockedTime());
+            entry.put("customerBlockedTime", screen.getCustomerBlockedTime());
+            entry.put("lockHoldTime", screen.getLockHoldTime());
+            screenList.add(entry);
+        }
+        pool.put("screens", screenList);
+        return GSON.toJson(pool);
+    }
+
+    /**
+     * Writes the JSON document to a file, replacing it atomically so readers never see a partial dump.
+     *
+     * @param file The file to write.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void writeJson(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temporary, toJson());
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Unregisters every MBean registered by {@link #registerMBeans()}.
+     */
+    @Override
+    public void close() {
+        if (!registered) {
+            return;
+        }
+        registered = false;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registeredNames) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                System.err.println("Error unregistering pool metrics: " + e.getMessage());
+            }
+        }
+        registeredNames.clear();
+    }
+
+    /**
+     * Creates the metrics of a newly created screen.
+     */
+    ScreenMetrics addScreen(int screenNumber) {
+        ScreenMetrics screen = screens.computeIfAbsent(screenNumber, number -> new ScreenMetrics(ticketPool, number));
+        if (registered) {
+            register(screen, screenName(screenNumber));
+        }
+        return screen;
+    }
+
+    private LatencyHistogram.Snapshot combine(Function<ScreenMetrics, LatencyHistogram> histogram) {
+        return LatencyHistogram.combine(histograms(histogram));
+    }
+
+    private List<LatencyHistogram> histograms(Function<ScreenMetrics, LatencyHistogram> histogram) {
+        List<LatencyHistogram> histograms = new ArrayList<>();
+        for (ScreenMetrics screen : screens.values()) {
+            histograms.add(histogram.apply(screen));
+        }
+        return histograms;
+    }
+
+    private static double rate(long count, long nanos) {
+        return nanos <= 0 ? 0 : count * 1_000_000_000.0 / nanos;
+    }
+
+    private static String screenName(int screenNumber) {
+        return DOMAIN + ":type=TicketPool,screen=" + screenNumber;
+    }
+
+    private void register(Object mbean, String name) {
+        try {
+            ObjectName objectName = new ObjectName(name);
+            if (!registeredNames.contains(objectName)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, objectName);
+                registeredNames.add(objectName);
+            }
+        } catch (JMException e) {
+            System.err.println("Error registering pool metrics: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * The JMX view of a pool's {@link PoolMetrics}, totalled over every screen.
+ */
+public interface PoolMetricsMXBean {
+
+    /**
+     * Retrieves the number of tickets not yet sold, as tracked by the pool-wide counter.
+     *
+     * @return The remaining ticket count.
+     */
+    int getTotalTicketsRemaining();
+
+    /**
+     * Retrieves the number of tickets ever added to the pool.
+     *
+     * @return The number of tickets added.
+     */
+    long getTicketsAdded();
+
+    /**
+     * Retrieves the number of tickets ever booked from the pool.
+     *
+     * @return The number of tickets booked.
+     */
+    long getTicketsBooked();
+
+    /**
+     * Retrieves the number of tickets currently queued across all screens.
+     *
+     * @return The total queue depth.
+     */
+    int getDepth();
+
+    /**
+     * Retrieves the number of screens the pool has seen.
+     *
+     * @return The screen count.
+     */
+    int getScreenCount();
+
+    /**
+     * Retrieves the average booking throughput since metrics were enabled.
+     *
+     * @return The tickets booked per second.
+     */
+    double getBookingRate();
+
+    /**
+     * Retrieves how long vendors have waited for space, over all screens.
+     *
+     * @return The vendor blocked-time summary.
+     */
+    LatencyHistogram.Snapshot getVendorBlockedTime();
+
+    /**
+     * Retrieves how long customers have waited for tickets, over all screens.
+     *
+     * @return The customer blocked-time summary.
+     */
+    LatencyHistogram.Snapshot getCustomerBlockedTime();
+
+    /**
+     * Retrieves how long customers accepting several screens have waited for all of them to be
+     * restocked. These waits are included in the customer blocked time.
+     *
+     * @return The cross-screen blocked-time summary.
+     */
+    LatencyHistogram.Snapshot getCrossScreenBlockedTime();
+
+    /**
+     * Retrieves how long operations held screen locks, over all screens.
+     *
+     * @return The lock hold-time summary.
+     */
+    LatencyHistogram.Snapshot getLockHoldTime();
+}
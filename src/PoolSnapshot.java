@@ -0,0 +1,224 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.CRC32C;
+
+/**
+ * Saves and restores the complete state of a {@link TicketPool} in a compact binary file.
+ * Snapshots are taken online: the pool is paused only while its tickets and counters are copied
+ * in one consistent cut, so no seat is both on sale and counted as booked, and the copy is written
+ * to a temporary path and then moved into place, so a crash never leaves a half-written snapshot
+ * behind.
+ *
+ * <p>Layout (big endian): magic, version, remaining-ticket total, the show-time table, then per
+ * screen its number, each show's {@code [showTime:2][added:8][booked:8]} counters and its tickets
+ * as {@code [seat:4][showTime:2][status:1][labelLength:2][label]}, followed by a CRC32C of
+ * everything before it.
+ */
+public final class PoolSnapshot {
+    private static final int MAGIC = 0x544B534E; // "TKSN"
+    private static final int VERSION = 1;
+
+    private PoolSnapshot() {
+    }
+
+    /**
+     * Writes a snapshot of a pool, pausing sales only while the pool is copied.
+     *
+     * @param ticketPool The pool to save.
+     * @param file       The snapshot file to create or replace.
+     * @return The number of tickets written.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static int write(TicketPool ticketPool, Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        int written = 0;
+        try (BufferedOutputStream output = new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16)) {
+            CheckedOutputStream checked = new CheckedOutputStream(output, new CRC32C());
+            DataOutputStream data = new DataOutputStream(checked);
+            // Copy every screen first, so the show-time table covers every id the tickets use
+            Copy copy = ticketPool.whilePaused(() -> new Copy(ticketPool));
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeInt(copy.totalRemaining);
+
+            int showTimeCount = ShowTimes.count();
+            data.writeInt(showTimeCount);
+            for (int id = 0; id < showTimeCount; id++) {
+                byte[] name = ShowTimes.name(id).getBytes(StandardCharsets.UTF_8);
+                data.writeShort(name.length);
+                data.write(name);
+            }
+
+            data.writeInt(copy.screens.size());
+            for (ScreenCopy screen : copy.screens) {
+                List<Ticket> tickets = screen.tickets;
+                data.writeInt(screen.screenNumber);
+                data.writeInt(screen.showTimeIds.length);
+                for (int i = 0; i < screen.showTimeIds.length; i++) {
+                    data.writeShort(screen.showTimeIds[i]);
+                    data.writeLong(screen.added[i]);
+                    data.writeLong(screen.booked[i]);
+                }
+                data.writeInt(tickets.size());
+                for (Ticket ticket : tickets) {
+                    String label = ticket.getSeatLabel();
+                    byte[] text = label == null ? null : label.getBytes(StandardCharsets.UTF_8);
+                    data.writeInt(ticket.getSeat());
+                    data.writeShort(ticket.getShowTimeId());
+                    data.writeByte(ticket.getTicketStatus().ordinal());
+                    data.writeShort(text == null ? 0 : text.length);
+                    if (text != null) {
+                        data.write(text);
+                    }
+                }
+                written += tickets.size();
+            }
+            data.flush();
+            data.writeInt((int) checked.getChecksum().getValue());
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return written;
+    }
+
+    /**
+     * Restores a snapshot into an empty pool, including its remaining total and per-show counters.
+     * Load the snapshot before attaching a journal, so restored tickets are not journaled again.
+     *
+     * @param file       The snapshot file.
+     * @param ticketPool The empty pool to restore into.
+     * @return The number of tickets restored.
+     * @throws IOException If the file cannot be read or fails its integrity check.
+     */
+    public static int load(Path file, TicketPool ticketPool) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 16 || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a ticket pool snapshot: " + file);
+            }
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CRC32C checksum = new CRC32C();
+            checksum.update(data.slice(0, (int) size - 4));
+            if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION
+                    || (int) checksum.getValue() != data.getInt((int) size - 4)) {
+                throw new IOException("Ticket pool snapshot is corrupt: " + file);
+            }
+            data.position(8);
+            int totalRemaining = data.getInt();
+
+            int[] showTimeIds = new int[data.getInt()];
+            for (int i = 0; i < showTimeIds.length; i++) {
+                showTimeIds[i] = ShowTimes.id(readText(data, data.getShort()));
+            }
+
+            int screenCount = data.getInt();
+            Ticket[][] ticketsByScreen = new Ticket[screenCount][];
+            int[] screenNumbers = new int[screenCount];
+            int[][] screenShowTimeIds = new int[screenCount][];
+            long[][] added = new long[screenCount][];
+            long[][] booked = new long[screenCount][];
+            int restored = 0;
+            for (int i = 0; i < screenCount; i++) {
+                screenNumbers[i] = data.getInt();
+                int showCount = data.getInt();
+                screenShowTimeIds[i] = new int[showCount];
+                added[i] = new long[showCount];
+                booked[i] = new long[showCount];
+                for (int show = 0; show < showCount; show++) {
+                    screenShowTimeIds[i][show] = showTimeIds[data.getShort()];
+                    added[i][show] = data.getLong();
+                    booked[i][show] = data.getLong();
+                }
+                int count = data.getInt();
+                Ticket[] tickets = new Ticket[count];
+                for (int j = 0; j < count; j++) {
+                    int seat = data.getInt();
+                    int showTimeId = showTimeIds[data.getShort()];
+                    TicketStatus status = TicketStatus.fromOrdinal(data.get());
+                    int labelLength = data.getShort();
+                    Ticket ticket = new Ticket(screenNumbers[i], seat, showTimeId, status);
+                    if (labelLength > 0) {
+                        ticket.setSeatNumber(readText(data, labelLength));
+                    }
+                    tickets[j] = ticket;
+                }
+                ticketsByScreen[i] = tickets;
+                restored += count;
+            }
+
+            for (int i = 0; i < screenCount; i++) {
+                // Each show's tickets were written together; loading never waits, even if holds overfill a show
+                Ticket[] tickets = ticketsByScreen[i];
+                for (int from = 0; from < tickets.length; ) {
+                    int showTimeId = tickets[from].getShowTimeId();
+                    int to = from + 1;
+                    while (to < tickets.length && tickets[to].getShowTimeId() == showTimeId) {
+                        to++;
+                    }
+                    ticketPool.loadTickets(screenNumbers[i], showTimeId, tickets, from, to - from);
+                    from = to;
+                }
+                for (int show = 0; show < screenShowTimeIds[i].length; show++) {
+                    ticketPool.setShowCounters(screenNumbers[i], screenShowTimeIds[i][show], added[i][show], booked[i][show]);
+                }
+            }
+            // The saved total also covers the tickets vendors have yet to add, which they still owe
+            ticketPool.setTotalTickets(totalRemaining);
+            return restored;
+        }
+    }
+
+    /**
+     * The state of a pool, copied while it is paused.
+     */
+    private static final class Copy {
+        private final int totalRemaining;
+        private final List<ScreenCopy> screens = new ArrayList<>();
+
+        private Copy(TicketPool ticketPool) {
+            totalRemaining = ticketPool.getTotalTicketsRemaining();
+            for (int screenNumber : ticketPool.getScreenNumbers()) {
+                screens.add(new ScreenCopy(ticketPool, screenNumber));
+            }
+        }
+    }
+
+    /**
+     * One screen of a paused pool: each show's counters and the screen's unsold tickets.
+     */
+    private static final class ScreenCopy {
+        private final int screenNumber;
+        private final int[] showTimeIds;
+        private final long[] added;
+        private final long[] booked;
+        private final List<Ticket> tickets;
+
+        private ScreenCopy(TicketPool ticketPool, int screenNumber) {
+            this.screenNumber = screenNumber;
+            showTimeIds = ticketPool.getShowTimes(screenNumber);
+            added = new long[showTimeIds.length];
+            booked = new long[showTimeIds.length];
+            for (int i = 0; i < showTimeIds.length; i++) {
+                added[i] = ticketPool.getTicketsAdded(screenNumber, showTimeIds[i]);
+                booked[i] = ticketPool.getTicketsBooked(screenNumber, showTimeIds[i]);
+            }
+            tickets = ticketPool.snapshotTickets(screenNumber);
+        }
+    }
+
+    private static String readText(MappedByteBuffer data, int length) {
+        byte[] bytes = new byte[length];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,192 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A token-bucket rate limiter that spaces permits evenly in time.
+ * Each acquisition reserves the next free slot on a shared timeline, so the time callers spend
+ * doing their work between acquisitions is accounted for and the long-run rate stays exact.
+ * Rates may be fractional, e.g. 0.5 permits per second.
+ *
+ * <p>Callers that keep their own clock, such as a simulation, can {@link #reserve(int, long) reserve}
+ * slots on it instead of waiting for them.
+ *
+ * <p>The rate can be {@link #setRate(double) changed} while callers use the limiter, e.g. when
+ * the configuration is reloaded; callers already waiting pick up the new rate within a tenth of a second.
+ */
+public class RateLimiter {
+    private static final long STEP_NANOS = 1_000_000L; // Target spacing between paced batches
+    private static final long RATE_CHECK_NANOS = 100_000_000L; // Longest wait before re-checking the rate
+
+    private volatile double permitsPerSecond;
+    private volatile double nanosPerPermit;
+    private volatile int rateChanges; // Lets waiting callers notice a new rate
+    private final AtomicLong nextFreeNanos;
+    private final LongAdder acquired = new LongAdder();
+    private final long startNanos;
+
+    /**
+     * Constructs a RateLimiter.
+     *
+     * @param permitsPerSecond The number of permits issued per second; must be positive.
+     */
+    public RateLimiter(double permitsPerSecond) {
+        this(permitsPerSecond, System.nanoTime());
+    }
+
+    /**
+     * Constructs a RateLimiter whose timeline starts at a given time on the caller's clock.
+     * The achieved rate is only meaningful when that clock is {@link System#nanoTime()}.
+     *
+     * @param permitsPerSecond The number of permits issued per second; must be positive.
+     * @param startNanos       The time at which the first permits are free, in nanoseconds.
+     */
+    public RateLimiter(double permitsPerSecond, long startNanos) {
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("Rate must be positive: " + permitsPerSecond);
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.nanosPerPermit = 1_000_000_000.0 / permitsPerSecond;
+        this.startNanos = startNanos;
+        this.nextFreeNanos = new AtomicLong(startNanos);
+    }
+
+    /**
+     * Acquires permits, parking the caller until their reserved slot arrives.
+     * The first acquisition after an idle period is granted immediately; later ones wait for
+     * the time the previous acquisition paid for.
+     *
+     * @param permits The number of permits to acquire; 0 only checks for interruption.
+     * @throws InterruptedException If the thread is interrupted before or while waiting.
+     */
+    public void acquire(int permits) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (permits <= 0) {
+            return;
+        }
+        int changes = rateChanges;
+        long deadline = reserve(permits);
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(Math.min(remaining, RATE_CHECK_NANOS));
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (changes != rateChanges) {
+                // The rate changed while waiting; wait no longer than the new rate asks for
+                changes = rateChanges;
+                deadline = Math.min(deadline, System.nanoTime() + cost(permits));
+            }
+        }
+    }
+
+    /**
+     * Acquires permits only if they are available right now.
+     *
+     * @param permits The number of permits to acquire.
+     * @return True if the permits were acquired; false otherwise.
+     */
+    public boolean tryAcquire(int permits) {
+        long now = System.nanoTime();
+        long next = nextFreeNanos.get();
+        if (next > now) {
+            return false;
+        }
+        if (!nextFreeNanos.compareAndSet(next, now + cost(permits))) {
+            return false;
+        }
+        acquired.add(permits);
+        return true;
+    }
+
+    /**
+     * Retrieves the number of permits worth acquiring at once so that batches are about a
+     * millisecond apart. Slow rates get single permits; fast rates get larger batches.
+     *
+     * @return The batch size, at least one.
+     */
+    public int batchSize() {
+        return (int) Math.max(1, Math.ceil(permitsPerSecond * STEP_NANOS / 1_000_000_000.0));
+    }
+
+    /**
+     * Retrieves the configured rate.
+     *
+     * @return The permits issued per second.
+     */
+    public double getConfiguredRate() {
+        return permitsPerSecond;
+    }
+
+    /**
+     * Changes the rate for permits acquired from now on, without disturbing callers using the
+     * limiter. A backlog of slots reserved at the old rate is cut to one batch at the new rate,
+     * so raising a slow rate takes effect straight away.
+     *
+     * @param permitsPerSecond The new number of permits issued per second; must be positive.
+     */
+    public synchronized void setRate(double permitsPerSecond) {
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("Rate must be positive: " + permitsPerSecond);
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.nanosPerPermit = 1_000_000_000.0 / permitsPerSecond;
+        rateChanges++;
+        long latest = System.nanoTime() + cost(batchSize());
+        nextFreeNanos.accumulateAndGet(latest, Math::min);
+    }
+
+    /**
+     * Retrieves the rate actually achieved since the limiter was created.
+     *
+     * @return The permits acquired per second.
+     */
+    public double getAchievedRate() {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed <= 0 ? 0 : acquired.sum() * 1_000_000_000.0 / elapsed;
+    }
+
+    /**
+     * Reserves the next free slot for the given permits on the caller's clock, without waiting.
+     * As with {@link #acquire(int)}, idle time is not banked as a burst.
+     *
+     * @param permits  The number of permits to reserve.
+     * @param nowNanos The current time on the caller's clock, in nanoseconds.
+     * @return The time on the same clock at which the permits become available.
+     */
+    public long reserve(int permits, long nowNanos) {
+        long cost = cost(permits);
+        while (true) {
+            long next = nextFreeNanos.get();
+            long start = Math.max(next, nowNanos);
+            if (nextFreeNanos.compareAndSet(next, start + cost)) {
+                acquired.add(permits);
+                return start;
+            }
+        }
+    }
+
+    /**
+     * Reserves the next free slot for the given permits.
+     *
+     * @return The time, in System.nanoTime() units, at which the permits become available.
+     */
+    private long reserve(int permits) {
+        long cost = cost(permits);
+        while (true) {
+            long now = System.nanoTime();
+            long next = nextFreeNanos.get();
+            long start = Math.max(next, now); // Idle time is not banked as a burst
+            if (nextFreeNanos.compareAndSet(next, start + cost)) {
+                acquired.add(permits);
+                return start;
+            }
+        }
+    }
+
+    private long cost(int permits) {
+        return (long) (permits * nanosPerPermit);
+    }
+}
@@ -0,0 +1,103 @@
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands out rate limiters for groups of vendors and customers and owns the shared scheduled
+ * executor used for periodic background work, such as reporting achieved against configured rates.
+ */
+public class RateScheduler implements AutoCloseable {
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "RateScheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Groups can hold a limiter per customer, so registering must not copy the group
+    private final Map<String, Queue<RateLimiter>> limitersByGroup = new ConcurrentSkipListMap<>();
+
+    /**
+     * Creates a rate limiter and records it under a group for reporting.
+     *
+     * @param group            The group name, e.g. "Vendors" or "Customers".
+     * @param permitsPerSecond The rate of the new limiter.
+     * @return The new rate limiter.
+     */
+    public RateLimiter register(String group, double permitsPerSecond) {
+        RateLimiter limiter = new RateLimiter(permitsPerSecond);
+        limitersByGroup.computeIfAbsent(group, g -> new ConcurrentLinkedQueue<>()).add(limiter);
+        return limiter;
+    }
+
+    /**
+     * Changes the rate of every limiter in a group, e.g. when the configuration is reloaded.
+     *
+     * @param group            The group name.
+     * @param permitsPerSecond The new rate of each limiter in the group.
+     * @return The number of limiters changed.
+     */
+    public int setRate(String group, double permitsPerSecond) {
+        Queue<RateLimiter> limiters = limitersByGroup.get(group);
+        if (limiters == null) {
+            return 0;
+        }
+        int changed = 0;
+        for (RateLimiter limiter : limiters) {
+            limiter.setRate(permitsPerSecond);
+            changed++;
+        }
+        return changed;
+    }
+
+    /**
+     * Prints the rate report periodically until the scheduler is closed.
+     *
+     * @param period The time between reports.
+     * @param unit   The unit of the period.
+     */
+    public void startReporting(long period, TimeUnit unit) {
+        executor.scheduleAtFixedRate(() -> System.out.print(report()), period, period, unit);
+    }
+
+    /**
+     * Builds a report of configured and achieved rates, summed per group.
+     *
+     * @return The report, one line per group.
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<String, Queue<RateLimiter>> entry : limitersByGroup.entrySet()) {
+            double configured = 0;
+            double achieved = 0;
+            int limiters = 0;
+            for (RateLimiter limiter : entry.getValue()) {
+                configured += limiter.getConfiguredRate();
+                achieved += limiter.getAchievedRate();
+                limiters++;
+            }
+            report.append(String.format("%s: configured %.2f/s, achieved %.2f/s (%d limiters)%n",
+                    entry.getKey(), configured, achieved, limiters));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Retrieves the shared scheduled executor for periodic background tasks.
+     *
+     * @return The scheduled executor.
+     */
+    public ScheduledExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Stops all periodic tasks.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
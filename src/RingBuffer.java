@@ -0,0 +1,150 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * A bounded, array-based, lock-free queue supporting multiple producers and multiple consumers.
+ * Each slot carries a sequence number that tells producers and consumers whether it is free
+ * or filled, so neither side ever takes a lock and no node is allocated per element. The slot
+ * for position {@code p} reads {@code 2p} while free and {@code 2p + 1} once filled; doubling
+ * keeps a filled slot distinct from one freed for the next lap even when the capacity is 1.
+ *
+ * @param <E> The type of elements held in the buffer.
+ */
+public class RingBuffer<E> {
+    // Head and tail live in one array, 128 bytes apart and away from the array ends,
+    // so producers and consumers never write to the same cache line.
+    private static final int PAD = 16;
+    private static final int HEAD = PAD - 1;
+    private static final int TAIL = 2 * PAD - 1;
+
+    private final AtomicLongArray counters = new AtomicLongArray(3 * PAD);
+    private final AtomicLongArray sequences;
+    private final Object[] buffer;
+    private final int capacity;
+
+    /**
+     * Constructs an empty RingBuffer.
+     *
+     * @param capacity The maximum number of elements the buffer can hold.
+     */
+    public RingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.buffer = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, 2L * i);
+        }
+    }
+
+    /**
+     * Adds an element if there is room, without waiting.
+     *
+     * @param element The element to add.
+     * @return True if the element was added; false if the buffer is full.
+     */
+    public boolean offer(E element) {
+        long position = counters.get(TAIL);
+        while (true) {
+            int index = index(position);
+            long difference = sequences.getAcquire(index) - 2 * position;
+            if (difference == 0) {
+                if (counters.weakCompareAndSetVolatile(TAIL, position, position + 1)) {
+                    buffer[index] = element;
+                    sequences.setRelease(index, 2 * position + 1);
+                    return true;
+                }
+                position = counters.get(TAIL);
+            } else if (difference < 0) {
+                return false; // The slot still holds an element from the previous lap
+            } else {
+                position = counters.get(TAIL); // Another producer claimed this slot
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest element, without waiting.
+     *
+     * @return The removed element, or null if the buffer is empty.
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long position = counters.get(HEAD);
+        while (true) {
+            int index = index(position);
+            long difference = sequences.getAcquire(index) - (2 * position + 1);
+            if (difference == 0) {
+                if (counters.weakCompareAndSetVolatile(HEAD, position, position + 1)) {
+                    E element = (E) buffer[index];
+                    buffer[index] = null;
+                    sequences.setRelease(index, 2 * (position + capacity));
+                    return element;
+                }
+                position = counters.get(HEAD);
+            } else if (difference < 0) {
+                return null; // The slot has not been filled yet
+            } else {
+                position = counters.get(HEAD); // Another consumer took this slot
+            }
+        }
+    }
+
+    /**
+     * Visits the elements currently in the buffer, oldest first, without removing them.
+     * The traversal is weakly consistent: elements added or removed while it runs may or may not be seen.
+     *
+     * @param action Receives each element.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super E> action) {
+        long head = counters.get(HEAD);
+        long tail = counters.get(TAIL);
+        for (long position = head; position < tail; position++) {
+            int index = index(position);
+            if (sequences.getAcquire(index) == 2 * position + 1) {
+                E element = (E) buffer[index];
+                // Skip the slot if it was consumed while it was being read
+                if (element != null && sequences.getAcquire(index) == 2 * position + 1) {
+                    action.accept(element);
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieves an estimate of the number of elements in the buffer.
+     * The value is exact when no producer or consumer is active.
+     *
+     * @return The number of elements, between 0 and the capacity.
+     */
+    public int size() {
+        long head = counters.get(HEAD);
+        long tail = counters.get(TAIL);
+        return (int) Math.max(0, Math.min(capacity, tail - head));
+    }
+
+    /**
+     * Checks whether the buffer currently appears empty.
+     *
+     * @return True if no element is available; false otherwise.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Retrieves the maximum number of elements the buffer can hold.
+     *
+     * @return The capacity.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    private int index(long position) {
+        return (int) (position % capacity);
+    }
+}
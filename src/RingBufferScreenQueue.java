@@ -0,0 +1,94 @@
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * A lock-free screen queue backed by a {@link RingBuffer}.
+ * Waiting vendors and customers idle according to a {@link WaitStrategy} instead of blocking on a lock.
+ */
+public class RingBufferScreenQueue implements ScreenQueue {
+    private final RingBuffer<Ticket> tickets;
+    private final WaitStrategy waitStrategy;
+    private final int capacity;
+
+    /**
+     * Constructs an empty RingBufferScreenQueue.
+     *
+     * @param capacity     The maximum number of tickets the screen can hold.
+     * @param waitStrategy How waiting vendors and customers idle.
+     */
+    public RingBufferScreenQueue(int capacity, WaitStrategy waitStrategy) {
+        this.tickets = new RingBuffer<>(capacity);
+        this.waitStrategy = waitStrategy;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public boolean offer(Ticket ticket) {
+        return tickets.offer(ticket);
+    }
+
+    @Override
+    public Ticket poll() {
+        return tickets.poll();
+    }
+
+    @Override
+    public int offerAll(Ticket[] batch, int offset, int length) {
+        int added = 0;
+        while (added < length && tickets.offer(batch[offset + added])) {
+            added++;
+        }
+        return added;
+    }
+
+    @Override
+    public int drainTo(Consumer<? super Ticket> sink, int maxCount) {
+        int drained = 0;
+        Ticket ticket;
+        while (drained < maxCount && (ticket = tickets.poll()) != null) {
+            sink.accept(ticket);
+            drained++;
+        }
+        return drained;
+    }
+
+    @Override
+    public boolean awaitRoom(Runnable onWait) throws InterruptedException {
+        for (int attempt = 0; tickets.size() >= capacity; attempt++) {
+            if (attempt == 0) {
+                onWait.run();
+            }
+            waitStrategy.idle(attempt);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean awaitTicket(BooleanSupplier giveUp, Runnable onWait) throws InterruptedException {
+        for (int attempt = 0; tickets.isEmpty(); attempt++) {
+            if (giveUp.getAsBoolean()) {
+                return false;
+            }
+            if (attempt == 0) {
+                onWait.run();
+            }
+            waitStrategy.idle(attempt);
+        }
+        return true;
+    }
+
+    @Override
+    public void forEach(Consumer<? super Ticket> action) {
+        tickets.forEach(action);
+    }
+
+    @Override
+    public void wakeConsumers() {
+        // Waiting customers re-check their give-up condition on every attempt
+    }
+
+    @Override
+    public int size() {
+        return tickets.size();
+    }
+}
@@ -0,0 +1,441 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A deterministic discrete-event simulation of a sale, for capacity planning sales far longer
+ * than anyone could wait for. Vendors and customers behave as they do in {@link Main}: vendors
+ * release batches of tickets paced by a {@link RateLimiter} and wait while their show is full,
+ * and customers buy batches paced the same way and wait while their shows are empty. They trade
+ * through a real {@link TicketPool}, but on a virtual clock: a single thread repeatedly takes the
+ * earliest event from a priority queue, moves the clock to it and runs it, so hours of sale take
+ * only as long as the pool operations themselves.
+ *
+ * <p>Simultaneous events run in the order they were scheduled, and every random choice comes
+ * from one generator seeded by the configuration, so a configuration always gives the same result.
+ *
+ * <p>Unlike {@link Main}, customers start buying as soon as the sale opens rather than once the
+ * vendors have finished, and the tickets left over from dividing the total between screens are
+ * released by the first screens' vendors.
+ *
+ * <p>Usage: {@code java SaleSimulation [config.json]}
+ */
+public class SaleSimulation {
+    private final Configuration config;
+    private final TicketPool ticketPool;
+    private final Random random;
+    private final long horizonNanos;
+    private final boolean scheduledShows;
+    private final EventQueue events = new EventQueue();
+    private final List<List<Actor>> waitingOnScreen = new ArrayList<>(); // Indexed by screen number
+    private final List<Actor> waitingOnAnyScreen = new ArrayList<>();
+    private final List<SimulatedVendor> vendors = new ArrayList<>();
+    private final List<SimulatedCustomer> customers = new ArrayList<>();
+    private final long[] lastSaleNanos; // Indexed by screen number
+    private long now;
+    private long eventsRun;
+    private long sequence;
+    private int vendorsRunning;
+    private long ticketsReleased;
+    private long ticketsBooked;
+    private long soldOutNanos = -1;
+    private long wallNanos;
+
+    /**
+     * Constructs a SaleSimulation and schedules the first move of every vendor and customer.
+     * The pool counts tickets as vendors release them, so the sale is over once every vendor
+     * has finished and the pool is empty.
+     *
+     * @param config The configuration of the pool, the vendors and the customers.
+     */
+    public SaleSimulation(Configuration config) {
+        this.config = config;
+        this.ticketPool = TicketPool.create(config);
+        this.random = new Random(config.getSimulationSeed());
+        this.horizonNanos = config.getSimulationHours() > 0
+                ? TimeUnit.HOURS.toNanos(config.getSimulationHours()) : Long.MAX_VALUE;
+
+        String[] showTimes = config.getShowTimes();
+        int[] showTimeIds = new int[showTimes.length];
+        for (int i = 0; i < showTimes.length; i++) {
+            showTimeIds[i] = ShowTimes.id(showTimes[i]);
+        }
+        this.scheduledShows = showTimeIds.length > 1 || showTimeIds[0] != ShowTimes.DEFAULT;
+
+        int screens = config.getScreens();
+        int totalTickets = config.getTotalTickets();
+        this.lastSaleNanos = new long[screens + 1];
+        Arrays.fill(lastSaleNanos, -1);
+        waitingOnScreen.add(null);
+        for (int screen = 1; screen <= screens; screen++) {
+            waitingOnScreen.add(new ArrayList<>());
+            int tickets = totalTickets / screens + (screen <= totalTickets % screens ? 1 : 0);
+            SimulatedVendor vendor = new SimulatedVendor(screen, tickets, showTimeIds);
+            vendors.add(vendor);
+            vendorsRunning++;
+            schedule(vendor, 0);
+        }
+
+        // Customers arrive spread over the first second, so they do not all move in lockstep
+        for (int screen = 1; screen <= screens; screen++) {
+            for (int i = 0; i < config.getCustomersPerScreen(); i++) {
+                SimulatedCustomer customer = new SimulatedCustomer(screen);
+                customers.add(customer);
+                schedule(customer, (long) (random.nextDouble() * TimeUnit.SECONDS.toNanos(1)));
+            }
+        }
+    }
+
+    /**
+     * Runs a simulated sale from a configuration file and prints the report.
+     *
+     * @param args The configuration file, config.json if omitted.
+     */
+    public static void main(String[] args) {
+        String configFile = args.length > 0 ? args[0] : "config.json";
+        try {
+            Configuration config = Configuration.loadConfig(configFile);
+            if (config.getLogLevel() == null) {
+                config.setLogLevel(LogLevel.OFF); // Logging every booking would dominate the simulation
+            }
+            config.displayConfig();
+            EventLog.configure(config);
+
+            SaleSimulation simulation = new SaleSimulation(config);
+            simulation.run();
+            EventLog.flush();
+            System.out.print(simulation.report());
+        } catch (IOException e) {
+            System.err.println("Error loading configuration: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs events in time order until every ticket is sold, the configured number of hours has
+     * passed, or nobody has anything left to do.
+     */
+    public void run() {
+        long start = System.nanoTime();
+        Actor actor;
+        while (soldOutNanos < 0 && (actor = events.peek()) != null && actor.time <= horizonNanos) {
+            events.poll();
+            now = actor.time;
+            actor.run();
+            eventsRun++;
+        }
+        wallNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Builds the report of the finished run.
+     *
+     * @return The report.
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Simulated sale: %d vendors and %d customers across %d screens, seed %d%n",
+                vendors.size(), customers.size(), config.getScreens(), config.getSimulationSeed()));
+        String outcome;
+        if (soldOutNanos >= 0) {
+            outcome = "sold out after " + clock(soldOutNanos);
+        } else if (events.peek() != null) {
+            outcome = "stopped at the " + config.getSimulationHours() + " h limit";
+        } else {
+            outcome = "stalled after " + clock(now) + " with nothing left to do";
+        }
+        report.append("Outcome: ").append(outcome).append(System.lineSeparator());
+        double wallSeconds = wallNanos / 1e9;
+        report.append(String.format("Events: %d in %.3f s of wall time (%.0f events/s)%n",
+                eventsRun, wallSeconds, wallSeconds > 0 ? eventsRun / wallSeconds : 0));
+        report.append(String.format("Tickets: %d of %d released, %d booked, %d remaining%n",
+                ticketsReleased, config.getTotalTickets(), ticketsBooked, ticketPool.getTotalTicketsRemaining()));
+
+        long end = soldOutNanos >= 0 ? soldOutNanos : Math.min(now, horizonNanos);
+        long vendorBlocked = 0;
+        for (SimulatedVendor vendor : vendors) {
+            vendorBlocked += vendor.waitedNanos + (vendor.waitingSince >= 0 ? end - vendor.waitingSince : 0);
+        }
+        long customerWaiting = 0;
+        for (SimulatedCustomer customer : customers) {
+            customerWaiting += customer.waitedNanos + (customer.waitingSince >= 0 ? end - customer.waitingSince : 0);
+        }
+        if (end > 0) {
+            report.append(String.format("Vendors spent %.1f%% of the sale waiting on full shows, customers %.1f%% waiting on empty ones%n",
+                    percent(vendorBlocked, vendors.size(), end), percent(customerWaiting, customers.size(), end)));
+        }
+        for (int screen = 1; screen <= config.getScreens(); screen++) {
+            report.append(String.format("Screen %d: %d added, %d booked, last sale at %s%n", screen,
+                    ticketPool.getTicketsAdded(screen), ticketPool.getTicketsBooked(screen),
+                    lastSaleNanos[screen] < 0 ? "never" : clock(lastSaleNanos[screen])));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Retrieves the pool the simulated vendors and customers trade through.
+     *
+     * @return The ticket pool.
+     */
+    public TicketPool getTicketPool() {
+        return ticketPool;
+    }
+
+    /**
+     * Retrieves the virtual time at which every ticket was sold.
+     *
+     * @return The time in nanoseconds since the sale opened, or -1 if the sale did not sell out.
+     */
+    public long getSoldOutNanos() {
+        return soldOutNanos;
+    }
+
+    /**
+     * Retrieves the number of events run so far.
+     *
+     * @return The event count.
+     */
+    public long getEventsRun() {
+        return eventsRun;
+    }
+
+    private void schedule(Actor actor, long time) {
+        actor.time = time;
+        actor.sequence = sequence++;
+        events.add(actor);
+    }
+
+    /**
+     * Parks an actor until a ticket is added to or booked from a screen, or to any screen.
+     */
+    private void waitOn(int screen, Actor actor) {
+        actor.waitingSince = now;
+        (screen > 0 ? waitingOnScreen.get(screen) : waitingOnAnyScreen).add(actor);
+    }
+
+    /**
+     * Schedules every actor waiting on a screen to run now, in the order they started waiting.
+     */
+    private void wake(List<Actor> waiting) {
+        for (Actor actor : waiting) {
+            actor.waitedNanos += now - actor.waitingSince;
+            actor.waitingSince = -1;
+            schedule(actor, now);
+        }
+        waiting.clear();
+    }
+
+    private void checkSoldOut() {
+        if (vendorsRunning == 0 && ticketPool.getTotalTicketsRemaining() == 0 && soldOutNanos < 0) {
+            soldOutNanos = now;
+        }
+    }
+
+    private static double percent(long waitedNanos, int actors, long endNanos) {
+        return actors == 0 ? 0 : 100.0 * waitedNanos / ((double) actors * endNanos);
+    }
+
+    /**
+     * Formats a virtual time as hours, minutes and seconds since the sale opened.
+     */
+    private static String clock(long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        return String.format("%d:%02d:%02d.%03d", millis / 3_600_000, millis / 60_000 % 60, millis / 1_000 % 60, millis % 1_000);
+    }
+
+    /**
+     * A vendor or customer. Each has at most one event pending, so the actor is its own event.
+     */
+    private abstract static class Actor {
+        private long time;
+        private long sequence; // Breaks ties between events due at the same time
+        long waitingSince = -1;
+        long waitedNanos;
+
+        abstract void run();
+
+        private boolean before(Actor other) {
+            return time < other.time || (time == other.time && sequence < other.sequence);
+        }
+    }
+
+    /**
+     * Releases a screen's share of the tickets like a {@link Vendor}: reserves a batch on its rate
+     * limiter, builds it once the reserved time comes, and adds it, waiting while the show is full.
+     */
+    private final class SimulatedVendor extends Actor {
+        private final int screen;
+        private final int ticketsToAdd;
+        private final int[] showTimeIds;
+        private final RateLimiter releaseLimiter;
+        private final List<Ticket> batch;
+        private int ticketsAdded;
+        private int reserved; // Tickets reserved on the limiter but not yet built into the batch
+        private int offset; // Tickets of the batch already added
+
+        private SimulatedVendor(int screen, int ticketsToAdd, int[] showTimeIds) {
+            this.screen = screen;
+            this.ticketsToAdd = ticketsToAdd;
+            this.showTimeIds = showTimeIds;
+            this.releaseLimiter = new RateLimiter(config.getTicketReleaseRate(), 0);
+            this.batch = new ArrayList<>(Math.min(releaseLimiter.batchSize(), ticketsToAdd));
+        }
+
+        @Override
+        void run() {
+            while (true) {
+                if (offset < batch.size()) {
+                    int added = ticketPool.offerTickets(screen, batch.subList(offset, batch.size()));
+                    if (added > 0) {
+                        offset += added;
+                        ticketsAdded += added;
+                        ticketsReleased += added;
+                        wake(waitingOnScreen.get(screen));
+                        wake(waitingOnAnyScreen);
+                    }
+                    if (offset < batch.size()) {
+                        waitOn(screen, this); // The show is full until a customer buys from it
+                        return;
+                    }
+                }
+                if (reserved == 0) {
+                    if (ticketsAdded >= ticketsToAdd) {
+                        vendorsRunning--;
+                        checkSoldOut();
+                        return;
+                    }
+                    reserved = Math.min(releaseLimiter.batchSize(), ticketsToAdd - ticketsAdded);
+                    long start = releaseLimiter.reserve(reserved, now);
+                    if (start > now) {
+                        schedule(this, start);
+                        return;
+                    }
+                }
+                // Deal the batch to the shows in turn, grouped by show, as the vendor does
+                batch.clear();
+                offset = 0;
+                int shows = showTimeIds.length;
+                for (int show = 0; show < shows; show++) {
+                    for (int ticket = ticketsAdded; ticket < ticketsAdded + reserved; ticket++) {
+                        if (ticket % shows == show) {
+                            batch.add(new Ticket(screen, ticket / shows + 1, showTimeIds[show], TicketStatus.NOT_BOOKED));
+                        }
+                    }
+                }
+                reserved = 0;
+            }
+        }
+    }
+
+    /**
+     * Buys tickets like a {@link Customer}: takes a batch from its screen, or from any screen when
+     * cross-screen purchases are enabled, then pays for it on its rate limiter before buying again,
+     * waiting whenever its shows are empty.
+     */
+    private final class SimulatedCustomer extends Actor {
+        private final int screen;
+        private final RateLimiter retrievalLimiter;
+        private final List<Ticket> purchased;
+
+        private SimulatedCustomer(int screen) {
+            this.screen = screen;
+            this.retrievalLimiter = new RateLimiter(config.getCustomerRetrievalRate(), 0);
+            this.purchased = new ArrayList<>(retrievalLimiter.batchSize());
+        }
+
+        @Override
+        void run() {
+            purchased.clear();
+            int count = 0;
+            if (config.isCrossScreenPurchases()) {
+                // Try every screen once, starting at a random one, as the pool does for such customers
+                int screens = config.getScreens();
+                int first = random.nextInt(screens);
+                for (int i = 0; i < screens && count == 0; i++) {
+                    count = buyFrom(1 + (first + i) % screens);
+                }
+            } else {
+                count = buyFrom(screen);
+            }
+            if (count == 0) {
+                waitOn(config.isCrossScreenPurchases() ? 0 : screen, this);
+                return;
+            }
+            ticketsBooked += count;
+            for (Ticket ticket : purchased) {
+                lastSaleNanos[ticket.getScreenNumber()] = now;
+                wake(waitingOnScreen.get(ticket.getScreenNumber())); // Room for a waiting vendor
+            }
+            checkSoldOut();
+            schedule(this, retrievalLimiter.reserve(count, now));
+        }
+
+        private int buyFrom(int screenNumber) {
+            int batchSize = retrievalLimiter.batchSize();
+            if (!scheduledShows) {
+                return ticketPool.pollTickets(screenNumber, batchSize, purchased);
+            }
+            int showTimeId = ticketPool.nextShowWithTickets(screenNumber, 0); // The earliest show with tickets
+            return showTimeId < 0 ? 0 : ticketPool.pollTickets(screenNumber, showTimeId, batchSize, purchased);
+        }
+    }
+
+    /**
+     * A binary min-heap of actors ordered by event time, then by scheduling order.
+     */
+    private static final class EventQueue {
+        private Actor[] heap = new Actor[64];
+        private int size;
+
+        private void add(Actor actor) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            siftUp(size++, actor);
+        }
+
+        private Actor peek() {
+            return size == 0 ? null : heap[0];
+        }
+
+        private Actor poll() {
+            Actor first = heap[0];
+            Actor last = heap[--size];
+            heap[size] = null;
+            if (size > 0) {
+                siftDown(0, last);
+            }
+            return first;
+        }
+
+        private void siftUp(int index, Actor actor) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (!actor.before(heap[parent])) {
+                    break;
+                }
+                heap[index] = heap[parent];
+                index = parent;
+            }
+            heap[index] = actor;
+        }
+
+        private void siftDown(int index, Actor actor) {
+            int half = size >>> 1;
+            while (index < half) {
+                int child = 2 * index + 1;
+                if (child + 1 < size && heap[child + 1].before(heap[child])) {
+                    child++;
+                }
+                if (!heap[child].before(actor)) {
+                    break;
+                }
+                heap[index] = heap[child];
+                index = child;
+            }
+            heap[index] = actor;
+        }
+    }
+}
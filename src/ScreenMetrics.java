@@ -0,0 +1,52 @@
+/**
+ * Instrumentation for one screen of a {@link TicketPool}: its counters and queue depth, read
+ * live from the pool, and histograms of how long vendors and customers were blocked on it and
+ * how long its lock was held.
+ */
+public class ScreenMetrics implements ScreenMetricsMXBean {
+    final LatencyHistogram vendorBlocked = new LatencyHistogram();
+    final LatencyHistogram customerBlocked = new LatencyHistogram();
+    final LatencyHistogram lockHold = new LatencyHistogram();
+    private final TicketPool ticketPool;
+    private final int screenNumber;
+
+    ScreenMetrics(TicketPool ticketPool, int screenNumber) {
+        this.ticketPool = ticketPool;
+        this.screenNumber = screenNumber;
+    }
+
+    @Override
+    public int getScreenNumber() {
+        return screenNumber;
+    }
+
+    @Override
+    public long getTicketsAdded() {
+        return ticketPool.getTicketsAdded(screenNumber);
+    }
+
+    @Override
+    public long getTicketsBooked() {
+        return ticketPool.getTicketsBooked(screenNumber);
+    }
+
+    @Override
+    public int getDepth() {
+        return ticketPool.getRemainingTickets(screenNumber);
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getVendorBlockedTime() {
+        return vendorBlocked.snapshot();
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getCustomerBlockedTime() {
+        return customerBlocked.snapshot();
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getLockHoldTime() {
+        return lockHold.snapshot();
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * The JMX view of one screen's {@link ScreenMetrics}.
+ */
+public interface ScreenMetricsMXBean {
+
+    /**
+     * Retrieves the screen number.
+     *
+     * @return The screen number.
+     */
+    int getScreenNumber();
+
+    /**
+     * Retrieves the number of tickets ever added to the screen.
+     *
+     * @return The number of tickets added.
+     */
+    long getTicketsAdded();
+
+    /**
+     * Retrieves the number of tickets ever booked from the screen.
+     *
+     * @return The number of tickets booked.
+     */
+    long getTicketsBooked();
+
+    /**
+     * Retrieves the number of tickets currently queued for the screen.
+     *
+     * @return The queue depth.
+     */
+    int getDepth();
+
+    /**
+     * Retrieves how long vendors have waited for space on the screen.
+     *
+     * @return The vendor blocked-time summary.
+     */
+    LatencyHistogram.Snapshot getVendorBlockedTime();
+
+    /**
+     * Retrieves how long customers have waited for tickets on the screen.
+     *
+     * @return The customer blocked-time summary.
+     */
+    LatencyHistogram.Snapshot getCustomerBlockedTime();
+
+    /**
+     * Retrieves how long operations held the screen's lock; empty for lock-free screens.
+     *
+     * @return The lock hold-time summary.
+     */
+    LatencyHistogram.Snapshot getLockHoldTime();
+}
@@ -0,0 +1,151 @@
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Holds the tickets of a single screen inside a {@link TicketPool}.
+ * Implementations decide how vendors and customers on the screen are coordinated.
+ */
+public interface ScreenQueue {
+    /**
+     * Adds a ticket if the screen has room, without waiting.
+     *
+     * @param ticket The ticket to add.
+     * @return True if the ticket was added; false if the screen is at capacity.
+     */
+    boolean offer(Ticket ticket);
+
+    /**
+     * Puts back a ticket that was taken from this queue and held, without waiting. The ticket was
+     * counted against the screen when it was first added, so it goes back even if vendors have
+     * filled the screen since, wherever the storage allows. Queues that give each ticket its own
+     * place always have room for it.
+     *
+     * @param ticket The ticket to put back.
+     * @return True if the ticket was put back; false if the storage is sized once and full.
+     */
+    default boolean offerBack(Ticket ticket) {
+        return offer(ticket);
+    }
+
+    /**
+     * Removes the oldest ticket, without waiting.
+     *
+     * @return The removed ticket, or null if the screen has no tickets.
+     */
+    Ticket poll();
+
+    /**
+     * Removes the oldest ticket to put it on hold, without waiting. The ticket comes back through
+     * {@link #offerBack} if the hold ends, or is booked through {@link #confirmHold}. Queues that
+     * record each seat's state keep a held seat apart from a booked one.
+     *
+     * @return The removed ticket, or null if the screen has no tickets.
+     */
+    default Ticket pollForHold() {
+        return poll();
+    }
+
+    /**
+     * Books a ticket taken by {@link #pollForHold} whose hold was confirmed.
+     *
+     * @param ticket The held ticket.
+     */
+    default void confirmHold(Ticket ticket) {
+    }
+
+    /**
+     * Adds as many tickets from a batch as the screen has room for, without waiting.
+     *
+     * @param tickets The batch of tickets.
+     * @param offset  The index of the first ticket to add.
+     * @param length  The number of tickets to try to add.
+     * @return The number of tickets added, taken in order from the offset.
+     */
+    int offerAll(Ticket[] tickets, int offset, int length);
+
+    /**
+     * Removes up to a given number of tickets, oldest first, without waiting.
+     *
+     * @param sink     Receives each removed ticket.
+     * @param maxCount The maximum number of tickets to remove.
+     * @return The number of tickets removed.
+     */
+    int drainTo(Consumer<? super Ticket> sink, int maxCount);
+
+    /**
+     * Removes a block of adjacent seats in one row, all or nothing, without waiting.
+     * Only queues that know where their seats are can do this.
+     *
+     * @param sink  Receives each removed ticket, in seat order.
+     * @param count The number of adjacent seats to remove.
+     * @return The number of tickets removed: the count, or 0 if no block of that size is available.
+     * @throws UnsupportedOperationException If the queue has no seat layout.
+     */
+    default int drainAdjacent(Consumer<? super Ticket> sink, int count) {
+        throw new UnsupportedOperationException("Screen has no seat map");
+    }
+
+    /**
+     * Waits while the screen is at capacity, without adding anything. Another vendor may use
+     * the room first, so callers offer again in a loop.
+     *
+     * @param onWait Invoked when the caller is about to wait.
+     * @return True once the screen may have room; false if waiting cannot help, because the
+     *         queue gives each ticket a fixed place and turns away only tickets that have none.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    boolean awaitRoom(Runnable onWait) throws InterruptedException;
+
+    /**
+     * Waits while the screen has no tickets, without removing any. Another customer may take
+     * the ticket first, so callers poll again in a loop.
+     *
+     * @param giveUp Checked before waiting; once it returns true the method stops waiting.
+     * @param onWait Invoked when the caller is about to wait.
+     * @return True once the screen has a ticket; false if the caller gave up.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    boolean awaitTicket(BooleanSupplier giveUp, Runnable onWait) throws InterruptedException;
+
+    /**
+     * Visits the tickets currently held for the screen, oldest first, without removing them.
+     * Lock-based implementations visit a consistent cut; lock-free ones are weakly consistent.
+     *
+     * @param action Receives each ticket; it should be fast, as it may run while the screen is locked.
+     */
+    void forEach(Consumer<? super Ticket> action);
+
+    /**
+     * Starts recording how long each operation holds the queue's lock, excluding time spent
+     * waiting on a condition. Queues that have no lock ignore this.
+     *
+     * @param holdTimes The histogram to record into, or null to stop recording.
+     */
+    default void setLockHoldTimes(LatencyHistogram holdTimes) {
+    }
+
+    /**
+     * Changes how many tickets the screen holds at once, while vendors and customers use it.
+     * Raising the capacity lets waiting vendors in; lowering it keeps the tickets already held
+     * and turns vendors away until the screen drops below the new capacity. Queues whose
+     * storage is sized once, such as rings and seat maps, keep their capacity.
+     *
+     * @param capacity The new capacity; must be positive.
+     * @return True if the capacity was changed; false if this queue's capacity is fixed.
+     */
+    default boolean setCapacity(int capacity) {
+        return false;
+    }
+
+    /**
+     * Wakes every customer waiting on this screen so it re-checks its give-up condition.
+     */
+    void wakeConsumers();
+
+    /**
+     * Retrieves the number of tickets currently held for the screen.
+     *
+     * @return The number of tickets.
+     */
+    int size();
+}
@@ -0,0 +1,287 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+
+/**
+ * The seats of one screen laid out in rows, with one availability bit per seat.
+ * Each row is guarded by its own lock, so bookers working on different rows never block each
+ * other, and a row is searched 64 seats at a time with bit operations instead of seat by seat.
+ *
+ * <p>Seats are numbered from 1, row by row: seat {@code s} is in row {@code (s - 1) / seatsPerRow}.
+ * Every seat starts unavailable and goes on sale when it is released.
+ */
+public class SeatMap {
+    private final int rowCount;
+    private final int seatsPerRow;
+    private final Row[] rows;
+    private final int[] rowOrder; // Row indexes from the best row to the worst
+    private final AtomicInteger available = new AtomicInteger();
+
+    /**
+     * Constructs a SeatMap with every seat unavailable.
+     *
+     * @param rowCount    The number of rows.
+     * @param seatsPerRow The number of seats in each row.
+     * @throws IllegalArgumentException If either dimension is not positive.
+     */
+    public SeatMap(int rowCount, int seatsPerRow) {
+        if (rowCount <= 0 || seatsPerRow <= 0) {
+            throw new IllegalArgumentException("A seat map needs at least one row of at least one seat");
+        }
+        this.rowCount = rowCount;
+        this.seatsPerRow = seatsPerRow;
+        this.rows = new Row[rowCount];
+        for (int row = 0; row < rowCount; row++) {
+            rows[row] = new Row(seatsPerRow);
+        }
+
+        // The middle rows are the best, getting worse towards the front and the back
+        this.rowOrder = new int[rowCount];
+        int middle = (rowCount - 1) / 2;
+        int next = 0;
+        rowOrder[next++] = middle;
+        for (int offset = 1; next < rowCount; offset++) {
+            if (middle + offset < rowCount) {
+                rowOrder[next++] = middle + offset;
+            }
+            if (middle - offset >= 0) {
+                rowOrder[next++] = middle - offset;
+            }
+        }
+    }
+
+    /**
+     * Books the best available block of adjacent seats in a single row, all or nothing.
+     * Rows are tried from the middle outward, and within a row the block closest to the centre wins.
+     *
+     * @param count The number of adjacent seats to book.
+     * @return The first seat of the booked block, or -1 if no row has that many adjacent seats available.
+     */
+    public int book(int count) {
+        if (count <= 0 || count > seatsPerRow) {
+            return -1;
+        }
+        for (int index : rowOrder) {
+            Row row = rows[index];
+            if (row.available < count) {
+                continue; // Skip rows that cannot fit the block without locking them
+            }
+            row.lock.lock();
+            try {
+                int column = row.findBlock(count);
+                if (column >= 0) {
+                    row.mark(column, column + count, false);
+                    row.available -= count;
+                    available.addAndGet(-count);
+                    return index * seatsPerRow + column + 1;
+                }
+            } finally {
+                row.lock.unlock();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Makes a seat available, putting it on sale or returning it after a booking.
+     *
+     * @param seat The seat number.
+     * @return True if the seat was released; false if it is already available or not in the map.
+     */
+    public boolean release(int seat) {
+        if (seat < 1 || seat > getSeatCount()) {
+            return false;
+        }
+        Row row = rows[(seat - 1) / seatsPerRow];
+        int column = (seat - 1) % seatsPerRow;
+        row.lock.lock();
+        try {
+            if (row.isAvailable(column)) {
+                return false;
+            }
+            row.mark(column, column + 1, true);
+            row.available++;
+        } finally {
+            row.lock.unlock();
+        }
+        available.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Checks if a seat is available.
+     *
+     * @param seat The seat number.
+     * @return True if the seat is in the map and available; false otherwise.
+     */
+    public boolean isAvailable(int seat) {
+        if (seat < 1 || seat > getSeatCount()) {
+            return false;
+        }
+        Row row = rows[(seat - 1) / seatsPerRow];
+        row.lock.lock();
+        try {
+            return row.isAvailable((seat - 1) % seatsPerRow);
+        } finally {
+            row.lock.unlock();
+        }
+    }
+
+    /**
+     * Visits every available seat in seat order. Each row is read under its lock, so the seats
+     * of one row are a consistent cut while other rows keep selling.
+     *
+     * @param action Receives each available seat number.
+     */
+    public void forEachAvailable(IntConsumer action) {
+        for (int index = 0; index < rowCount; index++) {
+            Row row = rows[index];
+            row.lock.lock();
+            try {
+                for (int column = row.nextAvailable(0); column >= 0; column = row.nextAvailable(column + 1)) {
+                    action.accept(index * seatsPerRow + column + 1);
+                }
+            } finally {
+                row.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Retrieves the number of available seats.
+     *
+     * @return The available seat count.
+     */
+    public int getAvailableCount() {
+        return available.get();
+    }
+
+    /**
+     * Retrieves the number of rows.
+     *
+     * @return The row count.
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Retrieves the number of seats in each row.
+     *
+     * @return The seats per row.
+     */
+    public int getSeatsPerRow() {
+        return seatsPerRow;
+    }
+
+    /**
+     * Retrieves the number of seats in the map, available or not.
+     *
+     * @return The seat count.
+     */
+    public int getSeatCount() {
+        return rowCount * seatsPerRow;
+    }
+
+    /**
+     * One row of seats: a bit per seat, set while the seat is available. Bits past the end of
+     * the row are always clear, so searches never run off it.
+     */
+    private static final class Row {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final long[] seats;
+        private final int width;
+        private volatile int available; // Written under the lock; read without it to skip full rows
+
+        private Row(int width) {
+            this.seats = new long[(width + 63) >>> 6];
+            this.width = width;
+        }
+
+        private boolean isAvailable(int column) {
+            return (seats[column >>> 6] & (1L << column)) != 0;
+        }
+
+        /**
+         * Finds the block of adjacent available seats closest to the centre of the row.
+         *
+         * @return The first column of the block, or -1 if no run of available seats is long enough.
+         */
+        private int findBlock(int count) {
+            int ideal = (width - count) / 2; // The first column of a perfectly centred block
+            int best = -1;
+            int bestDistance = Integer.MAX_VALUE;
+            for (int start = nextAvailable(0); start >= 0; ) {
+                int end = nextUnavailable(start);
+                if (end - start >= count) {
+                    int column = Math.max(start, Math.min(ideal, end - count));
+                    int distance = Math.abs(column - ideal);
+                    if (distance < bestDistance) {
+                        best = column;
+                        bestDistance = distance;
+                    }
+                    if (column >= ideal) {
+                        break; // Every later run is further right of the centre
+                    }
+                }
+                start = nextAvailable(end);
+            }
+            return best;
+        }
+
+        /**
+         * Finds the first available seat at or after a column, skipping whole words of booked seats.
+         */
+        private int nextAvailable(int from) {
+            if (from >= width) {
+                return -1;
+            }
+            int index = from >>> 6;
+            long word = seats[index] & (-1L << from); // Shifts use the low six bits, dropping columns before from
+            while (word == 0) {
+                if (++index == seats.length) {
+                    return -1;
+                }
+                word = seats[index];
+            }
+            return (index << 6) + Long.numberOfTrailingZeros(word);
+        }
+
+        /**
+         * Finds the first unavailable seat at or after a column, or the row width if there is none.
+         */
+        private int nextUnavailable(int from) {
+            if (from >= width) {
+                return width;
+            }
+            int index = from >>> 6;
+            long word = ~seats[index] & (-1L << from);
+            while (word == 0) {
+                if (++index == seats.length) {
+                    return width;
+                }
+                word = ~seats[index];
+            }
+            return Math.min(width, (index << 6) + Long.numberOfTrailingZeros(word));
+        }
+
+        /**
+         * Sets or clears the bits of the columns from one column up to, but excluding, another,
+         * a word at a time.
+         */
+        private void mark(int from, int to, boolean availableNow) {
+            int first = from >>> 6;
+            int last = (to - 1) >>> 6;
+            for (int index = first; index <= last; index++) {
+                long mask = -1L;
+                if (index == first) {
+                    mask &= -1L << from;
+                }
+                if (index == last) {
+                    mask &= -1L >>> (63 - ((to - 1) & 63));
+                }
+                seats[index] = availableNow ? seats[index] | mask : seats[index] & ~mask;
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * The seats of one screen held in a {@link SeatMap} instead of a FIFO queue.
+ * Offering a ticket puts its seat on sale, and polling books the best available seat, so a
+ * customer gets a seat near the middle of the screen rather than whichever was released first.
+ * Whole parties can be seated together with {@link #drainAdjacent}. The screen's capacity is its
+ * seat map, so tickets for seats outside the map are rejected rather than waited for.
+ */
+public class SeatMapScreenQueue implements ScreenQueue {
+    private final int screenNumber;
+    private final SeatMap seats;
+    private final int showTimeId;
+    private final ReentrantLock lock = new ReentrantLock(); // Only taken by customers that have to wait
+    private final Condition notEmpty = lock.newCondition();
+
+    /**
+     * Constructs a SeatMapScreenQueue over a seat map.
+     *
+     * @param screenNumber The screen the seats belong to.
+     * @param seats        The seat map; its available seats are on sale.
+     * @param showTimeId   The id in {@link ShowTimes} of the show the seats are for.
+     */
+    public SeatMapScreenQueue(int screenNumber, SeatMap seats, int showTimeId) {
+        this.screenNumber = screenNumber;
+        this.seats = seats;
+        this.showTimeId = showTimeId;
+    }
+
+    /**
+     * Puts the ticket's seat on sale.
+     *
+     * @return True if the seat was put on sale; false if it is already on sale, is not in the
+     *         seat map or is for another show.
+     */
+    @Override
+    public boolean offer(Ticket ticket) {
+        if (ticket.getSeatLabel() != null || ticket.getShowTimeId() != showTimeId || !seats.release(ticket.getSeat())) {
+            return false;
+        }
+        lock.lock();
+        try {
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Books the best available seat.
+     */
+    @Override
+    public Ticket poll() {
+        int seat = seats.book(1);
+        return seat < 0 ? null : ticket(seat);
+    }
+
+    @Override
+    public int offerAll(Ticket[] tickets, int offset, int length) {
+        int added = 0;
+        while (added < length && offer(tickets[offset + added])) {
+            added++;
+        }
+        return added;
+    }
+
+    @Override
+    public int drainTo(Consumer<? super Ticket> sink, int maxCount) {
+        int drained = 0;
+        Ticket ticket;
+        while (drained < maxCount && (ticket = poll()) != null) {
+            sink.accept(ticket);
+            drained++;
+        }
+        return drained;
+    }
+
+    @Override
+    public int drainAdjacent(Consumer<? super Ticket> sink, int count) {
+        int first = seats.book(count);
+        if (first < 0) {
+            return 0;
+        }
+        for (int seat = first; seat < first + count; seat++) {
+            sink.accept(ticket(seat));
+        }
+        return count;
+    }
+
+    /**
+     * Never waits, since each seat has its own place in the map: a seat turned away is outside
+     * the map, for another show or already on sale, and stays so.
+     *
+     * @return Always false.
+     */
+    @Override
+    public boolean awaitRoom(Runnable onWait) {
+        return false;
+    }
+
+    @Override
+    public boolean awaitTicket(BooleanSupplier giveUp, Runnable onWait) throws InterruptedException {
+        lock.lock();
+        try {
+            while (seats.getAvailableCount() == 0) {
+                if (giveUp.getAsBoolean()) {
+                    return false;
+                }
+                onWait.run();
+                notEmpty.await(); // Wait until a seat on this screen goes on sale
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Visits the seats on sale in seat order rather than the order they were released.
+     */
+    @Override
+    public void forEach(Consumer<? super Ticket> action) {
+        seats.forEachAvailable(seat -> action.accept(ticket(seat)));
+    }
+
+    @Override
+    public void wakeConsumers() {
+        lock.lock();
+        try {
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return seats.getAvailableCount();
+    }
+
+    private Ticket ticket(int seat) {
+        return new Ticket(screenNumber, seat, showTimeId, TicketStatus.NOT_BOOKED);
+    }
+}
@@ -0,0 +1,194 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The {@link TicketService} of a single pool node, reached through a {@link ShardTransport}.
+ * Each call encodes a {@link ShardProtocol} request and waits for the answer. A caller
+ * interrupted while waiting cancels the call, so the node stops waiting for tickets or room, and
+ * still collects the node's answer: tickets the node took meanwhile reach the sink and an add
+ * reports what the node really added. The caller's interrupt status is then restored.
+ *
+ * <p>Transport failures are thrown as {@link UncheckedIOException}, and failures on the node as
+ * {@link IllegalStateException}.
+ */
+public class ShardClient implements TicketService {
+    private final ShardTransport transport;
+
+    /**
+     * Constructs a ShardClient sending requests through a transport.
+     *
+     * @param transport The transport to the node.
+     */
+    public ShardClient(ShardTransport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Retrieves the transport to the node.
+     *
+     * @return The transport.
+     */
+    public ShardTransport getTransport() {
+        return transport;
+    }
+
+    @Override
+    public int addTickets(int screenNumber, Collection<Ticket> tickets) {
+        return call(ShardProtocol.Op.ADD_TICKETS, out -> {
+            out.writeInt(screenNumber);
+            ShardProtocol.writeTickets(out, tickets);
+        }, DataInputStream::readInt);
+    }
+
+    @Override
+    public int drainTickets(int screenNumber, int maxCount, Collection<Ticket> sink) {
+        return call(ShardProtocol.Op.DRAIN_TICKETS, out -> {
+            out.writeInt(screenNumber);
+            out.writeInt(maxCount);
+        }, in -> ShardProtocol.readTickets(in, sink));
+    }
+
+    @Override
+    public int drainAnyTickets(int[] screenNumbers, int maxCount, Collection<Ticket> sink) {
+        return call(ShardProtocol.Op.DRAIN_ANY_TICKETS, out -> {
+            ShardProtocol.writeScreens(out, screenNumbers);
+            out.writeInt(maxCount);
+        }, in -> ShardProtocol.readTickets(in, sink));
+    }
+
+    /**
+     * Removes up to a given number of tickets for any show on several of the node's screens,
+     * taking only what is available right now.
+     *
+     * @param screenNumbers The acceptable screens; an empty array means any screen on the node.
+     * @param maxCount      The maximum number of tickets to retrieve.
+     * @param sink          The collection that receives the retrieved tickets.
+     * @return The number of tickets retrieved, or 0 if none of the screens has any.
+     */
+    public int pollAnyTickets(int[] screenNumbers, int maxCount, Collection<Ticket> sink) {
+        return call(ShardProtocol.Op.POLL_ANY_TICKETS, out -> {
+            ShardProtocol.writeScreens(out, screenNumbers);
+            out.writeInt(maxCount);
+        }, in -> ShardProtocol.readTickets(in, sink));
+    }
+
+    @Override
+    public int drainNextShowTickets(int screenNumber, int fromMinute, int maxCount, Collection<Ticket> sink) {
+        return call(ShardProtocol.Op.DRAIN_NEXT_SHOW_TICKETS, out -> {
+            out.writeInt(screenNumber);
+            out.writeInt(fromMinute);
+            out.writeInt(maxCount);
+        }, in -> ShardProtocol.readTickets(in, sink));
+    }
+
+    @Override
+    public boolean areAllTicketsSold() {
+        return call(ShardProtocol.Op.ALL_TICKETS_SOLD, out -> { }, DataInputStream::readBoolean);
+    }
+
+    /**
+     * Asks whether the node has sold out without waiting for the answer, so a router can ask
+     * every node at once.
+     *
+     * @return A future completed with true if the node has sold out.
+     */
+    public CompletableFuture<Boolean> areAllTicketsSoldAsync() {
+        return transport.send(request(ShardProtocol.Op.ALL_TICKETS_SOLD, nextCallId(), out -> { }))
+                .thenApply(response -> {
+                    try {
+                        return result(response).readBoolean();
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+    }
+
+    @Override
+    public int getRemainingTickets(int screenNumber) {
+        return call(ShardProtocol.Op.REMAINING_TICKETS, out -> out.writeInt(screenNumber), DataInputStream::readInt);
+    }
+
+    /**
+     * Sends a request, waits for the response and decodes it. If interrupted, cancels the call and
+     * waits on for the response, which the node sends as soon as it stops waiting.
+     */
+    private <T> T call(ShardProtocol.Op op, Arguments arguments, Result<T> result) {
+        long callId = nextCallId();
+        CompletableFuture<byte[]> response = transport.send(request(op, callId, arguments));
+        try {
+            byte[] message;
+            try {
+                message = response.get();
+            } catch (InterruptedException e) {
+                if (op.waits) {
+                    transport.send(request(ShardProtocol.Op.CANCEL, callId, out -> { }));
+                }
+                try {
+                    message = response.join();
+                } finally {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return result.read(result(message));
+        } catch (ExecutionException | CompletionException e) {
+            Throwable cause = e.getCause();
+            throw new UncheckedIOException("Shard node unreachable",
+                    cause instanceof IOException ? (IOException) cause : new IOException(cause));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Malformed response from shard node", e);
+        }
+    }
+
+    private static long nextCallId() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    private static byte[] request(ShardProtocol.Op op, long callId, Arguments arguments) {
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(request);
+        try {
+            out.writeByte(op.ordinal());
+            out.writeLong(callId);
+            arguments.write(out);
+        } catch (IOException e) {
+            throw new AssertionError(e); // Writing to memory cannot fail
+        }
+        return request.toByteArray();
+    }
+
+    /**
+     * Opens a response, throwing the node's failure if it reported one.
+     */
+    private static DataInputStream result(byte[] response) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(response));
+        if (in.readByte() == ShardProtocol.FAILED) {
+            throw new IllegalStateException("Shard node failed: " + in.readUTF());
+        }
+        return in;
+    }
+
+    /**
+     * Writes the arguments of a request.
+     */
+    @FunctionalInterface
+    private interface Arguments {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Reads the result of a response.
+     */
+    @FunctionalInterface
+    private interface Result<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+}
@@ -0,0 +1,126 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.function.IntFunction;
+
+/**
+ * Several pool nodes running on this machine behind one {@link ShardRouter}, connected either
+ * in-process or over localhost sockets. This runs a sharded ticket system, or tests one, without
+ * deploying nodes separately.
+ */
+public class ShardCluster implements AutoCloseable {
+    private final List<ShardNode> nodes;
+    private final List<ShardServer> servers;
+    private final List<ExecutorService> workers;
+    private final ShardRouter router;
+
+    /**
+     * How the router reaches the nodes of a cluster.
+     */
+    public enum Transport {
+        /**
+         * Requests are handled on the caller's thread, through the same encoding as on the wire.
+         */
+        LOOPBACK,
+
+        /**
+         * Each node listens on a localhost port and the router connects to it over TCP.
+         */
+        SOCKET
+    }
+
+    private ShardCluster(List<ShardNode> nodes, List<ShardServer> servers, List<ExecutorService> workers, ShardRouter router) {
+        this.nodes = nodes;
+        this.servers = servers;
+        this.workers = workers;
+        this.router = router;
+    }
+
+    /**
+     * Starts a cluster of nodes.
+     *
+     * @param nodeCount     The number of nodes.
+     * @param transport     How the router reaches the nodes.
+     * @param executionMode The threads that handle socket requests on each node.
+     * @param pools         Creates the pool of each node, given the node's index.
+     * @return The running cluster.
+     * @throws IOException If a node could not be started or reached.
+     */
+    public static ShardCluster start(int nodeCount, Transport transport, ExecutionMode executionMode,
+                                     IntFunction<TicketPool> pools) throws IOException {
+        List<ShardNode> nodes = new ArrayList<>(nodeCount);
+        List<ShardServer> servers = new ArrayList<>();
+        List<ExecutorService> workers = new ArrayList<>();
+        List<ShardTransport> transports = new ArrayList<>(nodeCount);
+        try {
+            for (int i = 0; i < nodeCount; i++) {
+                ShardNode node = new ShardNode(pools.apply(i));
+                nodes.add(node);
+                if (transport == Transport.SOCKET) {
+                    ExecutorService nodeWorkers = executionMode.newExecutor();
+                    workers.add(nodeWorkers);
+                    ShardServer server = new ShardServer(node, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), nodeWorkers);
+                    servers.add(server);
+                    transports.add(SocketTransport.connect(server.getAddress()));
+                } else {
+                    transports.add(new LoopbackTransport(node));
+                }
+            }
+        } catch (IOException e) {
+            for (ShardTransport started : transports) {
+                started.close();
+            }
+            new ShardCluster(nodes, servers, workers, null).close();
+            throw e;
+        }
+        return new ShardCluster(nodes, servers, workers, new ShardRouter(transports));
+    }
+
+    /**
+     * Retrieves the router that vendors and customers use.
+     *
+     * @return The router.
+     */
+    public ShardRouter getRouter() {
+        return router;
+    }
+
+    /**
+     * Retrieves a node of the cluster.
+     *
+     * @param index The index of the node.
+     * @return The node.
+     */
+    public ShardNode getNode(int index) {
+        return nodes.get(index);
+    }
+
+    /**
+     * Retrieves the number of nodes.
+     *
+     * @return The node count.
+     */
+    public int getNodeCount() {
+        return nodes.size();
+    }
+
+    /**
+     * Disconnects the router and stops every node's server and request threads.
+     *
+     * @throws IOException If a connection could not be closed cleanly.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (router != null) {
+                router.close();
+            }
+        } finally {
+            servers.forEach(ShardServer::close);
+            workers.forEach(ExecutorService::shutdownNow);
+        }
+    }
+}
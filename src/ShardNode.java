@@ -0,0 +1,176 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One pool node of a sharded ticket system: a {@link TicketPool} holding some of the screens,
+ * answering {@link ShardProtocol} requests from routers. A node serves any transport;
+ * requests that wait for tickets block the thread that handles them until they are answered or
+ * cancelled, and a cancelled call answers at once with whatever it did before it stopped.
+ */
+public class ShardNode {
+    private final TicketPool pool;
+    private final Map<Long, Call> calls = new ConcurrentHashMap<>(); // Calls that may wait, by call id
+
+    /**
+     * Constructs a ShardNode serving a pool.
+     *
+     * @param pool The pool holding the node's screens.
+     */
+    public ShardNode(TicketPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Retrieves the pool the node serves.
+     *
+     * @return The pool.
+     */
+    public TicketPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Registers a request as it arrives, before it is handled. A transport that hands requests to
+     * other threads calls this in arrival order, so that a cancel arriving after its call always
+     * finds the call, even if the call has not started yet.
+     *
+     * @param request The request message.
+     */
+    public void received(byte[] request) {
+        if (request.length >= 9 && request[0] >= 0 && request[0] < ShardProtocol.Op.VALUES.length
+                && ShardProtocol.Op.VALUES[request[0]].waits) {
+            calls.computeIfAbsent(ByteBuffer.wrap(request, 1, 8).getLong(), id -> new Call());
+        }
+    }
+
+    /**
+     * Handles a request message and builds the response message. Failures are reported to the
+     * caller in the response rather than thrown.
+     *
+     * @param request The request message.
+     * @return The response message.
+     */
+    public byte[] handle(byte[] request) {
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(response);
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(request));
+            out.writeByte(ShardProtocol.OK);
+            ShardProtocol.Op op = ShardProtocol.Op.VALUES[in.readUnsignedByte()];
+            long callId = in.readLong();
+            if (op == ShardProtocol.Op.CANCEL) {
+                Call call = calls.get(callId);
+                if (call != null) {
+                    call.cancel();
+                }
+            } else if (op.waits) {
+                Call call = calls.computeIfAbsent(callId, id -> new Call());
+                call.start();
+                try {
+                    handle(op, in, out);
+                } finally {
+                    call.finish();
+                    calls.remove(callId, call);
+                }
+            } else {
+                handle(op, in, out);
+            }
+        } catch (IOException | RuntimeException e) {
+            response.reset();
+            try {
+                out.writeByte(ShardProtocol.FAILED);
+                out.writeUTF(String.valueOf(e));
+            } catch (IOException impossible) {
+                throw new AssertionError(impossible); // Writing to memory cannot fail
+            }
+        }
+        return response.toByteArray();
+    }
+
+    /**
+     * Performs one operation on the pool and writes its result.
+     */
+    private void handle(ShardProtocol.Op op, DataInputStream in, DataOutputStream out) throws IOException {
+        List<Ticket> tickets = new ArrayList<>();
+        switch (op) {
+            case ADD_TICKETS: {
+                int screenNumber = in.readInt();
+                ShardProtocol.readTickets(in, tickets);
+                out.writeInt(pool.addTickets(screenNumber, tickets));
+                break;
+            }
+            case DRAIN_TICKETS: {
+                int screenNumber = in.readInt();
+                pool.drainTickets(screenNumber, in.readInt(), tickets);
+                ShardProtocol.writeTickets(out, tickets);
+                break;
+            }
+            case DRAIN_ANY_TICKETS: {
+                int[] screenNumbers = ShardProtocol.readScreens(in);
+                pool.drainAnyTickets(screenNumbers, in.readInt(), tickets);
+                ShardProtocol.writeTickets(out, tickets);
+                break;
+            }
+            case POLL_ANY_TICKETS: {
+                int[] screenNumbers = ShardProtocol.readScreens(in);
+                pool.pollAnyTickets(screenNumbers, in.readInt(), tickets);
+                ShardProtocol.writeTickets(out, tickets);
+                break;
+            }
+            case DRAIN_NEXT_SHOW_TICKETS: {
+                int screenNumber = in.readInt();
+                int fromMinute = in.readInt();
+                pool.drainNextShowTickets(screenNumber, fromMinute, in.readInt(), tickets);
+                ShardProtocol.writeTickets(out, tickets);
+                break;
+            }
+            case ALL_TICKETS_SOLD:
+                out.writeBoolean(pool.areAllTicketsSold());
+                break;
+            case REMAINING_TICKETS:
+                out.writeInt(pool.getRemainingTickets(in.readInt()));
+                break;
+            default:
+                throw new IOException("Unexpected operation " + op);
+        }
+    }
+
+    /**
+     * A call that may wait, cancelled by interrupting the thread handling it. The pool stops
+     * waiting when interrupted and returns what it has already done, so nothing the call took or
+     * added is lost: it goes back to the client in the response.
+     */
+    private static final class Call {
+        private Thread thread; // Null unless the call is being handled
+        private boolean cancelled;
+
+        synchronized void start() {
+            thread = Thread.currentThread();
+            if (cancelled) {
+                thread.interrupt(); // Cancelled before it started, so it must not wait at all
+            }
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+
+        synchronized void finish() {
+            thread = null;
+            if (cancelled) {
+                Thread.interrupted(); // The interrupt was meant for this call, not the worker's next one
+            }
+        }
+    }
+}
@@ -0,0 +1,249 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The binary protocol between a {@link ShardRouter} and its pool nodes.
+ *
+ * <p>A request message is {@code [op:1][call:8][arguments]} and a response message is
+ * {@code [status:1][result]}, big endian. The call id is chosen at random by the client, so
+ * routers need not coordinate; a {@link Op#CANCEL} request names the call it cancels and has no
+ * arguments. On a socket each message travels in a frame
+ * {@code [length:4][requestId:8][message]}, where the length counts the bytes after itself.
+ * Responses carry the id of their request, so a connection pipelines many requests and nodes
+ * answer them in any order.
+ *
+ * <p>A ticket list is {@code [showTimeCount:2][showTime:utf]...[ticketCount:4]} followed by
+ * {@code [screen:4][seat:4][showTime:2][status:1][label:utf]} per ticket, where the show time
+ * indexes the list's own table. Each side maps show-time names onto its own {@link ShowTimes}
+ * ids, so nodes need not share a process. An empty label means the seat follows "Seat-N".
+ */
+public final class ShardProtocol {
+    static final byte OK = 0;
+    static final byte FAILED = 1;
+    static final int FRAME_HEADER_SIZE = 12;
+    static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+
+    /**
+     * The operations a pool node serves, one per {@link TicketService} method plus a
+     * non-blocking probe used to search several nodes, and a cancel for calls that wait.
+     */
+    public enum Op {
+        ADD_TICKETS(true),
+        DRAIN_TICKETS(true),
+        DRAIN_ANY_TICKETS(true),
+        POLL_ANY_TICKETS(false),
+        DRAIN_NEXT_SHOW_TICKETS(true),
+        ALL_TICKETS_SOLD(false),
+        REMAINING_TICKETS(false),
+        /** Stops a call's waiting on the node; the call still answers with what it did. */
+        CANCEL(false);
+
+        static final Op[] VALUES = values();
+
+        final boolean waits;
+
+        Op(boolean waits) {
+            this.waits = waits;
+        }
+    }
+
+    private ShardProtocol() {
+    }
+
+    /**
+     * Writes a list of tickets.
+     *
+     * @param out     The output to write to.
+     * @param tickets The tickets.
+     * @throws IOException If the output could not be written.
+     */
+    public static void writeTickets(DataOutput out, Collection<Ticket> tickets) throws IOException {
+        Map<Integer, Integer> indexes = new HashMap<>(); // ShowTimes id to index in the table
+        for (Ticket ticket : tickets) {
+            indexes.putIfAbsent(ticket.getShowTimeId(), indexes.size());
+        }
+        String[] names = new String[indexes.size()];
+        indexes.forEach((id, index) -> names[index] = ShowTimes.name(id));
+        out.writeShort(names.length);
+        for (String name : names) {
+            out.writeUTF(name);
+        }
+        out.writeInt(tickets.size());
+        for (Ticket ticket : tickets) {
+            String label = ticket.getSeatLabel();
+            out.writeInt(ticket.getScreenNumber());
+            out.writeInt(ticket.getSeat());
+            out.writeShort(indexes.get(ticket.getShowTimeId()));
+            out.writeByte(ticket.getTicketStatus().ordinal());
+            out.writeUTF(label == null ? "" : label);
+        }
+    }
+
+    /**
+     * Reads a list of tickets.
+     *
+     * @param in   The input to read from.
+     * @param sink The collection that receives the tickets.
+     * @return The number of tickets read.
+     * @throws IOException If the input could not be read or is malformed.
+     */
+    public static int readTickets(DataInput in, Collection<Ticket> sink) throws IOException {
+        int[] showTimeIds = new int[in.readUnsignedShort()];
+        for (int i = 0; i < showTimeIds.length; i++) {
+            showTimeIds[i] = ShowTimes.id(in.readUTF());
+        }
+        TicketStatus[] statuses = TicketStatus.values();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            int screen = in.readInt();
+            int seat = in.readInt();
+            int showTimeId = showTimeIds[in.readUnsignedShort()];
+            TicketStatus status = statuses[in.readUnsignedByte()];
+            String label = in.readUTF();
+            sink.add(label.isEmpty()
+                    ? new Ticket(screen, seat, showTimeId, status)
+                    : new Ticket(screen, label, ShowTimes.name(showTimeId), status.getLabel()));
+        }
+        return count;
+    }
+
+    /**
+     * Writes a list of screen numbers.
+     *
+     * @param out           The output to write to.
+     * @param screenNumbers The screen numbers.
+     * @throws IOException If the output could not be written.
+     */
+    public static void writeScreens(DataOutput out, int[] screenNumbers) throws IOException {
+        out.writeInt(screenNumbers.length);
+        for (int screenNumber : screenNumbers) {
+            out.writeInt(screenNumber);
+        }
+    }
+
+    /**
+     * Reads a list of screen numbers.
+     *
+     * @param in The input to read from.
+     * @return The screen numbers.
+     * @throws IOException If the input could not be read.
+     */
+    public static int[] readScreens(DataInput in) throws IOException {
+        int[] screenNumbers = new int[in.readInt()];
+        for (int i = 0; i < screenNumbers.length; i++) {
+            screenNumbers[i] = in.readInt();
+        }
+        return screenNumbers;
+    }
+
+    /**
+     * Receives the frames read from a connection.
+     */
+    @FunctionalInterface
+    interface FrameHandler {
+        void frame(long requestId, byte[] message);
+    }
+
+    /**
+     * A non-blocking socket carrying frames, driven by one selector thread. Any thread may queue
+     * frames; the selector thread writes everything queued with one gathering write, so frames
+     * from many callers share each system call.
+     */
+    static final class Connection {
+        private static final int WRITE_BATCH = 64;
+
+        private final SocketChannel channel;
+        private final Queue<ByteBuffer> outgoing = new ConcurrentLinkedQueue<>();
+        private final ByteBuffer[] writing = new ByteBuffer[WRITE_BATCH]; // Selector thread only
+        private int writingCount;
+        private ByteBuffer readBuffer = ByteBuffer.allocate(64 * 1024);
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        SocketChannel channel() {
+            return channel;
+        }
+
+        /**
+         * Queues a frame; the selector thread must be woken to write it.
+         */
+        void enqueue(long requestId, byte[] message) {
+            ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + message.length);
+            frame.putInt(8 + message.length).putLong(requestId).put(message).flip();
+            outgoing.add(frame);
+        }
+
+        /**
+         * Writes queued frames until the queue is empty or the socket is full.
+         *
+         * @return True if everything was written; false if the rest must wait until the socket is writable.
+         */
+        boolean flush() throws IOException {
+            while (true) {
+                ByteBuffer frame;
+                while (writingCount < WRITE_BATCH && (frame = outgoing.poll()) != null) {
+                    writing[writingCount++] = frame;
+                }
+                if (writingCount == 0) {
+                    return true;
+                }
+                channel.write(writing, 0, writingCount);
+                int written = 0;
+                while (written < writingCount && !writing[written].hasRemaining()) {
+                    written++;
+                }
+                System.arraycopy(writing, written, writing, 0, writingCount - written);
+                Arrays.fill(writing, writingCount - written, writingCount, null);
+                writingCount -= written;
+                if (writingCount > 0) {
+                    return false;
+                }
+            }
+        }
+
+        /**
+         * Reads what has arrived and hands each complete frame to the handler.
+         *
+         * @return False once the peer has closed the connection.
+         */
+        boolean read(FrameHandler handler) throws IOException {
+            if (channel.read(readBuffer) < 0) {
+                return false;
+            }
+            readBuffer.flip();
+            while (readBuffer.remaining() >= 4) {
+                int length = readBuffer.getInt(readBuffer.position());
+                if (length < 8 || length > MAX_FRAME_LENGTH) {
+                    throw new IOException("Malformed frame of length " + length);
+                }
+                if (readBuffer.remaining() < 4 + length) {
+                    break;
+                }
+                readBuffer.getInt();
+                long requestId = readBuffer.getLong();
+                byte[] message = new byte[length - 8];
+                readBuffer.get(message);
+                handler.frame(requestId, message);
+            }
+            readBuffer.compact();
+            if (!readBuffer.hasRemaining()) {
+                // Full without a complete frame, so the frame is larger than the buffer
+                ByteBuffer grown = ByteBuffer.allocate(readBuffer.capacity() * 2);
+                readBuffer.flip();
+                readBuffer = grown.put(readBuffer);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link TicketService} whose screens are sharded over several pool nodes. Screen {@code s}
+ * lives on node {@code (s - 1) % nodeCount}, so vendors and customers address screens as usual
+ * and never learn where one lives.
+ *
+ * <p>Calls for one screen go straight to its node, which waits for tickets as a local pool would.
+ * A purchase that accepts screens on several nodes probes each of them without waiting and, while
+ * all are empty, backs off and probes again, since no single node can wait for the others.
+ */
+public class ShardRouter implements TicketService, AutoCloseable {
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final ShardClient[] nodes;
+
+    /**
+     * Constructs a ShardRouter over the transports to its nodes.
+     *
+     * @param transports One transport per node, in node order.
+     * @throws IllegalArgumentException If there are no transports.
+     */
+    public ShardRouter(List<? extends ShardTransport> transports) {
+        if (transports.isEmpty()) {
+            throw new IllegalArgumentException("A shard router needs at least one node");
+        }
+        this.nodes = new ShardClient[transports.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new ShardClient(transports.get(i));
+        }
+    }
+
+    /**
+     * Retrieves the number of nodes.
+     *
+     * @return The node count.
+     */
+    public int getNodeCount() {
+        return nodes.length;
+    }
+
+    /**
+     * Finds the node a screen lives on.
+     *
+     * @param screenNumber The screen number.
+     * @return The index of the node.
+     */
+    public int nodeOf(int screenNumber) {
+        return Math.floorMod(screenNumber - 1, nodes.length);
+    }
+
+    @Override
+    public int addTickets(int screenNumber, Collection<Ticket> tickets) {
+        return nodes[nodeOf(screenNumber)].addTickets(screenNumber, tickets);
+    }
+
+    @Override
+    public int drainTickets(int screenNumber, int maxCount, Collection<Ticket> sink) {
+        return nodes[nodeOf(screenNumber)].drainTickets(screenNumber, maxCount, sink);
+    }
+
+    @Override
+    public int drainNextShowTickets(int screenNumber, int fromMinute, int maxCount, Collection<Ticket> sink) {
+        return nodes[nodeOf(screenNumber)].drainNextShowTickets(screenNumber, fromMinute, maxCount, sink);
+    }
+
+    @Override
+    public int drainAnyTickets(int[] screenNumbers, int maxCount, Collection<Ticket> sink) {
+        if (maxCount <= 0) {
+            return 0;
+        }
+        int[][] screensByNode = screensByNode(screenNumbers);
+        int[] candidates = candidates(screensByNode);
+        if (candidates.length == 1) {
+            int node = candidates[0];
+            return nodes[node].drainAnyTickets(screensByNode[node], maxCount, sink); // The node can wait by itself
+        }
+
+        long backoff = MIN_BACKOFF_NANOS;
+        while (true) {
+            // Probe the nodes from a random one, so concurrent customers spread out
+            int start = ThreadLocalRandom.current().nextInt(candidates.length);
+            int drained = 0;
+            for (int i = 0; i < candidates.length && drained < maxCount; i++) {
+                int node = candidates[(start + i) % candidates.length];
+                drained += nodes[node].pollAnyTickets(screensByNode[node], maxCount - drained, sink);
+            }
+            if (drained > 0 || allSold(candidates)) {
+                return drained;
+            }
+            LockSupport.parkNanos(this, backoff);
+            if (Thread.currentThread().isInterrupted()) {
+                return 0;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_NANOS);
+        }
+    }
+
+    /**
+     * Checks if every node has sold out, asking all of them at once.
+     *
+     * @return True if all tickets are sold out; false otherwise.
+     */
+    @Override
+    public boolean areAllTicketsSold() {
+        int[] all = new int[nodes.length];
+        Arrays.setAll(all, node -> node);
+        return allSold(all);
+    }
+
+    @Override
+    public int getRemainingTickets(int screenNumber) {
+        return nodes[nodeOf(screenNumber)].getRemainingTickets(screenNumber);
+    }
+
+    /**
+     * Closes the transport to every node.
+     *
+     * @throws IOException If a transport could not be closed cleanly.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (ShardClient node : nodes) {
+            try {
+                node.getTransport().close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Asks the given nodes whether they have sold out, all requests in flight together.
+     */
+    private boolean allSold(int[] candidates) {
+        List<CompletableFuture<Boolean>> answers = new ArrayList<>(candidates.length);
+        for (int node : candidates) {
+            answers.add(nodes[node].areAllTicketsSoldAsync());
+        }
+        try {
+            for (CompletableFuture<Boolean> answer : answers) {
+                if (!answer.get()) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Shard node failed to report its sales", e.getCause());
+        }
+    }
+
+    /**
+     * Splits acceptable screens by node. An empty array means any screen, on every node; a node
+     * with no acceptable screens gets null.
+     */
+    private int[][] screensByNode(int[] screenNumbers) {
+        int[][] screensByNode = new int[nodes.length][];
+        if (screenNumbers == null || screenNumbers.length == 0) {
+            Arrays.fill(screensByNode, new int[0]);
+            return screensByNode;
+        }
+        int[] counts = new int[nodes.length];
+        for (int screenNumber : screenNumbers) {
+            counts[nodeOf(screenNumber)]++;
+        }
+        for (int node = 0; node < nodes.length; node++) {
+            screensByNode[node] = counts[node] == 0 ? null : new int[counts[node]];
+            counts[node] = 0;
+        }
+        for (int screenNumber : screenNumbers) {
+            int node = nodeOf(screenNumber);
+            screensByNode[node][counts[node]++] = screenNumber;
+        }
+        return screensByNode;
+    }
+
+    private static int[] candidates(int[][] screensByNode) {
+        int count = 0;
+        int[] candidates = new int[screensByNode.length];
+        for (int node = 0; node < screensByNode.length; node++) {
+            if (screensByNode[node] != null) {
+                candidates[count++] = node;
+            }
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+}
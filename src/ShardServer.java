@@ -0,0 +1,168 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Serves a {@link ShardNode} to {@link SocketTransport}s over TCP. One selector thread accepts
+ * connections, reads request frames and writes response frames; requests are handled on a
+ * worker executor, since those that wait for tickets may block for a long time. Each request is
+ * registered with the node as it is read, so a cancel read after it always finds it. Responses
+ * completed while the selector was busy go out together in one write per connection.
+ */
+public class ShardServer implements AutoCloseable {
+    private final ShardNode node;
+    private final ExecutorService workers;
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final AtomicBoolean wakeupRequested = new AtomicBoolean();
+    private final Thread selectorThread;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a ShardServer listening on an address and starts its selector thread.
+     *
+     * @param node    The node to serve.
+     * @param address The address to listen on; port 0 picks a free port.
+     * @param workers The executor that handles requests; it must not bound how many run at once,
+     *                or waiting requests could starve the rest.
+     * @throws IOException If the address could not be bound.
+     */
+    public ShardServer(ShardNode node, InetSocketAddress address, ExecutorService workers) throws IOException {
+        this.node = node;
+        this.workers = workers;
+        this.serverChannel = ServerSocketChannel.open();
+        this.selector = Selector.open();
+        try {
+            serverChannel.bind(address);
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            serverChannel.close();
+            selector.close();
+            throw e;
+        }
+        this.selectorThread = new Thread(this::run, "Shard-Server-" + getAddress().getPort());
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    /**
+     * Retrieves the address the server listens on.
+     *
+     * @return The bound address.
+     * @throws IllegalStateException If the server is closed.
+     */
+    public InetSocketAddress getAddress() {
+        try {
+            return (InetSocketAddress) serverChannel.getLocalAddress();
+        } catch (IOException e) {
+            throw new IllegalStateException("Shard server is closed", e);
+        }
+    }
+
+    /**
+     * Stops accepting requests and closes every connection. Requests still being handled are
+     * finished, but their responses are dropped.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        selector.wakeup();
+        try {
+            selectorThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                selector.select();
+                wakeupRequested.set(false); // Cleared before flushing, so a response queued after the flush wakes the selector again
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isReadable()) {
+                        read(key);
+                    }
+                }
+                selector.selectedKeys().clear();
+                for (SelectionKey key : selector.keys()) {
+                    if (key.isValid() && key.attachment() != null) {
+                        flush(key);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Shard server stopped: " + e.getMessage());
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key);
+            }
+            try {
+                selector.close();
+                serverChannel.close();
+            } catch (IOException e) {
+                System.err.println("Error closing shard server: " + e.getMessage());
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel != null) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ, new ShardProtocol.Connection(channel));
+        }
+    }
+
+    private void read(SelectionKey key) {
+        ShardProtocol.Connection connection = (ShardProtocol.Connection) key.attachment();
+        try {
+            if (!connection.read((requestId, request) -> {
+                node.received(request);
+                workers.execute(() -> respond(connection, requestId, request));
+            })) {
+                closeQuietly(key); // The router disconnected
+            }
+        } catch (IOException e) {
+            closeQuietly(key); // A broken connection must not take the other routers down
+        }
+    }
+
+    private void respond(ShardProtocol.Connection connection, long requestId, byte[] request) {
+        connection.enqueue(requestId, node.handle(request));
+        if (wakeupRequested.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    private void flush(SelectionKey key) {
+        try {
+            boolean flushed = ((ShardProtocol.Connection) key.attachment()).flush();
+            key.interestOps(flushed ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        } catch (IOException e) {
+            closeQuietly(key);
+        }
+    }
+
+    private static void closeQuietly(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // Already broken; nothing more to release
+        }
+    }
+}
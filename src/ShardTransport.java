@@ -0,0 +1,26 @@
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Carries {@link ShardProtocol} messages from a router to one pool node.
+ * Transports are safe for concurrent callers, and a caller may send further requests before
+ * earlier ones are answered.
+ */
+public interface ShardTransport extends AutoCloseable {
+    /**
+     * Sends a request message to the node.
+     *
+     * @param request The request message.
+     * @return A future completed with the response message, or exceptionally with an
+     *         {@link IOException} if the node cannot be reached.
+     */
+    CompletableFuture<byte[]> send(byte[] request);
+
+    /**
+     * Closes the transport; requests still waiting for a response fail.
+     *
+     * @throws IOException If the transport could not be closed cleanly.
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,99 @@
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A process-wide table of show times, so tickets can refer to a show time by a small integer id
+ * instead of each carrying its own string. Names that are times of day, such as "7:30 PM" or
+ * "19:30", also give the show's start, so shows can be ordered and searched by time.
+ */
+public final class ShowTimes {
+    private static final DateTimeFormatter[] TIME_FORMATS = {
+            new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern("h:mm a").toFormatter(Locale.US),
+            DateTimeFormatter.ofPattern("H:mm")
+    };
+
+    private static final Map<String, Integer> idsByName = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[0];
+    private static volatile int[] minutes = new int[0]; // Start of each show time in minutes after midnight, or -1
+
+    /**
+     * The id of the default "10:00 AM" show time.
+     */
+    public static final int DEFAULT = id("10:00 AM");
+
+    private ShowTimes() {
+    }
+
+    /**
+     * Retrieves the id of a show time, registering it on first use.
+     *
+     * @param name The show time, e.g. "10:00 AM".
+     * @return The id of the show time.
+     */
+    public static int id(String name) {
+        Integer id = idsByName.get(name);
+        return id != null ? id : register(name);
+    }
+
+    /**
+     * Retrieves the show time for an id.
+     *
+     * @param id The id of the show time.
+     * @return The show time.
+     */
+    public static String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * Retrieves when a show time starts.
+     *
+     * @param id The id of the show time.
+     * @return The start in minutes after midnight, or -1 if the show time's name is not a time of day.
+     */
+    public static int minuteOfDay(int id) {
+        return minutes[id];
+    }
+
+    /**
+     * Retrieves the number of registered show times.
+     *
+     * @return The number of show times.
+     */
+    public static int count() {
+        return names.length;
+    }
+
+    private static synchronized int register(String name) {
+        Integer existing = idsByName.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        int[] grownMinutes = Arrays.copyOf(minutes, minutes.length + 1);
+        grownMinutes[minutes.length] = parseMinuteOfDay(name);
+        minutes = grownMinutes;
+        String[] grown = Arrays.copyOf(names, names.length + 1);
+        grown[names.length] = name;
+        names = grown; // Publish the name before the id becomes visible
+        idsByName.put(name, names.length - 1);
+        return names.length - 1;
+    }
+
+    private static int parseMinuteOfDay(String name) {
+        for (DateTimeFormatter format : TIME_FORMATS) {
+            try {
+                LocalTime time = LocalTime.parse(name.trim(), format);
+                return time.getHour() * 60 + time.getMinute();
+            } catch (DateTimeParseException e) {
+                // Try the next format
+            }
+        }
+        return -1;
+    }
+}
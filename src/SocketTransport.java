@@ -0,0 +1,127 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A transport to a node over one TCP connection, driven by a selector thread. Requests from all
+ * callers are pipelined on the connection: each is tagged with an id and sent without waiting
+ * for earlier answers, frames queued meanwhile go out together in one write, and responses are
+ * matched to their requests by id in whatever order the node finishes them.
+ */
+public class SocketTransport implements ShardTransport {
+    private final ShardProtocol.Connection connection;
+    private final Selector selector;
+    private final SelectionKey key;
+    private final Map<Long, CompletableFuture<byte[]>> pending = new ConcurrentHashMap<>();
+    private final AtomicLong nextRequestId = new AtomicLong();
+    private final AtomicBoolean wakeupRequested = new AtomicBoolean();
+    private final Thread selectorThread;
+    private volatile boolean closed;
+
+    private SocketTransport(SocketChannel channel, String threadName) throws IOException {
+        this.connection = new ShardProtocol.Connection(channel);
+        this.selector = Selector.open();
+        this.key = channel.register(selector, SelectionKey.OP_READ);
+        this.selectorThread = new Thread(this::run, threadName);
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    /**
+     * Connects to a node served by a {@link ShardServer}.
+     *
+     * @param address The address the node listens on.
+     * @return The connected transport.
+     * @throws IOException If the connection could not be made.
+     */
+    public static SocketTransport connect(InetSocketAddress address) throws IOException {
+        SocketChannel channel = SocketChannel.open(address);
+        try {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true); // Batching happens above the socket
+            channel.configureBlocking(false);
+            return new SocketTransport(channel, "Shard-Client-" + address.getPort());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<byte[]> send(byte[] request) {
+        CompletableFuture<byte[]> response = new CompletableFuture<>();
+        long requestId = nextRequestId.incrementAndGet();
+        pending.put(requestId, response);
+        if (closed) {
+            fail(new ClosedChannelException()); // Closed before or while registering
+            return response;
+        }
+        connection.enqueue(requestId, request);
+        if (wakeupRequested.compareAndSet(false, true)) {
+            selector.wakeup(); // Only the first request queued since the last write wakes the selector
+        }
+        return response;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        selector.wakeup();
+        try {
+            selectorThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        IOException failure = null;
+        try {
+            while (!closed) {
+                selector.select();
+                selector.selectedKeys().clear();
+                wakeupRequested.set(false); // Cleared before flushing, so a request queued after the flush wakes the selector again
+                if (key.isReadable() && !connection.read(this::complete)) {
+                    throw new IOException("Shard node closed the connection");
+                }
+                boolean flushed = connection.flush();
+                key.interestOps(flushed ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            closed = true;
+            try {
+                selector.close();
+                connection.channel().close();
+            } catch (IOException e) {
+                failure = failure == null ? e : failure;
+            }
+            fail(failure != null ? failure : new ClosedChannelException());
+        }
+    }
+
+    private void complete(long requestId, byte[] message) {
+        CompletableFuture<byte[]> response = pending.remove(requestId);
+        if (response != null) {
+            response.complete(message);
+        }
+    }
+
+    private void fail(IOException failure) {
+        for (Long requestId : pending.keySet()) {
+            CompletableFuture<byte[]> response = pending.remove(requestId);
+            if (response != null) {
+                response.completeExceptionally(failure);
+            }
+        }
+    }
+}
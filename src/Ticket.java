@@ -1,12 +1,18 @@
 /**
  * Represents a ticket for a specific screen, seat, and show time.
  * Includes information about the ticket's status.
+ * The seat, show time and status are held in compact form: a seat index, an id into
+ * {@link ShowTimes} and a {@link TicketStatus}; the string accessors derive their values from these.
  */
 public class Ticket {
+    private static final String SEAT_PREFIX = "Seat-";
+
     private int screenNumber;
-    private String seatNumber;
-    private String showTime;
-    private String status;
+    private int seat;
+    private String seatLabel; // Only set for seats that do not follow the "Seat-N" pattern
+    private int showTimeId;
+    private TicketStatus status;
+    private String statusLabel; // Only set for statuses that are not a TicketStatus label
 
     /**
      * Constructs a new Ticket instance.
@@ -18,8 +24,23 @@ public class Ticket {
      */
     public Ticket(int screenNumber, String seatNumber, String showTime, String status) {
         this.screenNumber = screenNumber;
-        this.seatNumber = seatNumber;
-        this.showTime = showTime;
+        setSeatNumber(seatNumber);
+        setShowTime(showTime);
+        setStatus(status);
+    }
+
+    /**
+     * Constructs a new Ticket instance from its compact representation.
+     *
+     * @param screenNumber The screen number associated with the ticket.
+     * @param seat         The seat index; the seat number is "Seat-" followed by the index.
+     * @param showTimeId   The id of the show time in {@link ShowTimes}.
+     * @param status       The current status of the ticket.
+     */
+    public Ticket(int screenNumber, int seat, int showTimeId, TicketStatus status) {
+        this.screenNumber = screenNumber;
+        this.seat = seat;
+        this.showTimeId = showTimeId;
         this.status = status;
     }
 
@@ -47,7 +68,7 @@ public class Ticket {
      * @return The seat number.
      */
     public String getSeatNumber() {
-        return seatNumber;
+        return seatLabel != null ? seatLabel : SEAT_PREFIX + seat;
     }
 
     /**
@@ -56,7 +77,27 @@ public class Ticket {
      * @param seatNumber The seat number to set.
      */
     public void setSeatNumber(String seatNumber) {
-        this.seatNumber = seatNumber;
+        int index = parseSeat(seatNumber);
+        this.seat = Math.max(index, 0);
+        this.seatLabel = index < 0 ? seatNumber : null;
+    }
+
+    /**
+     * Retrieves the seat index for this ticket.
+     *
+     * @return The seat index, or 0 if the seat number does not follow the "Seat-N" pattern.
+     */
+    public int getSeat() {
+        return seat;
+    }
+
+    /**
+     * Retrieves the seat number only if it does not follow the "Seat-N" pattern.
+     *
+     * @return The custom seat label, or null for indexed seats.
+     */
+    public String getSeatLabel() {
+        return seatLabel;
     }
 
     /**
@@ -65,7 +106,7 @@ public class Ticket {
      * @return The show time.
      */
     public String getShowTime() {
-        return showTime;
+        return ShowTimes.name(showTimeId);
     }
 
     /**
@@ -74,7 +115,16 @@ public class Ticket {
      * @param showTime The show time to set.
      */
     public void setShowTime(String showTime) {
-        this.showTime = showTime;
+        this.showTimeId = ShowTimes.id(showTime);
+    }
+
+    /**
+     * Retrieves the id of the show time for this ticket.
+     *
+     * @return The show time id in {@link ShowTimes}.
+     */
+    public int getShowTimeId() {
+        return showTimeId;
     }
 
     /**
@@ -83,16 +133,37 @@ public class Ticket {
      * @return The ticket status.
      */
     public String getStatus() {
-        return status;
+        return statusLabel != null ? statusLabel : status.getLabel();
     }
 
     /**
-     * Sets the status for this ticket.
+     * Sets the status for this ticket. A status other than "Booked" or "Not Booked" is kept as
+     * given and counts as not booked.
      *
      * @param status The ticket status to set (e.g., "Booked", "Available").
      */
     public void setStatus(String status) {
+        this.status = TicketStatus.fromLabel(status, TicketStatus.NOT_BOOKED);
+        this.statusLabel = status != null && status.equals(this.status.getLabel()) ? null : status;
+    }
+
+    /**
+     * Retrieves the current status of this ticket in compact form.
+     *
+     * @return The ticket status.
+     */
+    public TicketStatus getTicketStatus() {
+        return status;
+    }
+
+    /**
+     * Sets the status for this ticket.
+     *
+     * @param status The ticket status to set.
+     */
+    public void setStatus(TicketStatus status) {
         this.status = status;
+        this.statusLabel = null;
     }
 
     /**
@@ -104,9 +175,31 @@ public class Ticket {
     public String toString() {
         return "Ticket{" +
                 "Screen=" + screenNumber +
-                ", Seat='" + seatNumber + '\'' +
-                ", ShowTime='" + showTime + '\'' +
-                ", Status='" + status + '\'' +
+                ", Seat='" + getSeatNumber() + '\'' +
+                ", ShowTime='" + getShowTime() + '\'' +
+                ", Status='" + getStatus() + '\'' +
                 '}';
     }
+
+    /**
+     * Parses a "Seat-N" seat number into its index.
+     *
+     * @return The index, or -1 if the seat number does not follow the pattern exactly.
+     */
+    private static int parseSeat(String seatNumber) {
+        int length = seatNumber.length() - SEAT_PREFIX.length();
+        if (!seatNumber.startsWith(SEAT_PREFIX) || length < 1 || length > 9
+                || (length > 1 && seatNumber.charAt(SEAT_PREFIX.length()) == '0')) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = SEAT_PREFIX.length(); i < seatNumber.length(); i++) {
+            char c = seatNumber.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            index = index * 10 + (c - '0');
+        }
+        return index;
+    }
 }
@@ -1,116 +1,2115 @@
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 
 /**
- * Represents a pool of tickets organized by screen.
- * Provides synchronized methods for adding and retrieving tickets in a thread-safe manner.
+ * Represents a pool of tickets organized by screen and show time.
+ * Each show keeps its tickets in its own {@link ScreenQueue}, so vendors and customers
+ * working on different shows never block each other. Shows are found through primitive-keyed
+ * indexes, so looking one up neither boxes nor locks.
+ *
+ * <p>Methods that take only a screen number sell the screen's {@link ShowTimes#DEFAULT default}
+ * show; tickets are always added to the show named on the ticket.
+ *
+ * <p>Besides booking outright, a customer can {@link #holdTicket hold} a ticket while paying for
+ * it. A held ticket still counts as remaining until the hold is confirmed, and goes back on sale
+ * if the hold is released or runs out.
+ *
+ * <p>Callers that must not tie up a thread while a show is empty or full can
+ * {@link #acquireAsync acquire} and {@link #offerAsync offer} tickets through futures instead.
+ * Waiting futures queue in arrival order per show and are completed by whichever thread adds or
+ * removes the ticket they wait for.
+ *
+ * <p>Every ticket added and booked can be streamed to downstream consumers through the pool's
+ * {@link #getBookingEvents() booking events}, without the sale path waiting for them.
+ *
+ * <p>A ticket moves in or out of a show together with the show's counters, under the show's
+ * gate, so a reader that {@link #whilePaused pauses} the pool sees every ticket either on sale,
+ * on hold or counted as booked. Waiting for room or tickets happens outside the gate.
  */
-public class TicketPool {
-    private final Map<Integer, Queue<Ticket>> ticketsByScreen = new HashMap<>();
-    private final int maxCapacity;
-    private int totalTicketsRemaining;
+public class TicketPool implements TicketService {
+    private static final long TIMEOUT_TICK_MILLIS = 50;
+    private static final int TIMEOUT_WHEEL_BUCKETS = 2048; // One turn of the wheel lasts about 100 seconds
+
+    private static final Comparator<Show> BY_START =
+            Comparator.<Show>comparingInt(show -> ShowTimes.minuteOfDay(show.showTimeId)).thenComparingInt(show -> show.showTimeId);
+
+    private final LongMap<Show> shows = new LongMap<>(); // Keyed by screen and show time, see key()
+    private final LongMap<Show[]> showsByScreen = new LongMap<>(); // Each screen's shows, earliest first
+    private volatile Show[] allShows = new Show[0];
+    private final QueueFactory queueFactory;
+    private volatile int defaultCapacity;
+    private final Map<Integer, Integer> screenCapacities = new ConcurrentHashMap<>(); // Screens that override the default
+    private final AtomicInteger totalTicketsRemaining = new AtomicInteger();
+    private final AtomicInteger unreleased = new AtomicInteger(); // Counted in the total but not added yet
+    private final CompletableFuture<Void> soldOut = new CompletableFuture<>();
+    private final AtomicBoolean soldOutPending = new AtomicBoolean(); // The total reached zero under a gate; signalled outside it
+    private final LongMap<ScreenCompletion> completions = new LongMap<>(); // Screens whose end someone awaits or declared
+    private volatile BookingJournal journal; // Null when adds and bookings are not journaled
+    private volatile PoolMetrics metrics; // Null until metrics are enabled
+    private volatile TimingWheel timeouts; // Expires holds and async waits; started on first use
+    private volatile BookingEventPublisher events; // Null until someone asks for booking events
+
+    // Customers who accept several shows park here only once every one of them is empty
+    private final ReentrantLock crossScreenLock = new ReentrantLock();
+    private final Condition ticketsAvailable = crossScreenLock.newCondition();
+    private final AtomicInteger crossScreenWaiters = new AtomicInteger();
 
     /**
-     * Constructs a TicketPool with a specified maximum capacity per screen.
+     * Constructs a TicketPool with a specified maximum capacity per show.
+     * Each show is guarded by its own lock.
      *
-     * @param maxCapacity The maximum number of tickets per screen.
+     * @param maxCapacity The maximum number of tickets per show.
      */
     public TicketPool(int maxCapacity) {
-        this.maxCapacity = maxCapacity;
-        this.totalTicketsRemaining = 0;
+        this((screenNumber, showTimeId, capacity) -> new LockingScreenQueue(capacity), maxCapacity);
+    }
+
+    /**
+     * Constructs a TicketPool whose shows are lock-free ring buffers.
+     *
+     * @param maxCapacity  The maximum number of tickets per show.
+     * @param waitStrategy How vendors and customers idle while a show is full or empty.
+     */
+    public TicketPool(int maxCapacity, WaitStrategy waitStrategy) {
+        this((screenNumber, showTimeId, capacity) -> new RingBufferScreenQueue(capacity, waitStrategy), maxCapacity);
+    }
+
+    /**
+     * Constructs a TicketPool whose shows are created by the given factory, which decides their capacity.
+     *
+     * @param queueFactory Creates the queue for a show, given its screen number.
+     */
+    public TicketPool(IntFunction<ScreenQueue> queueFactory) {
+        this((screenNumber, showTimeId, capacity) -> queueFactory.apply(screenNumber), 0);
+    }
+
+    /**
+     * Constructs a TicketPool whose shows are created by the given factory.
+     *
+     * @param queueFactory    Creates the queue for a show.
+     * @param defaultCapacity The capacity of shows that are not scheduled with their own.
+     */
+    public TicketPool(QueueFactory queueFactory, int defaultCapacity) {
+        this.queueFactory = queueFactory;
+        this.defaultCapacity = defaultCapacity;
+    }
+
+    /**
+     * Creates a TicketPool with the storage selected by a configuration.
+     *
+     * @param config The configuration to apply.
+     * @return The new ticket pool.
+     */
+    public static TicketPool create(Configuration config) {
+        int maxCapacity = config.getMaxCapacity();
+        TicketPool pool;
+        if (config.getWaitStrategy() != null) {
+            pool = new TicketPool(maxCapacity, config.getWaitStrategy());
+        } else if (config.getSeatsPerRow() > 0) {
+            // By default a show has seats for its screen's whole share of the tickets
+            int seatsPerRow = config.getSeatsPerRow();
+            int seatsPerScreen = (config.getTotalTickets() + config.getScreens() - 1) / config.getScreens();
+            pool = new TicketPool((screenNumber, showTimeId, capacity) -> new SeatMapScreenQueue(screenNumber,
+                    new SeatMap(Math.max(1, (capacity + seatsPerRow - 1) / seatsPerRow), seatsPerRow), showTimeId), seatsPerScreen);
+        } else if (config.isCompactTickets()) {
+            pool = new TicketPool((screenNumber, showTimeId, capacity) ->
+                    new LockingScreenQueue(capacity, new TicketStore(screenNumber, capacity)), maxCapacity);
+        } else {
+            pool = new TicketPool(maxCapacity);
+        }
+        config.getScreenCapacities().forEach(pool::setScreenCapacity);
+        return pool;
     }
 
     /**
-     * Sets the total number of tickets in the pool.
+     * Sets the number of tickets left to sell: those on sale now plus those vendors have yet to
+     * add. Tickets added afterwards are taken out of the part still to be added instead of being
+     * counted again, so the pool sells out exactly when the last of them is booked. Once that part
+     * is used up, further tickets are counted as they are added.
      *
-     * @param totalTickets The total number of tickets.
+     * @param totalTickets The number of tickets left to sell.
      */
     public synchronized void setTotalTickets(int totalTickets) {
-        this.totalTicketsRemaining = totalTickets;
+        totalTicketsRemaining.set(totalTickets);
+        unreleased.set((int) Math.max(0, totalTickets - ticketsInPool()));
+    }
+
+    /**
+     * Retrieves a future completed once every ticket is sold: the last ticket counted in the
+     * total has been booked. Waiting on it replaces polling {@link #areAllTicketsSold()}.
+     *
+     * @return A future of the sell-out; completing or cancelling it does not affect the pool.
+     */
+    public CompletableFuture<Void> whenSoldOut() {
+        if (areAllTicketsSold()) {
+            soldOut.complete(null);
+        }
+        return soldOut.copy();
+    }
+
+    /**
+     * Retrieves a future completed once a screen is sold out: its releases are
+     * {@link #finishReleasing(int) finished} and every ticket it received has been booked,
+     * or the whole pool sold out first.
+     *
+     * @param screenNumber The screen.
+     * @return A future of the screen's sell-out; completing or cancelling it does not affect the pool.
+     */
+    public CompletableFuture<Void> whenScreenSoldOut(int screenNumber) {
+        ScreenCompletion completion = completion(screenNumber);
+        if (areAllTicketsSold()) {
+            completion.soldOut.complete(null);
+        }
+        return completion.soldOut.copy();
+    }
+
+    /**
+     * Declares that no more tickets will be added to a screen, so the screen is sold out as soon
+     * as it is empty. Customers waiting only on that screen then give up instead of waiting for
+     * the rest of the pool to sell out. A screen without any show yet is not empty but unknown,
+     * so it only sells out once a show exists, e.g. one its tickets were added to.
+     *
+     * @param screenNumber The screen whose vendors have finished.
+     */
+    @Override
+    public void finishReleasing(int screenNumber) {
+        completion(screenNumber).released = true;
+        checkScreenSoldOut(screenNumber);
+    }
+
+    /**
+     * Checks whether a screen is sold out, as for {@link #whenScreenSoldOut(int)}.
+     *
+     * @param screenNumber The screen.
+     * @return True if the screen will sell no more tickets; false otherwise.
+     */
+    public boolean isScreenSoldOut(int screenNumber) {
+        if (areAllTicketsSold()) {
+            return true;
+        }
+        ScreenCompletion completion = completions.get(screenNumber);
+        return completion != null && completion.soldOut.isDone();
+    }
+
+    /**
+     * Checks the pool's counters against each other and against the tickets it holds. Run it
+     * once vendors and customers have stopped; while they run, counters taken one after another
+     * may disagree briefly.
+     *
+     * @return The report, listing any inconsistency found.
+     */
+    public ConsistencyReport checkConsistency() {
+        ConsistencyReport report = new ConsistencyReport();
+        long inPool = 0;
+        for (int screenNumber : getScreenNumbers()) {
+            long added = getTicketsAdded(screenNumber);
+            long booked = getTicketsBooked(screenNumber);
+            int onSale = getRemainingTickets(screenNumber);
+            int held = getHeldTickets(screenNumber);
+            report.addScreen(screenNumber, added, booked, onSale, held);
+            inPool += onSale + held;
+        }
+        report.setTotals(totalTicketsRemaining.get(), unreleased.get(), inPool);
+        return report;
+    }
+
+    /**
+     * Runs an action while no ticket moves in or out of any show, so everything it reads from
+     * the pool belongs to one consistent cut: each ticket is on sale, on hold or counted as
+     * booked, and the counters and total agree with the tickets. Vendors and customers that
+     * reach a show meanwhile wait until the action returns, and no show can be created. The
+     * action must only read the pool.
+     *
+     * @param action Reads the pool.
+     * @param <T>    The type of the action's result.
+     * @return The action's result.
+     */
+    public synchronized <T> T whilePaused(Supplier<T> action) {
+        Show[] paused = allShows; // Complete, since shows are only created under the same lock
+        long[] stamps = new long[paused.length];
+        for (int i = 0; i < paused.length; i++) {
+            stamps[i] = paused[i].gate.writeLock();
+        }
+        try {
+            return action.get();
+        } finally {
+            for (int i = paused.length - 1; i >= 0; i--) {
+                paused[i].gate.unlockWrite(stamps[i]);
+            }
+        }
+    }
+
+    /**
+     * Attaches a journal that durably records every ticket added and booked from now on.
+     * Restore the journal's recovered tickets before attaching it.
+     *
+     * @param journal The journal to write to, or null to stop journaling.
+     */
+    public void setJournal(BookingJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Retrieves the publisher that streams every ticket added to and booked from the pool,
+     * starting it on first use. Events are only created while someone is subscribed. A single
+     * booking is published once it is durable in the journal; a batch may be published while
+     * the journal is still writing it.
+     *
+     * @return The pool's booking event publisher.
+     */
+    public BookingEventPublisher getBookingEvents() {
+        BookingEventPublisher events = this.events;
+        if (events == null) {
+            synchronized (this) {
+                events = this.events;
+                if (events == null) {
+                    events = new BookingEventPublisher();
+                    this.events = events;
+                }
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Starts recording metrics for every screen, returning the same metrics on later calls.
+     * Enable metrics before selling starts so the histograms cover the whole run.
+     *
+     * @return The pool's metrics.
+     */
+    public synchronized PoolMetrics enableMetrics() {
+        if (metrics == null) {
+            metrics = new PoolMetrics(this);
+            for (Show show : allShows) {
+                show.instrument(metrics);
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Schedules a show with its own capacity, e.g. for a smaller matinee.
+     * Shows that are not scheduled are created with the pool's default capacity when their first
+     * ticket is added.
+     *
+     * @param screenNumber The screen of the show.
+     * @param showTimeId   The id of the show time in {@link ShowTimes}.
+     * @param capacity     The maximum number of tickets the show holds at once.
+     * @throws IllegalStateException If the show already exists.
+     */
+    public synchronized void scheduleShow(int screenNumber, int showTimeId, int capacity) {
+        if (shows.get(key(screenNumber, showTimeId)) != null) {
+            throw new IllegalStateException("Screen " + screenNumber + " already has a " + ShowTimes.name(showTimeId) + " show");
+        }
+        newShow(screenNumber, showTimeId, capacity);
+    }
+
+    /**
+     * Changes the capacity of the shows on screens without their own, including shows created
+     * later, while sales continue. See {@link #setScreenCapacity(int, int)} for how existing
+     * shows take the change.
+     *
+     * @param capacity The maximum number of tickets a show holds at once; must be positive.
+     * @return True if every affected show took the new capacity; false if some show's queue has a fixed capacity.
+     */
+    public boolean setDefaultCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        List<Show> changed = new ArrayList<>();
+        boolean applied = true;
+        synchronized (this) {
+            defaultCapacity = capacity;
+            for (Show show : allShows) {
+                if (!screenCapacities.containsKey(show.screenNumber)) {
+                    applied &= resize(show, capacity, changed);
+                }
+            }
+        }
+        changed.forEach(this::dispatch);
+        return applied;
+    }
+
+    /**
+     * Gives every show on a screen its own capacity, including shows created later, while sales
+     * continue. Raising the capacity lets waiting vendors and offers in straight away; lowering
+     * it keeps the tickets already on sale and makes vendors wait until a show drops below it.
+     * Shows stored in rings or seat maps are sized once and keep their capacity; new shows on
+     * the screen still get the new one.
+     *
+     * @param screenNumber The screen.
+     * @param capacity     The maximum number of tickets each of its shows holds at once, or 0 to
+     *                     go back to the pool's default capacity.
+     * @return True if every show on the screen took the new capacity; false if some show's queue has a fixed capacity.
+     */
+    public boolean setScreenCapacity(int screenNumber, int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative: " + capacity);
+        }
+        List<Show> changed = new ArrayList<>();
+        boolean applied = true;
+        synchronized (this) {
+            if (capacity == 0) {
+                screenCapacities.remove(screenNumber);
+            } else {
+                screenCapacities.put(screenNumber, capacity);
+            }
+            Show[] screenShows = showsByScreen.get(screenNumber);
+            if (screenShows != null) {
+                for (Show show : screenShows) {
+                    applied &= resize(show, capacity(screenNumber), changed);
+                }
+            }
+        }
+        changed.forEach(this::dispatch);
+        return applied;
+    }
+
+    /**
+     * Retrieves the capacity new shows on a screen are created with.
+     *
+     * @param screenNumber The screen.
+     * @return The screen's own capacity, or the pool's default capacity if it has none.
+     */
+    public int getScreenCapacity(int screenNumber) {
+        return capacity(screenNumber);
     }
 
     /**
-     * Adds a ticket to the pool for a specified screen.
-     * Waits if the screen has reached its maximum capacity.
+     * Adds a ticket to the pool for a specified screen, under the show time on the ticket.
+     * Waits if the show has reached its maximum capacity.
      *
      * @param screenNumber The screen to which the ticket belongs.
      * @param ticket       The ticket to be added.
+     * @throws IllegalArgumentException If the show can never take the ticket, such as a seat outside its seat map.
      */
-    public synchronized void addTicket(int screenNumber, Ticket ticket) {
-        ticketsByScreen.putIfAbsent(screenNumber, new LinkedList<>());
-        Queue<Ticket> screenTickets = ticketsByScreen.get(screenNumber);
+    public void addTicket(int screenNumber, Ticket ticket) {
+        Show show = show(screenNumber, ticket.getShowTimeId());
 
-        // Wait if the screen has reached max capacity
-        while (screenTickets.size() >= maxCapacity) {
+        // Count the ticket before customers can see it, so the total never drops to zero early
+        boolean announced = countAdded(1) > 0;
+        journal(BookingJournal.Type.ADD, ticket); // Durable before the ticket can be booked
+        if (!offer(show, ticket)) {
+            long waitStart = System.nanoTime();
             try {
-                System.out.println("Screen " + screenNumber + " has reached max capacity. Vendor waiting...");
-                wait(); // Wait until space is available
+                do {
+                    if (!show.tickets.awaitRoom(show.vendorWaiting)) {
+                        ticketWithdrawn(ticket, announced);
+                        throw rejected(show, ticket);
+                    }
+                } while (!offer(show, ticket));
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
+                ticketWithdrawn(ticket, announced);
                 return;
             }
+            show.vendorBlocked(waitStart);
+        }
+        added(show, ticket);
+        dispatch(show);
+    }
+
+    /**
+     * Adds a ticket to the pool for a specified screen without waiting, under the show time on
+     * the ticket. If the show is full, the offer queues behind earlier waiting offers for the
+     * show and completes once there is room.
+     *
+     * @param screenNumber The screen to which the ticket belongs.
+     * @param ticket       The ticket to be added.
+     * @return A future completed once the ticket is on sale.
+     */
+    public CompletableFuture<Void> offerAsync(int screenNumber, Ticket ticket) {
+        return offerAsync(screenNumber, ticket, -1, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Adds a ticket to the pool for a specified screen without waiting, giving up if the show
+     * stays full for too long. Cancelling the future withdraws an offer that is still waiting.
+     *
+     * @param screenNumber The screen to which the ticket belongs.
+     * @param ticket       The ticket to be added.
+     * @param timeout      How long to wait for room, or a negative value to wait indefinitely.
+     * @param unit         The unit of the timeout.
+     * @return A future completed once the ticket is on sale, or failed with a
+     *         {@link TimeoutException} if the show stayed full.
+     */
+    public CompletableFuture<Void> offerAsync(int screenNumber, Ticket ticket, long timeout, TimeUnit unit) {
+        Show show = show(screenNumber, ticket.getShowTimeId());
+        Waiter<Void> waiter = new Waiter<>(show, ticket);
+
+        // Count the ticket before customers can see it, so the total never drops to zero early
+        waiter.announced = countAdded(1) > 0;
+        journal(BookingJournal.Type.ADD, ticket); // Durable before the ticket can be booked
+        if (show.offerers.size == 0 && offer(show, ticket)) {
+            added(show, ticket); // Only jump the queue when no earlier offer is waiting
+            dispatch(show);
+            waiter.settle(null);
+            return waiter;
         }
+        await(show.offerers, waiter, timeout, unit);
+        return waiter;
+    }
 
-        // Add the ticket and notify all waiting threads
-        screenTickets.add(ticket);
-        totalTicketsRemaining++;
-        System.out.println("Added " + ticket + " to Screen " + screenNumber);
-        notifyAll();
+    /**
+     * Removes a ticket from the pool for a specified screen's default show.
+     * Waits if no tickets are available for the show.
+     *
+     * @param screenNumber The screen from which to retrieve a ticket.
+     * @return The retrieved ticket, or null if no tickets are available.
+     */
+    public Ticket removeTicket(int screenNumber) {
+        return removeTicket(screenNumber, ShowTimes.DEFAULT);
     }
 
     /**
-     * Removes a ticket from the pool for a specified screen.
-     * Waits if no tickets are available for the screen.
+     * Removes a ticket from the pool for a specified show.
+     * Waits if no tickets are available for the show.
      *
      * @param screenNumber The screen from which to retrieve a ticket.
+     * @param showTimeId   The id of the show time in {@link ShowTimes}.
      * @return The retrieved ticket, or null if no tickets are available.
      */
-    public synchronized Ticket removeTicket(int screenNumber) {
-        Queue<Ticket> screenTickets = ticketsByScreen.get(screenNumber);
+    public Ticket removeTicket(int screenNumber, int showTimeId) {
+        Show show = show(screenNumber, showTimeId);
+        Ticket ticket = take(show, null);
+        if (ticket != null) {
+            ticketBooked(show, ticket);
+            dispatch(show); // The ticket made room for a waiting offer
+        }
+        return ticket;
+    }
+
+    /**
+     * Removes a ticket from the pool for a specified screen's default show without waiting.
+     *
+     * @param screenNumber The screen from which to retrieve a ticket.
+     * @return A future completed with the booked ticket, or with null if the pool sells out first.
+     */
+    public CompletableFuture<Ticket> acquireAsync(int screenNumber) {
+        return acquireAsync(screenNumber, ShowTimes.DEFAULT, -1, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Removes a ticket from the pool for a specified show without waiting. If the show is empty,
+     * the request queues behind earlier waiting requests for the show and is completed, by the
+     * thread that adds the ticket, in arrival order. Cancelling the future withdraws a request
+     * that is still waiting.
+     *
+     * <p>The future completes on the thread that adds the ticket, or on the pool's timer thread
+     * when it times out, so callbacks that do real work should use the async variants.
+     *
+     * @param screenNumber The screen from which to retrieve a ticket.
+     * @param showTimeId   The id of the show time in {@link ShowTimes}.
+     * @param timeout      How long to wait for a ticket, or a negative value to wait indefinitely.
+     * @param unit         The unit of the timeout.
+     * @return A future completed with the booked ticket, with null if the pool sells out first,
+     *         or failed with a {@link TimeoutException} if no ticket came in time.
+     */
+    public CompletableFuture<Ticket> acquireAsync(int screenNumber, int showTimeId, long timeout, TimeUnit unit) {
+        Show show = show(screenNumber, showTimeId);
+        Waiter<Ticket> waiter = new Waiter<>(show, null);
+        if (show.acquirers.size == 0) {
+            // Only jump the queue when no earlier request is waiting
+            Ticket ticket = claim(show, null);
+            if (ticket != null || areAllTicketsSold()) {
+                if (ticket != null) {
+                    ticketBooked(show, ticket);
+                    dispatch(show);
+                }
+                waiter.settle(ticket);
+                return waiter;
+            }
+        }
+        await(show.acquirers, waiter, timeout, unit);
+        if (areAllTicketsSold()) {
+            releaseAcquirers(show); // The pool sold out while the request was queuing
+        }
+        return waiter;
+    }
+
+    /**
+     * Holds a ticket for a specified screen's default show without booking it.
+     * Waits if no tickets are available for the show.
+     *
+     * @param screenNumber The screen from which to hold a ticket.
+     * @param timeToLive   How long the hold lasts unless it is confirmed or released.
+     * @param unit         The unit of the time to live.
+     * @return The hold, or null if no tickets are available.
+     */
+    public Hold holdTicket(int screenNumber, long timeToLive, TimeUnit unit) {
+        return holdTicket(screenNumber, ShowTimes.DEFAULT, timeToLive, unit);
+    }
+
+    /**
+     * Holds a ticket for a specified show without booking it, e.g. while the customer pays.
+     * Waits if no tickets are available for the show. The ticket goes back on sale for the show
+     * when the hold runs out, unless it was confirmed or released first.
+     *
+     * @param screenNumber The screen from which to hold a ticket.
+     * @param showTimeId   The id of the show time in {@link ShowTimes}.
+     * @param timeToLive   How long the hold lasts unless it is confirmed or released.
+     * @param unit         The unit of the time to live.
+     * @return The hold, or null if no tickets are available.
+     */
+    public Hold holdTicket(int screenNumber, int showTimeId, long timeToLive, TimeUnit unit) {
+        Show show = show(screenNumber, showTimeId);
+        Hold hold = new Hold(show);
+        if (take(show, hold) == null) {
+            return null;
+        }
+        dispatch(show); // Taking the ticket made room for a waiting offer
+        timeouts().schedule(hold, timeToLive, unit);
+        return hold;
+    }
+
+    /**
+     * Adds a batch of tickets to the pool for a specified screen, each under the show time on the ticket.
+     * Tickets are moved in as few queue operations as capacity allows, one run of tickets for the
+     * same show at a time, and the method waits only while a show is full.
+     *
+     * @param screenNumber The screen to which the tickets belong.
+     * @param tickets      The tickets to be added.
+     * @return The number of tickets added, which is less than the batch size only if interrupted.
+     * @throws IllegalArgumentException If a show can never take one of the tickets, such as a seat
+     *                                  outside its seat map; the tickets before it stay added.
+     */
+    @Override
+    public int addTickets(int screenNumber, Collection<Ticket> tickets) {
+        return addTickets(screenNumber, tickets, true);
+    }
+
+    /**
+     * Loads a show's inventory in bulk, e.g. seats read by an {@link InventoryLoader}. A show that
+     * does not exist yet is created with room for all of the tickets, so loading never waits for
+     * customers to make room; an existing show takes only as many as it has room for.
+     *
+     * @param screenNumber The screen of the show.
+     * @param showTimeId   The id of the show time in {@link ShowTimes}.
+     * @param tickets      The array holding the tickets, all for this show.
+     * @param offset       The index of the first ticket to load.
+     * @param length       The number of tickets to load.
+     * @return The number of tickets loaded, from the start of the range.
+     */
+    public int loadTickets(int screenNumber, int showTimeId, Ticket[] tickets, int offset, int length) {
+        if (length <= 0) {
+            return 0;
+        }
+        Show show = shows.get(key(screenNumber, showTimeId));
+        if (show == null) {
+            show = newShow(screenNumber, showTimeId, Math.max(capacity(screenNumber), length));
+        }
+        return addTickets(show, tickets, offset, length, false);
+    }
+
+    /**
+     * Adds as much of a batch of tickets as fits right now, each under the show time on the
+     * ticket, without waiting for room. Adding stops at the first show that is full, so the
+     * tickets added are always the start of the batch.
+     *
+     * @param screenNumber The screen to which the tickets belong.
+     * @param tickets      The tickets to be added.
+     * @return The number of tickets added from the start of the batch.
+     */
+    public int offerTickets(int screenNumber, Collection<Ticket> tickets) {
+        return addTickets(screenNumber, tickets, false);
+    }
 
-        // Wait if there are no tickets for this screen
-        while (screenTickets == null || screenTickets.isEmpty()) {
-            if (totalTicketsRemaining == 0) {
-                return null; // No tickets remaining
+    /**
+     * Adds a batch one run of tickets for the same show at a time, stopping at the first run not added in full.
+     */
+    private int addTickets(int screenNumber, Collection<Ticket> tickets, boolean waitForRoom) {
+        Ticket[] batch = tickets.toArray(new Ticket[0]);
+        int added = 0;
+        for (int from = 0; from < batch.length; ) {
+            int showTimeId = batch[from].getShowTimeId();
+            int to = from + 1;
+            while (to < batch.length && batch[to].getShowTimeId() == showTimeId) {
+                to++;
+            }
+            int count = addTickets(show(screenNumber, showTimeId), batch, from, to - from, waitForRoom);
+            added += count;
+            if (count < to - from) {
+                break; // Interrupted, or the show is full
             }
+            from = to;
+        }
+        return added;
+    }
+
+    /**
+     * Removes up to a given number of tickets from the pool for a specified screen's default show.
+     * Waits only if the show has no tickets at all, then takes as many as are available.
+     *
+     * @param screenNumber The screen from which to retrieve tickets.
+     * @param maxCount     The maximum number of tickets to retrieve.
+     * @param sink         The collection that receives the retrieved tickets.
+     * @return The number of tickets retrieved, or 0 if no tickets are available.
+     */
+    @Override
+    public int drainTickets(int screenNumber, int maxCount, Collection<Ticket> sink) {
+        return drainTickets(screenNumber, ShowTimes.DEFAULT, maxCount, sink);
+    }
+
+    /**
+     * Removes up to a given number of tickets from the pool for a specified show.
+     * Waits only if the show has no tickets at all, then takes as many as are available.
+     *
+     * @param screenNumber The screen from which to retrieve tickets.
+     * @param showTimeId   The id of the show time in {@link ShowTimes}.
+     * @param maxCount     The maximum number of tickets to retrieve.
+     * @param sink         The collection that receives the retrieved tickets.
+     * @return The number of tickets retrieved, or 0 if no tickets are available.
+     */
+    public int drainTickets(int screenNumber, int showTimeId, int maxCount, Collection<Ticket> sink) {
+        if (maxCount <= 0) {
+            return 0;
+        }
+        Show show = show(screenNumber, showTimeId);
+        BookingJournal journal = this.journal;
+        Consumer<Ticket> booking = booking(journal, events, sink);
+        int drained = drain(show, booking, maxCount);
+        if (drained == 0) {
+            long waitStart = System.nanoTime();
             try {
-                System.out.println("Screen " + screenNumber + " has no tickets. Customer waiting...");
-                wait(); // Wait until tickets are available
+                while ((drained = drain(show, booking, maxCount)) == 0) {
+                    if (!show.tickets.awaitTicket(show.giveUp, show.customerWaiting)) {
+                        return 0; // No tickets remaining
+                    }
+                }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
-                return null;
+                return 0;
             }
+            show.customerBlocked(waitStart);
         }
+        booked(show, drained, journal);
+        return drained;
+    }
 
-        // Retrieve the ticket, mark it as booked, and notify all
-        Ticket ticket = screenTickets.poll();
-        ticket.setStatus("Booked");
-        totalTicketsRemaining--;
+    /**
+     * Removes up to a given number of tickets that are available right now for a specified
+     * screen's default show, without waiting for more to be added.
+     *
+     * @param screenNumber The screen from which to retrieve tickets.
+     * @param maxCount     The maximum number of tickets to retrieve.
+     * @param sink         The collection that receives the retrieved tickets.
+     * @return The number of tickets retrieved, or 0 if the show has none.
+     */
+    public int pollTickets(int screenNumber, int maxCount, Collection<Ticket> sink) {
+        return pollTickets(screenNumber, ShowTimes.DEFAULT, maxCount, sink);
+    }
 
-        if (totalTicketsRemaining == 0) {
-            System.out.println("All tickets are sold out!");
+    /**
+     * Removes up to a given number of tickets that are available right now for a specified show,
+     * without waiting for more to be added.
+     *
+     * @param screenNumber The screen from which to retrieve tickets.
+     * @param showTimeId   The id of the show time in {@link ShowTimes}.
+     * @param maxCount     The maximum number of tickets to retrieve.
+     * @param sink         The collection that receives the retrieved tickets.
+     * @return The number of tickets retrieved, or 0 if the show has none.
+     */
+    public int pollTickets(int screenNumber, int showTimeId, int maxCount, Collection<Ticket> sink) {
+        if (maxCount <= 0) {
+            return 0;
+        }
+        Show show = show(screenNumber, showTimeId);
+        BookingJournal journal = this.journal;
+        int polled = drain(show, booking(journal, events, sink), maxCount);
+        if (polled > 0) {
+            booked(show, polled, journal);
         }
+        return polled;
+    }
 
-        notifyAll();
-        return ticket;
+    /**
+     * Books a block of adjacent seats in one row of a screen's default show, all or nothing,
+     * without waiting. The best block available is chosen: rows nearest the middle first, then
+     * the block nearest the centre of the row.
+     *
+     * @param screenNumber The screen from which to book.
+     * @param count        The number of adjacent seats to book.
+     * @param sink         The collection that receives the booked tickets, in seat order.
+     * @return The number of tickets booked: the count, or 0 if no block of that size is available.
+     * @throws UnsupportedOperationException If the show's tickets are not held in a seat map.
+     */
+    public int bookAdjacentTickets(int screenNumber, int count, Collection<Ticket> sink) {
+        return bookAdjacentTickets(screenNumber, ShowTimes.DEFAULT, count, sink);
     }
 
     /**
-     * Checks if all tickets in the pool are sold out.
+     * Books a block of adjacent seats in one row of a show, all or nothing, without waiting.
      *
-     * @return True if all tickets are sold out; false otherwise.
+     * @param screenNumber The screen from which to book.
+     * @param showTimeId   The id of the show time in {@link ShowTimes}.
+     * @param count        The number of adjacent seats to book.
+     * @param sink         The collection that receives the booked tickets, in seat order.
+     * @return The number of tickets booked: the count, or 0 if no block of that size is available.
+     * @throws UnsupportedOperationException If the show's tickets are not held in a seat map.
      */
-    public synchronized boolean areAllTicketsSold() {
-        return totalTicketsRemaining == 0;
+    public int bookAdjacentTickets(int screenNumber, int showTimeId, int count, Collection<Ticket> sink) {
+        if (count <= 0) {
+            return 0;
+        }
+        Show show = show(screenNumber, showTimeId);
+        BookingJournal journal = this.journal;
+        int booked;
+        long stamp = show.gate.readLock();
+        try {
+            booked = show.tickets.drainAdjacent(booking(journal, events, sink), count);
+            countBooked(show, booked);
+        } finally {
+            show.gate.unlockRead(stamp);
+        }
+        if (booked > 0) {
+            booked(show, booked, journal);
+        }
+        return booked;
     }
 
     /**
-     * Retrieves the number of remaining tickets for a specified screen.
+     * Removes a ticket for any show on whichever of several screens has one, for customers who
+     * will take a seat at any of them. Shows are probed without blocking, starting from a random
+     * one so concurrent customers spread out; the method waits only while every candidate is empty.
      *
-     * @param screenNumber The screen for which to check remaining tickets.
-     * @return The number of remaining tickets for the screen.
+     * @param screenNumbers The acceptable screens; none means any screen in the pool.
+     * @return The retrieved ticket, or null if no tickets are available.
+     */
+    public Ticket removeAnyTicket(int... screenNumbers) {
+        List<Ticket> ticket = new ArrayList<>(1);
+        return drainAnyTickets(screenNumbers, 1, ticket) == 0 ? null : ticket.get(0);
+    }
+
+    /**
+     * Removes up to a given number of tickets for any show on whichever of several screens have them.
+     * Shows are probed without blocking, starting from a random one and moving round-robin
+     * until the batch is full; the method waits only while every candidate is empty.
+     *
+     * The method gives up once every acceptable screen is {@link #isScreenSoldOut sold out}.
+     *
+     * @param screenNumbers The acceptable screens; an empty array means any screen the pool has
+     *                      seen, so name the screens when some may not have any show yet.
+     * @param maxCount      The maximum number of tickets to retrieve.
+     * @param sink          The collection that receives the retrieved tickets.
+     * @return The number of tickets retrieved, or 0 if no tickets are available.
+     */
+    @Override
+    public int drainAnyTickets(int[] screenNumbers, int maxCount, Collection<Ticket> sink) {
+        BooleanSupplier giveUp = screenNumbers == null || screenNumbers.length == 0
+                ? this::allKnownScreensSoldOut : () -> allScreensSoldOut(screenNumbers);
+        return drainFirstAvailable(() -> candidates(screenNumbers), true, giveUp, maxCount, sink);
+    }
+
+    /**
+     * Removes up to a given number of tickets for any show on whichever of several screens have
+     * them right now, without waiting for more to be added.
+     *
+     * @param screenNumbers The acceptable screens; an empty array means any screen in the pool.
+     * @param maxCount      The maximum number of tickets to retrieve.
+     * @param sink          The collection that receives the retrieved tickets.
+     * @return The number of tickets retrieved, or 0 if none of the screens has any.
+     */
+    public int pollAnyTickets(int[] screenNumbers, int maxCount, Collection<Ticket> sink) {
+        return maxCount <= 0 ? 0 : pollFirst(candidates(screenNumbers), true, maxCount, sink);
+    }
+
+    /**
+     * Removes up to a given number of tickets for the earliest show on a screen, starting at or
+     * after a time of day, that has any. Later shows fill the batch if the earliest runs out,
+     * and the method waits only while every such show is empty.
+     *
+     * @param screenNumber The screen from which to retrieve tickets.
+     * @param fromMinute   The earliest start to accept, in minutes after midnight.
+     * @param maxCount     The maximum number of tickets to retrieve.
+     * @param sink         The collection that receives the retrieved tickets.
+     * @return The number of tickets retrieved, or 0 if no tickets are available.
+     */
+    @Override
+    public int drainNextShowTickets(int screenNumber, int fromMinute, int maxCount, Collection<Ticket> sink) {
+        return drainFirstAvailable(() -> showsBetween(screenNumber, fromMinute, Integer.MAX_VALUE), false,
+                () -> isScreenSoldOut(screenNumber), maxCount, sink);
+    }
+
+    /**
+     * Finds the earliest show on a screen, starting at or after a time of day, that has tickets
+     * available right now.
+     *
+     * @param screenNumber The screen to search.
+     * @param fromMinute   The earliest start to accept, in minutes after midnight.
+     * @return The id of the show time in {@link ShowTimes}, or -1 if no such show has tickets.
+     */
+    public int nextShowWithTickets(int screenNumber, int fromMinute) {
+        Show[] screenShows = showsByScreen.get(screenNumber);
+        if (screenShows == null) {
+            return -1;
+        }
+        for (int i = firstStartingAt(screenShows, fromMinute); i < screenShows.length; i++) {
+            if (screenShows[i].tickets.size() > 0) {
+                return screenShows[i].showTimeId;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Retrieves every show on a screen.
+     *
+     * @param screenNumber The screen to list.
+     * @return The ids of the show times in {@link ShowTimes}, earliest first.
+     */
+    public int[] getShowTimes(int screenNumber) {
+        Show[] screenShows = showsByScreen.get(screenNumber);
+        if (screenShows == null) {
+            return new int[0];
+        }
+        int[] showTimeIds = new int[screenShows.length];
+        for (int i = 0; i < screenShows.length; i++) {
+            showTimeIds[i] = screenShows[i].showTimeId;
+        }
+        return showTimeIds;
+    }
+
+    /**
+     * Retrieves the shows on a screen that start within a range of times of day.
+     *
+     * @param screenNumber The screen to search.
+     * @param fromMinute   The start of the range in minutes after midnight, inclusive.
+     * @param toMinute     The end of the range in minutes after midnight, exclusive.
+     * @return The ids of the show times in {@link ShowTimes}, earliest first.
      */
-    public synchronized int getRemainingTickets(int screenNumber) {
-        Queue<Ticket> screenTickets = ticketsByScreen.get(screenNumber);
-        return screenTickets == null ? 0 : screenTickets.size();
+    public int[] getShowTimes(int screenNumber, int fromMinute, int toMinute) {
+        Show[] inRange = showsBetween(screenNumber, fromMinute, toMinute);
+        int[] showTimeIds = new int[inRange.length];
+        for (int i = 0; i < inRange.length; i++) {
+            showTimeIds[i] = inRange[i].showTimeId;
+        }
+        return showTimeIds;
+    }
+
+    /**
+     * Checks if all tickets in the pool are sold out.
+     *
+     * @return True if all tickets are sold out; false otherwise.
+     */
+    @Override
+    public boolean areAllTicketsSold() {
+        return totalTicketsRemaining.get() == 0;
+    }
+
+    /**
+     * Retrieves the number of remaining tickets for a specified screen, over all its shows.
+     *
+     * @param screenNumber The screen for which to check remaining tickets.
+     * @return The number of remaining tickets for the screen.
+     */
+    @Override
+    public int getRemainingTickets(int screenNumber) {
+        int remaining = 0;
+        Show[] screenShows = showsByScreen.get(screenNumber);
+        if (screenShows != null) {
+            for (Show show : screenShows) {
+                remaining += show.tickets.size();
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * Retrieves the number of remaining tickets for a specified show.
+     *
+     * @param screenNumber The screen of the show.
+     * @param showTimeId   The id of the show time in {@link ShowTimes}.
+     * @return The number of remaining tickets for the show.
+     */
+    public int getRemainingTickets(int screenNumber, int showTimeId) {
+        Show show = shows.get(key(screenNumber, showTimeId));
+        return show == null ? 0 : show.tickets.size();
+    }
+
+    /**
+     * Retrieves the number of tickets currently held for a specified screen, over all its shows.
+     *
+     * @param screenNumber The screen for which to count holds.
+     * @return The number of outstanding holds for the screen.
+     */
+    public int getHeldTickets(int screenNumber) {
+        int held = 0;
+        Show[] screenShows = showsByScreen.get(screenNumber);
+        if (screenShows != null) {
+            for (Show show : screenShows) {
+                held += show.holds.size();
+            }
+        }
+        return held;
+    }
+
+    /**
+     * Retrieves the number of tickets not yet sold, as tracked by the pool-wide counter.
+     *
+     * @return The remaining ticket count.
+     */
+    public int getTotalTicketsRemaining() {
+        return totalTicketsRemaining.get();
+    }
+
+    /**
+     * Retrieves the numbers of every screen the pool has seen.
+     *
+     * @return The screen numbers in ascending order.
+     */
+    public SortedSet<Integer> getScreenNumbers() {
+        SortedSet<Integer> screenNumbers = new TreeSet<>();
+        for (Show show : allShows) {
+            screenNumbers.add(show.screenNumber);
+        }
+        return screenNumbers;
+    }
+
+    /**
+     * Copies the unsold tickets of a screen without removing them, earliest show first.
+     * The copy of each show is a consistent cut where its storage allows; other shows keep selling.
+     * Copy inside {@link #whilePaused} for a cut that agrees with the counters and other screens.
+     * Tickets on hold are included as on sale, since holds do not outlive the pool.
+     *
+     * @param screenNumber The screen to copy.
+     * @return The screen's tickets, oldest first within each show, followed by the show's held tickets.
+     */
+    public List<Ticket> snapshotTickets(int screenNumber) {
+        List<Ticket> tickets = new ArrayList<>();
+        Show[] screenShows = showsByScreen.get(screenNumber);
+        if (screenShows != null) {
+            for (Show show : screenShows) {
+                show.tickets.forEach(tickets::add);
+                for (Hold hold : show.holds) {
+                    tickets.add(hold.ticket);
+                }
+            }
+        }
+        return tickets;
+    }
+
+    /**
+     * Retrieves the number of tickets ever added to a screen, over all its shows.
+     *
+     * @param screenNumber The screen number.
+     * @return The number of tickets added.
+     */
+    public long getTicketsAdded(int screenNumber) {
+        long added = 0;
+        Show[] screenShows = showsByScreen.get(screenNumber);
+        if (screenShows != null) {
+            for (Show show : screenShows) {
+                added += show.added.sum();
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Retrieves the number of tickets ever booked from a screen, over all its shows.
+     *
+     * @param screenNumber The screen number.
+     * @return The number of tickets booked.
+     */
+    public long getTicketsBooked(int screenNumber) {
+        long booked = 0;
+        Show[] screenShows = showsByScreen.get(screenNumber);
+        if (screenShows != null) {
+            for (Show show : screenShows) {
+                booked += show.booked.sum();
+            }
+        }
+        return booked;
+    }
+
+    /**
+     * Retrieves the number of tickets ever added to a specified show.
+     *
+     * @param screenNumber The screen of the show.
+     * @param showTimeId   The id of the show time in {@link ShowTimes}.
+     * @return The number of tickets added.
+     */
+    public long getTicketsAdded(int screenNumber, int showTimeId) {
+        Show show = shows.get(key(screenNumber, showTimeId));
+        return show == null ? 0 : show.added.sum();
+    }
+
+    /**
+     * Retrieves the number of tickets ever booked from a specified show.
+     *
+     * @param screenNumber The screen of the show.
+     * @param showTimeId   The id of the show time in {@link ShowTimes}.
+     * @return The number of tickets booked.
+     */
+    public long getTicketsBooked(int screenNumber, int showTimeId) {
+        Show show = shows.get(key(screenNumber, showTimeId));
+        return show == null ? 0 : show.booked.sum();
+    }
+
+    /**
+     * Overwrites the added and booked counters of a show, e.g. after restoring a snapshot,
+     * creating the show if it does not exist yet.
+     *
+     * @param screenNumber The screen of the show.
+     * @param showTimeId   The id of the show time in {@link ShowTimes}.
+     * @param added        The number of tickets added to set.
+     * @param booked       The number of tickets booked to set.
+     */
+    public void setShowCounters(int screenNumber, int showTimeId, long added, long booked) {
+        Show show = show(screenNumber, showTimeId);
+        show.added.reset();
+        show.added.add(added);
+        show.booked.reset();
+        show.booked.add(booked);
+    }
+
+    /**
+     * Adds a run of tickets for one show, waiting for room or stopping once the show is full.
+     * A ticket the show turns away for good is reported once the tickets before it are on sale.
+     */
+    private int addTickets(Show show, Ticket[] batch, int offset, int length, boolean waitForRoom) {
+        int added = 0;
+        Ticket rejected = null;
+
+        // Count the batch before customers can see it, so the total never drops to zero early
+        int announced = countAdded(length);
+        journal(BookingJournal.Type.ADD, batch, offset, length); // Durable before any ticket can be booked
+        long waitStart = 0;
+        try {
+            while (added < length) {
+                int offered = offerAll(show, batch, offset + added, length - added);
+                added += offered;
+                if (added < length) {
+                    if (!waitForRoom) {
+                        break;
+                    }
+                    if (offered > 0) {
+                        // Customers on several screens must hear of what fitted, or none may come to make room
+                        signalCrossScreenWaiters();
+                        dispatch(show);
+                    }
+                    if (waitStart == 0) {
+                        waitStart = System.nanoTime();
+                    }
+                    if (!show.tickets.awaitRoom(show.vendorWaiting)) { // Wait for space, then continue in bulk
+                        rejected = batch[offset + added]; // Waiting cannot make a place for this ticket
+                        break;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (waitStart != 0) {
+            show.vendorBlocked(waitStart);
+        }
+        if (added < length) {
+            uncount(length - added, announced);
+            journal(BookingJournal.Type.WITHDRAW, batch, offset + added, length - added);
+        }
+        if (added > 0) {
+            signalCrossScreenWaiters();
+            dispatch(show);
+            BookingEventPublisher events = this.events;
+            if (events != null && events.hasSubscribers()) {
+                for (int i = 0; i < added; i++) {
+                    events.publish(BookingEvent.Type.ADDED, batch[offset + i]);
+                }
+            }
+            EventLog.log(EventLog.Type.TICKETS_ADDED, show.screenNumber, added);
+        }
+        if (rejected != null) {
+            throw rejected(show, rejected);
+        }
+        return added;
+    }
+
+    /**
+     * Reports a ticket its show turns away for good, such as a seat outside the show's seat map.
+     */
+    private static IllegalArgumentException rejected(Show show, Ticket ticket) {
+        return new IllegalArgumentException(ticket.getSeatNumber() + " cannot be put on sale on screen " + show.screenNumber);
+    }
+
+    /**
+     * Takes a ticket from a show, waiting outside the show's gate while it is empty.
+     *
+     * @param hold The hold to put the ticket on, or null to count it as booked.
+     * @return The ticket, or null if the screen sold out or the wait was interrupted.
+     */
+    private Ticket take(Show show, Hold hold) {
+        Ticket ticket = claim(show, hold);
+        if (ticket == null) {
+            long waitStart = System.nanoTime();
+            try {
+                while ((ticket = claim(show, hold)) == null) {
+                    if (!show.tickets.awaitTicket(show.giveUp, show.customerWaiting)) {
+                        return null;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            show.customerBlocked(waitStart);
+        }
+        return ticket;
+    }
+
+    /**
+     * Takes a ticket from a show if it has one, putting it on hold or counting it as booked
+     * before the show's gate opens again.
+     *
+     * @param hold The hold to put the ticket on, or null to count it as booked.
+     * @return The ticket, or null if the show has none right now.
+     */
+    private Ticket claim(Show show, Hold hold) {
+        long stamp = show.gate.readLock();
+        try {
+            Ticket ticket = hold != null ? show.tickets.pollForHold() : show.tickets.poll();
+            if (ticket != null) {
+                if (hold != null) {
+                    hold.ticket = ticket;
+                    show.holds.add(hold);
+                } else {
+                    ticket.setStatus(TicketStatus.BOOKED);
+                    countBooked(show, 1);
+                }
+            }
+            return ticket;
+        } finally {
+            show.gate.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Puts a ticket on sale if its show has room, counting it as added before the gate opens again.
+     */
+    private boolean offer(Show show, Ticket ticket) {
+        long stamp = show.gate.readLock();
+        try {
+            if (!show.tickets.offer(ticket)) {
+                return false;
+            }
+            show.added.increment();
+            return true;
+        } finally {
+            show.gate.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Puts as much of a run of tickets on sale as its show has room for, counting them as added
+     * before the gate opens again.
+     */
+    private int offerAll(Show show, Ticket[] batch, int offset, int length) {
+        long stamp = show.gate.readLock();
+        try {
+            int added = show.tickets.offerAll(batch, offset, length);
+            show.added.add(added);
+            return added;
+        } finally {
+            show.gate.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Takes up to a given number of tickets from a show, counting them as booked before the gate opens again.
+     */
+    private int drain(Show show, Consumer<Ticket> booking, int maxCount) {
+        long stamp = show.gate.readLock();
+        try {
+            int drained = show.tickets.drainTo(booking, maxCount);
+            countBooked(show, drained);
+            return drained;
+        } finally {
+            show.gate.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Counts tickets that left a show as booked, under the show's gate. Reaching zero only marks
+     * the sell-out as pending, since waking customers must not happen under the gate.
+     */
+    private void countBooked(Show show, int count) {
+        if (count > 0) {
+            show.booked.add(count);
+            if (totalTicketsRemaining.addAndGet(-count) == 0) {
+                soldOutPending.set(true);
+            }
+        }
+    }
+
+    /**
+     * Completes a single booking once the show's gate is open again: makes it durable before it
+     * is handed out and detects a sell-out.
+     */
+    private void ticketBooked(Show show, Ticket ticket) {
+        journal(BookingJournal.Type.BOOK, ticket);
+        BookingEventPublisher events = this.events;
+        if (events != null) {
+            events.publish(BookingEvent.Type.BOOKED, ticket);
+        }
+        EventLog.log(EventLog.Type.TICKET_BOOKED, ticket);
+        checkSoldOut(show.screenNumber);
+    }
+
+    /**
+     * Signals a sell-out left pending by the last booking, or else checks the booking's screen.
+     */
+    private void checkSoldOut(int screenNumber) {
+        if (soldOutPending.get() && soldOutPending.getAndSet(false)) {
+            soldOut();
+        } else {
+            checkScreenSoldOut(screenNumber);
+        }
+    }
+
+    /**
+     * Puts a ticket whose hold ended back on sale for its show. This wakes only customers waiting
+     * for that show, or for any of several shows, instead of every customer in the pool.
+     */
+    private void returnToSale(Hold hold) {
+        Show show = hold.show;
+        if (unhold(hold)) {
+            signalCrossScreenWaiters();
+            dispatch(show);
+            return;
+        }
+        // A ring filled by vendors meanwhile cannot grow; try again next tick rather than tie up a thread waiting
+        timeouts().schedule(new ReturnToSale(hold), TIMEOUT_TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Moves a held ticket back on sale, over the show's capacity where its storage allows, since
+     * the ticket was counted against the show when it was added. The ticket stays among the holds
+     * until then, so it is never missing from both.
+     */
+    private boolean unhold(Hold hold) {
+        Show show = hold.show;
+        long stamp = show.gate.readLock();
+        try {
+            if (!show.tickets.offerBack(hold.ticket)) {
+                return false;
+            }
+            show.holds.remove(hold);
+            return true;
+        } finally {
+            show.gate.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Retrieves the timing wheel that expires holds and async waits, starting it on first use.
+     */
+    private TimingWheel timeouts() {
+        TimingWheel timeouts = this.timeouts;
+        if (timeouts == null) {
+            synchronized (this) {
+                timeouts = this.timeouts;
+                if (timeouts == null) {
+                    timeouts = new TimingWheel(TIMEOUT_TICK_MILLIS, TimeUnit.MILLISECONDS, TIMEOUT_WHEEL_BUCKETS, "Pool-Timeouts");
+                    this.timeouts = timeouts;
+                }
+            }
+        }
+        return timeouts;
+    }
+
+    /**
+     * Completes the bookkeeping of a ticket that went on sale and was counted: wakes customers
+     * waiting on several shows. The ticket was journaled before it went on sale.
+     */
+    private void added(Show show, Ticket ticket) {
+        signalCrossScreenWaiters();
+        BookingEventPublisher events = this.events;
+        if (events != null) {
+            events.publish(BookingEvent.Type.ADDED, ticket);
+        }
+        EventLog.log(EventLog.Type.TICKET_ADDED, ticket);
+    }
+
+    /**
+     * Uncounts and unjournals a ticket that was counted but never went on sale, detecting a sell-out.
+     */
+    private void ticketWithdrawn(Ticket ticket, boolean announced) {
+        uncount(1, announced ? 1 : 0);
+        journal(BookingJournal.Type.WITHDRAW, ticket);
+    }
+
+    /**
+     * Journals a record for a single ticket, waiting until it is durable.
+     */
+    private void journal(BookingJournal.Type type, Ticket ticket) {
+        BookingJournal journal = this.journal;
+        if (journal != null) {
+            journal.commit(journal.append(type, ticket));
+        }
+    }
+
+    /**
+     * Journals a record for each ticket of a run, waiting once until they are all durable.
+     */
+    private void journal(BookingJournal.Type type, Ticket[] batch, int offset, int length) {
+        BookingJournal journal = this.journal;
+        if (journal != null && length > 0) {
+            long sequence = 0;
+            for (int i = 0; i < length; i++) {
+                sequence = journal.append(type, batch[offset + i]);
+            }
+            journal.commit(sequence);
+        }
+    }
+
+    /**
+     * Counts tickets about to go on sale, first out of those announced by
+     * {@link #setTotalTickets(int)}, which the total already includes.
+     *
+     * @return How many of the tickets were announced.
+     */
+    private int countAdded(int count) {
+        while (true) {
+            int pending = unreleased.get();
+            int announced = Math.min(pending, count);
+            if (announced == 0 || unreleased.compareAndSet(pending, pending - announced)) {
+                if (announced < count) {
+                    totalTicketsRemaining.addAndGet(count - announced);
+                }
+                return announced;
+            }
+        }
+    }
+
+    /**
+     * Uncounts tickets that were counted but never went on sale. Announced tickets are still owed
+     * by their vendor, so they go back to being announced; the rest leave the total.
+     */
+    private void uncount(int count, int announced) {
+        int owed = Math.min(count, announced);
+        if (owed > 0) {
+            unreleased.addAndGet(owed);
+        }
+        if (owed < count && totalTicketsRemaining.addAndGet(owed - count) == 0) {
+            soldOut(); // Uncounting the tickets left out emptied the pool
+        }
+    }
+
+    /**
+     * Marks the pool sold out: logs it, completes the sell-out futures and wakes every waiting customer.
+     */
+    private void soldOut() {
+        EventLog.log(EventLog.Type.SOLD_OUT, 0, 0);
+        soldOut.complete(null);
+        wakeAllCustomers();
+        completions.forEach(completion -> completion.soldOut.complete(null));
+    }
+
+    /**
+     * Completes a screen's sell-out once its releases are finished and nothing is left on it,
+     * waking only the customers who wait on that screen.
+     */
+    private void checkScreenSoldOut(int screenNumber) {
+        ScreenCompletion completion = completions.get(screenNumber);
+        if (completion == null || !completion.released || completion.soldOut.isDone()) {
+            return;
+        }
+        Show[] screenShows = showsByScreen.get(screenNumber);
+        if (screenShows == null) {
+            return; // Its seats may be in a show that is not created yet, such as a mapped inventory's
+        }
+        for (Show show : screenShows) {
+            if (show.tickets.size() > 0 || !show.holds.isEmpty() || show.offerers.size > 0) {
+                return;
+            }
+        }
+        if (completion.soldOut.complete(null)) {
+            EventLog.log(EventLog.Type.SCREEN_SOLD_OUT, screenNumber, 0);
+            for (Show show : screenShows) {
+                show.tickets.wakeConsumers();
+                releaseAcquirers(show);
+            }
+            signalCrossScreenWaiters();
+        }
+    }
+
+    private synchronized ScreenCompletion completion(int screenNumber) {
+        ScreenCompletion completion = completions.get(screenNumber);
+        if (completion == null) {
+            completion = new ScreenCompletion();
+            completions.put(screenNumber, completion);
+        }
+        return completion;
+    }
+
+    /**
+     * Counts the tickets the pool holds: on sale, on hold or waiting to be added by an offer.
+     */
+    private long ticketsInPool() {
+        long count = 0;
+        for (Show show : allShows) {
+            count += show.tickets.size() + show.holds.size() + show.offerers.size;
+        }
+        return count;
+    }
+
+    /**
+     * Queues a waiter on one of a show's wait lists, arms its timeout and serves the show once,
+     * in case a ticket or room arrived while the waiter was queuing.
+     */
+    private void await(WaitList list, Waiter<?> waiter, long timeout, TimeUnit unit) {
+        Show show = waiter.show;
+        show.asyncLock.lock();
+        try {
+            list.add(waiter);
+        } finally {
+            show.asyncLock.unlock();
+        }
+        if (timeout >= 0) {
+            WaitTimeout waitTimeout = new WaitTimeout(waiter);
+            waiter.timeout = waitTimeout;
+            timeouts().schedule(waitTimeout, timeout, unit); // Armed once queued, so it always finds the waiter to time out
+        }
+        dispatch(show);
+    }
+
+    /**
+     * Serves a show's waiting futures: moves waiting offers into the show while it has room and
+     * hands its tickets to waiting requests, both in arrival order. Waiters are unlinked under
+     * the show's async lock and completed after it is released, so their callbacks never run
+     * under the lock. Costs two volatile reads when nobody is waiting.
+     */
+    private void dispatch(Show show) {
+        while (show.acquirers.size != 0 || show.offerers.size != 0) {
+            List<Waiter<?>> served = new ArrayList<>();
+            long stamp = show.gate.readLock();
+            show.asyncLock.lock();
+            try {
+                boolean progress = true;
+                while (progress) {
+                    progress = false;
+                    Waiter<?> offer;
+                    while ((offer = show.offerers.head) != null && show.tickets.offer(offer.ticket)) {
+                        show.offerers.remove(offer);
+                        show.added.increment();
+                        served.add(offer);
+                        progress = true;
+                    }
+                    Waiter<?> acquirer;
+                    while ((acquirer = show.acquirers.head) != null && (acquirer.ticket = show.tickets.poll()) != null) {
+                        show.acquirers.remove(acquirer);
+                        acquirer.ticket.setStatus(TicketStatus.BOOKED);
+                        countBooked(show, 1);
+                        served.add(acquirer);
+                        progress = true; // Taking a ticket may have made room for an offer
+                    }
+                }
+            } finally {
+                show.asyncLock.unlock();
+                show.gate.unlockRead(stamp);
+            }
+            if (served.isEmpty()) {
+                return;
+            }
+            for (Waiter<?> waiter : served) {
+                if (waiter.offering) {
+                    added(show, waiter.ticket);
+                } else {
+                    ticketBooked(show, waiter.ticket);
+                }
+                waiter.served();
+            }
+            // Serve again: bookings may have freed room, and waiters may have queued meanwhile
+        }
+    }
+
+    /**
+     * Completes every request waiting on a show with null once the pool has sold out.
+     */
+    private void releaseAcquirers(Show show) {
+        if (show.acquirers.size == 0) {
+            return;
+        }
+        List<Waiter<?>> released = new ArrayList<>();
+        show.asyncLock.lock();
+        try {
+            Waiter<?> acquirer;
+            while ((acquirer = show.acquirers.head) != null) {
+                show.acquirers.remove(acquirer);
+                released.add(acquirer);
+            }
+        } finally {
+            show.asyncLock.unlock();
+        }
+        for (Waiter<?> waiter : released) {
+            waiter.settle(null);
+        }
+    }
+
+    /**
+     * Creates the callback that marks each drained ticket as booked, journals it and publishes it.
+     */
+    private static Consumer<Ticket> booking(BookingJournal journal, BookingEventPublisher events, Collection<Ticket> sink) {
+        return ticket -> {
+            ticket.setStatus(TicketStatus.BOOKED);
+            if (journal != null) {
+                journal.append(BookingJournal.Type.BOOK, ticket);
+            }
+            if (events != null) {
+                events.publish(BookingEvent.Type.BOOKED, ticket);
+            }
+            sink.add(ticket);
+        };
+    }
+
+    /**
+     * Completes a batch of counted bookings once the show's gate is open again: makes them
+     * durable and detects a sell-out.
+     */
+    private void booked(Show show, int count, BookingJournal journal) {
+        if (journal != null) {
+            journal.sync(); // One wait covers the whole batch
+        }
+        EventLog.log(EventLog.Type.TICKETS_BOOKED, show.screenNumber, count);
+        checkSoldOut(show.screenNumber);
+        dispatch(show); // The batch made room for waiting offers
+    }
+
+    /**
+     * Takes tickets from the first candidate shows that have them, parking on the pool-wide
+     * condition only while every candidate is empty and the caller has not given up. Candidates
+     * are looked up again after each wait, since shows may have been created meanwhile.
+     */
+    private int drainFirstAvailable(Supplier<Show[]> candidates, boolean randomStart, BooleanSupplier giveUp,
+                                    int maxCount, Collection<Ticket> sink) {
+        if (maxCount <= 0) {
+            return 0;
+        }
+        int drained = pollFirst(candidates.get(), randomStart, maxCount, sink);
+        if (drained > 0 || giveUp.getAsBoolean()) {
+            return drained;
+        }
+
+        // Announce the wait before probing again under the lock, so a vendor adding a ticket
+        // either sees this customer waiting and signals it, or added before the probe that finds it
+        long waitStart = System.nanoTime();
+        crossScreenWaiters.incrementAndGet();
+        crossScreenLock.lock();
+        try {
+            while ((drained = pollFirst(candidates.get(), randomStart, maxCount, sink)) == 0 && !giveUp.getAsBoolean()) {
+                ticketsAvailable.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            crossScreenLock.unlock();
+            crossScreenWaiters.decrementAndGet();
+        }
+        PoolMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.crossScreenBlocked.record(System.nanoTime() - waitStart);
+        }
+        return drained;
+    }
+
+    /**
+     * Takes what is available right now from the candidates in order, starting at the first or a random one.
+     */
+    private int pollFirst(Show[] candidates, boolean randomStart, int maxCount, Collection<Ticket> sink) {
+        if (candidates.length == 0) {
+            return 0;
+        }
+        BookingJournal journal = this.journal;
+        Consumer<Ticket> booking = booking(journal, events, sink);
+        int start = randomStart ? ThreadLocalRandom.current().nextInt(candidates.length) : 0;
+        int drained = 0;
+        for (int i = 0; i < candidates.length && drained < maxCount; i++) {
+            Show show = candidates[(start + i) % candidates.length];
+            int polled = drain(show, booking, maxCount - drained);
+            if (polled > 0) {
+                booked(show, polled, journal);
+                drained += polled;
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Checks whether the pool has sold out, or every screen it has seen has.
+     */
+    private boolean allKnownScreensSoldOut() {
+        if (areAllTicketsSold()) {
+            return true;
+        }
+        Show[] known = allShows;
+        for (Show show : known) {
+            if (!isScreenSoldOut(show.screenNumber)) {
+                return false;
+            }
+        }
+        return known.length > 0;
+    }
+
+    private boolean allScreensSoldOut(int[] screenNumbers) {
+        for (int screenNumber : screenNumbers) {
+            if (!isScreenSoldOut(screenNumber)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Resolves the shows a cross-screen purchase may take from.
+     */
+    private Show[] candidates(int[] screenNumbers) {
+        if (screenNumbers == null || screenNumbers.length == 0) {
+            return allShows;
+        }
+        if (screenNumbers.length == 1) {
+            Show[] screenShows = showsByScreen.get(screenNumbers[0]);
+            return screenShows != null ? screenShows : new Show[0];
+        }
+        List<Show> candidates = new ArrayList<>();
+        for (int screenNumber : screenNumbers) {
+            Show[] screenShows = showsByScreen.get(screenNumber);
+            if (screenShows != null) {
+                candidates.addAll(Arrays.asList(screenShows));
+            }
+        }
+        return candidates.toArray(new Show[0]);
+    }
+
+    /**
+     * Retrieves the shows on a screen starting within a range of times of day, earliest first.
+     */
+    private Show[] showsBetween(int screenNumber, int fromMinute, int toMinute) {
+        Show[] screenShows = showsByScreen.get(screenNumber);
+        if (screenShows == null) {
+            return new Show[0];
+        }
+        int from = firstStartingAt(screenShows, fromMinute);
+        int to = Math.max(from, firstStartingAt(screenShows, toMinute));
+        return from == 0 && to == screenShows.length ? screenShows : Arrays.copyOfRange(screenShows, from, to);
+    }
+
+    /**
+     * Binary searches a screen's shows for the first one starting at or after a time of day.
+     */
+    private static int firstStartingAt(Show[] screenShows, int minute) {
+        int low = 0;
+        int high = screenShows.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ShowTimes.minuteOfDay(screenShows[middle].showTimeId) < minute) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Wakes customers parked on several shows after tickets were added. Costs one volatile
+     * read when nobody is waiting.
+     */
+    private void signalCrossScreenWaiters() {
+        if (crossScreenWaiters.get() > 0) {
+            crossScreenLock.lock();
+            try {
+                ticketsAvailable.signalAll(); // Waiters accept different shows, so wake them all
+            } finally {
+                crossScreenLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Retrieves the state of a show, creating it with its screen's capacity on first use.
+     */
+    private Show show(int screenNumber, int showTimeId) {
+        Show show = shows.get(key(screenNumber, showTimeId));
+        if (show == null) {
+            show = newShow(screenNumber, showTimeId, capacity(screenNumber));
+            checkScreenSoldOut(screenNumber); // A screen released before it had any show sells out once one exists
+        }
+        return show;
+    }
+
+    private int capacity(int screenNumber) {
+        Integer capacity = screenCapacities.get(screenNumber);
+        return capacity != null ? capacity : defaultCapacity;
+    }
+
+    /**
+     * Changes a show's capacity, collecting it so offers waiting for room can be dispatched
+     * once the pool's lock is released.
+     */
+    private static boolean resize(Show show, int capacity, List<Show> changed) {
+        if (!show.tickets.setCapacity(capacity)) {
+            return false;
+        }
+        changed.add(show);
+        return true;
+    }
+
+    /**
+     * Creates a show and adds it to every index, unless another thread created it first.
+     */
+    private synchronized Show newShow(int screenNumber, int showTimeId, int capacity) {
+        long key = key(screenNumber, showTimeId);
+        Show show = shows.get(key);
+        if (show != null) {
+            return show;
+        }
+        show = new Show(screenNumber, showTimeId, queueFactory.create(screenNumber, showTimeId, capacity),
+                () -> isScreenSoldOut(screenNumber));
+        if (metrics != null) {
+            show.instrument(metrics);
+        }
+        Show[] screenShows = showsByScreen.get(screenNumber);
+        screenShows = screenShows == null ? new Show[1] : Arrays.copyOf(screenShows, screenShows.length + 1);
+        screenShows[screenShows.length - 1] = show;
+        Arrays.sort(screenShows, BY_START);
+        showsByScreen.put(screenNumber, screenShows);
+        Show[] grown = Arrays.copyOf(allShows, allShows.length + 1);
+        grown[allShows.length] = show;
+        allShows = grown;
+        shows.put(key, show); // Publish last, so a show that can be found is in every index
+        return show;
+    }
+
+    /**
+     * Packs a screen number and a show-time id into the key of a show.
+     */
+    private static long key(int screenNumber, int showTimeId) {
+        return (long) screenNumber << 32 | (showTimeId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Wakes customers on every show so they can observe the sold-out state.
+     */
+    private void wakeAllCustomers() {
+        for (Show show : allShows) {
+            show.tickets.wakeConsumers();
+            releaseAcquirers(show);
+        }
+        signalCrossScreenWaiters();
+    }
+
+    /**
+     * A ticket reserved for one customer for a limited time. Confirming the hold books the ticket;
+     * releasing it, or letting it run out, puts the ticket back on sale for its show. Only the
+     * first of these takes effect.
+     */
+    public final class Hold extends TimingWheel.Timeout {
+        private final Show show;
+        private Ticket ticket; // Set under the show's gate as the ticket leaves the show
+
+        private Hold(Show show) {
+            this.show = show;
+        }
+
+        /**
+         * Retrieves the held ticket.
+         *
+         * @return The ticket, which is booked only once the hold is confirmed.
+         */
+        public Ticket getTicket() {
+            return ticket;
+        }
+
+        /**
+         * Books the held ticket, if the hold has not run out or been released.
+         *
+         * @return True if the ticket was booked; false if the hold had already ended.
+         */
+        public boolean confirm() {
+            if (!cancel()) {
+                return false;
+            }
+            long stamp = show.gate.readLock();
+            try {
+                show.holds.remove(this);
+                show.tickets.confirmHold(ticket);
+                ticket.setStatus(TicketStatus.BOOKED);
+                countBooked(show, 1);
+            } finally {
+                show.gate.unlockRead(stamp);
+            }
+            ticketBooked(show, ticket);
+            dispatch(show);
+            return true;
+        }
+
+        /**
+         * Gives up the held ticket, putting it back on sale at once, or as soon as a ring-buffer
+         * show that vendors have filled meanwhile has room.
+         *
+         * @return True if the ticket was put back on sale; false if the hold had already ended.
+         */
+        public boolean release() {
+            if (!cancel()) {
+                return false;
+            }
+            returnToSale(this);
+            return true;
+        }
+
+        @Override
+        protected void expired() {
+            EventLog.log(EventLog.Type.HOLD_EXPIRED, ticket);
+            returnToSale(this);
+        }
+    }
+
+    /**
+     * A customer or vendor waiting on a show without holding a thread, as the future handed to
+     * them. The waiter stays linked into one of the show's wait lists until it is served,
+     * cancelled or times out; whichever unlinks it first decides how it completes.
+     */
+    private final class Waiter<T> extends CompletableFuture<T> {
+        private final Show show;
+        private final boolean offering;
+        private boolean announced; // The offer's ticket was announced in the total; set before it is queued
+        private Ticket ticket; // The ticket offered, or the ticket acquired once served
+        private WaitList list; // Null while not linked; guarded by the show's async lock
+        private Waiter<?> previous;
+        private Waiter<?> next;
+        private volatile WaitTimeout timeout; // Null unless the wait is timed
+
+        private Waiter(Show show, Ticket offered) {
+            this.show = show;
+            this.offering = offered != null;
+            this.ticket = offered;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return withdraw() && super.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        public boolean complete(T value) {
+            return withdraw() && super.complete(value);
+        }
+
+        @Override
+        public boolean completeExceptionally(Throwable failure) {
+            return withdraw() && super.completeExceptionally(failure);
+        }
+
+        /**
+         * Completes the waiter once it has been served and unlinked, with the ticket it acquired.
+         */
+        @SuppressWarnings("unchecked")
+        private void served() {
+            settle(offering ? null : (T) ticket); // Only requests for tickets are Waiter<Ticket>
+        }
+
+        /**
+         * Completes the waiter once it has been unlinked, or before it was ever queued.
+         */
+        private void settle(T value) {
+            WaitTimeout timeout = this.timeout;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+            super.complete(value);
+        }
+
+        /**
+         * Unlinks the waiter if it has not been served yet, undoing a withdrawn offer's count.
+         *
+         * @return True if the waiter was withdrawn; false if it is being or has been served.
+         */
+        private boolean withdraw() {
+            show.asyncLock.lock();
+            try {
+                if (list == null) {
+                    return false;
+                }
+                list.remove(this);
+            } finally {
+                show.asyncLock.unlock();
+            }
+            WaitTimeout timeout = this.timeout;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+            if (offering) {
+                ticketWithdrawn(ticket, announced);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Whether a screen's releases are finished and when it sold out.
+     */
+    private static final class ScreenCompletion {
+        private final CompletableFuture<Void> soldOut = new CompletableFuture<>();
+        private volatile boolean released; // No more tickets will be added to the screen
+    }
+
+    /**
+     * Tries again to put a held ticket back on sale, once its show's storage had no room for it.
+     */
+    private final class ReturnToSale extends TimingWheel.Timeout {
+        private final Hold hold;
+
+        private ReturnToSale(Hold hold) {
+            this.hold = hold;
+        }
+
+        @Override
+        protected void expired() {
+            returnToSale(hold);
+        }
+    }
+
+    /**
+     * Fails a timed waiter that is still waiting when its time runs out.
+     */
+    private static final class WaitTimeout extends TimingWheel.Timeout {
+        private final Waiter<?> waiter;
+
+        private WaitTimeout(Waiter<?> waiter) {
+            this.waiter = waiter;
+        }
+
+        @Override
+        protected void expired() {
+            waiter.completeExceptionally(new TimeoutException(waiter.offering
+                    ? "Screen " + waiter.show.screenNumber + " stayed full"
+                    : "No ticket for screen " + waiter.show.screenNumber + " in time"));
+        }
+    }
+
+    /**
+     * A show's waiters in arrival order, as an intrusive doubly linked list so any waiter can
+     * be unlinked in constant time. Modified only under the show's async lock.
+     */
+    private static final class WaitList {
+        private Waiter<?> head;
+        private Waiter<?> tail;
+        private volatile int size; // Read without the lock to skip shows nobody waits on
+
+        private void add(Waiter<?> waiter) {
+            waiter.list = this;
+            waiter.previous = tail;
+            if (tail == null) {
+                head = waiter;
+            } else {
+                tail.next = waiter;
+            }
+            tail = waiter;
+            size = size + 1;
+        }
+
+        private void remove(Waiter<?> waiter) {
+            if (waiter.previous == null) {
+                head = waiter.next;
+            } else {
+                waiter.previous.next = waiter.next;
+            }
+            if (waiter.next == null) {
+                tail = waiter.previous;
+            } else {
+                waiter.next.previous = waiter.previous;
+            }
+            waiter.list = null;
+            waiter.previous = null;
+            waiter.next = null;
+            size = size - 1;
+        }
+    }
+
+    /**
+     * Creates the queue holding the tickets of one show.
+     */
+    @FunctionalInterface
+    public interface QueueFactory {
+        /**
+         * Creates the queue for a show.
+         *
+         * @param screenNumber The screen of the show.
+         * @param showTimeId   The id of the show time in {@link ShowTimes}.
+         * @param capacity     The maximum number of tickets the show holds at once.
+         * @return The new queue.
+         */
+        ScreenQueue create(int screenNumber, int showTimeId, int capacity);
+    }
+
+    /**
+     * Holds the tickets of a single show together with its counters, its holds, the futures
+     * waiting on it, its metrics and the events logged when callers wait on it. Shows on the same screen share the screen's metrics.
+     */
+    private static final class Show {
+        private final int screenNumber;
+        private final int showTimeId;
+        private final ScreenQueue tickets;
+        private final LongAdder added = new LongAdder();
+        private final LongAdder booked = new LongAdder();
+        private final Set<Hold> holds = ConcurrentHashMap.newKeySet();
+        private final StampedLock gate = new StampedLock(); // Shared while tickets and counters change together, exclusive while paused
+        private final ReentrantLock asyncLock = new ReentrantLock(); // Guards the wait lists
+        private final WaitList acquirers = new WaitList(); // Async requests waiting for a ticket
+        private final WaitList offerers = new WaitList(); // Async offers waiting for room
+        private final Runnable vendorWaiting;
+        private final Runnable customerWaiting;
+        private final BooleanSupplier giveUp; // Customers stop waiting once the screen or the pool is sold out
+        private volatile ScreenMetrics metrics; // Null until metrics are enabled
+
+        private Show(int screenNumber, int showTimeId, ScreenQueue tickets, BooleanSupplier giveUp) {
+            this.screenNumber = screenNumber;
+            this.showTimeId = showTimeId;
+            this.tickets = tickets;
+            this.giveUp = giveUp;
+            this.vendorWaiting = () -> EventLog.log(EventLog.Type.VENDOR_WAITING, screenNumber, 0);
+            this.customerWaiting = () -> EventLog.log(EventLog.Type.CUSTOMER_WAITING, screenNumber, 0);
+        }
+
+        private void instrument(PoolMetrics poolMetrics) {
+            ScreenMetrics screenMetrics = poolMetrics.addScreen(screenNumber);
+            tickets.setLockHoldTimes(screenMetrics.lockHold);
+            metrics = screenMetrics;
+        }
+
+        private void vendorBlocked(long waitStart) {
+            ScreenMetrics metrics = this.metrics;
+            if (metrics != null) {
+                metrics.vendorBlocked.record(System.nanoTime() - waitStart);
+            }
+        }
+
+        private void customerBlocked(long waitStart) {
+            ScreenMetrics metrics = this.metrics;
+            if (metrics != null) {
+                metrics.customerBlocked.record(System.nanoTime() - waitStart);
+            }
+        }
     }
 }
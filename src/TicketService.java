@@ -0,0 +1,76 @@
+import java.util.Collection;
+
+/**
+ * The ticket operations vendors and customers need, whether the screens live in a local
+ * {@link TicketPool} or are spread over several pool nodes behind a {@link ShardRouter}.
+ */
+public interface TicketService {
+    /**
+     * Adds a batch of tickets for a specified screen, each under the show time on the ticket.
+     * Waits while a show is full.
+     *
+     * @param screenNumber The screen to which the tickets belong.
+     * @param tickets      The tickets to be added.
+     * @return The number of tickets added, which is less than the batch size only if interrupted.
+     */
+    int addTickets(int screenNumber, Collection<Ticket> tickets);
+
+    /**
+     * Removes up to a given number of tickets for a specified screen's default show.
+     * Waits only if the show has no tickets at all.
+     *
+     * @param screenNumber The screen from which to retrieve tickets.
+     * @param maxCount     The maximum number of tickets to retrieve.
+     * @param sink         The collection that receives the retrieved tickets.
+     * @return The number of tickets retrieved, or 0 if no tickets are available.
+     */
+    int drainTickets(int screenNumber, int maxCount, Collection<Ticket> sink);
+
+    /**
+     * Removes up to a given number of tickets for any show on whichever of several screens have them.
+     * Waits only while every candidate is empty.
+     *
+     * @param screenNumbers The acceptable screens; an empty array means any screen.
+     * @param maxCount      The maximum number of tickets to retrieve.
+     * @param sink          The collection that receives the retrieved tickets.
+     * @return The number of tickets retrieved, or 0 if no tickets are available.
+     */
+    int drainAnyTickets(int[] screenNumbers, int maxCount, Collection<Ticket> sink);
+
+    /**
+     * Removes up to a given number of tickets for the earliest show on a screen, starting at or
+     * after a time of day, that has any. Waits only while every such show is empty.
+     *
+     * @param screenNumber The screen from which to retrieve tickets.
+     * @param fromMinute   The earliest start to accept, in minutes after midnight.
+     * @param maxCount     The maximum number of tickets to retrieve.
+     * @param sink         The collection that receives the retrieved tickets.
+     * @return The number of tickets retrieved, or 0 if no tickets are available.
+     */
+    int drainNextShowTickets(int screenNumber, int fromMinute, int maxCount, Collection<Ticket> sink);
+
+    /**
+     * Checks if all tickets are sold out.
+     *
+     * @return True if all tickets are sold out; false otherwise.
+     */
+    boolean areAllTicketsSold();
+
+    /**
+     * Declares that no more tickets will be added to a screen, so customers waiting only on it
+     * can stop once it is empty. Services that do not track screens ignore this; their customers
+     * stop when every ticket is sold.
+     *
+     * @param screenNumber The screen whose vendors have finished.
+     */
+    default void finishReleasing(int screenNumber) {
+    }
+
+    /**
+     * Retrieves the number of remaining tickets for a specified screen, over all its shows.
+     *
+     * @param screenNumber The screen for which to check remaining tickets.
+     * @return The number of remaining tickets for the screen.
+     */
+    int getRemainingTickets(int screenNumber);
+}
@@ -0,0 +1,66 @@
+/**
+ * The booking status of a ticket.
+ */
+public enum TicketStatus {
+    NOT_BOOKED("Not Booked"),
+    BOOKED("Booked");
+
+    private static final TicketStatus[] VALUES = values();
+
+    private final String label;
+
+    TicketStatus(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Retrieves the display label of this status.
+     *
+     * @return The label, e.g. "Booked".
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Looks up a status by its display label.
+     *
+     * @param label The label, e.g. "Not Booked".
+     * @return The matching status.
+     * @throws IllegalArgumentException If no status has the label.
+     */
+    public static TicketStatus fromLabel(String label) {
+        for (TicketStatus status : VALUES) {
+            if (status.label.equals(label)) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Unknown ticket status: " + label);
+    }
+
+    /**
+     * Looks up a status by its display label, falling back for labels no status has.
+     *
+     * @param label    The label, e.g. "Not Booked".
+     * @param fallback The status to use if no status has the label.
+     * @return The matching status, or the fallback.
+     */
+    public static TicketStatus fromLabel(String label, TicketStatus fallback) {
+        for (TicketStatus status : VALUES) {
+            if (status.label.equals(label)) {
+                return status;
+            }
+        }
+        return fallback;
+    }
+
+    /**
+     * Looks up a status by its ordinal, as stored in compact byte form.
+     *
+     * @param ordinal The ordinal.
+     * @return The matching status.
+     */
+    public static TicketStatus fromOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
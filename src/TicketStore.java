@@ -0,0 +1,144 @@
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A bounded FIFO queue of tickets for one screen, stored as parallel primitive arrays
+ * (struct of arrays) instead of one object per ticket.
+ * Tickets are broken into their fields when added and rebuilt as lightweight {@link Ticket}
+ * views when removed; every stored ticket takes the screen number of the store.
+ * Not thread-safe; callers such as {@link LockingScreenQueue} guard it with their own lock.
+ */
+public class TicketStore extends AbstractQueue<Ticket> {
+    private final int screenNumber;
+    private int[] seats;
+    private int[] showTimeIds;
+    private byte[] statuses;
+    private String[] seatLabels; // Allocated only once a seat without a "Seat-N" number is stored
+    private int head;
+    private int size;
+
+    /**
+     * Constructs an empty TicketStore.
+     *
+     * @param screenNumber The screen whose tickets are stored.
+     * @param capacity     The maximum number of tickets the store can hold.
+     */
+    public TicketStore(int screenNumber, int capacity) {
+        this.screenNumber = screenNumber;
+        this.seats = new int[capacity];
+        this.showTimeIds = new int[capacity];
+        this.statuses = new byte[capacity];
+    }
+
+    @Override
+    public boolean offer(Ticket ticket) {
+        if (size == seats.length) {
+            return false;
+        }
+        int index = index(size);
+        seats[index] = ticket.getSeat();
+        showTimeIds[index] = ticket.getShowTimeId();
+        statuses[index] = (byte) ticket.getTicketStatus().ordinal();
+        if (ticket.getSeatLabel() != null || seatLabels != null) {
+            if (seatLabels == null) {
+                seatLabels = new String[seats.length];
+            }
+            seatLabels[index] = ticket.getSeatLabel();
+        }
+        size++;
+        return true;
+    }
+
+    @Override
+    public Ticket poll() {
+        if (size == 0) {
+            return null;
+        }
+        Ticket ticket = view(head);
+        if (seatLabels != null) {
+            seatLabels[head] = null;
+        }
+        head = index(1);
+        size--;
+        return ticket;
+    }
+
+    /**
+     * Grows the store so it can hold at least the given number of tickets, keeping their order.
+     * The store never shrinks.
+     *
+     * @param capacity The number of tickets the store must be able to hold.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= seats.length) {
+            return;
+        }
+        int[] grownSeats = new int[capacity];
+        int[] grownShowTimeIds = new int[capacity];
+        byte[] grownStatuses = new byte[capacity];
+        String[] grownLabels = seatLabels == null ? null : new String[capacity];
+        for (int offset = 0; offset < size; offset++) {
+            int index = index(offset);
+            grownSeats[offset] = seats[index];
+            grownShowTimeIds[offset] = showTimeIds[index];
+            grownStatuses[offset] = statuses[index];
+            if (grownLabels != null) {
+                grownLabels[offset] = seatLabels[index];
+            }
+        }
+        seats = grownSeats;
+        showTimeIds = grownShowTimeIds;
+        statuses = grownStatuses;
+        seatLabels = grownLabels;
+        head = 0;
+    }
+
+    @Override
+    public Ticket peek() {
+        return size == 0 ? null : view(head);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Iterates over copies of the stored tickets, oldest first.
+     *
+     * @return An iterator that does not support removal.
+     */
+    @Override
+    public Iterator<Ticket> iterator() {
+        return new Iterator<>() {
+            private int offset;
+
+            @Override
+            public boolean hasNext() {
+                return offset < size;
+            }
+
+            @Override
+            public Ticket next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return view(index(offset++));
+            }
+        };
+    }
+
+    private Ticket view(int index) {
+        Ticket ticket = new Ticket(screenNumber, seats[index], showTimeIds[index], TicketStatus.fromOrdinal(statuses[index]));
+        if (seatLabels != null && seatLabels[index] != null) {
+            ticket.setSeatNumber(seatLabels[index]);
+        }
+        return ticket;
+    }
+
+    private int index(int offset) {
+        int index = head + offset;
+        return index >= seats.length ? index - seats.length : index;
+    }
+}
@@ -0,0 +1,220 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hashed timing wheel that expires large numbers of timeouts for O(1) each to schedule and
+ * cancel, instead of one scheduled task per timeout. Time is cut into ticks, and a timeout waits
+ * in the bucket of the tick it falls due in; one longer than a turn of the wheel also counts the
+ * turns it still has to wait. A single thread visits one bucket per tick.
+ *
+ * <p>Scheduling pushes the timeout onto a lock-free stack that the wheel thread empties each tick,
+ * and cancelling only flips the timeout's state, so neither waits for the wheel thread. Cancelled
+ * timeouts are dropped when the wheel reaches their bucket. Timeouts fire up to one tick late, never
+ * early, and the thread parks while the wheel is empty.
+ */
+public class TimingWheel implements AutoCloseable {
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+    private static final VarHandle STATE;
+
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(Timeout.class, "state", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final long tickNanos;
+    private final Timeout[] buckets; // Each bucket is a singly linked list, touched only by the wheel thread
+    private final int mask;
+    private final AtomicReference<Timeout> scheduled = new AtomicReference<>(); // Stack of timeouts not yet in a bucket
+    private final Thread thread;
+    private volatile boolean idle;
+    private volatile boolean closed;
+
+    // Owned by the wheel thread
+    private long startNanos;
+    private long tick;
+    private int pending;
+
+    /**
+     * Constructs a TimingWheel and starts its thread.
+     *
+     * @param tickDuration The length of a tick, which is also how late a timeout may fire.
+     * @param unit         The unit of the tick duration.
+     * @param bucketCount  The number of buckets, rounded up to a power of two; one turn of the
+     *                     wheel lasts this many ticks.
+     * @param threadName   The name of the wheel thread.
+     * @throws IllegalArgumentException If the tick duration or the bucket count is not positive.
+     */
+    public TimingWheel(long tickDuration, TimeUnit unit, int bucketCount, String threadName) {
+        if (tickDuration <= 0 || bucketCount <= 0 || bucketCount > 1 << 30) {
+            throw new IllegalArgumentException("A timing wheel needs a positive tick and between 1 and 2^30 buckets");
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        int size = 1;
+        while (size < bucketCount) {
+            size <<= 1;
+        }
+        this.buckets = new Timeout[size];
+        this.mask = buckets.length - 1;
+        this.startNanos = System.nanoTime();
+        this.thread = new Thread(this::run, threadName);
+        thread.setDaemon(true); // Outstanding timeouts never keep the program alive
+        thread.start();
+    }
+
+    /**
+     * Schedules a timeout to fire after a delay.
+     *
+     * @param timeout The timeout, which must not have been scheduled before.
+     * @param delay   The delay, measured from now.
+     * @param unit    The unit of the delay.
+     * @throws IllegalStateException If the timeout was already scheduled or the wheel is closed.
+     */
+    public void schedule(Timeout timeout, long delay, TimeUnit unit) {
+        if (closed) {
+            throw new IllegalStateException("Timing wheel is closed");
+        }
+        if (timeout.deadline != Long.MIN_VALUE) {
+            throw new IllegalStateException("Timeout is already scheduled");
+        }
+        timeout.deadline = System.nanoTime() + Math.max(0, unit.toNanos(delay));
+        Timeout head;
+        do {
+            head = scheduled.get();
+            timeout.next = head;
+        } while (!scheduled.compareAndSet(head, timeout));
+        if (idle) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Stops the wheel thread. Timeouts that have not fired by then never will.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+    }
+
+    private void run() {
+        while (!closed) {
+            long due = startNanos + (tick + 1) * tickNanos;
+            long delay;
+            while ((delay = due - System.nanoTime()) > 0 && !closed) {
+                LockSupport.parkNanos(this, delay);
+            }
+            moveScheduled();
+            expire((int) (tick++ & mask));
+            if (pending == 0) {
+                awaitSchedule();
+            }
+        }
+    }
+
+    /**
+     * Parks until a timeout is scheduled, then restarts the tick count from now so the empty
+     * ticks that passed meanwhile are never visited.
+     */
+    private void awaitSchedule() {
+        idle = true; // Announce before checking, so a scheduler either sees this or its push is seen
+        while (scheduled.get() == null && !closed) {
+            LockSupport.park(this);
+        }
+        idle = false;
+        startNanos = System.nanoTime() - tick * tickNanos;
+    }
+
+    /**
+     * Moves the newly scheduled timeouts into the buckets of the ticks they fall due in.
+     */
+    private void moveScheduled() {
+        Timeout timeout = scheduled.getAndSet(null);
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.isPending()) {
+                // The first tick to end at or after the deadline, but never one already visited
+                long dueTick = Math.max(tick, Math.floorDiv(timeout.deadline - startNanos + tickNanos - 1, tickNanos) - 1);
+                timeout.remainingTurns = (dueTick - tick) / buckets.length;
+                int bucket = (int) (dueTick & mask);
+                timeout.next = buckets[bucket];
+                buckets[bucket] = timeout;
+                pending++;
+            }
+            timeout = next;
+        }
+    }
+
+    /**
+     * Fires the due timeouts of a bucket, drops the cancelled ones and counts down the rest.
+     */
+    private void expire(int bucket) {
+        Timeout previous = null;
+        Timeout timeout = buckets[bucket];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.isPending() && timeout.remainingTurns-- > 0) {
+                previous = timeout; // Due on a later turn of the wheel
+            } else {
+                if (previous == null) {
+                    buckets[bucket] = next;
+                } else {
+                    previous.next = next;
+                }
+                timeout.next = null;
+                pending--;
+                if (STATE.compareAndSet(timeout, PENDING, EXPIRED)) {
+                    try {
+                        timeout.expired();
+                    } catch (RuntimeException e) {
+                        System.err.println("Timeout failed to expire: " + e); // One failure must not stop the wheel
+                    }
+                }
+            }
+            timeout = next;
+        }
+    }
+
+    /**
+     * Something that happens when time runs out unless it is cancelled first. Subclasses carry
+     * the data, so a timeout costs a single object, and decide what cancelling means to their
+     * callers. Exactly one of cancelling and expiring wins.
+     */
+    public abstract static class Timeout {
+        private volatile int state = PENDING;
+        private long deadline = Long.MIN_VALUE; // Set when scheduled
+        private long remainingTurns; // Owned by the wheel thread
+        private Timeout next; // The next timeout in the scheduled stack, then in the bucket
+
+        /**
+         * Checks if the timeout has neither fired nor been cancelled.
+         *
+         * @return True if the timeout is still pending; false otherwise.
+         */
+        public boolean isPending() {
+            return state == PENDING;
+        }
+
+        /**
+         * Cancels the timeout if it has not fired yet.
+         *
+         * @return True if this call cancelled the timeout; false if it had already fired or been cancelled.
+         */
+        protected final boolean cancel() {
+            return STATE.compareAndSet(this, PENDING, CANCELLED);
+        }
+
+        /**
+         * Runs on the wheel thread when the timeout fires. It should be quick and must not block,
+         * since every other timeout waits for it.
+         */
+        protected abstract void expired();
+    }
+}
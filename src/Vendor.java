@@ -1,58 +1,100 @@
-import java.util.concurrent.CountDownLatch;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Represents a vendor responsible for adding tickets to the ticket pool.
  * Operates as a runnable to allow concurrent execution.
  */
 public class Vendor implements Runnable {
-    private final TicketPool ticketPool;
+    private final TicketService ticketPool;
     private final int screenNumber;
     private final int ticketsToAdd;
-    private final int releaseRate;
-    private final CountDownLatch latch; // Synchronizes with customers
+    private final RateLimiter releaseLimiter; // Paces releases evenly at the release rate
+    private int ticketsAlreadyAdded; // Tickets released before a restart, recovered from the journal
+    private int[] showTimeIds = {ShowTimes.DEFAULT}; // Tickets are dealt to these shows in turn
     private volatile boolean running = true;
 
     /**
      * Constructs a Vendor instance.
      *
-     * @param ticketPool   The ticket pool to which tickets will be added.
+     * @param ticketPool   The ticket pool to which tickets will be added, local or sharded.
      * @param screenNumber The screen for which tickets are being added.
      * @param ticketsToAdd The total number of tickets to add.
-     * @param releaseRate  The number of tickets to release per second.
-     * @param latch        A latch to signal when the vendor has finished adding tickets.
+     * @param releaseRate  The number of tickets to release per second; may be fractional.
      */
-    public Vendor(TicketPool ticketPool, int screenNumber, int ticketsToAdd, int releaseRate, CountDownLatch latch) {
+    public Vendor(TicketService ticketPool, int screenNumber, int ticketsToAdd, double releaseRate) {
+        this(ticketPool, screenNumber, ticketsToAdd, new RateLimiter(releaseRate));
+    }
+
+    /**
+     * Constructs a Vendor instance whose releases are paced by an existing rate limiter.
+     *
+     * @param ticketPool     The ticket pool to which tickets will be added, local or sharded.
+     * @param screenNumber   The screen for which tickets are being added.
+     * @param ticketsToAdd   The total number of tickets to add.
+     * @param releaseLimiter The rate limiter that paces ticket releases.
+     */
+    public Vendor(TicketService ticketPool, int screenNumber, int ticketsToAdd, RateLimiter releaseLimiter) {
         this.ticketPool = ticketPool;
         this.screenNumber = screenNumber;
         this.ticketsToAdd = ticketsToAdd;
-        this.releaseRate = releaseRate;
-        this.latch = latch;
+        this.releaseLimiter = releaseLimiter;
+    }
+
+    /**
+     * Sets how many of this vendor's tickets were already released before a restart,
+     * so the vendor releases only the rest and continues the seat numbering.
+     * Call before the vendor starts.
+     *
+     * @param ticketsAlreadyAdded The number of tickets already released.
+     */
+    public void setTicketsAlreadyAdded(int ticketsAlreadyAdded) {
+        this.ticketsAlreadyAdded = ticketsAlreadyAdded;
+    }
+
+    /**
+     * Sets the shows this vendor releases tickets for. The vendor's tickets are dealt to the shows
+     * in turn, so each show gets an even share with its own seat numbers.
+     * Call before the vendor starts.
+     *
+     * @param showTimeIds The ids of the show times in {@link ShowTimes}.
+     */
+    public void setShowTimes(int... showTimeIds) {
+        if (showTimeIds.length == 0) {
+            throw new IllegalArgumentException("A vendor needs at least one show time");
+        }
+        this.showTimeIds = showTimeIds.clone();
     }
 
     @Override
     public void run() {
+        int ticketsAdded = ticketsAlreadyAdded;
         try {
-            int ticketsAdded = 0;
+            List<Ticket> batch = new ArrayList<>(Math.min(releaseLimiter.batchSize(), ticketsToAdd));
 
             while (running && ticketsAdded < ticketsToAdd && !ticketPool.areAllTicketsSold()) {
-                // Add tickets in batches based on the release rate
-                for (int i = 0; i < releaseRate && ticketsAdded < ticketsToAdd; i++) {
-                    if (!running || ticketPool.areAllTicketsSold()) {
-                        break;
+                // Release small batches spread evenly over time at the release rate
+                int batchSize = Math.min(releaseLimiter.batchSize(), ticketsToAdd - ticketsAdded);
+                releaseLimiter.acquire(batchSize);
+                batch.clear();
+                int shows = showTimeIds.length;
+                for (int show = 0; show < shows; show++) {
+                    // Group the batch by show, so each show's tickets are added in one run
+                    for (int ticket = ticketsAdded; ticket < ticketsAdded + batchSize; ticket++) {
+                        if (ticket % shows == show) {
+                            batch.add(new Ticket(screenNumber, ticket / shows + 1, showTimeIds[show], TicketStatus.NOT_BOOKED));
+                        }
                     }
-
-                    Ticket ticket = new Ticket(screenNumber, "Seat-" + (ticketsAdded + 1), "10:00 AM", "Not Booked");
-                    ticketPool.addTicket(screenNumber, ticket);
-                    ticketsAdded++;
                 }
 
-                // Simulate delay between releasing ticket batches
-                Thread.sleep(1000);
+                ticketsAdded += ticketPool.addTickets(screenNumber, batch);
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         } finally {
-            latch.countDown(); // Ensure latch is decremented regardless of success or interruption
+            if (ticketsAdded >= ticketsToAdd) {
+                ticketPool.finishReleasing(screenNumber); // Lets the screen sell out once its last tickets go
+            }
         }
     }
 
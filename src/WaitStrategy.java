@@ -0,0 +1,74 @@
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Describes how a thread idles while a lock-free queue is full or empty.
+ * Strategies trade CPU usage against the latency of noticing that the queue changed.
+ */
+public enum WaitStrategy {
+    /**
+     * Busy-spins on the CPU. Lowest latency, but keeps a core fully busy while waiting.
+     */
+    SPIN {
+        @Override
+        protected void pause(int attempt) {
+            Thread.onSpinWait();
+        }
+    },
+
+    /**
+     * Spins briefly, then yields the processor to other runnable threads.
+     */
+    YIELD {
+        @Override
+        protected void pause(int attempt) {
+            if (attempt < SPIN_ATTEMPTS) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    },
+
+    /**
+     * Spins, yields, then parks for exponentially growing periods up to {@link #MAX_PARK_NANOS}.
+     * Uses the least CPU and suits long waits.
+     */
+    PARK {
+        @Override
+        protected void pause(int attempt) {
+            if (attempt < SPIN_ATTEMPTS) {
+                Thread.onSpinWait();
+            } else if (attempt < SPIN_ATTEMPTS + YIELD_ATTEMPTS) {
+                Thread.yield();
+            } else {
+                int shift = Math.min(attempt - SPIN_ATTEMPTS - YIELD_ATTEMPTS, 20);
+                LockSupport.parkNanos(Math.min(MIN_PARK_NANOS << shift, MAX_PARK_NANOS));
+            }
+        }
+    };
+
+    private static final int SPIN_ATTEMPTS = 100;
+    private static final int YIELD_ATTEMPTS = 50;
+    private static final long MIN_PARK_NANOS = 1_000L;
+    private static final long MAX_PARK_NANOS = 1_000_000L;
+
+    /**
+     * Idles once.
+     *
+     * @param attempt The number of consecutive unsuccessful attempts so far, starting at 0.
+     * @throws InterruptedException If the waiting thread has been interrupted.
+     */
+    public void idle(int attempt) throws InterruptedException {
+        pause(attempt);
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Performs the strategy-specific pause.
+     *
+     * @param attempt The number of consecutive unsuccessful attempts so far.
+     */
+    protected abstract void pause(int attempt);
+}
@@ -0,0 +1,101 @@
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the future-based acquire and offer calls: ordering, timeouts and cancellation.
+ */
+class AsyncTicketTest {
+    @BeforeAll
+    static void silenceLog() {
+        Configuration config = new Configuration(100, 10, 10, 50, 1);
+        config.setLogLevel(LogLevel.OFF);
+        EventLog.configure(config);
+    }
+
+    @Test
+    void waitingAcquirersAreServedInArrivalOrder() throws Exception {
+        TicketPool pool = new TicketPool(10);
+        pool.setTotalTickets(2);
+        CompletableFuture<Ticket> first = pool.acquireAsync(1);
+        CompletableFuture<Ticket> second = pool.acquireAsync(1);
+        assertFalse(first.isDone());
+
+        pool.addTicket(1, ticket(1));
+        assertEquals(1, first.get(5, TimeUnit.SECONDS).getSeat());
+        assertFalse(second.isDone());
+        pool.addTicket(1, ticket(2));
+        assertEquals(2, second.get(5, TimeUnit.SECONDS).getSeat());
+        assertEquals(2, pool.getTicketsBooked(1));
+    }
+
+    @Test
+    void timedOutAcquireLeavesLaterTicketsOnSale() throws Exception {
+        TicketPool pool = new TicketPool(10);
+        pool.setTotalTickets(5);
+        CompletableFuture<Ticket> acquire = pool.acquireAsync(1, ShowTimes.DEFAULT, 50, TimeUnit.MILLISECONDS);
+        assertTimedOut(acquire);
+
+        pool.addTicket(1, ticket(1));
+        assertEquals(1, pool.getRemainingTickets(1));
+        assertEquals(0, pool.getTicketsBooked(1));
+    }
+
+    @Test
+    void cancelledAcquireIsWithdrawn() {
+        TicketPool pool = new TicketPool(10);
+        pool.setTotalTickets(5);
+        CompletableFuture<Ticket> acquire = pool.acquireAsync(1);
+        assertTrue(acquire.cancel(false));
+
+        pool.addTicket(1, ticket(1));
+        assertEquals(1, pool.getRemainingTickets(1));
+    }
+
+    @Test
+    void acquireCompletesWithNullOnceSoldOut() throws Exception {
+        TicketPool pool = new TicketPool(10);
+        pool.setTotalTickets(1);
+        pool.addTicket(1, ticket(1));
+        assertEquals(1, pool.acquireAsync(1).get(5, TimeUnit.SECONDS).getSeat());
+        assertNull(pool.acquireAsync(1).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void offerWaitsForRoomAndTimedOutOfferIsWithdrawn() throws Exception {
+        TicketPool pool = new TicketPool(1);
+        pool.setTotalTickets(5);
+        pool.offerAsync(1, ticket(1)).get(5, TimeUnit.SECONDS);
+        CompletableFuture<Void> waiting = pool.offerAsync(1, ticket(2));
+        CompletableFuture<Void> timed = pool.offerAsync(1, ticket(3), 50, TimeUnit.MILLISECONDS);
+        assertTimedOut(timed);
+        assertFalse(waiting.isDone());
+
+        // Booking the ticket on sale makes room for the offer that is still waiting, not the withdrawn one
+        assertEquals(1, pool.removeTicket(1).getSeat());
+        waiting.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(2), pool.snapshotTickets(1).stream().map(Ticket::getSeat).toList());
+        assertEquals(2, pool.getTicketsAdded(1));
+    }
+
+    private static void assertTimedOut(CompletableFuture<?> future) {
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, failure.getCause());
+    }
+
+    private static Ticket ticket(int seat) {
+        return new Ticket(1, seat, ShowTimes.DEFAULT, TicketStatus.NOT_BOOKED);
+    }
+}
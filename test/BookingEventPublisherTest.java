@@ -0,0 +1,136 @@
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests how the booking event publisher treats subscribers that fall behind.
+ */
+class BookingEventPublisherTest {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void dropPolicyKeepsTheFirstEventsThatFitAndCountsTheRest() throws Exception {
+        BookingEventPublisher publisher = new BookingEventPublisher(64, executor);
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder, BookingEventPublisher.OverflowPolicy.DROP, 2);
+        recorder.awaitSubscribed();
+
+        publishSeats(publisher, 5);
+        await(() -> publisher.getDroppedCount() == 3);
+        recorder.subscription.request(10);
+        await(() -> recorder.seats().size() == 2);
+        publisher.close();
+
+        assertTrue(recorder.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1, 2), recorder.seats());
+    }
+
+    @Test
+    void blockPolicyDeliversEveryEventInOrder() throws Exception {
+        BookingEventPublisher publisher = new BookingEventPublisher(64, executor);
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder, BookingEventPublisher.OverflowPolicy.BLOCK, 2);
+        recorder.awaitSubscribed();
+
+        publishSeats(publisher, 20); // The dispatcher waits for room after the first two
+        Thread.sleep(50);
+        assertEquals(0, publisher.getDroppedCount());
+        recorder.subscription.request(Long.MAX_VALUE);
+        await(() -> recorder.seats().size() == 20);
+        publisher.close();
+
+        assertTrue(recorder.completed.await(5, TimeUnit.SECONDS));
+        List<Integer> expected = new ArrayList<>();
+        for (int seat = 1; seat <= 20; seat++) {
+            expected.add(seat);
+        }
+        assertEquals(expected, recorder.seats());
+        assertEquals(0, publisher.getDroppedCount());
+    }
+
+    @Test
+    void blockedSubscriberNeverHoldsUpThePublishingThread() throws Exception {
+        BookingEventPublisher publisher = new BookingEventPublisher(2, executor);
+        Recorder recorder = new Recorder();
+        publisher.subscribe(recorder, BookingEventPublisher.OverflowPolicy.BLOCK, 1);
+        recorder.awaitSubscribed();
+
+        // The dispatcher is stuck on the subscriber, so the source fills and drops the rest
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> publishSeats(publisher, 100));
+        assertTrue(publisher.getDroppedCount() > 0);
+        recorder.subscription.request(Long.MAX_VALUE);
+        await(() -> recorder.seats().size() + publisher.getDroppedCount() == 100);
+        publisher.close();
+        assertTrue(recorder.completed.await(5, TimeUnit.SECONDS));
+    }
+
+    private static void publishSeats(BookingEventPublisher publisher, int count) {
+        for (int seat = 1; seat <= count; seat++) {
+            publisher.publish(BookingEvent.Type.ADDED, new Ticket(1, seat, ShowTimes.DEFAULT, TicketStatus.NOT_BOOKED));
+        }
+    }
+
+    private static void await(BooleanSupplier condition) {
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            while (!condition.getAsBoolean()) {
+                Thread.sleep(1);
+            }
+        });
+    }
+
+    /**
+     * Records the seats of the events it receives, requesting only when told to.
+     */
+    private static final class Recorder implements Flow.Subscriber<BookingEvent> {
+        private final List<Integer> seats = new ArrayList<>();
+        private final CountDownLatch subscribed = new CountDownLatch(1);
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscribed.countDown();
+        }
+
+        @Override
+        public synchronized void onNext(BookingEvent event) {
+            seats.add(event.getTicket().getSeat());
+        }
+
+        @Override
+        public void onError(Throwable failure) {
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+
+        synchronized List<Integer> seats() {
+            return new ArrayList<>(seats);
+        }
+
+        void awaitSubscribed() throws InterruptedException {
+            assertTrue(subscribed.await(5, TimeUnit.SECONDS));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that a booking journal replays a previous run's sales into a new pool.
+ */
+class BookingJournalTest {
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void silenceLog() {
+        Configuration config = new Configuration(100, 10, 10, 50, 1);
+        config.setLogLevel(LogLevel.OFF);
+        EventLog.configure(config);
+    }
+
+    @Test
+    void restoresIntoSmallerCapacityWithoutBlocking() throws Exception {
+        Path file = dir.resolve("journal.bin");
+
+        // Write a journal: 22 tickets released on screen 1, 2 of them booked, 1 on screen 2
+        try (BookingJournal journal = BookingJournal.open(file, BookingJournal.FsyncPolicy.ALWAYS, 10)) {
+            TicketPool pool = TicketPool.create(new Configuration(100, 10, 10, 50, 2));
+            pool.setJournal(journal);
+            pool.addTickets(1, tickets(1, 22));
+            pool.addTickets(2, tickets(2, 1));
+            assertEquals(2, pool.drainTickets(1, 2, new ArrayList<>()));
+        }
+
+        // Restore into screens that hold only 5 tickets each; the surplus must not block the restore
+        try (BookingJournal journal = BookingJournal.open(file, BookingJournal.FsyncPolicy.ALWAYS, 10)) {
+            TicketPool pool = TicketPool.create(new Configuration(100, 10, 10, 5, 2));
+            int restored = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> journal.restore(pool));
+
+            assertEquals(21, restored);
+            assertEquals(22, journal.getAddedCount(1));
+            assertEquals(1, journal.getAddedCount(2));
+            assertEquals(2, journal.getRecoveredBookings());
+            assertEquals(20, pool.getRemainingTickets(1));
+            assertEquals(1, pool.getRemainingTickets(2));
+        }
+    }
+
+    @Test
+    void replaysAcrossMappedWindowsAndDropsTornTail() throws Exception {
+        Path file = dir.resolve("journal.bin");
+        int evening = ShowTimes.id("7:30 PM");
+
+        // 10,000 records span several of the smallest replay windows
+        try (BookingJournal journal = BookingJournal.open(file, BookingJournal.FsyncPolicy.NEVER, 10)) {
+            for (int seat = 1; seat <= 10_000; seat++) {
+                Ticket ticket = new Ticket(1, seat, seat % 2 == 0 ? evening : ShowTimes.DEFAULT, TicketStatus.NOT_BOOKED);
+                if (seat == 9_999) {
+                    ticket.setSeatNumber("Box A");
+                }
+                journal.append(BookingJournal.Type.ADD, ticket);
+            }
+            for (int seat = 1; seat <= 100; seat++) {
+                journal.append(BookingJournal.Type.BOOK, new Ticket(1, seat, seat % 2 == 0 ? evening : ShowTimes.DEFAULT, TicketStatus.BOOKED));
+            }
+            journal.append(BookingJournal.Type.WITHDRAW, new Ticket(1, 101, ShowTimes.DEFAULT, TicketStatus.NOT_BOOKED));
+        }
+        long intact = Files.size(file);
+        Files.write(file, new byte[] {0, 1, 0, 0, 0, 7}, StandardOpenOption.APPEND); // A record torn by a crash
+
+        try (BookingJournal journal = BookingJournal.open(file, BookingJournal.FsyncPolicy.NEVER, 10, 0)) {
+            assertEquals(intact, Files.size(file));
+            assertEquals(9_999, journal.getAddedCount(1));
+            assertEquals(100, journal.getRecoveredBookings());
+
+            TicketPool pool = TicketPool.create(new Configuration(10_000, 10, 10, 50, 1));
+            assertEquals(9_899, journal.restore(pool));
+            assertEquals(4_950, pool.getRemainingTickets(1, evening));
+            assertTrue(pool.snapshotTickets(1).stream().anyMatch(ticket -> "Box A".equals(ticket.getSeatLabel())));
+        }
+    }
+
+    @Test
+    void restoresNothingFromEmptyJournal() throws Exception {
+        try (BookingJournal journal = BookingJournal.open(dir.resolve("empty.bin"), BookingJournal.FsyncPolicy.ALWAYS, 10)) {
+            TicketPool pool = TicketPool.create(new Configuration(100, 10, 10, 5, 1));
+
+            assertEquals(0, journal.restore(pool));
+            assertEquals(0, journal.getAddedCount(1));
+            assertEquals(0, journal.getRecoveredBookings());
+        }
+    }
+
+    private static List<Ticket> tickets(int screenNumber, int count) {
+        List<Ticket> tickets = new ArrayList<>(count);
+        for (int seat = 1; seat <= count; seat++) {
+            tickets.add(new Ticket(screenNumber, seat, ShowTimes.DEFAULT, TicketStatus.NOT_BOOKED));
+        }
+        return tickets;
+    }
+}
@@ -0,0 +1,121 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests which configuration edits the watcher applies, ignores or leaves for a restart.
+ */
+class ConfigWatcherTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void listsOnlyTheSettingsThatDiffer() {
+        Configuration before = new Configuration(100, 10, 10, 50, 3);
+        Configuration after = new Configuration(100, 20, 10, 50, 4);
+        after.setScreenCapacity(2, 5);
+        assertEquals(Set.of("ticketReleaseRate", "screens", "screenCapacities"), ConfigWatcher.changedSettings(before, after));
+        assertTrue(ConfigWatcher.changedSettings(before, new Configuration(100, 10, 10, 50, 3)).isEmpty());
+    }
+
+    @Test
+    void appliesLiveChangesOnlyOnce() throws IOException {
+        Configuration initial = new Configuration(100, 10, 10, 50, 3);
+        Path file = write(initial);
+        List<Configuration[]> changes = new ArrayList<>();
+        ConfigWatcher watcher = stopped(file, initial, changes);
+
+        Configuration edited = new Configuration(100, 25, 10, 80, 3);
+        write(edited);
+        assertTrue(watcher.reload());
+        assertFalse(watcher.reload()); // Nothing changed since
+        assertEquals(1, changes.size());
+        assertSame(initial, changes.get(0)[0]);
+        assertEquals(25, changes.get(0)[1].getTicketReleaseRate());
+        assertEquals(80, watcher.getCurrent().getMaxCapacity());
+        assertEquals(1, watcher.getReloadCount());
+    }
+
+    @Test
+    void ignoresMalformedAndInvalidFiles() throws IOException {
+        Configuration initial = new Configuration(100, 10, 10, 50, 3);
+        Path file = write(initial);
+        List<Configuration[]> changes = new ArrayList<>();
+        ConfigWatcher watcher = stopped(file, initial, changes);
+
+        Files.writeString(file, "{\"totalTickets\": 100, \"ticketRel"); // Half-written
+        assertFalse(watcher.reload());
+        write(new Configuration(100, 10, 10, 0, 3)); // Out of range
+        assertFalse(watcher.reload());
+
+        assertEquals(2, watcher.getRejectedCount());
+        assertSame(initial, watcher.getCurrent());
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    void leavesRestartOnlyChangesForTheNextRun() throws IOException {
+        Configuration initial = new Configuration(100, 10, 10, 50, 3);
+        Path file = write(initial);
+        List<Configuration[]> changes = new ArrayList<>();
+        ConfigWatcher watcher = stopped(file, initial, changes);
+
+        write(new Configuration(100, 10, 10, 50, 5));
+        assertFalse(watcher.reload());
+        assertTrue(changes.isEmpty());
+        assertEquals(0, watcher.getReloadCount());
+        assertEquals(5, watcher.getCurrent().getScreens()); // Not reported again on the next edit
+    }
+
+    @Test
+    void picksUpEditsAndReplacedFiles() throws Exception {
+        Configuration initial = new Configuration(100, 10, 10, 50, 3);
+        Path file = write(initial);
+        BlockingQueue<Configuration> changes = new ArrayBlockingQueue<>(10);
+        try (ConfigWatcher watcher = new ConfigWatcher(file, initial, (previous, current) -> changes.add(current))) {
+            write(new Configuration(100, 30, 10, 50, 3));
+            Configuration edited = changes.poll(10, TimeUnit.SECONDS);
+            assertNotNull(edited, "Edit in place");
+            assertEquals(30, edited.getTicketReleaseRate());
+
+            // Editors that save by writing a new file and renaming it over the old one
+            Path saved = dir.resolve("config.json.tmp");
+            Files.writeString(saved, new Configuration(100, 30, 40, 50, 3).toJson());
+            Files.move(saved, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Configuration replaced = changes.poll(10, TimeUnit.SECONDS);
+            assertNotNull(replaced, "Replaced file");
+            assertEquals(40, replaced.getCustomerRetrievalRate());
+        }
+    }
+
+    private Path write(Configuration config) throws IOException {
+        Path file = dir.resolve("config.json");
+        Files.writeString(file, config.toJson());
+        return file;
+    }
+
+    /**
+     * Creates a watcher and stops its thread, so the test alone decides when the file is reloaded.
+     */
+    private static ConfigWatcher stopped(Path file, Configuration initial, List<Configuration[]> changes) throws IOException {
+        ConfigWatcher watcher = new ConfigWatcher(file, initial, (previous, current) -> changes.add(new Configuration[] {previous, current}));
+        watcher.close();
+        return watcher;
+    }
+}
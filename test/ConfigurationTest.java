@@ -0,0 +1,35 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that a configuration rejects settings that cannot run a sale.
+ */
+class ConfigurationTest {
+    @Test
+    void acceptsDefaults() {
+        new Configuration(100, 10, 10, 50, 3).validate();
+    }
+
+    @Test
+    void rejectsScreenCapacitiesWithSeatMaps() {
+        Configuration config = new Configuration(100, 10, 10, 50, 3);
+        config.setSeatsPerRow(10);
+        config.validate(); // Seat maps alone are fine
+        config.setScreenCapacity(2, 5);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, config::validate);
+        assertTrue(e.getMessage().contains("seatsPerRow"), e.getMessage());
+    }
+
+    @Test
+    void reportsEveryProblemAtOnce() {
+        Configuration config = new Configuration(-1, 0, 10, 0, 3);
+
+        String message = assertThrows(IllegalArgumentException.class, config::validate).getMessage();
+        assertTrue(message.contains("totalTickets"), message);
+        assertTrue(message.contains("ticketReleaseRate"), message);
+        assertTrue(message.contains("maxCapacity"), message);
+    }
+}
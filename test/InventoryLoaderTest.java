@@ -0,0 +1,169 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests loading CSV and binary seat files, including files split into several regions.
+ */
+class InventoryLoaderTest {
+    private static final int EVENING = ShowTimes.id("7:30 PM");
+    private static final ForkJoinPool WORKERS = new ForkJoinPool(4);
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void silenceLog() {
+        Configuration config = new Configuration(100, 10, 10, 50, 1);
+        config.setLogLevel(LogLevel.OFF);
+        EventLog.configure(config);
+    }
+
+    @AfterAll
+    static void stopWorkers() {
+        WORKERS.shutdownNow();
+    }
+
+    @Test
+    void readsCsvWithHeaderQuotesLabelsAndBookedSeats() throws IOException {
+        Path file = dir.resolve("seats.csv");
+        Files.writeString(file, "Screen,Seat,Show Time,Status\r\n"
+                + "1,Seat-1,7:30 PM\r\n"
+                + "1, \"Seat-2\" ,\"7:30 PM\",Not Booked\r\n"
+                + "1,3,7:30 PM,Booked\r\n"
+                + "\r\n"
+                + "1,Box A,7:30 PM\r\n"
+                + "2,7," + ShowTimes.name(ShowTimes.DEFAULT) + "\r\n", StandardCharsets.UTF_8);
+        TicketPool pool = new TicketPool(10);
+
+        InventoryLoader.Result result = InventoryLoader.load(file, pool, WORKERS);
+        assertEquals(4, result.getLoaded());
+        assertEquals(1, result.getBooked());
+        assertEquals(0, result.getRejected());
+        assertEquals(3, pool.getRemainingTickets(1, EVENING));
+        assertEquals(List.of("Seat-1", "Seat-2", "Box A"), seatNumbers(pool.snapshotTickets(1)));
+        assertEquals(List.of("Seat-7"), seatNumbers(pool.snapshotTickets(2)));
+    }
+
+    @Test
+    void rejectsMalformedLines() throws IOException {
+        Path file = dir.resolve("seats.csv");
+        Files.writeString(file, "1,Seat-1,7:30 PM\nScreen 2,Seat-2,7:30 PM\n", StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> InventoryLoader.load(file, new TicketPool(10), WORKERS));
+
+        Files.writeString(file, "1,Seat-1,7:30 PM,Sold\n", StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> InventoryLoader.load(file, new TicketPool(10), WORKERS));
+    }
+
+    @Test
+    void binaryFileRoundTripsTicketsAndStatuses() throws IOException {
+        List<Ticket> tickets = new ArrayList<>();
+        for (int seat = 1; seat <= 6; seat++) {
+            tickets.add(new Ticket(1, seat, EVENING, seat == 4 ? TicketStatus.BOOKED : TicketStatus.NOT_BOOKED));
+        }
+        tickets.add(new Ticket(3, 9, ShowTimes.DEFAULT, TicketStatus.NOT_BOOKED));
+        Path file = dir.resolve("seats.bin");
+        InventoryLoader.writeBinary(file, tickets);
+        TicketPool pool = new TicketPool(10);
+
+        InventoryLoader.Result result = InventoryLoader.load(file, pool, WORKERS);
+        assertEquals(6, result.getLoaded());
+        assertEquals(1, result.getBooked());
+        assertEquals(List.of(1, 2, 3, 5, 6), seats(pool.snapshotTickets(1)));
+        assertEquals(5, pool.getRemainingTickets(1, EVENING));
+        assertEquals(List.of(9), seats(pool.snapshotTickets(3)));
+        assertEquals(1, pool.getRemainingTickets(3, ShowTimes.DEFAULT));
+    }
+
+    @Test
+    void binaryFormatRefusesSeatLabelsAndTruncatedFiles() throws IOException {
+        Ticket labelled = new Ticket(1, 0, EVENING, TicketStatus.NOT_BOOKED);
+        labelled.setSeatNumber("Box A");
+        assertThrows(IllegalArgumentException.class,
+                () -> InventoryLoader.writeBinary(dir.resolve("labels.bin"), List.of(labelled)));
+
+        Path file = dir.resolve("seats.bin");
+        InventoryLoader.writeBinary(file, List.of(new Ticket(1, 1, EVENING, TicketStatus.NOT_BOOKED),
+                new Ticket(1, 2, EVENING, TicketStatus.NOT_BOOKED)));
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 5));
+        assertThrows(IOException.class, () -> InventoryLoader.load(file, new TicketPool(10), WORKERS));
+    }
+
+    @Test
+    void existingShowsTakeOnlyWhatTheyHaveRoomFor() throws IOException {
+        Path file = dir.resolve("seats.csv");
+        StringBuilder lines = new StringBuilder();
+        for (int seat = 1; seat <= 5; seat++) {
+            lines.append("1,Seat-").append(seat).append(",7:30 PM\n");
+        }
+        Files.writeString(file, lines, StandardCharsets.UTF_8);
+        TicketPool pool = new TicketPool(10);
+        pool.scheduleShow(1, EVENING, 2);
+
+        InventoryLoader.Result result = InventoryLoader.load(file, pool, WORKERS);
+        assertEquals(2, result.getLoaded());
+        assertEquals(3, result.getRejected());
+        assertEquals(List.of(1, 2), seats(pool.snapshotTickets(1)));
+    }
+
+    @Test
+    void largeFilesSplitIntoRegionsLoadEverySeatOnceInFileOrder() throws IOException {
+        // Well over the 4 MB a single task parses, with lines of varying length so region
+        // boundaries fall inside lines
+        int seatCount = 600_000;
+        Path csv = dir.resolve("seats.csv");
+        List<Ticket> tickets = new ArrayList<>(seatCount);
+        try (BufferedWriter out = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            out.write("screen,seat,showTime,status\n");
+            for (int seat = 1; seat <= seatCount; seat++) {
+                int screen = seat % 3 + 1;
+                out.write(screen + ",Seat-" + seat + ",7:30 PM" + (seat % 2 == 0 ? ",Not Booked" : "") + "\n");
+                tickets.add(new Ticket(screen, seat, EVENING, TicketStatus.NOT_BOOKED));
+            }
+        }
+        assertTrue(Files.size(csv) > 3 * (4 << 20), "File spans several regions");
+        Path binary = dir.resolve("seats.bin");
+        InventoryLoader.writeBinary(binary, tickets);
+        assertTrue(Files.size(binary) > 4 << 20, "File spans several regions");
+
+        for (Path file : List.of(csv, binary)) {
+            TicketPool pool = new TicketPool(10);
+            InventoryLoader.Result result = InventoryLoader.load(file, pool, WORKERS);
+            assertEquals(seatCount, result.getLoaded(), file.getFileName().toString());
+            assertEquals(0, result.getRejected());
+            for (int screen = 1; screen <= 3; screen++) {
+                List<Integer> seats = seats(pool.snapshotTickets(screen));
+                assertEquals(seatCount / 3, seats.size(), "Screen " + screen);
+                int expected = screen == 1 ? 3 : screen - 1;
+                for (int seat : seats) {
+                    assertEquals(expected, seat, "Screen " + screen + " of " + file.getFileName());
+                    expected += 3;
+                }
+            }
+        }
+    }
+
+    private static List<Integer> seats(List<Ticket> tickets) {
+        return tickets.stream().map(Ticket::getSeat).toList();
+    }
+
+    private static List<String> seatNumbers(List<Ticket> tickets) {
+        return tickets.stream().map(Ticket::getSeatNumber).toList();
+    }
+}
@@ -0,0 +1,75 @@
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * Tests the show index's primitive-keyed map, including lookups while it is written.
+ */
+class LongMapTest {
+    @Test
+    void findsEveryKeyAcrossResizes() {
+        LongMap<String> map = new LongMap<>();
+        long[] keys = {0, -1, Long.MIN_VALUE, Long.MAX_VALUE, 1L << 32, (1L << 32) | 1};
+        for (long key : keys) {
+            assertNull(map.put(key, "v" + key));
+        }
+        for (long key = 1; key <= 1_000; key++) { // Sequential keys, as screen and show pairs are
+            map.put(key << 32 | 7, "s" + key);
+        }
+        assertEquals(keys.length + 1_000, map.size());
+        for (long key : keys) {
+            assertEquals("v" + key, map.get(key));
+        }
+        for (long key = 1; key <= 1_000; key++) {
+            assertEquals("s" + key, map.get(key << 32 | 7));
+        }
+        assertNull(map.get(42));
+    }
+
+    @Test
+    void replacesValuesAndVisitsEachOnce() {
+        LongMap<String> map = new LongMap<>();
+        map.put(1, "a");
+        map.put(2, "b");
+        assertEquals("a", map.put(1, "c"));
+        assertEquals(2, map.size());
+        Set<String> values = new HashSet<>();
+        map.forEach(values::add);
+        assertEquals(Set.of("b", "c"), values);
+        assertThrows(NullPointerException.class, () -> map.put(3, null));
+    }
+
+    @Test
+    void readersSeeEveryPublishedKeyWhileWritersGrowTheTable() throws Exception {
+        LongMap<Long> map = new LongMap<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (writing.get()) {
+                int size = map.size();
+                for (long key = 0; key < size; key++) {
+                    Long value = map.get(key);
+                    if (value == null || value != key) {
+                        failure.compareAndSet(null, "Key " + key + " of " + size + " read as " + value);
+                    }
+                }
+            }
+        });
+        reader.start();
+        for (long key = 0; key < 20_000; key++) {
+            map.put(key, key);
+        }
+        writing.set(false);
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> reader.join());
+        assertNull(failure.get());
+    }
+}
@@ -0,0 +1,79 @@
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that a mapped seat inventory keeps bookings, and only bookings, across a restart.
+ */
+class MappedSeatInventoryTest {
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void silenceLog() {
+        Configuration config = new Configuration(100, 10, 10, 50, 1);
+        config.setLogLevel(LogLevel.OFF);
+        EventLog.configure(config);
+    }
+
+    @Test
+    void reopenedInventoryKeepsBookingsAndPutsHeldSeatsBackOnSale() throws Exception {
+        Path file = dir.resolve("inventory.bin");
+        try (MappedSeatInventory inventory = MappedSeatInventory.create(file, 2, 10, "10:00 AM")) {
+            TicketPool pool = pool(inventory, 2);
+            List<Ticket> booked = new ArrayList<>();
+            assertEquals(2, pool.drainTickets(1, 2, booked));
+            TicketPool.Hold confirmed = pool.holdTicket(1, 1, TimeUnit.MINUTES);
+            assertNotNull(confirmed);
+            assertTrue(confirmed.confirm());
+            assertNotNull(pool.holdTicket(1, 1, TimeUnit.MINUTES)); // Still held when the pool stops
+            assertNotNull(pool.holdTicket(2, 1, TimeUnit.MINUTES));
+            assertEquals(5, inventory.getAvailableCount());
+        }
+
+        try (MappedSeatInventory inventory = MappedSeatInventory.open(file)) {
+            assertEquals(10, inventory.getSeatCount());
+            assertEquals(5 + 2, inventory.getAvailableCount());
+            assertEquals(2, inventory.queue(1).size());
+            assertEquals(5, inventory.queue(2).size());
+
+            // The booked seats 1 to 3 stay booked; the held seat 4 is first on sale again
+            TicketPool pool = pool(inventory, 2);
+            assertEquals(4, pool.removeTicket(1).getSeat());
+        }
+    }
+
+    @Test
+    void releasedHoldIsBackOnSaleInTheFile() throws Exception {
+        Path file = dir.resolve("inventory.bin");
+        try (MappedSeatInventory inventory = MappedSeatInventory.create(file, 1, 3, "10:00 AM")) {
+            TicketPool pool = pool(inventory, 1);
+            TicketPool.Hold hold = pool.holdTicket(1, 1, TimeUnit.MINUTES);
+            assertEquals(2, inventory.getAvailableCount());
+            assertTrue(hold.release());
+            assertEquals(3, inventory.getAvailableCount());
+            assertEquals(0, pool.getHeldTickets(1));
+        }
+        try (MappedSeatInventory inventory = MappedSeatInventory.open(file)) {
+            assertEquals(3, inventory.getAvailableCount());
+        }
+    }
+
+    private static TicketPool pool(MappedSeatInventory inventory, int screens) {
+        TicketPool pool = new TicketPool(inventory::queue);
+        for (int screen = 1; screen <= screens; screen++) {
+            pool.scheduleShow(screen, ShowTimes.DEFAULT, inventory.queue(screen).size());
+        }
+        pool.setTotalTickets(inventory.getAvailableCount());
+        return pool;
+    }
+}
@@ -0,0 +1,92 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that a snapshot restores a pool's tickets, totals and per-show counters.
+ */
+class PoolSnapshotTest {
+    private static final int EVENING = ShowTimes.id("7:30 PM");
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void silenceLog() {
+        Configuration config = new Configuration(100, 10, 10, 50, 1);
+        config.setLogLevel(LogLevel.OFF);
+        EventLog.configure(config);
+    }
+
+    @Test
+    void roundTripsTicketsAndPerShowCounters() throws Exception {
+        TicketPool pool = TicketPool.create(new Configuration(30, 10, 10, 50, 2));
+        pool.setTotalTickets(30);
+        pool.addTickets(1, tickets(1, ShowTimes.DEFAULT, 10));
+        pool.addTickets(1, tickets(1, EVENING, 6));
+        List<Ticket> labelled = tickets(2, ShowTimes.DEFAULT, 4);
+        labelled.get(0).setSeatNumber("Box A");
+        pool.addTickets(2, labelled);
+        assertEquals(3, pool.drainTickets(1, 3, new ArrayList<>()));
+        assertEquals(2, pool.drainTickets(1, EVENING, 2, new ArrayList<>()));
+        assertNotNull(pool.holdTicket(2, 1, TimeUnit.MINUTES)); // Written as on sale
+
+        Path file = dir.resolve("pool.snapshot");
+        assertEquals(15, PoolSnapshot.write(pool, file));
+
+        // Restore into shows smaller than the saved ones; loading must not wait for room
+        TicketPool restored = TicketPool.create(new Configuration(30, 10, 10, 2, 2));
+        assertEquals(15, (int) assertTimeoutPreemptively(Duration.ofSeconds(5), () -> PoolSnapshot.load(file, restored)));
+
+        assertEquals(25, restored.getTotalTicketsRemaining());
+        assertEquals(7, restored.getRemainingTickets(1, ShowTimes.DEFAULT));
+        assertEquals(4, restored.getRemainingTickets(1, EVENING));
+        assertEquals(4, restored.getRemainingTickets(2));
+        assertEquals(10, restored.getTicketsAdded(1, ShowTimes.DEFAULT));
+        assertEquals(3, restored.getTicketsBooked(1, ShowTimes.DEFAULT));
+        assertEquals(6, restored.getTicketsAdded(1, EVENING));
+        assertEquals(2, restored.getTicketsBooked(1, EVENING));
+        assertEquals(4, restored.getTicketsAdded(2, ShowTimes.DEFAULT));
+        assertEquals(0, restored.getTicketsBooked(2, ShowTimes.DEFAULT));
+        assertTrue(restored.snapshotTickets(2).stream().anyMatch(ticket -> "Box A".equals(ticket.getSeatLabel())));
+        assertTrue(restored.checkConsistency().isConsistent(), restored.checkConsistency().toString());
+    }
+
+    @Test
+    void rejectsCorruptSnapshot() throws Exception {
+        TicketPool pool = TicketPool.create(new Configuration(10, 10, 10, 50, 1));
+        pool.addTickets(1, tickets(1, ShowTimes.DEFAULT, 10));
+        Path file = dir.resolve("pool.snapshot");
+        PoolSnapshot.write(pool, file);
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+
+        TicketPool restored = TicketPool.create(new Configuration(10, 10, 10, 50, 1));
+        assertThrows(IOException.class, () -> PoolSnapshot.load(file, restored));
+        assertEquals(0, restored.getRemainingTickets(1));
+    }
+
+    private static List<Ticket> tickets(int screenNumber, int showTimeId, int count) {
+        List<Ticket> tickets = new ArrayList<>(count);
+        for (int seat = 1; seat <= count; seat++) {
+            tickets.add(new Ticket(screenNumber, seat, showTimeId, TicketStatus.NOT_BOOKED));
+        }
+        return tickets;
+    }
+}
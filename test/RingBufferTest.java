@@ -0,0 +1,109 @@
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the lock-free ring buffer behind ring-buffer screens.
+ */
+class RingBufferTest {
+    @Test
+    void isBoundedAndFirstInFirstOutAcrossWraps() {
+        RingBuffer<Integer> ring = new RingBuffer<>(3);
+        int next = 0;
+        for (int turn = 0; turn < 10; turn++) { // Each turn wraps the slots round once
+            for (int i = 0; i < 3; i++) {
+                assertTrue(ring.offer(next + i));
+            }
+            assertFalse(ring.offer(-1));
+            assertEquals(3, ring.size());
+            for (int i = 0; i < 3; i++) {
+                assertEquals(next + i, ring.poll());
+            }
+            assertNull(ring.poll());
+            assertTrue(ring.isEmpty());
+            next += 3;
+        }
+    }
+
+    @Test
+    void singleSlotBufferFillsUp() {
+        RingBuffer<Integer> ring = new RingBuffer<>(1);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(ring.offer(i));
+            assertFalse(ring.offer(-1));
+            assertEquals(i, ring.poll());
+            assertNull(ring.poll());
+        }
+    }
+
+    @Test
+    void forEachVisitsOldestFirstWithoutRemoving() {
+        RingBuffer<Integer> ring = new RingBuffer<>(4);
+        ring.offer(1);
+        ring.offer(2);
+        ring.poll();
+        ring.offer(3);
+        List<Integer> seen = new ArrayList<>();
+        ring.forEach(seen::add);
+        assertEquals(List.of(2, 3), seen);
+        assertEquals(2, ring.size());
+    }
+
+    @Test
+    void rejectsNonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(0));
+    }
+
+    @Test
+    void everyElementIsTakenExactlyOnceUnderContention() throws Exception {
+        int producers = 4;
+        int perProducer = 50_000;
+        RingBuffer<Integer> ring = new RingBuffer<>(64);
+        AtomicIntegerArray taken = new AtomicIntegerArray(producers * perProducer);
+        AtomicInteger remaining = new AtomicInteger(producers * perProducer);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int first = p * perProducer;
+            threads.add(new Thread(() -> {
+                for (int i = first; i < first + perProducer; i++) {
+                    while (!ring.offer(i)) {
+                        Thread.yield(); // Spinning would starve the thread holding the slot on few cores
+                    }
+                }
+            }));
+            threads.add(new Thread(() -> {
+                while (remaining.get() > 0) {
+                    Integer element = ring.poll();
+                    if (element != null) {
+                        taken.incrementAndGet(element);
+                        remaining.decrementAndGet();
+                    } else {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+
+        threads.forEach(Thread::start);
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        });
+        for (int i = 0; i < taken.length(); i++) {
+            assertEquals(1, taken.get(i), "Element " + i);
+        }
+        assertTrue(ring.isEmpty());
+    }
+}
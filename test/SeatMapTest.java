@@ -0,0 +1,131 @@
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests block booking in a seat map and through a seat-map screen.
+ */
+class SeatMapTest {
+    @BeforeAll
+    static void silenceLog() {
+        Configuration config = new Configuration(100, 10, 10, 50, 1);
+        config.setLogLevel(LogLevel.OFF);
+        EventLog.configure(config);
+    }
+
+    @Test
+    void booksTheMiddleRowFirst() {
+        SeatMap seats = full(3, 10);
+        int first = seats.book(4);
+        assertEquals(1, (first - 1) / 10, "Row of seat " + first);
+        for (int seat = first; seat < first + 4; seat++) {
+            assertFalse(seats.isAvailable(seat));
+        }
+        assertEquals(26, seats.getAvailableCount());
+    }
+
+    @Test
+    void blocksNeverSpanRows() {
+        SeatMap seats = new SeatMap(2, 5);
+        for (int seat : new int[] {4, 5, 6, 7}) { // The end of row 0 and the start of row 1
+            assertTrue(seats.release(seat));
+        }
+        assertEquals(-1, seats.book(4));
+        assertEquals(4, seats.getAvailableCount());
+        int first = seats.book(2);
+        assertTrue(first == 4 || first == 6, "Block at " + first);
+    }
+
+    @Test
+    void findsBlocksAcrossWordsOfWideRows() {
+        SeatMap seats = new SeatMap(1, 130);
+        for (int seat = 60; seat <= 70; seat++) {
+            seats.release(seat);
+        }
+        assertEquals(-1, seats.book(12));
+        assertEquals(60, seats.book(11));
+        assertEquals(0, seats.getAvailableCount());
+
+        seats = full(1, 130);
+        assertEquals(1, seats.book(130));
+    }
+
+    @Test
+    void releasesOnlySeatsInTheMapThatAreTaken() {
+        SeatMap seats = new SeatMap(2, 3);
+        assertFalse(seats.release(0));
+        assertFalse(seats.release(7));
+        assertTrue(seats.release(6));
+        assertFalse(seats.release(6));
+        List<Integer> available = new ArrayList<>();
+        seats.forEachAvailable(available::add);
+        assertEquals(List.of(6), available);
+    }
+
+    @Test
+    void concurrentBookersNeverShareASeat() throws Exception {
+        SeatMap seats = full(10, 20);
+        AtomicIntegerArray booked = new AtomicIntegerArray(seats.getSeatCount() + 1);
+        List<Thread> bookers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            bookers.add(new Thread(() -> {
+                int first;
+                while ((first = seats.book(2)) > 0) {
+                    booked.incrementAndGet(first);
+                    booked.incrementAndGet(first + 1);
+                }
+            }));
+        }
+        bookers.forEach(Thread::start);
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            for (Thread booker : bookers) {
+                booker.join();
+            }
+        });
+        int bookedSeats = 0;
+        for (int seat = 1; seat <= seats.getSeatCount(); seat++) {
+            assertTrue(booked.get(seat) <= 1, "Seat " + seat + " booked twice");
+            assertEquals(booked.get(seat) == 0, seats.isAvailable(seat), "Seat " + seat);
+            bookedSeats += booked.get(seat);
+        }
+        assertEquals(seats.getSeatCount() - bookedSeats, seats.getAvailableCount());
+        assertEquals(-1, seats.book(2)); // Only single seats can be left between the pairs
+    }
+
+    @Test
+    void poolBooksAdjacentSeatsFromASeatMapScreen() {
+        TicketPool pool = new TicketPool((screenNumber, showTimeId, capacity) ->
+                new SeatMapScreenQueue(screenNumber, new SeatMap(2, 5), showTimeId), 10);
+        List<Ticket> tickets = new ArrayList<>();
+        for (int seat = 1; seat <= 10; seat++) {
+            tickets.add(new Ticket(1, seat, ShowTimes.DEFAULT, TicketStatus.NOT_BOOKED));
+        }
+        pool.setTotalTickets(10);
+        pool.addTickets(1, tickets);
+
+        List<Ticket> party = new ArrayList<>();
+        assertEquals(3, pool.bookAdjacentTickets(1, 3, party));
+        assertEquals(party.get(0).getSeat() + 2, party.get(2).getSeat());
+        assertEquals((party.get(0).getSeat() - 1) / 5, (party.get(2).getSeat() - 1) / 5, "One row");
+        assertEquals(0, pool.bookAdjacentTickets(1, 6, new ArrayList<>())); // Wider than a row
+        assertEquals(7, pool.getRemainingTickets(1));
+        assertEquals(3, pool.getTicketsBooked(1));
+    }
+
+    private static SeatMap full(int rows, int seatsPerRow) {
+        SeatMap seats = new SeatMap(rows, seatsPerRow);
+        for (int seat = 1; seat <= seats.getSeatCount(); seat++) {
+            seats.release(seat);
+        }
+        return seats;
+    }
+}
@@ -0,0 +1,155 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the shard protocol's ticket lists and framing, and cancelling calls that wait on a node.
+ */
+class ShardProtocolTest {
+    private static final int EVENING = ShowTimes.id("7:30 PM");
+
+    private final ExecutorService workers = Executors.newCachedThreadPool();
+
+    @BeforeAll
+    static void silenceLog() {
+        Configuration config = new Configuration(100, 10, 10, 50, 1);
+        config.setLogLevel(LogLevel.OFF);
+        EventLog.configure(config);
+    }
+
+    @AfterEach
+    void stopWorkers() {
+        workers.shutdownNow();
+    }
+
+    @Test
+    void ticketListRoundTripsShowTimesAndLabels() throws Exception {
+        List<Ticket> tickets = new ArrayList<>();
+        tickets.add(new Ticket(1, 1, ShowTimes.DEFAULT, TicketStatus.NOT_BOOKED));
+        tickets.add(new Ticket(2, 7, EVENING, TicketStatus.BOOKED));
+        Ticket labelled = new Ticket(3, 2, EVENING, TicketStatus.NOT_BOOKED);
+        labelled.setSeatNumber("Box A");
+        tickets.add(labelled);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ShardProtocol.writeTickets(new DataOutputStream(bytes), tickets);
+        List<Ticket> read = new ArrayList<>();
+        assertEquals(3, ShardProtocol.readTickets(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), read));
+
+        assertEquals(7, read.get(1).getSeat());
+        assertEquals(EVENING, read.get(1).getShowTimeId());
+        assertEquals(TicketStatus.BOOKED, read.get(1).getTicketStatus());
+        assertEquals("Box A", read.get(2).getSeatLabel());
+        assertEquals(EVENING, read.get(2).getShowTimeId());
+    }
+
+    @Test
+    void framesLargerThanTheReadBufferArriveWhole() throws Exception {
+        TicketPool pool = TicketPool.create(new Configuration(5000, 10, 10, 5000, 1));
+        try (ShardServer server = serve(pool);
+             SocketTransport transport = SocketTransport.connect(server.getAddress())) {
+            ShardClient client = new ShardClient(transport);
+            List<Ticket> tickets = new ArrayList<>();
+            for (int seat = 1; seat <= 5000; seat++) {
+                tickets.add(new Ticket(1, seat, ShowTimes.DEFAULT, TicketStatus.NOT_BOOKED));
+            }
+            assertEquals(5000, client.addTickets(1, tickets));
+
+            List<Ticket> drained = new ArrayList<>();
+            assertEquals(5000, client.drainTickets(1, 5000, drained));
+            assertEquals(5000, drained.size());
+            assertEquals(0, client.getRemainingTickets(1));
+        }
+    }
+
+    @Test
+    void interruptedDrainStopsWaitingOnTheNode() throws Exception {
+        TicketPool pool = TicketPool.create(new Configuration(10, 10, 10, 50, 1));
+        pool.setTotalTickets(10);
+        try (ShardServer server = serve(pool);
+             SocketTransport transport = SocketTransport.connect(server.getAddress())) {
+            ShardClient client = new ShardClient(transport);
+            List<Ticket> drained = new ArrayList<>();
+            AtomicBoolean interrupted = new AtomicBoolean();
+            Thread customer = new Thread(() -> {
+                client.drainTickets(1, 5, drained);
+                interrupted.set(Thread.currentThread().isInterrupted());
+            });
+            customer.start();
+            awaitWaiting(customer);
+            customer.interrupt();
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> customer.join());
+            assertTrue(interrupted.get());
+            assertTrue(drained.isEmpty());
+
+            // A node still waiting for the gone customer would book these
+            pool.addTickets(1, tickets(1, 3));
+            Thread.sleep(100);
+            assertEquals(3, pool.getRemainingTickets(1));
+            assertEquals(0, pool.getTicketsBooked(1));
+        }
+    }
+
+    @Test
+    void interruptedAddReportsWhatTheNodeAdded() throws Exception {
+        TicketPool pool = TicketPool.create(new Configuration(5, 10, 10, 2, 1));
+        pool.setTotalTickets(5);
+        try (ShardServer server = serve(pool);
+             SocketTransport transport = SocketTransport.connect(server.getAddress())) {
+            ShardClient client = new ShardClient(transport);
+            AtomicInteger added = new AtomicInteger(-1);
+            Thread vendor = new Thread(() -> added.set(client.addTickets(1, tickets(1, 5))));
+            vendor.start();
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                while (pool.getRemainingTickets(1) < 2) {
+                    Thread.sleep(1);
+                }
+            });
+            vendor.interrupt();
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> vendor.join());
+
+            assertEquals(2, added.get());
+            List<Ticket> drained = new ArrayList<>();
+            assertEquals(2, pool.pollTickets(1, 5, drained));
+            Thread.sleep(100);
+            assertEquals(0, pool.getRemainingTickets(1)); // The rest of the batch was not added after the cancel
+        }
+    }
+
+    private ShardServer serve(TicketPool pool) throws Exception {
+        return new ShardServer(new ShardNode(pool), new InetSocketAddress("127.0.0.1", 0), workers);
+    }
+
+    private static void awaitWaiting(Thread thread) {
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            while (thread.getState() != Thread.State.WAITING) {
+                Thread.sleep(1);
+            }
+        });
+    }
+
+    private static List<Ticket> tickets(int screenNumber, int count) {
+        List<Ticket> tickets = new ArrayList<>(count);
+        for (int seat = 1; seat <= count; seat++) {
+            tickets.add(new Ticket(screenNumber, seat, ShowTimes.DEFAULT, TicketStatus.NOT_BOOKED));
+        }
+        return tickets;
+    }
+}
@@ -0,0 +1,202 @@
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the ticket pool's sales, run to a sell-out by vendor and customer threads.
+ */
+class TicketPoolTest {
+    private static final int SCREENS = 3;
+    private static final double RATE = 20_000; // Fast enough to sell out in well under a second
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void silenceLog() {
+        Configuration config = new Configuration(100, 10, 10, 50, 1);
+        config.setLogLevel(LogLevel.OFF);
+        EventLog.configure(config);
+    }
+
+    @Test
+    void crossScreenPurchasesSellOut() throws Exception {
+        int totalTickets = 3_001; // Not a multiple of the screens, so one screen gets an extra ticket
+        Configuration config = new Configuration(totalTickets, RATE, RATE, 10, SCREENS);
+        config.setCrossScreenPurchases(true);
+        TicketPool pool = TicketPool.create(config);
+        pool.setTotalTickets(totalTickets);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int screen = 1; screen <= SCREENS; screen++) {
+            int share = totalTickets / SCREENS + (screen <= totalTickets % SCREENS ? 1 : 0);
+            threads.add(new Thread(new Vendor(pool, screen, share, new RateLimiter(RATE)), "Vendor-" + screen));
+        }
+        threads.addAll(crossScreenCustomers(pool));
+
+        sellOut(pool, threads);
+
+        long booked = 0;
+        for (int screen = 1; screen <= SCREENS; screen++) {
+            assertTrue(pool.isScreenSoldOut(screen), "Screen " + screen + " sold out");
+            booked += pool.getTicketsBooked(screen);
+        }
+        assertEquals(totalTickets, booked);
+        assertEquals(0, pool.getTotalTicketsRemaining());
+    }
+
+    @Test
+    void crossScreenPurchasesSellOutMappedInventory() throws Exception {
+        int totalTickets = 3_001;
+        try (MappedSeatInventory inventory = MappedSeatInventory.create(dir.resolve("inventory.bin"),
+                SCREENS, totalTickets, "10:00 AM")) {
+            TicketPool pool = new TicketPool(inventory::queue);
+            for (int screen = 1; screen <= SCREENS; screen++) {
+                pool.scheduleShow(screen, ShowTimes.DEFAULT, inventory.queue(screen).size());
+                pool.finishReleasing(screen); // Every seat is on sale from the start
+            }
+            pool.setTotalTickets(inventory.getAvailableCount());
+
+            sellOut(pool, crossScreenCustomers(pool));
+
+            for (int screen = 1; screen <= SCREENS; screen++) {
+                assertTrue(pool.isScreenSoldOut(screen), "Screen " + screen + " sold out");
+                assertEquals(0, pool.getRemainingTickets(screen));
+            }
+            assertEquals(0, inventory.getAvailableCount());
+        }
+    }
+
+    @Test
+    void seatMapRejectsSeatsWithNoPlaceInsteadOfWaiting() {
+        TicketPool pool = new TicketPool((screenNumber, showTimeId, capacity) ->
+                new SeatMapScreenQueue(screenNumber, new SeatMap(1, 5), showTimeId), 5);
+        List<Ticket> tickets = new ArrayList<>();
+        for (int seat = 1; seat <= 6; seat++) {
+            tickets.add(new Ticket(1, seat, ShowTimes.DEFAULT, TicketStatus.NOT_BOOKED));
+        }
+
+        // Seat 6 is outside the map, so the batch fails once seats 1 to 5 are on sale
+        IllegalArgumentException batch = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> assertThrows(IllegalArgumentException.class, () -> pool.addTickets(1, tickets)));
+        assertTrue(batch.getMessage().contains("Seat-6"), batch.getMessage());
+        assertEquals(5, pool.getRemainingTickets(1));
+        assertEquals(5, pool.getTicketsAdded(1));
+
+        // Seat 1 is already on sale, so it has no place either
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertThrows(IllegalArgumentException.class,
+                () -> pool.addTicket(1, new Ticket(1, 1, ShowTimes.DEFAULT, TicketStatus.NOT_BOOKED))));
+        assertEquals(5, pool.getRemainingTickets(1));
+    }
+
+    @Test
+    void expiredHoldGoesBackOverCapacityWithoutWaiting() throws Exception {
+        TicketPool pool = new TicketPool(2);
+        pool.addTickets(1, seats(1, 1, 2));
+        TicketPool.Hold hold = pool.holdTicket(1, 50, TimeUnit.MILLISECONDS);
+        pool.addTickets(1, seats(1, 3, 1)); // Fills the room the hold freed
+
+        awaitHolds(pool, 0);
+        assertEquals(3, pool.getRemainingTickets(1)); // Counted against the show when added, so it goes back over capacity
+        assertFalse(hold.confirm());
+        assertTrue(pool.checkConsistency().isConsistent(), pool.checkConsistency().toString());
+    }
+
+    @Test
+    void expiredHoldWaitsForRoomInFullRing() throws Exception {
+        TicketPool pool = new TicketPool(2, WaitStrategy.PARK);
+        pool.addTickets(1, seats(1, 1, 2));
+        assertNotNull(pool.holdTicket(1, 50, TimeUnit.MILLISECONDS));
+        pool.addTickets(1, seats(1, 3, 1));
+
+        Thread.sleep(200); // Expired, but the ring has no room: the ticket stays held rather than lost
+        assertEquals(1, pool.getHeldTickets(1));
+        assertEquals(2, pool.getRemainingTickets(1));
+
+        assertEquals(1, pool.drainTickets(1, 1, new ArrayList<>()));
+        awaitHolds(pool, 0);
+        assertEquals(2, pool.getRemainingTickets(1));
+    }
+
+    @Test
+    void confirmedHoldIsBookedAndReleasedHoldIsBackOnSale() {
+        TicketPool pool = new TicketPool(5);
+        pool.setTotalTickets(2);
+        pool.addTickets(1, seats(1, 1, 2));
+
+        TicketPool.Hold confirmed = pool.holdTicket(1, 1, TimeUnit.MINUTES);
+        TicketPool.Hold released = pool.holdTicket(1, 1, TimeUnit.MINUTES);
+        assertEquals(2, pool.getHeldTickets(1));
+        assertTrue(confirmed.confirm());
+        assertEquals(TicketStatus.BOOKED, confirmed.getTicket().getTicketStatus());
+        assertTrue(released.release());
+        assertFalse(released.confirm()); // Only the first way a hold ends takes effect
+
+        assertEquals(0, pool.getHeldTickets(1));
+        assertEquals(1, pool.getRemainingTickets(1));
+        assertEquals(1, pool.getTotalTicketsRemaining());
+    }
+
+    private static List<Ticket> seats(int screenNumber, int firstSeat, int count) {
+        List<Ticket> tickets = new ArrayList<>(count);
+        for (int seat = firstSeat; seat < firstSeat + count; seat++) {
+            tickets.add(new Ticket(screenNumber, seat, ShowTimes.DEFAULT, TicketStatus.NOT_BOOKED));
+        }
+        return tickets;
+    }
+
+    /**
+     * Waits for the pool's holds on screen 1 to come down to a count, as the timing wheel expires them.
+     */
+    private static void awaitHolds(TicketPool pool, int held) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pool.getHeldTickets(1) != held && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(held, pool.getHeldTickets(1));
+    }
+
+    /**
+     * Creates one customer per screen, each willing to buy from any screen.
+     */
+    private static List<Thread> crossScreenCustomers(TicketPool pool) {
+        int[] allScreens = new int[SCREENS];
+        for (int i = 0; i < SCREENS; i++) {
+            allScreens[i] = i + 1;
+        }
+        List<Thread> threads = new ArrayList<>();
+        for (int screen = 1; screen <= SCREENS; screen++) {
+            Customer customer = new Customer(pool, screen, new RateLimiter(RATE));
+            customer.setAcceptableScreens(allScreens);
+            threads.add(new Thread(customer, "Customer-Screen-" + screen));
+        }
+        return threads;
+    }
+
+    /**
+     * Runs the threads until the pool sells out, then checks that every one of them finishes.
+     */
+    private static void sellOut(TicketPool pool, List<Thread> threads) throws Exception {
+        threads.forEach(thread -> thread.setDaemon(true)); // A hung thread fails the test instead of the build
+        threads.forEach(Thread::start);
+        pool.whenSoldOut().get(10, TimeUnit.SECONDS);
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+            assertFalse(thread.isAlive(), thread.getName() + " finished after the sell-out");
+        }
+        assertTrue(pool.areAllTicketsSold());
+    }
+}
@@ -0,0 +1,88 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that the timing wheel fires timeouts on time, never early, and only once.
+ */
+class TimingWheelTest {
+    private final TimingWheel wheel = new TimingWheel(5, TimeUnit.MILLISECONDS, 8, "Test-Wheel");
+
+    @AfterEach
+    void closeWheel() {
+        wheel.close();
+    }
+
+    @Test
+    void firesNoEarlierThanItsDelay() throws Exception {
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        long[] firedAfter = new long[1];
+        wheel.schedule(new Task(() -> {
+            firedAfter[0] = System.nanoTime() - start;
+            fired.countDown();
+        }), 60, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertTrue(firedAfter[0] >= TimeUnit.MILLISECONDS.toNanos(60), firedAfter[0] + " ns");
+    }
+
+    @Test
+    void firesTimeoutsLongerThanOneTurn() throws Exception {
+        CountDownLatch fired = new CountDownLatch(3);
+        for (int delay : new int[] {7, 45, 130}) { // One turn of this wheel lasts 40 ms
+            wheel.schedule(new Task(fired::countDown), delay, TimeUnit.MILLISECONDS);
+        }
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void cancelledTimeoutNeverFires() throws Exception {
+        AtomicInteger fired = new AtomicInteger();
+        Task cancelled = new Task(fired::incrementAndGet);
+        CountDownLatch done = new CountDownLatch(1);
+        wheel.schedule(cancelled, 20, TimeUnit.MILLISECONDS);
+        wheel.schedule(new Task(done::countDown), 60, TimeUnit.MILLISECONDS);
+
+        assertTrue(cancelled.stop());
+        assertFalse(cancelled.stop()); // Only one of cancelling and expiring wins
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, fired.get());
+        assertFalse(cancelled.isPending());
+    }
+
+    @Test
+    void rejectsSchedulingTwice() {
+        Task task = new Task(() -> { });
+        wheel.schedule(task, 1, TimeUnit.SECONDS);
+        assertThrows(IllegalStateException.class, () -> wheel.schedule(task, 1, TimeUnit.SECONDS));
+    }
+
+    /**
+     * A timeout that runs an action when it fires.
+     */
+    private static final class Task extends TimingWheel.Timeout {
+        private final Runnable action;
+
+        private Task(Runnable action) {
+            this.action = action;
+        }
+
+        private boolean stop() {
+            return cancel();
+        }
+
+        @Override
+        protected void expired() {
+            action.run();
+        }
+    }
+}